@@ -23,8 +23,18 @@ public class FordFulkerson {
     private FlowEdge[] fromEdge;    // edgeTo[v] = last edge on shortest residual s->v path
     private double maxFlow;         // current value of max flow
     static int count = 0;
+    private long scanned, enqueued, dequeued, marked; // operation counts reported to SearchMetrics
 
     public FordFulkerson(FlowNetwork G, int source, int target) {
+        this(G, source, target, SearchMetrics.NONE);
+    }
+
+    /**
+     * Computes a maximum flow as above and reports the work of all breadth-first searches to {metrics}:
+     * residual edges scanned, queue offers and polls, and vertices marked.
+     */
+    public FordFulkerson(FlowNetwork G, int source, int target, SearchMetrics metrics) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
         V = G.V();
         validateAll(G, source, target);
 
@@ -35,6 +45,8 @@ public class FordFulkerson {
             augmentFlow(source, target, bottleneck);
             maxFlow += bottleneck;
         }
+        if (metrics.isEnabled())
+            metrics.record(scanned, enqueued, 0, dequeued, marked, System.nanoTime() - start);
 
         // check optimality conditions
         assert check(G, source, target);
@@ -96,19 +108,25 @@ public class FordFulkerson {
         // breadth-first search
         Queue<Integer> queue = new LinkedList<>();
         queue.offer(source);
+        enqueued++;
         isVisited[source] = true;
+        marked++;
         while (!queue.isEmpty() && !isVisited[target]) {
             int v = queue.poll();
+            dequeued++;
 
             for (FlowEdge e : G.getAdj(v)) {
                 int w = e.other(v);
+                scanned++;
 
                 // if residual capacity from v to w
                 if (e.residualCapacityTo(w) > 0) {
                     if (!isVisited[w]) {
                         fromEdge[w] = e;
                         isVisited[w] = true;
+                        marked++;
                         queue.offer(w);
+                        enqueued++;
                     }
                 }
             }
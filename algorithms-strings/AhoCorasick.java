@@ -0,0 +1,256 @@
+/******************************************************************************
+ *  Execution:    java AhoCorasick patterns.txt < text.txt
+ *
+ *  Finds all occurrences of a set of patterns in a byte stream in one pass
+ *  with the Aho-Corasick automaton compiled into a DFA.
+ *
+ *  % java AhoCorasick patterns.txt < data/tale.txt
+ *  best of times: 2
+ *  worst of times: 2
+ *  it was: 990
+ *  ...
+ *
+ ******************************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The AhoCorasick class finds all occurrences of a fixed set of byte patterns in a text in time linear in the
+ * length of the text plus the number of occurrences, however many patterns there are.
+ * <p>
+ * The patterns are put in a trie. The failure link of a trie state points to the state of the longest proper
+ * suffix of its string that is also in the trie, and its dictionary suffix link to the nearest state on the
+ * failure chain where a pattern ends. The failure links are then compiled away: for every state and byte the
+ * transition is the trie edge if there is one and otherwise the transition of the failure state, computed in
+ * breadth-first order, so scanning a text is one table lookup per byte and never follows a failure link. The
+ * states are numbered in breadth-first order, which keeps the shallow states a scan mostly visits together in
+ * memory, and a transition into a state where some pattern ends carries a flag in its sign bit, so the output
+ * tables are only read at matches.
+ * <p>
+ * Bytes that occur in no pattern always lead back to the root, so the table has one column per byte occurring
+ * in the patterns plus one for all others: the bytes are mapped to these classes first. The table is one flat
+ * {int[]} of states * classes entries; a DNA pattern set needs 5 ints per state instead of 256.
+ * <p>
+ * A text can be matched from an array or from an {InputStream} of any length through a {Listener}, which
+ * receives every occurrence with its pattern index and starting offset, in order of the end offsets.
+ */
+public class AhoCorasick {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int OUTPUT = 0x80000000;   // flag of a transition into a state with output
+
+    /**
+     * Receives the occurrences found by {#match(InputStream, Listener)}.
+     */
+    public interface Listener {
+        /**
+         * Called for every occurrence of pattern {pattern} starting at offset {start} of the text.
+         */
+        void match(int pattern, long start);
+    }
+
+    private final int patterns;
+    private final int[] length;          // length[p] = length of pattern p
+    private final int[] byteClass;       // byteClass[b] = column of byte b; 0 for bytes in no pattern
+    private final int classes;
+    private final int states;
+    private final int[] delta;           // delta[s * classes + c] = next state from s on class c, | OUTPUT
+    private final int[] firstPattern;    // firstPattern[s] = a pattern ending in state s, or -1
+    private final int[] samePattern;     // samePattern[p] = another pattern equal to p, or -1
+    private final int[] output;          // output[s] = nearest state with a pattern on the failure chain from s, or -1
+    private final int[] dictionary;      // dictionary[s] = nearest proper failure state with a pattern, or -1
+
+    /**
+     * Builds the automaton of the UTF-8 encodings of {patterns}.
+     */
+    public AhoCorasick(List<String> patterns) {
+        this(encode(patterns));
+    }
+
+    /**
+     * Builds the automaton of {patterns}, none of which may be empty. Equal patterns are all reported.
+     */
+    public AhoCorasick(byte[][] patterns) {
+        this.patterns = patterns.length;
+        length = new int[patterns.length];
+        for (int p = 0; p < patterns.length; p++) {
+            if (patterns[p].length == 0) throw new IllegalArgumentException("pattern " + p + " is empty");
+            length[p] = patterns[p].length;
+        }
+
+        byteClass = new int[256];
+        int k = 1;
+        for (byte[] pattern : patterns)
+            for (byte b : pattern)
+                if (byteClass[b & 0xFF] == 0) byteClass[b & 0xFF] = k++;
+        classes = k;
+
+        // the trie, with -1 for missing edges
+        int capacity = 16;
+        int[] trie = new int[capacity * classes];
+        Arrays.fill(trie, -1);
+        int[] first = new int[capacity];
+        Arrays.fill(first, -1);
+        samePattern = new int[patterns.length];
+        int count = 1;
+        for (int p = 0; p < patterns.length; p++) {
+            int s = 0;
+            for (byte b : patterns[p]) {
+                int edge = s * classes + byteClass[b & 0xFF];
+                if (trie[edge] < 0) {
+                    if (count == capacity) {
+                        if ((long) 2 * capacity * classes > Integer.MAX_VALUE - 8)
+                            throw new IllegalArgumentException("too many states for one transition table");
+                        capacity *= 2;
+                        trie = Arrays.copyOf(trie, capacity * classes);
+                        Arrays.fill(trie, count * classes, trie.length, -1);
+                        first = Arrays.copyOf(first, capacity);
+                        Arrays.fill(first, count, capacity, -1);
+                    }
+                    trie[edge] = count++;
+                }
+                s = trie[edge];
+            }
+            samePattern[p] = first[s];
+            first[s] = p;
+        }
+        states = count;
+
+        // renumber the states in breadth-first order, so the shallow states, where a scan spends most of its
+        // time, share cache lines and pages
+        int[] order = new int[states];
+        int[] id = new int[states];
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int s = order[head];
+            id[s] = head;
+            for (int c = 0; c < classes; c++) {
+                int child = trie[s * classes + c];
+                if (child >= 0) order[tail++] = child;
+            }
+        }
+        delta = new int[states * classes];
+        firstPattern = new int[states];
+        for (int s = 0; s < states; s++) {
+            int old = order[s];
+            firstPattern[s] = first[old];
+            for (int c = 0; c < classes; c++) {
+                int child = trie[old * classes + c];
+                delta[s * classes + c] = child < 0 ? -1 : id[child];
+            }
+        }
+
+        // in breadth-first order, the failure state of a child is the transition of the parent's failure state
+        int[] fail = new int[states];
+        output = new int[states];
+        dictionary = new int[states];
+        output[0] = firstPattern[0] >= 0 ? 0 : -1;
+        dictionary[0] = -1;
+        for (int s = 0; s < states; s++) {
+            int f = fail[s];
+            if (s > 0) {
+                dictionary[s] = output[f];
+                output[s] = firstPattern[s] >= 0 ? s : dictionary[s];
+            }
+            for (int c = 0; c < classes; c++) {
+                int edge = s * classes + c;
+                int child = delta[edge];
+                if (child < 0) delta[edge] = s == 0 ? 0 : delta[f * classes + c];
+                else fail[child] = s == 0 ? 0 : delta[f * classes + c];
+            }
+        }
+        // flag the transitions into states with output in the sign bit, so a scan reads output[] only on a match
+        for (int edge = 0; edge < delta.length; edge++)
+            if (output[delta[edge]] >= 0) delta[edge] |= OUTPUT;
+    }
+
+    private static byte[][] encode(List<String> patterns) {
+        byte[][] bytes = new byte[patterns.size()][];
+        for (int p = 0; p < bytes.length; p++)
+            bytes[p] = patterns.get(p).getBytes(StandardCharsets.UTF_8);
+        return bytes;
+    }
+
+    /**
+     * Returns the number of patterns.
+     */
+    public int size() {
+        return patterns;
+    }
+
+    /**
+     * Returns the number of states of the automaton.
+     */
+    public int states() {
+        return states;
+    }
+
+    /**
+     * Reports every occurrence in {text} to {listener}.
+     */
+    public void match(byte[] text, Listener listener) {
+        scan(text, 0, text.length, 0, 0, listener);
+    }
+
+    /**
+     * Reads {in} to its end and reports every occurrence to {listener}; the automaton state carries over from
+     * one buffer to the next, so occurrences may span buffers.
+     */
+    public void match(InputStream in, Listener listener) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int state = 0;
+        long offset = 0;
+        try {
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                state = scan(buffer, 0, n, state, offset, listener);
+                offset += n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read the text", e);
+        }
+    }
+
+    /**
+     * Returns the number of occurrences in {text}.
+     */
+    public long count(byte[] text) {
+        long[] count = {0};
+        match(text, (pattern, start) -> count[0]++);
+        return count[0];
+    }
+
+    // runs the DFA over text[from .. to - 1], which starts at offset of the whole text, from state
+    private int scan(byte[] text, int from, int to, int state, long offset, Listener listener) {
+        for (int i = from; i < to; i++) {
+            state = delta[state * classes + byteClass[text[i] & 0xFF]];
+            if (state >= 0) continue;
+            state &= ~OUTPUT;
+            long end = offset + (i - from) + 1;
+            for (int s = output[state]; s >= 0; s = dictionary[s])
+                for (int p = firstPattern[s]; p >= 0; p = samePattern[p])
+                    listener.match(p, end - length[p]);
+        }
+        return state;
+    }
+
+    /**
+     * Reads one pattern per line from the file named by the argument, matches standard input and prints the
+     * number of occurrences of every pattern.
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+        lines.removeIf(String::isEmpty);
+        AhoCorasick automaton = new AhoCorasick(lines);
+        long[] count = new long[automaton.size()];
+        automaton.match(new BufferedInputStream(System.in, BUFFER_SIZE), (pattern, start) -> count[pattern]++);
+        for (int p = 0; p < count.length; p++)
+            System.out.println(lines.get(p) + ": " + count[p]);
+    }
+}
@@ -1,6 +1,7 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class BWMatching {
@@ -23,24 +24,19 @@ public class BWMatching {
         }
     }
 
-    // Preprocess the Burrows-Wheeler Transform bwt of some text
-    // and compute as a result:
-    //   * starts - for each character C in bwt, starts[C] is the first position
-    //       of this character in the sorted array of
-    //       all characters of the text.
-    //   * occ_count_before - for each character C in bwt and each position P in bwt,
-    //       occ_count_before[C][P] is the number of occurrences of character C in bwt
-    //       from position 0 to position P inclusive.
-    private void PreprocessBWT(String bwt, Map<Character, Integer> starts, Map<Character, int[]> occ_counts_before) {
-        // Implement this function yourself
+    // Preprocess the Burrows-Wheeler Transform bwt of some text, ending with '$',
+    // into an FM-index: the BWT in a wavelet tree, where the number of occurrences
+    // of a character C in bwt before position P is a few bit vector ranks, instead
+    // of a table of occurrence counts for each character and each position.
+    private FMIndex PreprocessBWT(String bwt) {
+        return FMIndex.fromBWT(bwt.getBytes(StandardCharsets.UTF_8), (byte) '$');
     }
 
     // Compute the number of occurrences of string pattern in the text
-    // given only Burrows-Wheeler Transform bwt of the text and additional
-    // information we get from the preprocessing stage - starts and occ_counts_before.
-    int CountOccurrences(String pattern, String bwt, Map<Character, Integer> starts, Map<Character, int[]> occ_counts_before) {
-        // Implement this function yourself
-        return -1;
+    // given only the FM-index of the Burrows-Wheeler Transform of the text,
+    // in O(|pattern|) time for a fixed alphabet.
+    int CountOccurrences(String pattern, FMIndex index) {
+        return index.count(pattern);
     }
 
     static public void main(String[] args) throws IOException {
@@ -57,23 +53,17 @@ public class BWMatching {
     public void run() throws IOException {
         FastScanner scanner = new FastScanner();
         String bwt = scanner.next();
-        // Start of each character in the sorted list of characters of bwt,
-        // see the description in the comment about function PreprocessBWT
-        Map<Character, Integer> starts = new HashMap<Character, Integer>();
-        // Occurrence counts for each character and each position in bwt,
-        // see the description in the comment about function PreprocessBWT
-        Map<Character, int[]> occ_counts_before = new HashMap<Character, int[]>();
-        // Preprocess the BWT once to get starts and occ_count_before.
-        // For each pattern, we will then use these precomputed values and
-        // spend only O(|pattern|) to find all occurrences of the pattern
-        // in the text instead of O(|pattern| + |text|).
-        PreprocessBWT(bwt, starts, occ_counts_before);
+        // Preprocess the BWT once into an FM-index.
+        // For each pattern, we will then spend only O(|pattern|)
+        // to find all occurrences of the pattern in the text
+        // instead of O(|pattern| + |text|).
+        FMIndex index = PreprocessBWT(bwt);
         int patternCount = scanner.nextInt();
         String[] patterns = new String[patternCount];
         int[] result = new int[patternCount];
         for (int i = 0; i < patternCount; ++i) {
             patterns[i] = scanner.next();
-            result[i] = CountOccurrences(patterns[i], bwt, starts, occ_counts_before);
+            result[i] = CountOccurrences(patterns[i], index);
         }
         print(result);
     }
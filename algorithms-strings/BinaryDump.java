@@ -34,15 +34,16 @@ public class BinaryDump {
             bitsPerLine = Integer.parseInt(args[0]);
         }
 
+        BitReader in = BitReader.standardInput();
         int count;
-        for (count = 0; !BinaryStdIn.isEmpty(); count++) {
+        for (count = 0; !in.isEmpty(); count++) {
             if (bitsPerLine == 0) {
-                BinaryStdIn.readBoolean();
+                in.readBoolean();
                 continue;
             }
             else if (count != 0 && count % bitsPerLine == 0) System.out.println();
-            if (BinaryStdIn.readBoolean()) System.out.print(1);
-            else                           System.out.print(0);
+            if (in.readBoolean()) System.out.print(1);
+            else                  System.out.print(0);
         }
         if (bitsPerLine != 0) System.out.println();
         System.out.println(count + " bits");
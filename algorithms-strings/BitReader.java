@@ -0,0 +1,212 @@
+/******************************************************************************
+ *  Execution:    java BitReader < input.bin
+ *
+ *  Copies standard input to standard output 8 bits at a time.
+ *
+ *  % java BitReader < abra.txt
+ *  ABRACADABRA!
+ *
+ ******************************************************************************/
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.util.NoSuchElementException;
+
+/**
+ * The BitReader class reads a stream of bits, most significant first, from a {ReadableByteChannel}, such as a file
+ * or standard input, or from a {ByteBuffer}, such as a byte array or a memory-mapped file. The values read are not
+ * aligned: a value of any number of bits starts right after the last bit of the previous one. Ints and longs are
+ * read big-endian, as {BitWriter} writes them.
+ * <p>
+ * The next bits are kept in a 64-bit buffer, refilled from a long read at once while at least 8 bytes are left,
+ * so reading a value of up to 64 bits is a few shifts. For a channel the bytes are read into a 64 KB buffer
+ * first. A BitReader replaces BinaryStdIn: it is an object, so there can be one per stream and thread, and reads
+ * many bits per call.
+ */
+public class BitReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;   // null when reading from a buffer
+    private final ByteBuffer bytes;               // bytes read from the channel not in buffer yet, or the source
+    private final boolean bigEndian;
+    private boolean end;                          // whether the channel has no more bytes
+    private long buffer;                          // the last count bits are the next ones
+    private int count;
+
+    /**
+     * Initializes a bit reader from {channel}.
+     */
+    public BitReader(ReadableByteChannel channel) {
+        if (channel == null) throw new IllegalArgumentException("argument is null");
+        this.channel = channel;
+        bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        bytes.flip();
+        bigEndian = true;
+    }
+
+    /**
+     * Initializes a bit reader from the remaining bytes of {source}, from its position, which it advances.
+     */
+    public BitReader(ByteBuffer source) {
+        if (source == null) throw new IllegalArgumentException("argument is null");
+        channel = null;
+        bytes = source;
+        bigEndian = source.order() == ByteOrder.BIG_ENDIAN;
+        end = true;
+    }
+
+    /**
+     * Returns a bit reader from standard input.
+     */
+    public static BitReader standardInput() {
+        return new BitReader(new FileInputStream(FileDescriptor.in).getChannel());
+    }
+
+    // reads more bytes from the channel
+    private void read() {
+        bytes.compact();
+        try {
+            while (bytes.position() < 8 && !end)
+                end = channel.read(bytes) < 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read the bits", e);
+        }
+        bytes.flip();
+    }
+
+    // moves bits to the buffer until it holds at least n <= 57 of them or the input is exhausted
+    private void fill(int n) {
+        if (bytes.remaining() < 8 && !end) read();
+        if (bytes.remaining() >= 8) {
+            // take as many whole bytes of the next 8 as fit
+            int position = bytes.position();
+            long word = bytes.getLong(position);
+            if (!bigEndian) word = Long.reverseBytes(word);
+            int taken = (64 - count) >>> 3;
+            buffer = taken == 8 ? word : buffer << (8 * taken) | word >>> (64 - 8 * taken);
+            count += 8 * taken;
+            bytes.position(position + taken);
+            return;
+        }
+        while (count <= 56 && bytes.hasRemaining()) {
+            buffer = buffer << 8 | bytes.get() & 0xFF;
+            count += 8;
+            if (count < n && !bytes.hasRemaining() && !end) read();
+        }
+    }
+
+    /**
+     * Is the input exhausted?
+     */
+    public boolean isEmpty() {
+        if (count == 0) fill(1);
+        return count == 0;
+    }
+
+    /**
+     * Reads the next n bits, for 0 <= n <= 64, and returns them as the last n bits of a long.
+     */
+    public long readBits(int n) {
+        if (n < 0 || n > 64) throw new IllegalArgumentException("Illegal value for n = " + n);
+        if (n > 57) return readBits(n - 32) << 32 | readBits(32);
+        if (n == 0) return 0;
+        if (count < n) {
+            fill(n);
+            if (count < n) throw new NoSuchElementException("Reading from empty input stream");
+        }
+        count -= n;
+        return buffer >>> count & -1L >>> (64 - n);
+    }
+
+    /**
+     * Returns the next n bits, for 0 < n <= 32, without reading them; bits past the end of the input are 0s.
+     */
+    public int peekBits(int n) {
+        if (n < 1 || n > 32) throw new IllegalArgumentException("Illegal value for n = " + n);
+        if (count < n) fill(n);
+        long bits = count >= n ? buffer >>> (count - n) : buffer << (n - count);
+        return (int) (bits & -1L >>> (64 - n));
+    }
+
+    /**
+     * Skips the next n bits, for 0 <= n <= 57; it may follow {#peekBits(int)} of at least n bits.
+     */
+    public void skipBits(int n) {
+        if (count < n) {
+            fill(n);
+            if (count < n) throw new NoSuchElementException("Reading from empty input stream");
+        }
+        count -= n;
+    }
+
+    /**
+     * Reads the next bit and returns it as a boolean.
+     */
+    public boolean readBoolean() {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * Reads the next 8 bits and returns them as an 8-bit byte.
+     */
+    public byte readByte() {
+        return (byte) readBits(8);
+    }
+
+    /**
+     * Reads the next 8 bits and returns them as an 8-bit char.
+     */
+    public char readChar() {
+        return (char) readBits(8);
+    }
+
+    /**
+     * Reads the next 32 bits and returns them as a 32-bit int.
+     */
+    public int readInt() {
+        return (int) readBits(32);
+    }
+
+    /**
+     * Reads the next r bits and returns them as an r-bit int, for 1 <= r <= 32.
+     */
+    public int readInt(int r) {
+        if (r < 1 || r > 32) throw new IllegalArgumentException("Illegal value of r = " + r);
+        return (int) readBits(r);
+    }
+
+    /**
+     * Reads the next 64 bits and returns them as a 64-bit long.
+     */
+    public long readLong() {
+        return readBits(64);
+    }
+
+    /**
+     * Closes the channel, if any.
+     */
+    public void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not close the channel", e);
+        }
+    }
+
+    /**
+     * Copies standard input to standard output a byte at a time.
+     */
+    public static void main(String[] args) {
+        BitReader in = standardInput();
+        BitWriter out = BitWriter.standardOutput();
+        while (!in.isEmpty())
+            out.write(in.readByte());
+        out.close();
+    }
+}
@@ -0,0 +1,158 @@
+/******************************************************************************
+ *  A static bit vector with constant-time rank and logarithmic-time select.
+ ******************************************************************************/
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * The BitVector class is an immutable sequence of n bits that answers rank1(i), the number of ones before position
+ * i, in constant time and select1(k), the position of the k-th one, in O(log n) time.
+ * <p>
+ * The bits are stored in 64-bit words. For every block of 8 words (512 bits) an int holds the number of ones
+ * before the block, so rank1 is one lookup plus at most 8 {Long#bitCount(long)}s, and the directory adds 1/16 bit
+ * per bit. select1 binary searches the directory and then scans one block.
+ * <p>
+ * The words and the directory are kept in {LongBuffer} and {IntBuffer} views, so a bit vector can be backed by a
+ * heap array while it is built and by a memory-mapped file after {#write(ByteBuffer)} and {#read(ByteBuffer)},
+ * without copying. The serialized form is n, the words and the directory, little-endian and 8-byte aligned.
+ */
+public class BitVector {
+    private static final int WORDS_PER_BLOCK = 8;
+
+    private final int n;
+    private final LongBuffer words;    // bit i is bit i % 64 of word i / 64
+    private final IntBuffer blocks;    // blocks[b] = number of ones in words 0 .. 8b - 1; one extra entry at the end
+
+    /**
+     * Builds a bit vector of the first n bits of {bits}; bit i is bit i % 64 of bits[i / 64].
+     */
+    public BitVector(long[] bits, int n) {
+        if (n < 0 || (long) bits.length * 64 < n)
+            throw new IllegalArgumentException(n + " bits do not fit " + bits.length + " words");
+        this.n = n;
+        int wordCount = words(n);
+        long[] copy = new long[wordCount];
+        System.arraycopy(bits, 0, copy, 0, wordCount);
+        if ((n & 63) != 0) copy[wordCount - 1] &= (1L << n) - 1;   // clear the bits beyond n
+        int blockCount = (wordCount + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK;
+        int[] directory = new int[blockCount + 1];
+        int ones = 0;
+        for (int w = 0; w < wordCount; w++) {
+            if (w % WORDS_PER_BLOCK == 0) directory[w / WORDS_PER_BLOCK] = ones;
+            ones += Long.bitCount(copy[w]);
+        }
+        directory[blockCount] = ones;
+        words = LongBuffer.wrap(copy);
+        blocks = IntBuffer.wrap(directory);
+    }
+
+    private BitVector(int n, LongBuffer words, IntBuffer blocks) {
+        this.n = n;
+        this.words = words;
+        this.blocks = blocks;
+    }
+
+    private static int words(int n) {
+        return (n + 63) >>> 6;
+    }
+
+    private static int blocks(int n) {
+        return (words(n) + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK + 1;
+    }
+
+    public int length() {
+        return n;
+    }
+
+    /**
+     * Returns the number of ones.
+     */
+    public int ones() {
+        return blocks.get(blocks.limit() - 1);
+    }
+
+    public boolean get(int i) {
+        return (words.get(i >>> 6) >>> i & 1) != 0;
+    }
+
+    /**
+     * Returns the number of ones in positions 0 .. i - 1, for 0 <= i <= n.
+     */
+    public int rank1(int i) {
+        int w = i >>> 6;
+        int rank = blocks.get(w / WORDS_PER_BLOCK);
+        for (int u = w - w % WORDS_PER_BLOCK; u < w; u++)
+            rank += Long.bitCount(words.get(u));
+        if ((i & 63) != 0) rank += Long.bitCount(words.get(w) & ((1L << i) - 1));
+        return rank;
+    }
+
+    public int rank0(int i) {
+        return i - rank1(i);
+    }
+
+    /**
+     * Returns the position of the one of rank k, that is the (k+1)-th one, for 0 <= k < ones().
+     */
+    public int select1(int k) {
+        if (k < 0 || k >= ones())
+            throw new IllegalArgumentException("rank " + k + " is not between 0 and " + (ones() - 1));
+        // the last block with fewer than k + 1 ones before it
+        int lo = 0, hi = blocks.limit() - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (blocks.get(mid) <= k) lo = mid;
+            else hi = mid - 1;
+        }
+        k -= blocks.get(lo);
+        int w = lo * WORDS_PER_BLOCK;
+        for (int count = Long.bitCount(words.get(w)); count <= k; count = Long.bitCount(words.get(++w)))
+            k -= count;
+        long word = words.get(w);
+        for (; k > 0; k--)
+            word &= word - 1;
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Returns the number of bytes {#write(ByteBuffer)} takes.
+     */
+    public int byteSize() {
+        return byteSize(n);
+    }
+
+    private static int byteSize(int n) {
+        int directory = 4 * blocks(n);
+        return 8 + 8 * words(n) + (directory + 7) / 8 * 8;
+    }
+
+    public void write(ByteBuffer out) {
+        ByteBuffer buffer = out.slice().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(n).putInt(0);
+        for (int w = 0; w < words.limit(); w++)
+            buffer.putLong(words.get(w));
+        for (int b = 0; b < blocks.limit(); b++)
+            buffer.putInt(blocks.get(b));
+        out.position(out.position() + byteSize());
+    }
+
+    /**
+     * Returns the bit vector written at the position of {in} as a view of {in}, which it skips.
+     */
+    public static BitVector read(ByteBuffer in) {
+        ByteBuffer buffer = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int n = buffer.getInt(0);
+        int wordCount = words(n), blockCount = blocks(n);
+        buffer.position(8);
+        LongBuffer words = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        words.limit(wordCount);
+        buffer.position(8 + 8 * wordCount);
+        IntBuffer blocks = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        blocks.limit(blockCount);
+        in.position(in.position() + byteSize(n));
+        return new BitVector(n, words.slice(), blocks.slice());
+    }
+}
@@ -0,0 +1,201 @@
+/******************************************************************************
+ *  Execution:    java BitWriter n > output.bin
+ *
+ *  Writes the ints 0 to n - 1 as a binary stream to standard output.
+ *
+ *  % java BitWriter 3 | java HexDump 4
+ *  00 00 00 00
+ *  00 00 00 01
+ *  00 00 00 02
+ *  96 bits
+ *
+ ******************************************************************************/
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The BitWriter class writes a stream of bits, most significant first, to a {WritableByteChannel}, such as a file
+ * or standard output, or to a {ByteBuffer}, such as a byte array or a memory-mapped file. The bytes written are not
+ * aligned: a value of any number of bits starts right after the last bit of the previous one. Ints and longs are
+ * written big-endian.
+ * <p>
+ * The bits are collected in a 64-bit buffer, so writing a value of up to 64 bits is a few shifts, and a full buffer
+ * is stored as one long. For a channel the longs go to a 64 KB buffer that is written out when it is full. A
+ * BitWriter replaces BinaryStdOut: it is an object, so there can be one per stream and thread, and writes many
+ * bits per call.
+ * <p>
+ * {#flush()} pads the bits written to a whole byte with 0s, so it should be called only at the end of a stream or
+ * of a part that is aligned by design.
+ */
+public class BitWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;   // null when writing to a buffer
+    private final ByteBuffer bytes;               // bytes not written to the channel yet, or the target buffer
+    private final boolean bigEndian;
+    private long buffer;                          // the last count bits are not stored yet
+    private int count;
+    private long written;                         // number of bits written
+
+    /**
+     * Initializes a bit writer to {channel}.
+     */
+    public BitWriter(WritableByteChannel channel) {
+        if (channel == null) throw new IllegalArgumentException("argument is null");
+        this.channel = channel;
+        bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        bigEndian = true;
+    }
+
+    /**
+     * Initializes a bit writer to the remaining bytes of {target}, from its position, which it advances; writing
+     * more bits than fit throws a {java.nio.BufferOverflowException}.
+     */
+    public BitWriter(ByteBuffer target) {
+        if (target == null) throw new IllegalArgumentException("argument is null");
+        channel = null;
+        bytes = target;
+        bigEndian = target.order() == ByteOrder.BIG_ENDIAN;
+    }
+
+    /**
+     * Returns a bit writer to standard output.
+     */
+    public static BitWriter standardOutput() {
+        return new BitWriter(new FileOutputStream(FileDescriptor.out).getChannel());
+    }
+
+    /**
+     * Writes the last n bits of {value}, for 0 <= n <= 64.
+     */
+    public void writeBits(long value, int n) {
+        if (n < 0 || n > 64) throw new IllegalArgumentException("Illegal value for n = " + n);
+        if (n == 0) return;
+        written += n;
+        int free = 64 - count;
+        if (n < free) {
+            buffer = buffer << n | value & -1L >>> (64 - n);
+            count += n;
+        } else {
+            // fill the buffer, store it and keep the rest of value
+            int rest = n - free;
+            long word = free == 64 ? value : buffer << free | (value & -1L >>> (64 - n)) >>> rest;
+            store(word);
+            buffer = value;
+            count = rest;
+        }
+    }
+
+    /**
+     * Writes the specified bit.
+     */
+    public void write(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes the 8-bit byte.
+     */
+    public void write(byte x) {
+        writeBits(x, 8);
+    }
+
+    /**
+     * Writes the 32-bit int.
+     */
+    public void write(int x) {
+        writeBits(x, 32);
+    }
+
+    /**
+     * Writes the r-bit int, for 1 <= r <= 32.
+     */
+    public void write(int x, int r) {
+        if (r < 1 || r > 32) throw new IllegalArgumentException("Illegal value for r = " + r);
+        if (r < 32 && (x < 0 || x >= (1 << r)))
+            throw new IllegalArgumentException("Illegal " + r + "-bit int = " + x);
+        writeBits(x, r);
+    }
+
+    /**
+     * Writes the 64-bit long.
+     */
+    public void write(long x) {
+        writeBits(x, 64);
+    }
+
+    /**
+     * Writes the bytes of {array}.
+     */
+    public void write(byte[] array) {
+        for (byte b : array)
+            writeBits(b, 8);
+    }
+
+    /**
+     * Returns the number of bits written, including the padding of {#flush()}.
+     */
+    public long bits() {
+        return written;
+    }
+
+    private void store(long word) {
+        if (channel != null && bytes.remaining() < 8) drain();
+        bytes.putLong(bigEndian ? word : Long.reverseBytes(word));
+    }
+
+    // writes the stored bytes to the channel
+    private void drain() {
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write the bits", e);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Stores the bits written, padded with 0s to a whole byte, and writes them to the channel, if any.
+     */
+    public void flush() {
+        for (; count > 0; count -= 8) {
+            if (channel != null && !bytes.hasRemaining()) drain();
+            bytes.put((byte) (count >= 8 ? buffer >>> (count - 8) : buffer << (8 - count)));
+        }
+        count = 0;
+        written = (written + 7) & ~7L;
+        if (channel != null) drain();
+    }
+
+    /**
+     * Flushes the bits written and closes the channel, if any.
+     */
+    public void close() {
+        flush();
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not close the channel", e);
+        }
+    }
+
+    /**
+     * Writes the ints 0 to n - 1, for n given as the argument, to standard output.
+     */
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        BitWriter out = standardOutput();
+        for (int i = 0; i < n; i++)
+            out.write(i);
+        out.close();
+    }
+}
@@ -0,0 +1,87 @@
+/******************************************************************************
+ *  Runs independent tasks on a fixed pool of threads and hands their
+ *  results on in the order the tasks were submitted.
+ *
+ *  Used by GREP, Huffman and BurrowsWheeler to process a stream in blocks.
+ *
+ ******************************************************************************/
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The BlockPipeline class runs the tasks of a stream cut into independent blocks on a fixed pool of threads, while
+ * the caller reads ahead and submits the next blocks, and passes the results to a {Sink} in submission order.
+ * <p>
+ * At most two tasks per thread are in flight: submitting one more first waits for the oldest and passes its result
+ * on. That keeps every thread busy while the caller writes a result, and bounds the memory to a few blocks per
+ * thread however long the stream is.
+ * <p>
+ * An exception thrown by a task is rethrown by the {#submit} or {#finish} call that takes its result, as itself if
+ * it is unchecked and wrapped in an IllegalStateException otherwise. An instance is meant for one thread.
+ */
+public final class BlockPipeline<T> implements AutoCloseable {
+
+    /**
+     * Takes the results of the tasks, in the order the tasks were submitted.
+     */
+    public interface Sink<T> {
+        void accept(T result) throws IOException;
+    }
+
+    private final ExecutorService pool;
+    private final Sink<T> sink;
+    private final int maxPending;
+    private final ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+
+    /**
+     * Initializes a pipeline of {threads} threads whose results go to {sink}.
+     */
+    public BlockPipeline(int threads, Sink<T> sink) {
+        if (threads < 1) throw new IllegalArgumentException("threads " + threads + " is not positive");
+        if (sink == null) throw new IllegalArgumentException("sink is null");
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.sink = sink;
+        this.maxPending = 2 * threads;
+    }
+
+    /**
+     * Submits {task}, first passing the oldest result on if the pipeline is full.
+     */
+    public void submit(Callable<T> task) throws IOException {
+        pending.add(pool.submit(task));
+        if (pending.size() >= maxPending) sink.accept(result(pending.remove()));
+    }
+
+    /**
+     * Waits for the tasks submitted and passes their results on.
+     */
+    public void finish() throws IOException {
+        while (!pending.isEmpty())
+            sink.accept(result(pending.remove()));
+    }
+
+    /**
+     * Stops the threads, interrupting the tasks that are still running.
+     */
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private static <T> T result(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/******************************************************************************
+ *  Execution:    java BurrowsWheeler - < input.txt   (transform)
+ *  Execution:    java BurrowsWheeler + < input.bwt   (inverse)
+ *
+ *  Block-sorting Burrows-Wheeler transform of a byte stream, with the
+ *  blocks transformed and inverted on parallel threads.
+ *
+ *  % java BurrowsWheeler - < abra.txt | java HexDump 16
+ *  42 57 54 42 00 0d bb a0 00 00 00 0c 00 00 00 04
+ *  21 41 52 44 52 43 41 41 41 41 42 42 00 00 00 00
+ *  256 bits
+ *
+ *  % java BurrowsWheeler - < abra.txt | java BurrowsWheeler +
+ *  ABRACADABRA!
+ *
+ ******************************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The BurrowsWheeler class provides static methods for the Burrows-Wheeler transform (BWT) of byte arrays and of
+ * streams cut into blocks, as in bzip2.
+ * <p>
+ * The transform of a block of n bytes is taken with a virtual end-of-block sentinel smaller than every byte, so
+ * the n + 1 rotations are in the order of the suffixes: the suffix array from {SuffixArraySAIS} gives the
+ * transform in linear time, where sorting the rotations takes O(n^2 log n) character comparisons on repetitive
+ * input. The transform is the byte before every suffix in sorted order; the sentinel's own row is left out and
+ * its position, the primary index, is stored instead.
+ * <p>
+ * The inverse counts the bytes to get, for every byte value c, the first row starting with c, then turns that
+ * into the LF mapping (row of a suffix to the row of the suffix one position earlier) in one pass over the
+ * transform, and follows it from the sentinel's row, writing the block back to front.
+ * <p>
+ * For streams, blocks are independent, so a {BlockPipeline} transforms or inverts several at a time. The
+ * container is the magic "BWTB", the block size, then for every block its length, its primary index and its
+ * transform, and finally a length of 0; all ints are big-endian.
+ */
+public class BurrowsWheeler {
+    private static final int MAGIC = 0x42575442;   // "BWTB"
+
+    /**
+     * The default block size, as bzip2 -9.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 900_000;
+
+    // Do not instantiate.
+    private BurrowsWheeler() {
+    }
+
+    /**
+     * Writes the transform of {text} to {bwt}, which must be as long as {text}, and returns the primary index:
+     * the row of the sentinel, at which {bwt} has no entry.
+     */
+    public static int transform(byte[] text, byte[] bwt) {
+        int n = text.length;
+        if (bwt.length != n)
+            throw new IllegalArgumentException("transform of length " + bwt.length + " for " + n + " bytes");
+        if (n == 0) return 0;
+        int[] sa = SuffixArraySAIS.build(text);
+        bwt[0] = text[n - 1];   // row 0 is the sentinel alone, preceded by the last byte
+        int primary = 0;
+        for (int i = 0, j = 1; i < n; i++) {
+            if (sa[i] == 0) primary = i + 1;
+            else bwt[j++] = text[sa[i] - 1];
+        }
+        return primary;
+    }
+
+    /**
+     * Writes the block with transform {bwt} and primary index {primary} to {text}, which must be as long as
+     * {bwt}.
+     */
+    public static void inverse(byte[] bwt, int primary, byte[] text) {
+        int n = bwt.length;
+        if (text.length != n)
+            throw new IllegalArgumentException("block of length " + text.length + " for " + n + " bytes");
+        if (n == 0) return;
+        if (primary < 1 || primary > n)
+            throw new IllegalArgumentException("primary index " + primary + " is not between 1 and " + n);
+        int[] next = new int[257];
+        for (byte b : bwt)
+            next[(b & 0xFF) + 1]++;
+        next[0] = 1;   // the sentinel's row comes first
+        for (int c = 0; c < 256; c++)
+            next[c + 1] += next[c];
+
+        // lf[r] = row of the suffix one position before the suffix of row r
+        int[] lf = new int[n + 1];
+        for (int r = 0, j = 0; r <= n; r++) {
+            if (r == primary) continue;
+            lf[r] = next[bwt[j++] & 0xFF]++;
+        }
+        int row = 0;
+        for (int k = n - 1; k >= 0; k--) {
+            text[k] = bwt[row < primary ? row : row - 1];
+            row = lf[row];
+        }
+    }
+
+    /**
+     * Reads {in} to its end in blocks of {blockSize} bytes and writes the container of their transforms to
+     * {out}, transforming up to {threads} blocks at a time.
+     */
+    public static void transform(InputStream in, OutputStream out, int blockSize, int threads) {
+        if (blockSize < 1) throw new IllegalArgumentException("block size " + blockSize + " is not positive");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        try (BlockPipeline<Block> pipeline = new BlockPipeline<>(threads, block -> writeBlock(output, block))) {
+            output.writeInt(MAGIC);
+            output.writeInt(blockSize);
+            while (true) {
+                byte[] text = in.readNBytes(blockSize);
+                if (text.length == 0) break;
+                pipeline.submit(() -> {
+                    byte[] bwt = new byte[text.length];
+                    return new Block(bwt, transform(text, bwt));
+                });
+            }
+            pipeline.finish();
+            output.writeInt(0);
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not transform the stream", e);
+        }
+    }
+
+    /**
+     * Reads a container written by {#transform(InputStream, OutputStream, int, int)} from {in} and writes the
+     * original bytes to {out}, inverting up to {threads} blocks at a time.
+     */
+    public static void inverse(InputStream in, OutputStream out, int threads) {
+        try (BlockPipeline<byte[]> pipeline = new BlockPipeline<>(threads, out::write)) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            if (input.readInt() != MAGIC) throw new IllegalArgumentException("not a Burrows-Wheeler stream");
+            int blockSize = input.readInt();
+            while (true) {
+                int length = input.readInt();
+                if (length == 0) break;
+                if (length < 0 || length > blockSize)
+                    throw new IllegalArgumentException("block of " + length + " bytes in a stream of "
+                            + blockSize + "-byte blocks");
+                int primary = input.readInt();
+                byte[] bwt = new byte[length];
+                input.readFully(bwt);
+                pipeline.submit(() -> {
+                    byte[] text = new byte[bwt.length];
+                    inverse(bwt, primary, text);
+                    return text;
+                });
+            }
+            pipeline.finish();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not invert the stream", e);
+        }
+    }
+
+    // the transform of one block
+    private static final class Block {
+        private final byte[] bwt;
+        private final int primary;
+
+        Block(byte[] bwt, int primary) {
+            this.bwt = bwt;
+            this.primary = primary;
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, Block block) throws IOException {
+        out.writeInt(block.bwt.length);
+        out.writeInt(block.primary);
+        out.write(block.bwt);
+    }
+
+    /**
+     * Sample client that calls {transform} if the command-line argument is "-" and {inverse} if it is "+",
+     * from standard input to standard output, with one thread per processor.
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args[0].equals("-")) transform(System.in, System.out, DEFAULT_BLOCK_SIZE, threads);
+        else if (args[0].equals("+")) inverse(System.in, System.out, threads);
+        else throw new IllegalArgumentException("Illegal command line argument");
+    }
+}
@@ -1,6 +1,7 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class BurrowsWheelerTransform {
@@ -23,12 +24,15 @@ public class BurrowsWheelerTransform {
         }
     }
 
+    // The text ends with '$', the smallest character, so sorting its rotations
+    // is sorting its suffixes: the transform of the text without the '$', with
+    // the '$' put back at the primary index, comes from a linear-time suffix array.
     String BWT(String text) {
-        StringBuilder result = new StringBuilder();
-
-        // write your code here
-
-        return result.toString();
+        byte[] block = text.substring(0, text.length() - 1).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] bwt = new byte[block.length];
+        int primary = BurrowsWheeler.transform(block, bwt);
+        String transform = new String(bwt, StandardCharsets.ISO_8859_1);
+        return transform.substring(0, primary) + "$" + transform.substring(primary);
     }
 
     static public void main(String[] args) throws IOException {
@@ -0,0 +1,367 @@
+/******************************************************************************
+ *  Execution:    java DoubleArrayTrie < words.txt
+ *
+ *  A static string symbol table in a double-array trie, built in bulk from
+ *  sorted keys and stored in two int arrays that can be memory-mapped.
+ *
+ *  % java DoubleArrayTrie < data/tale.txt
+ *  10679 keys, 43800 slots (8 bytes each), 99.4% used
+ *  longestPrefixOf("shellsort"): shell
+ *  keysWithPrefix("shor"): shore shorethree short shortened shortest shortly shortness shortsighted
+ *  same answers as TrieST: true
+ *
+ ******************************************************************************/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.TreeSet;
+
+/**
+ * The DoubleArrayTrie class is an immutable symbol table of string keys and int values with the character-based
+ * methods of {TrieST}: get, contains, keysWithPrefix and longestPrefixOf. Keys are stored as their UTF-8 bytes,
+ * whose order is the order of the code points.
+ * <p>
+ * The trie is a double array (Aoe): the children of a node s are at base[s] + c for the codes c of their bytes,
+ * and check[t] = s tells that slot t is a child of s, so a transition is two array reads and a node costs two
+ * ints however many children it has, where {TrieST} holds 256 references per node. The end of a key is the
+ * child with code 0, whose base is the key's index, negated.
+ * <p>
+ * The trie is built in bulk from sorted keys: for each node, from the root down, the children are the groups of
+ * keys of the node's range that share the next byte, and the first base that puts all of them on free slots is
+ * found by scanning from the first free slot, which skips ahead over regions that are nearly full.
+ * <p>
+ * {#write(Path)} stores the size, the number of keys, base, check and the values, little-endian, and
+ * {#open(Path)} maps such a file and reads the arrays in place.
+ */
+public class DoubleArrayTrie {
+    private static final int MAGIC = 0x52544144;   // "DATR"
+    private static final int FREE = -1;           // check of a free slot
+    private static final int ROOT = 0;
+
+    private final IntBuffer base;
+    private final IntBuffer check;
+    private final IntBuffer values;   // values[k] = value of the k-th smallest key
+    private final int size;           // slots
+
+    /**
+     * Builds the trie of {keys}, which must be distinct and in increasing order, with key i mapped to i.
+     */
+    public DoubleArrayTrie(String[] keys) {
+        this(keys, identity(keys.length));
+    }
+
+    /**
+     * Builds the trie of {keys}, which must be distinct and in increasing order, with key i mapped to values[i].
+     */
+    public DoubleArrayTrie(String[] keys, int[] values) {
+        if (keys.length != values.length)
+            throw new IllegalArgumentException(keys.length + " keys but " + values.length + " values");
+        byte[][] bytes = new byte[keys.length][];
+        for (int k = 0; k < keys.length; k++) {
+            if (keys[k] == null) throw new IllegalArgumentException("key " + k + " is null");
+            bytes[k] = keys[k].getBytes(StandardCharsets.UTF_8);
+            if (k > 0 && Arrays.compareUnsigned(bytes[k - 1], bytes[k]) >= 0)
+                throw new IllegalArgumentException("keys are not distinct and sorted at \"" + keys[k] + "\"");
+        }
+        Builder builder = new Builder(bytes);
+        this.size = builder.size();
+        this.base = IntBuffer.wrap(Arrays.copyOf(builder.base, size));
+        this.check = IntBuffer.wrap(Arrays.copyOf(builder.check, size));
+        this.values = IntBuffer.wrap(values.clone());
+    }
+
+    private DoubleArrayTrie(int size, IntBuffer base, IntBuffer check, IntBuffer values) {
+        this.size = size;
+        this.base = base;
+        this.check = check;
+        this.values = values;
+    }
+
+    private static int[] identity(int n) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++)
+            values[i] = i;
+        return values;
+    }
+
+    // builds base and check top-down over the ranges of sorted keys
+    private static final class Builder {
+        private final byte[][] keys;
+        private int[] base = new int[1024];
+        private int[] check = new int[1024];
+        private int nextCheck = 1;    // no free slot before it
+        private int maxUsed = 0;
+
+        Builder(byte[][] keys) {
+            this.keys = keys;
+            Arrays.fill(check, FREE);
+            check[ROOT] = ROOT - 1;   // occupied, no parent
+            // work items: node, first key, end key, depth
+            ArrayDeque<int[]> stack = new ArrayDeque<>();
+            if (keys.length > 0) stack.push(new int[]{ROOT, 0, keys.length, 0});
+            int[] codes = new int[257], starts = new int[258];
+            while (!stack.isEmpty()) {
+                int[] item = stack.pop();
+                int node = item[0], lo = item[1], hi = item[2], depth = item[3];
+                // the children: code 0 for a key that ends here, then one code per next byte
+                int children = 0;
+                for (int k = lo; k < hi; ) {
+                    int code = keys[k].length == depth ? 0 : (keys[k][depth] & 0xFF) + 1;
+                    codes[children] = code;
+                    starts[children++] = k;
+                    k++;
+                    if (code == 0) continue;
+                    while (k < hi && (keys[k][depth] & 0xFF) + 1 == code)
+                        k++;
+                }
+                starts[children] = hi;
+                int b = findBase(codes, children);
+                base[node] = b;
+                for (int i = 0; i < children; i++) {
+                    int t = b + codes[i];
+                    check[t] = node;
+                    maxUsed = Math.max(maxUsed, t);
+                    if (codes[i] == 0) base[t] = -(starts[i] + 1);
+                    else stack.push(new int[]{t, starts[i], starts[i + 1], depth + 1});
+                }
+            }
+        }
+
+        // the smallest base that puts every child on a free slot, from the first free slot on
+        private int findBase(int[] codes, int children) {
+            int first = codes[0];
+            int start = Math.max(nextCheck, first + 1);
+            int occupied = 0;
+            boolean firstFree = start == nextCheck;
+            for (int position = start; ; position++) {
+                ensure(position + 257);
+                if (check[position] != FREE) {
+                    occupied++;
+                    continue;
+                }
+                if (firstFree) {
+                    nextCheck = position;
+                    firstFree = false;
+                }
+                int b = position - first;
+                boolean fits = true;
+                for (int i = 1; i < children && fits; i++)
+                    fits = check[b + codes[i]] == FREE;
+                if (fits) {
+                    // skip a region that is nearly full for the next searches
+                    if (occupied >= 0.95 * (position - nextCheck + 1)) nextCheck = position;
+                    return b;
+                }
+            }
+        }
+
+        private void ensure(int capacity) {
+            if (capacity < check.length) return;
+            int length = Math.max(2 * check.length, capacity + 1);
+            base = Arrays.copyOf(base, length);
+            int old = check.length;
+            check = Arrays.copyOf(check, length);
+            Arrays.fill(check, old, length, FREE);
+        }
+
+        int size() {
+            return maxUsed + 1;
+        }
+    }
+
+    // the child of node s with code c, or -1
+    private int child(int s, int c) {
+        int t = base.get(s) + c;
+        return t < size && check.get(t) == s ? t : -1;
+    }
+
+    // the node of the string of bytes, or -1
+    private int find(byte[] bytes) {
+        int s = ROOT;
+        for (int i = 0; i < bytes.length && s >= 0; i++)
+            s = child(s, (bytes[i] & 0xFF) + 1);
+        return s;
+    }
+
+    // the index of the key ending at node s, or -1
+    private int keyIndex(int s) {
+        if (values.limit() == 0) return -1;
+        int t = child(s, 0);
+        return t < 0 ? -1 : -base.get(t) - 1;
+    }
+
+    /**
+     * Returns the number of keys.
+     */
+    public int size() {
+        return values.limit();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of slots of each of the two arrays.
+     */
+    public int slots() {
+        return size;
+    }
+
+    /**
+     * Returns the value of {key}, or null if it is not a key.
+     */
+    public Integer get(String key) {
+        if (key == null) throw new IllegalArgumentException("argument to get() is null");
+        if (isEmpty()) return null;
+        int s = find(key.getBytes(StandardCharsets.UTF_8));
+        int k = s < 0 ? -1 : keyIndex(s);
+        return k < 0 ? null : values.get(k);
+    }
+
+    public boolean contains(String key) {
+        if (key == null) throw new IllegalArgumentException("argument to contains() is null");
+        return get(key) != null;
+    }
+
+    public Iterable<String> keys() {
+        return keysWithPrefix("");
+    }
+
+    /**
+     * Returns the keys that start with {prefix}, in increasing order.
+     */
+    public Iterable<String> keysWithPrefix(String prefix) {
+        if (prefix == null) throw new IllegalArgumentException("argument to keysWithPrefix() is null");
+        Queue<String> results = new ArrayDeque<>();
+        if (isEmpty()) return results;
+        byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        int s = find(bytes);
+        if (s < 0) return results;
+        byte[] buffer = Arrays.copyOf(bytes, Math.max(16, 2 * bytes.length));
+        collect(s, buffer, bytes.length, results);
+        return results;
+    }
+
+    private void collect(int s, byte[] buffer, int length, Queue<String> results) {
+        if (keyIndex(s) >= 0) results.offer(new String(buffer, 0, length, StandardCharsets.UTF_8));
+        if (length == buffer.length) buffer = Arrays.copyOf(buffer, 2 * length);
+        for (int c = 1; c <= 256; c++) {
+            int t = child(s, c);
+            if (t < 0) continue;
+            buffer[length] = (byte) (c - 1);
+            collect(t, buffer, length + 1, results);
+        }
+    }
+
+    /**
+     * Returns the longest key that is a prefix of {query}, or null if there is none.
+     */
+    public String longestPrefixOf(String query) {
+        if (query == null) throw new IllegalArgumentException("argument to longestPrefixOf() is null");
+        if (isEmpty()) return null;
+        byte[] bytes = query.getBytes(StandardCharsets.UTF_8);
+        int longest = -1;
+        int s = ROOT;
+        for (int i = 0; ; i++) {
+            if (keyIndex(s) >= 0) longest = i;
+            if (i == bytes.length) break;
+            s = child(s, (bytes[i] & 0xFF) + 1);
+            if (s < 0) break;
+        }
+        return longest < 0 ? null : new String(bytes, 0, longest, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the trie to {file}.
+     */
+    public void write(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long bytes = 4L * (4 + 2L * size + values.limit());
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            IntBuffer ints = buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            ints.put(MAGIC).put(size).put(values.limit()).put(0);
+            for (int i = 0; i < size; i++)
+                ints.put(base.get(i));
+            for (int i = 0; i < size; i++)
+                ints.put(check.get(i));
+            for (int k = 0; k < values.limit(); k++)
+                ints.put(values.get(k));
+            buffer.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write " + file, e);
+        }
+    }
+
+    /**
+     * Opens a trie written by {#write(Path)}, with its arrays as views of a read-only mapping of the file.
+     */
+    public static DoubleArrayTrie open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            IntBuffer ints = buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            if (ints.get(0) != MAGIC) throw new IllegalArgumentException(file + " is not a double-array trie");
+            int size = ints.get(1);
+            int keys = ints.get(2);
+            return new DoubleArrayTrie(size, slice(ints, 4, size), slice(ints, 4 + size, size),
+                    slice(ints, 4 + 2 * size, keys));
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not open " + file, e);
+        }
+    }
+
+    private static IntBuffer slice(IntBuffer ints, int from, int length) {
+        IntBuffer view = ints.duplicate();
+        view.position(from);
+        view.limit(from + length);
+        return view.slice();
+    }
+
+    /**
+     * Reads the words of standard input, builds a trie of them and a {TrieST}, and compares their answers.
+     */
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        TreeSet<String> words = new TreeSet<>();
+        for (String line = in.readLine(); line != null; line = in.readLine())
+            for (String word : line.split("\\s+"))
+                if (!word.isEmpty()) words.add(word);
+        String[] keys = words.toArray(new String[0]);
+        Arrays.sort(keys, (a, b) -> Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8),
+                b.getBytes(StandardCharsets.UTF_8)));
+        DoubleArrayTrie trie = new DoubleArrayTrie(keys);
+        TrieST st = new TrieST();
+        for (int i = 0; i < keys.length; i++)
+            st.put(keys[i], i);
+
+        int used = 0;
+        for (int t = 0; t < trie.size; t++)
+            if (trie.check.get(t) != FREE) used++;
+        System.out.printf("%d keys, %d slots (8 bytes each), %.1f%% used\n", keys.length, trie.slots(),
+                100.0 * used / Math.max(trie.slots(), 1));
+        System.out.println("longestPrefixOf(\"shellsort\"): " + trie.longestPrefixOf("shellsort"));
+        System.out.println("keysWithPrefix(\"shor\"): " + String.join(" ", trie.keysWithPrefix("shor")));
+
+        boolean same = String.join(" ", trie.keys()).equals(String.join(" ", st.keys()));
+        for (String key : keys) {
+            String query = key + "s";
+            same &= st.get(key).equals(trie.get(key)) && !trie.contains(key + "\u0000")
+                    && st.longestPrefixOf(query).equals(trie.longestPrefixOf(query))
+                    && String.join(" ", st.keysWithPrefix(key)).equals(String.join(" ", trie.keysWithPrefix(key)));
+        }
+        System.out.println("same answers as TrieST: " + same);
+    }
+}
@@ -0,0 +1,348 @@
+/******************************************************************************
+ *  Execution:    java FMIndex text.txt pattern ...          (build and query)
+ *  Execution:    java FMIndex text.txt index.fm pattern ... (build, write, map and query)
+ *
+ *  Compressed full-text index of a byte text: a wavelet tree over the
+ *  Burrows-Wheeler transform with sampled suffix array positions.
+ *
+ *  % java FMIndex data/tale.txt "it was the" "best of times"
+ *  n = 726569, 6.89 bits per character, 5 bits per character of BWT, built in 301.4 ms
+ *  it was the: 38 occurrences, first at 0
+ *  best of times: 2 occurrences, first at 11
+ *
+ ******************************************************************************/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The FMIndex class counts and locates the occurrences of patterns in a byte text without keeping the text or its
+ * suffix array. It stores the Burrows-Wheeler transform (BWT) of the text followed by a virtual sentinel smaller
+ * than every byte: row i of the BWT is the character before the i-th smallest suffix.
+ * <p>
+ * The bytes that occur are renamed 0 .. sigma - 1 in increasing order and the renamed BWT is kept in a
+ * {WaveletTree}, so occ(c, i), the number of c in the first i rows, is one bit vector rank per level. The sentinel
+ * is not a symbol of the tree: its row, the primary row, holds symbol 0 and occ(0, i) subtracts it again, so a DNA
+ * text needs two levels rather than three.
+ * Backward search then counts a pattern in O(|pattern| lg sigma) ranks: the rows of the suffixes that start with
+ * cP are C[c] + occ(c, first row of P) .. C[c] + occ(c, end row of P), where C[c] is the number of characters
+ * smaller than c. This replaces an int[n] occurrence table per character (4 sigma n bytes) with about lg sigma
+ * bits per character.
+ * <p>
+ * To locate the occurrences, the suffix array position of every row whose suffix starts at a multiple of the
+ * sample rate s is kept, and a {BitVector} marks these rows. From any other row the LF mapping
+ * C[c] + occ(c, row), with c the character of the row, steps to the row of the previous suffix, so at most s - 1
+ * steps reach a sample. With the default s = 64 the samples and their marks take 1.6 bits per character on top of
+ * the BWT, and the rank directories another 1/16 bit per bit: a DNA text takes 3.7 bits per character.
+ * <p>
+ * {#write(Path)} stores the index as little-endian, 8-byte aligned sections and {#open(Path)} maps such a file and
+ * uses its bit vectors where they are, so opening an index reads only its small tables.
+ */
+public class FMIndex {
+    private static final int MAGIC = 0x58494d46;   // "FMIX"
+    private static final int DEFAULT_SAMPLE_RATE = 64;
+
+    private final int n;                 // rows: text length + 1
+    private final int primary;           // the row whose BWT character is the sentinel
+    private final int sampleRate;
+    private final int[] code;            // code[b] = symbol of byte b, or -1 if b does not occur
+    private final int[] starts;          // starts[c] = number of characters smaller than symbol c
+    private final WaveletTree bwt;       // renamed BWT, with symbol 0 in the primary row
+    private final BitVector sampled;     // sampled[row] = the suffix of the row starts at a multiple of sampleRate
+    private final IntBuffer samples;     // samples[sampled.rank1(row)] = starting position of the suffix of row
+
+    /**
+     * Builds the FM-index of {text} with a sample rate of 64.
+     */
+    public FMIndex(byte[] text) {
+        this(text, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Builds the FM-index of {text}, keeping the position of every suffix that starts at a multiple of
+     * {sampleRate}.
+     */
+    public FMIndex(byte[] text, int sampleRate) {
+        if (sampleRate < 1) throw new IllegalArgumentException("sample rate " + sampleRate + " is not positive");
+        this.n = text.length + 1;
+        this.sampleRate = sampleRate;
+        this.code = alphabet(text, -1);
+        int[] sa = SuffixArraySAIS.build(text);
+        int[] symbols = new int[n];
+        int[] sampleRows = new int[(n - 1) / sampleRate + 1];
+        // row 0 is the suffix made of the sentinel alone
+        symbols[0] = text.length == 0 ? 0 : code[text[text.length - 1] & 0xFF];
+        if ((n - 1) % sampleRate == 0) sampleRows[(n - 1) / sampleRate] = 0;
+        int primary = 0;
+        for (int i = 0; i < sa.length; i++) {
+            int p = sa[i];
+            if (p == 0) primary = i + 1;
+            else symbols[i + 1] = code[text[p - 1] & 0xFF];
+            if (p % sampleRate == 0) sampleRows[p / sampleRate] = i + 1;
+        }
+        this.primary = primary;
+        this.bwt = new WaveletTree(symbols, symbolCount(code));
+        this.starts = starts(bwt);
+        this.sampled = marks(sampleRows, n);
+        this.samples = samples(sampleRows, sampled, sampleRate);
+    }
+
+    private FMIndex(int n, int primary, int sampleRate, int[] code, WaveletTree bwt, BitVector sampled,
+                    IntBuffer samples) {
+        this.n = n;
+        this.primary = primary;
+        this.sampleRate = sampleRate;
+        this.code = code;
+        this.bwt = bwt;
+        this.starts = starts(bwt);
+        this.sampled = sampled;
+        this.samples = samples;
+    }
+
+    /**
+     * Builds the FM-index from the Burrows-Wheeler transform of a text followed by {sentinel}, which must occur
+     * exactly once in {bwt}. The sampled positions are found with one LF walk over all rows.
+     */
+    public static FMIndex fromBWT(byte[] bwt, byte sentinel) {
+        return fromBWT(bwt, sentinel, DEFAULT_SAMPLE_RATE);
+    }
+
+    public static FMIndex fromBWT(byte[] bwt, byte sentinel, int sampleRate) {
+        if (sampleRate < 1) throw new IllegalArgumentException("sample rate " + sampleRate + " is not positive");
+        int n = bwt.length;
+        int sentinels = 0;
+        for (byte b : bwt)
+            if (b == sentinel) sentinels++;
+        if (sentinels != 1) throw new IllegalArgumentException("the sentinel occurs " + sentinels + " times");
+        int[] code = alphabet(bwt, sentinel & 0xFF);
+        int[] symbols = new int[n];
+        int primary = 0;
+        for (int i = 0; i < n; i++) {
+            if (bwt[i] == sentinel) primary = i;
+            else symbols[i] = code[bwt[i] & 0xFF];
+        }
+        WaveletTree tree = new WaveletTree(symbols, symbolCount(code));
+        int[] starts = starts(tree);
+
+        // row 0 is the sentinel suffix, at position n - 1; LF steps to the rows of positions n - 2, n - 3, ..., 0
+        int[] sampleRows = new int[(n - 1) / sampleRate + 1];
+        int row = 0;
+        for (int p = n - 1; p >= 0; p--) {
+            if (p % sampleRate == 0) sampleRows[p / sampleRate] = row;
+            if (p > 0) row = lf(tree, starts, primary, row);
+        }
+        BitVector sampled = marks(sampleRows, n);
+        return new FMIndex(n, primary, sampleRate, code, tree, sampled, samples(sampleRows, sampled, sampleRate));
+    }
+
+    // code[b] = rank of byte b among the bytes of text other than skip; -1 if it does not occur
+    private static int[] alphabet(byte[] text, int skip) {
+        boolean[] occurs = new boolean[256];
+        for (byte b : text)
+            occurs[b & 0xFF] = true;
+        int[] code = new int[256];
+        int symbol = 0;
+        for (int b = 0; b < 256; b++)
+            code[b] = occurs[b] && b != skip ? symbol++ : -1;
+        return code;
+    }
+
+    private static int symbolCount(int[] code) {
+        int sigma = 1;
+        for (int c : code)
+            sigma = Math.max(sigma, c + 1);
+        return sigma;
+    }
+
+    // the sentinel comes first, and one 0 in the tree is the sentinel
+    private static int[] starts(WaveletTree bwt) {
+        int[] starts = new int[bwt.alphabetSize() + 1];
+        starts[0] = 1;
+        for (int c = 0; c < bwt.alphabetSize(); c++)
+            starts[c + 1] = starts[c] + bwt.count(c) - (c == 0 ? 1 : 0);
+        return starts;
+    }
+
+    // the row of the suffix one position before the suffix of row, which must not be the primary row
+    private static int lf(WaveletTree bwt, int[] starts, int primary, int row) {
+        long cr = bwt.accessAndRank(row);
+        int c = (int) (cr >>> 32);
+        int rank = (int) cr;
+        if (c == 0 && row > primary) rank--;
+        return starts[c] + rank;
+    }
+
+    // the number of symbol c in rows 0 .. i - 1
+    private int occ(int c, int i) {
+        int rank = bwt.rank(c, i);
+        return c == 0 && i > primary ? rank - 1 : rank;
+    }
+
+    private static BitVector marks(int[] sampleRows, int n) {
+        long[] words = new long[(n + 63) >>> 6];
+        for (int row : sampleRows)
+            words[row >>> 6] |= 1L << row;
+        return new BitVector(words, n);
+    }
+
+    private static IntBuffer samples(int[] sampleRows, BitVector sampled, int sampleRate) {
+        int[] samples = new int[sampleRows.length];
+        for (int k = 0; k < sampleRows.length; k++)
+            samples[sampled.rank1(sampleRows[k])] = k * sampleRate;
+        return IntBuffer.wrap(samples);
+    }
+
+    /**
+     * Returns the length of the text.
+     */
+    public int length() {
+        return n - 1;
+    }
+
+    // rows [lo, hi) of the suffixes that start with pattern, packed as lo << 32 | hi
+    private long range(byte[] pattern) {
+        int lo = 0, hi = n;
+        for (int k = pattern.length - 1; k >= 0 && lo < hi; k--) {
+            int c = code[pattern[k] & 0xFF];
+            if (c < 0) return 0;
+            lo = starts[c] + occ(c, lo);
+            hi = starts[c] + occ(c, hi);
+        }
+        return lo < hi ? (long) lo << 32 | hi : 0;
+    }
+
+    /**
+     * Returns the number of occurrences of {pattern} in the text, in O(|pattern| lg sigma) rank operations.
+     */
+    public int count(byte[] pattern) {
+        long range = range(pattern);
+        return (int) range - (int) (range >>> 32);
+    }
+
+    /**
+     * Returns the number of occurrences of the UTF-8 encoding of {pattern}.
+     */
+    public int count(String pattern) {
+        return count(pattern.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the starting positions of the occurrences of {pattern} in increasing order, each after at most
+     * sample rate - 1 LF steps.
+     */
+    public int[] locate(byte[] pattern) {
+        long range = range(pattern);
+        int lo = (int) (range >>> 32), hi = (int) range;
+        int[] positions = new int[hi - lo];
+        for (int row = lo; row < hi; row++) {
+            int steps = 0;
+            int r = row;
+            while (!sampled.get(r)) {
+                r = lf(bwt, starts, primary, r);
+                steps++;
+            }
+            positions[row - lo] = samples.get(sampled.rank1(r)) + steps;
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * Returns the starting byte offsets of the occurrences of the UTF-8 encoding of {pattern}.
+     */
+    public int[] locate(String pattern) {
+        return locate(pattern.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the number of bytes of the index, as written by {#write(Path)}.
+     */
+    public long byteSize() {
+        return 24 + 256 * 4 + bwt.byteSize() + sampled.byteSize() + 4L * (samples.limit() + samples.limit() % 2);
+    }
+
+    /**
+     * Writes the index: a header (magic, rows, primary row, sample rate, number of samples), the byte renaming,
+     * the wavelet tree, the sample marks and the samples.
+     */
+    public void write(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(n).putInt(primary).putInt(sampleRate).putInt(samples.limit()).putInt(0);
+            for (int c : code)
+                buffer.putInt(c);
+            bwt.write(buffer);
+            sampled.write(buffer);
+            for (int k = 0; k < samples.limit(); k++)
+                buffer.putInt(samples.get(k));
+            buffer.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write " + file, e);
+        }
+    }
+
+    /**
+     * Opens an index written by {#write(Path)}. The file is memory-mapped and the bit vectors and samples are
+     * views of the mapping; the mapping stays valid after the channel is closed.
+     */
+    public static FMIndex open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) throw new IllegalArgumentException(file + " is not an FM-index");
+            int n = buffer.getInt();
+            int primary = buffer.getInt();
+            int sampleRate = buffer.getInt();
+            int sampleCount = buffer.getInt();
+            buffer.getInt();
+            int[] code = new int[256];
+            for (int b = 0; b < 256; b++)
+                code[b] = buffer.getInt();
+            WaveletTree bwt = WaveletTree.read(buffer);
+            BitVector sampled = BitVector.read(buffer);
+            IntBuffer samples = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            samples.limit(sampleCount);
+            return new FMIndex(n, primary, sampleRate, code, bwt, sampled, samples.slice());
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not open " + file, e);
+        }
+    }
+
+    /**
+     * Builds the index of a file, optionally writes it and maps it back, and prints the number of occurrences of
+     * every pattern with the first position.
+     */
+    public static void main(String[] args) throws IOException {
+        byte[] text = Files.readAllBytes(Paths.get(args[0]));
+        long start = System.nanoTime();
+        FMIndex index = new FMIndex(text);
+        double ms = (System.nanoTime() - start) / 1e6;
+        int first = 1;
+        if (args.length > 1 && args[1].endsWith(".fm")) {
+            index.write(Paths.get(args[1]));
+            index = open(Paths.get(args[1]));
+            first = 2;
+        }
+        System.out.printf("n = %d, %.2f bits per character, %d bits per character of BWT, built in %.1f ms\n",
+                text.length, 8.0 * index.byteSize() / Math.max(text.length, 1),
+                32 - Integer.numberOfLeadingZeros(index.bwt.alphabetSize() - 1), ms);
+        for (int i = first; i < args.length; i++) {
+            int[] positions = index.locate(args[i]);
+            System.out.printf("%s: %d occurrences%s\n", args[i], positions.length,
+                    positions.length > 0 ? ", first at " + positions[0] : "");
+        }
+    }
+}
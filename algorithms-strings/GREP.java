@@ -1,5 +1,292 @@
+/******************************************************************************
+ *  Execution:    java GREP regexp [file-or-directory ...]
+ *
+ *  Prints the lines of the files that contain a match of a regular
+ *  expression, searching directories recursively, or of standard input
+ *  if no file is given; the lines are prefixed with the name of their
+ *  file when there is more than one file.
+ *
+ *  % java GREP "it was the (best|worst)" data/tale.txt
+ *  it was the best of times it was the worst of times
+ *  it was the popular theme for jests it was the best cure for
+ *
+ *  % java GREP "it was the (best|worst)" < data/tale.txt
+ *  it was the best of times it was the worst of times
+ *  it was the popular theme for jests it was the best cure for
+ *
+ ******************************************************************************/
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The GREP class finds the lines of files that contain a match of a regular expression, with the syntax of {NFA}.
+ * <p>
+ * The files are memory-mapped in chunks of about 8 MB that end at line ends, which a {BlockPipeline} searches
+ * in parallel while the lines found are written in file and line order. Every thread matches with its own
+ * {LazyDFA}, which searches a chunk in one pass from one line with a match to the next, as its wildcard and
+ * classes never match a line end.
+ * <p>
+ * Every match of an expression that starts with a literal string starts with that string, so then the threads
+ * first look for the string with the Boyer-Moore-Horspool algorithm, which skips up to its length in bytes at a
+ * time, and run the DFA only on the lines where it occurs, from the occurrence on.
+ * <p>
+ * The files are read as bytes. Literal characters of the expression are matched against their UTF-8 encoding, but
+ * the wildcard and character classes match a single byte, read as an ISO-8859-1 character.
+ */
 public class GREP {
+    private static final int CHUNK_SIZE = 1 << 23;
+    private static final byte[] SEPARATOR = {':'};
+
+    private final NFA nfa;
+    private final byte[] prefix;       // literal string every match starts with, possibly empty
+    private final int[] shift;         // shift[b] = Horspool shift after a mismatch under byte b
+    private final ThreadLocal<LazyDFA> dfa;
+
+    /**
+     * Compiles {regexp}, which may not contain a line end.
+     */
+    public GREP(String regexp) {
+        if (regexp.indexOf('\n') >= 0) throw new IllegalArgumentException("the expression contains a line end");
+        String bytes = new String(regexp.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+        nfa = new NFA("(" + bytes + ")");
+        dfa = ThreadLocal.withInitial(() -> new LazyDFA(nfa));
+        prefix = literalPrefix(bytes).getBytes(StandardCharsets.ISO_8859_1);
+        shift = new int[256];
+        Arrays.fill(shift, prefix.length);
+        for (int j = 0; j < prefix.length - 1; j++)
+            shift[prefix[j] & 0xFF] = prefix.length - 1 - j;
+    }
+
+    // the longest string of literal characters every match of regexp starts with
+    private static String literalPrefix(String regexp) {
+        int depth = 0;
+        for (int i = 0; i < regexp.length(); i++) {
+            char c = regexp.charAt(i);
+            if (c == '\\') i++;
+            else if (c == '[') {
+                while (++i < regexp.length() && regexp.charAt(i) != ']')
+                    if (regexp.charAt(i) == '\\') i++;
+            } else if (c == '(') depth++;
+            else if (c == ')') depth--;
+            else if (c == '|' && depth == 0) return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < regexp.length(); i++) {
+            char c = regexp.charAt(i);
+            if (c == '\\' && i + 1 < regexp.length()) c = regexp.charAt(++i);
+            else if ("()|*[.".indexOf(c) >= 0) break;
+            if (i + 1 < regexp.length() && regexp.charAt(i + 1) == '*') break;
+            prefix.append(c);
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Writes the lines of {files} that contain a match to {out}, prefixed with the name of their file and a colon
+     * if {names} is true, searching up to {threads} chunks at a time, and returns the number of lines written.
+     */
+    public long search(List<Path> files, OutputStream out, boolean names, int threads) {
+        Output output = new Output(out);
+        try (BlockPipeline<Lines> pipeline = new BlockPipeline<>(threads, output)) {
+            for (Path file : files) {
+                byte[] name = names ? file.toString().getBytes(StandardCharsets.UTF_8) : null;
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    for (long start = 0, end; start < size; start = end) {
+                        end = size - start <= CHUNK_SIZE ? size : lineStart(channel, start + CHUNK_SIZE);
+                        if (end - start > Integer.MAX_VALUE)
+                            throw new IllegalArgumentException(file + " has a line longer than 2 GB");
+                        ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                        pipeline.submit(() -> search(chunk, name));
+                    }
+                }
+            }
+            pipeline.finish();
+            out.flush();
+            return output.count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not search the files", e);
+        }
+    }
+
+    /**
+     * Writes the lines of {in} that contain a match to {out}, searching up to {threads} chunks at a time, and
+     * returns the number of lines written.
+     */
+    public long search(InputStream in, OutputStream out, int threads) {
+        Output output = new Output(out);
+        try (BlockPipeline<Lines> pipeline = new BlockPipeline<>(threads, output)) {
+            byte[] rest = new byte[0];   // the start of a line that is not read to its end yet
+            for (boolean end = false; !end; ) {
+                byte[] block = Arrays.copyOf(rest, Math.max(CHUNK_SIZE, 2 * rest.length));
+                int n = rest.length + in.readNBytes(block, rest.length, block.length - rest.length);
+                end = n < block.length;
+                int last = n;
+                if (!end) {
+                    while (last > 0 && block[last - 1] != '\n')
+                        last--;
+                    if (last == 0) {     // a line longer than the block: read on
+                        rest = block;
+                        continue;
+                    }
+                }
+                rest = Arrays.copyOfRange(block, last, n);
+                if (last == 0) break;
+                ByteBuffer chunk = ByteBuffer.wrap(block, 0, last);
+                pipeline.submit(() -> search(chunk, null));
+            }
+            pipeline.finish();
+            out.flush();
+            return output.count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not search the input", e);
+        }
+    }
+
+    // the start of the first line that starts at or after position, or the end of the file
+    private static long lineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (long at = position - 1; ; at += buffer.limit()) {
+            buffer.clear();
+            if (channel.read(buffer, at) < 0) return channel.size();
+            buffer.flip();
+            for (int i = 0; i < buffer.limit(); i++)
+                if (buffer.get(i) == '\n') return at + i + 1;
+        }
+    }
+
+    // the lines with a match in one chunk
+    private static final class Lines {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private long count;
+
+    }
+
+    // writes the lines found, in order, and counts them
+    private static final class Output implements BlockPipeline.Sink<Lines> {
+        private final OutputStream out;
+        private long count;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        public void accept(Lines lines) throws IOException {
+            lines.bytes.writeTo(out);
+            count += lines.count;
+        }
+    }
+
+    // finds the lines of chunk with a match
+    private Lines search(ByteBuffer chunk, byte[] name) {
+        LazyDFA dfa = this.dfa.get();
+        Lines lines = new Lines();
+        int n = chunk.limit();
+        for (int position = 0; position < n; ) {
+            int start, end;
+            if (prefix.length > 0) {
+                int at = indexOfPrefix(chunk, position, n);
+                if (at < 0) break;
+                start = lineStart(chunk, position, at);
+                end = lineEnd(chunk, at, n);
+                if (dfa.find(chunk, at, end) < 0) {
+                    position = end + 1;
+                    continue;
+                }
+            } else {
+                int match = dfa.find(chunk, position, n);
+                if (match < 0) break;
+                int last = Math.max(match - 1, position);   // a byte of the line of the match
+                start = lineStart(chunk, position, last);
+                end = lineEnd(chunk, last, n);
+            }
+            if (name != null) {
+                lines.bytes.write(name, 0, name.length);
+                lines.bytes.write(SEPARATOR, 0, 1);
+            }
+            byte[] line = new byte[end - start];
+            chunk.get(start, line);
+            lines.bytes.write(line, 0, line.length);
+            lines.bytes.write('\n');
+            lines.count++;
+            position = end + 1;
+        }
+        return lines;
+    }
+
+    // the start of the line of position i, which is not before from
+    private static int lineStart(ByteBuffer chunk, int from, int i) {
+        while (i > from && chunk.get(i - 1) != '\n')
+            i--;
+        return i;
+    }
+
+    // the position of the line end of the line of position i, or to if there is none before to
+    private static int lineEnd(ByteBuffer chunk, int i, int to) {
+        while (i < to && chunk.get(i) != '\n')
+            i++;
+        return i;
+    }
 
+    // the first occurrence of the prefix in chunk[from .. to - 1], or -1
+    private int indexOfPrefix(ByteBuffer chunk, int from, int to) {
+        int last = prefix.length - 1;
+        byte end = prefix[last];
+        for (int i = from; i + last < to; ) {
+            byte b = chunk.get(i + last);
+            if (b == end) {
+                int j = last - 1;
+                while (j >= 0 && chunk.get(i + j) == prefix[j])
+                    j--;
+                if (j < 0) return i;
+            }
+            i += shift[b & 0xFF];
+        }
+        return -1;
+    }
 
-} 
+    /**
+     * Prints the lines with a match of the regular expression given as the first argument in the files and
+     * directories given as the other arguments, or in standard input if there are none, with one thread per
+     * processor.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java GREP regexp [file-or-directory ...]");
+            System.exit(2);
+        }
+        List<Path> files = new ArrayList<>();
+        boolean directories = false;
+        for (int i = 1; i < args.length; i++) {
+            Path path = Paths.get(args[i]);
+            if (Files.isDirectory(path)) {
+                directories = true;
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files.addAll(walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                }
+            } else files.add(path);
+        }
+        GREP grep = new GREP(args[0]);
+        OutputStream out = new BufferedOutputStream(System.out, 1 << 16);
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (files.isEmpty()) grep.search(System.in, out, threads);
+        else grep.search(files, out, directories || files.size() > 1, threads);
+    }
+}
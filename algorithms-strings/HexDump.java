@@ -39,16 +39,17 @@ public class HexDump {
             bytesPerLine = Integer.parseInt(args[0]);
         }
 
+        BitReader in = BitReader.standardInput();
         int i;
-        for (i = 0; !BinaryStdIn.isEmpty(); i++) {
+        for (i = 0; !in.isEmpty(); i++) {
             if (bytesPerLine == 0) {
-                BinaryStdIn.readChar();
+                in.readChar();
                 continue;
             }
             if (i == 0) System.out.printf("");
             else if (i % bytesPerLine == 0) System.out.printf("\n", i);
             else System.out.print(" ");
-            char c = BinaryStdIn.readChar();
+            char c = in.readChar();
             System.out.printf("%02x", c & 0xff);
         }
         if (bytesPerLine != 0) System.out.println();
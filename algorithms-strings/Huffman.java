@@ -2,12 +2,15 @@
  *  Execution:    java Huffman - < tinytinyTale.txt   (compress)
  *  Execution:    java Huffman + < tinytinyTale.txt   (expand)
  *
- *  Compress or expand a binary input stream using the Huffman algorithm.
+ *  Compress or expand a binary input stream using the Huffman algorithm,
+ *  in blocks that are coded on parallel threads.
  *
- *  % java Huffman - < abra.txt | java BinaryDump 60
- *  010100000100101000100010010000110100001101010100101010000100
- *  000000000000000000000000000110001111100101101000111110010100
- *  120 bits
+ *  % java Huffman - < abra.txt | java HexDump 16
+ *  48 55 46 42 00 10 00 00 00 00 00 0c 00 00 00 27
+ *  00 00 00 00 40 00 00 00 78 00 20 00 00 00 00 00
+ *  00 00 00 00 00 00 00 00 00 00 00 00 00 00 00 00
+ *  41 34 33 4c f5 4c e0 00 00 00 00
+ *  472 bits
  *
  *  % java Huffman - < abra.txt | java Huffman +
  *  ABRACADABRA!
@@ -15,43 +18,52 @@
  ******************************************************************************/
 
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.PriorityQueue;
 
 /**
- * The Huffman class provides static methods for compressing and expanding a binary input using Huffman codes over the 8-bit extended ASCII alphabet.
+ * The Huffman class provides static methods for compressing and expanding a binary input using Huffman codes over
+ * the 8-bit extended ASCII alphabet.
+ * <p>
+ * The input is cut into blocks, and every block gets its own code, so a stream of any length is compressed in
+ * memory proportional to the block size, and the blocks are coded in parallel by a {BlockPipeline}.
+ * <p>
+ * The codes are canonical: the codewords of each length are consecutive integers assigned in byte order, so a code
+ * is given by its codeword lengths alone, which are limited to 15 bits by halving the frequencies until the
+ * Huffman tree is shallow enough. The encoder keeps each byte's codeword and length packed in one int and collects
+ * the bits with a {BitWriter}. The decoder looks the next 11 bits up in a table of 2048 entries,
+ * which gives the byte and the length of every codeword of up to 11 bits in one step; longer codewords, which are
+ * rare, are decoded from the first codeword of each length.
+ * <p>
+ * The stream is the magic "HUFB", the block size, then for every block its length, the number of bytes of its
+ * code and the code itself, and finally a length of 0; all ints are big-endian. The code of a block is a 256-bit
+ * map of the bytes that occur, their codeword lengths in 4 bits each, and the codewords of the block's bytes.
  */
 public class Huffman {
 
     // Radix extended ASCII
     private static final int R = 256;
 
-    // Do not instantiate.
-    private Huffman() {
-    }
-
-    // Huffman trie node
-    private static class TrieNode implements Comparable<TrieNode> {
-        private final char ch;
-        private final int freq;
-        private final TrieNode left;
-        private final TrieNode right;
-
-        TrieNode(char ch, int freq, TrieNode left, TrieNode right) {
-            this.ch = ch;
-            this.freq = freq;
-            this.left = left;
-            this.right = right;
-        }
-
-        private boolean isLeaf() {
-            assert ((left == null) && (right == null)) || ((left != null) && (right != null));
-            return (left == null) && (right == null);
-        }
+    private static final int MAGIC = 0x48554642;   // "HUFB"
+    private static final int MAX_LENGTH = 15;      // longest codeword
+    private static final int LOOKUP_BITS = 11;     // bits decoded by one table lookup
 
-        public int compareTo(TrieNode that) {
+    /**
+     * The default block size.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
 
-            return this.freq - that.freq;
-        }
+    // Do not instantiate.
+    private Huffman() {
     }
 
     /**
@@ -60,117 +72,231 @@ public class Huffman {
      * to standard output.
      */
     public static void compress() {
-        String s = BinaryStdIn.readString();
-        char[] input = s.toCharArray();
+        compress(System.in, System.out, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
 
-        // tabulate frequency counts
-        int[] freq = new int[R];
-        for (int i = 0; i < input.length; i++)
-            freq[input[i]]++;
-
-        // build Huffman trie
-        TrieNode root = buildHuffmanTrie(freq);
-
-        // build code table
-        String[] st = new String[R];
-        buildCode(st, root, "");
-
-        // print trie for decoder
-        writeTrie(root);
-
-        // print number of bytes in original uncompressed message
-        BinaryStdOut.write(input.length);
-
-        for (char c : input) {
-            String code = st[c];
-            for (int j = 0; j < code.length(); j++) {
-                if (code.charAt(j) == '0') {
-                    BinaryStdOut.write(false);
-                } else if (code.charAt(j) == '1') {
-                    BinaryStdOut.write(true);
-                } else throw new IllegalStateException("Illegal state");
+    /**
+     * Reads a sequence of bits that represents a Huffman-compressed message from
+     * standard input; expands them; and writes the results to standard output.
+     */
+    public static void expand() {
+        expand(System.in, System.out, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads {in} to its end in blocks of {blockSize} bytes and writes them compressed to {out}, coding up to
+     * {threads} blocks at a time.
+     */
+    public static void compress(InputStream in, OutputStream out, int blockSize, int threads) {
+        if (blockSize < 1) throw new IllegalArgumentException("block size " + blockSize + " is not positive");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        try (BlockPipeline<Coded> pipeline = new BlockPipeline<>(threads, coded -> writeBlock(output, coded))) {
+            output.writeInt(MAGIC);
+            output.writeInt(blockSize);
+            while (true) {
+                byte[] block = in.readNBytes(blockSize);
+                if (block.length == 0) break;
+                pipeline.submit(() -> new Coded(block.length, encode(block)));
             }
+            pipeline.finish();
+            output.writeInt(0);
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not compress the stream", e);
         }
-
-        BinaryStdOut.close();
     }
 
-    private static TrieNode buildHuffmanTrie(int[] freq) {
+    /**
+     * Reads a stream written by {#compress(InputStream, OutputStream, int, int)} from {in} and writes the
+     * original bytes to {out}, decoding up to {threads} blocks at a time.
+     */
+    public static void expand(InputStream in, OutputStream out, int threads) {
+        try (BlockPipeline<byte[]> pipeline = new BlockPipeline<>(threads, out::write)) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            if (input.readInt() != MAGIC) throw new IllegalArgumentException("not a Huffman stream");
+            int blockSize = input.readInt();
+            while (true) {
+                int length = input.readInt();
+                if (length == 0) break;
+                int size = input.readInt();
+                if (length < 0 || length > blockSize || size < 0 || size > maxCodeSize(length))
+                    throw new IllegalArgumentException("block of " + length + " bytes coded in " + size
+                            + " bytes in a stream of " + blockSize + "-byte blocks");
+                byte[] code = new byte[size];
+                input.readFully(code);
+                pipeline.submit(() -> decode(code, length));
+            }
+            pipeline.finish();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not expand the stream", e);
+        }
+    }
 
-        // initialze priority queue with singleton trees
-        PriorityQueue<TrieNode> pq = new PriorityQueue<TrieNode>();
-        for (char c = 0; c < R; c++)
-            if (freq[c] > 0)
-                pq.offer(new TrieNode(c, freq[c], null, null));
+    // the code of one block
+    private static final class Coded {
+        private final int length;
+        private final byte[] code;
 
-        // merge two smallest trees
-        while (pq.size() > 1) {
-            TrieNode left = pq.poll();
-            TrieNode right = pq.poll();
-            TrieNode parent = new TrieNode('\0', left.freq + right.freq, left, right);
-            pq.offer(parent);
+        Coded(int length, byte[] code) {
+            this.length = length;
+            this.code = code;
         }
-        return pq.poll();
     }
 
+    private static void writeBlock(DataOutputStream out, Coded coded) throws IOException {
+        out.writeInt(coded.length);
+        out.writeInt(coded.code.length);
+        out.write(coded.code);
+    }
 
-    // write bitstring-encoded trie to standard output. Write preorder traversal of trie; mark leaf and internal nodes with a bit.
-    private static void writeTrie(TrieNode x) {
-        if (x.isLeaf()) {
-            BinaryStdOut.write(true);
-            BinaryStdOut.write(x.ch, 8);
-            return;
-        }
-        BinaryStdOut.write(false);//not at leaf simply write 0
-        writeTrie(x.left);
-        writeTrie(x.right);
+    // the most bytes the code of a block of n bytes can take
+    private static long maxCodeSize(int n) {
+        return (R + 4L * R + (long) MAX_LENGTH * n + 7) / 8;
     }
 
-    // make a lookup table from symbols and their encodings
-    private static void buildCode(String[] st, TrieNode x, String s) {
-        if (!x.isLeaf()) {
-            buildCode(st, x.left, s + '0');
-            buildCode(st, x.right, s + '1');
-        } else {
-            st[x.ch] = s;
+    /**
+     * Returns the code of {block}.
+     */
+    static byte[] encode(byte[] block) {
+        int[] freq = new int[R];
+        for (byte b : block)
+            freq[b & 0xFF]++;
+        int[] length = codeLengths(freq);
+        int[] code = canonicalCode(length);
+
+        long bits = R;
+        for (int c = 0; c < R; c++)
+            if (length[c] > 0) bits += 4 + (long) freq[c] * length[c];
+        byte[] bytes = new byte[(int) ((bits + 7) / 8)];
+        BitWriter out = new BitWriter(ByteBuffer.wrap(bytes));
+        for (int c = 0; c < R; c++)
+            out.write(length[c] > 0);
+        for (int c = 0; c < R; c++)
+            if (length[c] > 0) out.writeBits(length[c], 4);
+        for (byte b : block) {
+            int codeword = code[b & 0xFF];
+            out.writeBits(codeword >>> 4, codeword & 0xF);
         }
+        out.flush();
+        return bytes;
     }
 
     /**
-     * Reads a sequence of bits that represents a Huffman-compressed message from
-     * standard input; expands them; and writes the results to standard output.
+     * Returns the block of {n} bytes with code {bytes}.
      */
-    public static void expand() {
-
-        // read in Huffman trie from input stream
-        TrieNode root = readTrie();
-
-        // number of bytes to write
-        int length = BinaryStdIn.readInt();
+    static byte[] decode(byte[] bytes, int n) {
+        BitReader in = new BitReader(ByteBuffer.wrap(bytes));
+        int[] length = new int[R];
+        for (int c = 0; c < R; c++)
+            length[c] = in.readInt(1);
+        for (int c = 0; c < R; c++)
+            if (length[c] > 0) {
+                length[c] = in.readInt(4);
+                if (length[c] == 0) throw new IllegalArgumentException("codeword of length 0");
+            }
+        int[] code = canonicalCode(length);
+
+        // table[w] = byte << 4 | length of the codeword that w, read as 11 bits, starts with, or 0 if it is longer
+        int[] table = new int[1 << LOOKUP_BITS];
+        // the codewords of each length are first[len], first[len] + 1, ..., coding the bytes
+        // symbols[offset[len]], symbols[offset[len] + 1], ...
+        int[] first = new int[MAX_LENGTH + 1];
+        int[] count = new int[MAX_LENGTH + 1];
+        int[] offset = new int[MAX_LENGTH + 2];
+        int[] symbols = new int[R];
+        for (int c = 0; c < R; c++)
+            count[length[c]]++;
+        for (int len = 1; len <= MAX_LENGTH; len++)
+            offset[len + 1] = offset[len] + count[len];
+        int[] next = Arrays.copyOf(offset, MAX_LENGTH + 1);
+        for (int c = 0; c < R; c++) {
+            int len = length[c];
+            if (len == 0) continue;
+            if (next[len] == offset[len]) first[len] = code[c] >>> 4;
+            symbols[next[len]++] = c;
+            if (len <= LOOKUP_BITS) {
+                int from = (code[c] >>> 4) << (LOOKUP_BITS - len);
+                Arrays.fill(table, from, from + (1 << (LOOKUP_BITS - len)), c << 4 | len);
+            }
+        }
 
-        // decode using the Huffman trie
-        for (int i = 0; i < length; i++) {
-            TrieNode x = root;
-            while (!x.isLeaf()) {//expand codeword for ith char
-                boolean bit = BinaryStdIn.readBoolean();
-                if (bit) x = x.right;
-                else x = x.left;
+        byte[] block = new byte[n];
+        for (int i = 0; i < n; i++) {
+            int entry = table[in.peekBits(LOOKUP_BITS)];
+            if (entry != 0) {
+                in.skipBits(entry & 0xF);
+                block[i] = (byte) (entry >>> 4);
+                continue;
             }
-            BinaryStdOut.write(x.ch, 8);
+            int len = LOOKUP_BITS + 1;
+            int codeword = in.peekBits(len);
+            while (len < MAX_LENGTH && codeword - first[len] >= count[len])
+                codeword = in.peekBits(++len);
+            if (codeword - first[len] >= count[len] || codeword < first[len])
+                throw new IllegalArgumentException("invalid codeword");
+            in.skipBits(len);
+            block[i] = (byte) symbols[offset[len] + codeword - first[len]];
         }
-        BinaryStdOut.close();
+        return block;
     }
 
+    // Huffman codeword lengths of the bytes with frequencies freq, none longer than MAX_LENGTH
+    private static int[] codeLengths(int[] freq) {
+        int[] length = new int[R];
+        int[] weight = freq.clone();
+        int symbols = 0;
+        for (int c = 0; c < R; c++)
+            if (weight[c] > 0) symbols++;
+        if (symbols == 1)
+            for (int c = 0; c < R; c++)
+                if (weight[c] > 0) length[c] = 1;
+        if (symbols <= 1) return length;
+
+        while (true) {
+            // build Huffman tree, with nodes 0 .. R - 1 for the bytes and R, R + 1, ... for the merged trees,
+            // each queued as its weight << 9 | node
+            int[] parent = new int[2 * R];
+            PriorityQueue<Long> pq = new PriorityQueue<>();
+            for (int c = 0; c < R; c++)
+                if (weight[c] > 0) pq.offer((long) weight[c] << 9 | c);
+            int node = R;
+            while (pq.size() > 1) {
+                long left = pq.poll();
+                long right = pq.poll();
+                parent[(int) (left & 511)] = node;
+                parent[(int) (right & 511)] = node;
+                pq.offer(((left >>> 9) + (right >>> 9)) << 9 | node++);
+            }
 
-    private static TrieNode readTrie() {
-        boolean isLeaf = BinaryStdIn.readBoolean();
-        if (isLeaf) {
-            return new TrieNode(BinaryStdIn.readChar(), -1, null, null);
-        } else {//'\0 not used for internal nodes
-            return new TrieNode('\0', -1, readTrie(), readTrie());//read left and right recursively
+            // a merged tree is created after its subtrees, so depths can be set from the root down
+            int[] depth = new int[2 * R];
+            for (int v = node - 2; v >= R; v--)
+                depth[v] = depth[parent[v]] + 1;
+            int max = 0;
+            for (int c = 0; c < R; c++)
+                if (weight[c] > 0) {
+                    length[c] = depth[parent[c]] + 1;
+                    max = Math.max(max, length[c]);
+                }
+            if (max <= MAX_LENGTH) return length;
+            for (int c = 0; c < R; c++)
+                if (weight[c] > 0) weight[c] = 1 + weight[c] / 2;
         }
     }
 
+    // code[c] = codeword << 4 | length of byte c in the canonical code with the given lengths, or 0
+    private static int[] canonicalCode(int[] length) {
+        int[] code = new int[R];
+        int codeword = 0;
+        for (int len = 1; len <= MAX_LENGTH; len++) {
+            for (int c = 0; c < R; c++)
+                if (length[c] == len) code[c] = codeword++ << 4 | len;
+            codeword <<= 1;
+        }
+        if (codeword > 1 << (MAX_LENGTH + 1)) throw new IllegalArgumentException("codeword lengths are not a code");
+        return code;
+    }
 
     public static void main(String[] args) {
         if (args[0].equals("-")) compress();
@@ -178,5 +304,3 @@ public class Huffman {
         else throw new IllegalArgumentException("Illegal command line argument");
     }
 }
-
-
@@ -1,6 +1,7 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.StringTokenizer;
 
 public class InverseBWT {
@@ -23,12 +24,15 @@ public class InverseBWT {
         }
     }
 
+    // The position of the '$' is the primary index of the transform
+    // of the text without its final '$', which one LF-mapping pass inverts.
     String inverseBWT(String bwt) {
-        StringBuilder result = new StringBuilder();
-
-        // write your code here
-
-        return result.toString();
+        int primary = bwt.indexOf('$');
+        String transform = bwt.substring(0, primary) + bwt.substring(primary + 1);
+        byte[] bytes = transform.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] text = new byte[bytes.length];
+        BurrowsWheeler.inverse(bytes, primary, text);
+        return new String(text, StandardCharsets.ISO_8859_1) + "$";
     }
 
     static public void main(String[] args) throws IOException {
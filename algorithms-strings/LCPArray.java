@@ -0,0 +1,257 @@
+/******************************************************************************
+ *  Execution:    java LCPArray < input.txt
+ *
+ *  Longest common prefix array of a suffix array (Kasai et al.), with
+ *  constant-time longest common prefix queries for any two suffixes.
+ *
+ *  % java LCPArray
+ *  banana
+ *    i ind lcp rnk select
+ *  ---------------------------
+ *    0   5   -   0  "a"
+ *    1   3   1   1  "ana"
+ *    2   1   3   2  "anana"
+ *    3   0   0   3  "banana"
+ *    4   4   0   4  "na"
+ *    5   2   2   5  "nana"
+ *
+ ******************************************************************************/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The LCPArray class holds the suffix array of a text together with its longest common prefix (LCP) array:
+ * lcp(i) is the length of the longest common prefix of the i-th and the (i-1)-th smallest suffix.
+ * <p>
+ * The LCP array is computed in linear time with the algorithm of Kasai, Lee, Arimura, Arikawa and Park. It visits
+ * the suffixes in text order and uses that the common prefix of the suffix at p + 1 with its predecessor in sorted
+ * order is at least one shorter than that of the suffix at p, so the matched length drops by at most one per
+ * step. The algorithm needs the inverse of the suffix array, which is kept as the rank array for queries by text
+ * position, so it costs no memory beyond the LCP array itself.
+ * <p>
+ * The longest common prefix of any two suffixes is the minimum of the LCP array between their ranks, which a
+ * range-minimum structure answers in constant time. The LCP array is cut into blocks of 64 entries. A sparse
+ * table over the block minima answers the part of a query made of whole blocks with two lookups. Inside a block,
+ * every entry j keeps a 64-bit mask of the positions on the stack of suffix minima of the block up to j, so the
+ * minimum of a range ending at j is the farthest stack position inside the range: one mask and one
+ * {Long#numberOfLeadingZeros(long)}. Apart from the suffix array, the rank array and the LCP array this takes
+ * 8n bytes for the masks and 4 log(n/64) bytes per block for the sparse table, where a sparse table over the
+ * whole array would take 4n log n bytes.
+ */
+public class LCPArray {
+    private static final int BLOCK = 64;   // entries per block of the range-minimum structure
+
+    private final int n;
+    private final int[] sa;         // sa[i] = starting position of the i-th smallest suffix
+    private final int[] rank;       // rank[p] = rank of the suffix at position p
+    private final int[] lcp;        // lcp[i] = longest common prefix of suffixes i - 1 and i; lcp[0] = 0
+    private final long[] mask;      // mask[j] bit k = position j - k is on the stack of minima of its block
+    private final int[][] sparse;   // sparse[k][b] = minimum of lcp over blocks b .. b + 2^k - 1
+
+    /**
+     * Builds the suffix array of {text} and its LCP array.
+     */
+    public LCPArray(String text) {
+        this(text, SuffixArraySAIS.build(text));
+    }
+
+    /**
+     * Builds the LCP array of {text} with its given suffix array.
+     */
+    public LCPArray(String text, int[] suffixArray) {
+        this(text.length(), text::charAt, suffixArray);
+    }
+
+    /**
+     * Builds the suffix array of {text}, comparing bytes as unsigned values, and its LCP array.
+     */
+    public LCPArray(byte[] text) {
+        this(text.length, i -> text[i] & 0xFF, SuffixArraySAIS.build(text));
+    }
+
+    /**
+     * Builds the suffix array of {text}, whose characters must be between 0 and alphabetSize - 1, and its LCP
+     * array.
+     */
+    public LCPArray(int[] text, int alphabetSize) {
+        this(text.length, i -> text[i], SuffixArraySAIS.build(text, alphabetSize));
+    }
+
+    private LCPArray(int n, IntUnaryOperator text, int[] suffixArray) {
+        if (suffixArray.length != n)
+            throw new IllegalArgumentException("suffix array of length " + suffixArray.length
+                    + " for a text of length " + n);
+        this.n = n;
+        sa = suffixArray;
+        rank = new int[n];
+        for (int i = 0; i < n; i++)
+            rank[sa[i]] = i;
+        lcp = kasai(n, text, sa, rank);
+        mask = new long[n];
+        sparse = buildSparseTable();
+    }
+
+    // the LCP array of the suffix array sa, with rank its inverse
+    private static int[] kasai(int n, IntUnaryOperator text, int[] sa, int[] rank) {
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int p = 0; p < n; p++) {
+            int r = rank[p];
+            if (r == 0) {
+                h = 0;
+                continue;
+            }
+            int q = sa[r - 1];
+            while (p + h < n && q + h < n && text.applyAsInt(p + h) == text.applyAsInt(q + h))
+                h++;
+            lcp[r] = h;
+            if (h > 0) h--;
+        }
+        return lcp;
+    }
+
+    // fills the in-block masks and returns the sparse table over the block minima
+    private int[][] buildSparseTable() {
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        int levels = 1;
+        while ((1 << levels) <= blocks)
+            levels++;
+        int[][] table = new int[levels][];
+        table[0] = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            int start = b * BLOCK, end = Math.min(start + BLOCK, n);
+            long m = 0;
+            int min = Integer.MAX_VALUE;
+            for (int j = start; j < end; j++) {
+                m <<= 1;
+                while (m != 0 && lcp[j - Long.numberOfTrailingZeros(m)] >= lcp[j])
+                    m &= m - 1;
+                mask[j] = m |= 1;
+                min = Math.min(min, lcp[j]);
+            }
+            table[0][b] = min;
+        }
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            table[k] = new int[blocks - (1 << k) + 1];
+            for (int b = 0; b < table[k].length; b++)
+                table[k][b] = Math.min(table[k - 1][b], table[k - 1][b + half]);
+        }
+        return table;
+    }
+
+    // minimum of lcp[lo .. hi], lo <= hi
+    private int rangeMin(int lo, int hi) {
+        int blockLo = lo / BLOCK, blockHi = hi / BLOCK;
+        if (blockLo == blockHi) return inBlockMin(lo, hi);
+        int min = Math.min(inBlockMin(lo, blockLo * BLOCK + BLOCK - 1), inBlockMin(blockHi * BLOCK, hi));
+        if (blockHi - blockLo > 1) {
+            int from = blockLo + 1, to = blockHi - 1;
+            int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+            min = Math.min(min, Math.min(sparse[k][from], sparse[k][to - (1 << k) + 1]));
+        }
+        return min;
+    }
+
+    // minimum of lcp[lo .. hi] inside one block
+    private int inBlockMin(int lo, int hi) {
+        long m = mask[hi] & (-1L >>> (BLOCK - 1 - (hi - lo)));
+        return lcp[hi - (63 - Long.numberOfLeadingZeros(m))];
+    }
+
+    /**
+     * Returns the length of the text.
+     */
+    public int length() {
+        return n;
+    }
+
+    /**
+     * Returns the starting position of the i-th smallest suffix.
+     */
+    public int index(int i) {
+        validateRank(i);
+        return sa[i];
+    }
+
+    /**
+     * Returns the rank of the suffix that starts at position p.
+     */
+    public int rank(int p) {
+        validatePosition(p);
+        return rank[p];
+    }
+
+    /**
+     * Returns the length of the longest common prefix of the i-th and the (i-1)-th smallest suffix.
+     */
+    public int lcp(int i) {
+        if (i < 1 || i >= n) throw new IllegalArgumentException("rank " + i + " is not between 1 and " + (n - 1));
+        return lcp[i];
+    }
+
+    /**
+     * Returns the length of the longest common prefix of the i-th and the j-th smallest suffix in constant time.
+     */
+    public int lcp(int i, int j) {
+        validateRank(i);
+        validateRank(j);
+        if (i == j) return n - sa[i];
+        return i < j ? rangeMin(i + 1, j) : rangeMin(j + 1, i);
+    }
+
+    /**
+     * Returns the length of the longest common prefix of the suffixes that start at positions p and q in constant
+     * time.
+     */
+    public int lcpOfSuffixes(int p, int q) {
+        validatePosition(p);
+        validatePosition(q);
+        return lcp(rank[p], rank[q]);
+    }
+
+    /**
+     * Returns a copy of the suffix array.
+     */
+    public int[] suffixArray() {
+        return sa.clone();
+    }
+
+    /**
+     * Returns the LCP array in the layout of {SuffixTreeFromArray}: n - 1 entries, entry i being the longest
+     * common prefix of the i-th and the (i+1)-th smallest suffix.
+     */
+    public int[] lcpArray() {
+        int[] result = new int[Math.max(n - 1, 0)];
+        System.arraycopy(lcp, 1, result, 0, result.length);
+        return result;
+    }
+
+    private void validateRank(int i) {
+        if (i < 0 || i >= n) throw new IllegalArgumentException("rank " + i + " is not between 0 and " + (n - 1));
+    }
+
+    private void validatePosition(int p) {
+        if (p < 0 || p >= n) throw new IllegalArgumentException("position " + p + " is not between 0 and " + (n - 1));
+    }
+
+    /**
+     * Reads a line of text from standard input and prints its suffix array and LCP array.
+     */
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String text = in.readLine().trim();
+        LCPArray lcp = new LCPArray(text);
+        System.out.println("  i ind lcp rnk select");
+        System.out.println("---------------------------");
+        for (int i = 0; i < text.length(); i++) {
+            int index = lcp.index(i);
+            String ith = "\"" + text.substring(index, Math.min(index + 50, text.length())) + "\"";
+            if (i == 0) System.out.printf("%3d %3d %3s %3d  %s\n", i, index, "-", lcp.rank(index), ith);
+            else System.out.printf("%3d %3d %3d %3d  %s\n", i, index, lcp.lcp(i), lcp.rank(index), ith);
+        }
+    }
+}
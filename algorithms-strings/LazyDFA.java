@@ -0,0 +1,270 @@
+/******************************************************************************
+ *  Execution:    java LazyDFA regexp < input.txt
+ *
+ *  Counts the lines of standard input that contain a match of a regular
+ *  expression, building the DFA of its NFA as the input needs it.
+ *
+ *  % java LazyDFA "s[a-z]*s" < data/tale.txt
+ *  3390 of 16039 lines, 3 DFA states
+ *
+ ******************************************************************************/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The LazyDFA class matches texts against an {NFA} through the DFA built from it by the subset construction,
+ * building only the DFA states the texts reach, when they first reach them.
+ * <p>
+ * A DFA state is the set of NFA states the NFA can be in, as a {BitSet}. The transition of a state on a character
+ * class is computed with {NFA#step} the first time it is taken and then stored in a flat table of states * classes
+ * ints, so a text character costs one table lookup once the states it visits are built, where simulating the NFA
+ * costs a pass over all its active states. The states are interned in a hash map from their sets.
+ * <p>
+ * Matching a whole text starts from the states before the first character. Finding a match in a text adds those
+ * states back after every character, so the DFA follows the matches starting at every position at once, and stops
+ * at the end of the first match to end. There is one table for each of the two modes.
+ * <p>
+ * A regular expression can have exponentially many DFA states, so each table holds at most a fixed number of them.
+ * When it is full it is cleared and built again from the current state. If that happens again before the text has
+ * advanced by 16 characters per state of the table, states are not being reused and the rest of the text is
+ * matched by simulating the NFA, without building states.
+ * <p>
+ * An instance is not thread-safe; every thread needs its own.
+ */
+public class LazyDFA {
+    private static final int DEFAULT_MAX_STATES = 4096;
+    private static final int MIN_CHARS_PER_STATE = 16;
+
+    private final NFA nfa;
+    private final int classes;
+    private final int[] latin1;         // latin1[c] = class of character c, for c < 256
+    private final int maxStates;
+    private Table anchored;             // states of whole-text matching, built on first use
+    private Table unanchored;           // states of substring search, built on first use
+    private long positions;             // characters matched so far, to tell how fast the tables fill
+
+    /**
+     * Initializes an empty DFA for {nfa}.
+     */
+    public LazyDFA(NFA nfa) {
+        this(nfa, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Initializes an empty DFA for {nfa} that keeps at most {maxStates} states in each mode.
+     */
+    public LazyDFA(NFA nfa, int maxStates) {
+        if (maxStates < 2) throw new IllegalArgumentException("at least 2 states are needed, not " + maxStates);
+        this.nfa = nfa;
+        this.maxStates = maxStates;
+        classes = nfa.classes();
+        latin1 = nfa.latin1Classes();
+    }
+
+    // the DFA states of one mode
+    private final class Table {
+        private final boolean restart;              // whether the start states are added after every character
+        private final BitSet startSet;
+        private final HashMap<BitSet, Integer> ids = new HashMap<>();
+        private BitSet[] sets = new BitSet[16];     // sets[s] = the NFA states of DFA state s
+        private boolean[] accepting = new boolean[16];
+        private int[] delta = new int[16 * classes]; // delta[s * classes + k] = state after class k from s, or -1
+        private int count;
+        private int start;
+        private int dead = -1;                      // the state without NFA states, if built
+        private boolean cleared;
+        private long clearedAt;                     // characters matched before the last clearing
+
+        Table(boolean restart) {
+            this.restart = restart;
+            startSet = nfa.start();
+            start = add(startSet);
+        }
+
+        private int add(BitSet set) {
+            if (count == sets.length) {
+                int capacity = Math.min(2 * count, maxStates);
+                sets = Arrays.copyOf(sets, capacity);
+                accepting = Arrays.copyOf(accepting, capacity);
+                delta = Arrays.copyOf(delta, capacity * classes);
+            }
+            int s = count++;
+            sets[s] = set;
+            accepting[s] = nfa.accepts(set);
+            Arrays.fill(delta, s * classes, (s + 1) * classes, -1);
+            if (set.isEmpty()) dead = s;
+            ids.put(set, s);
+            return s;
+        }
+
+        // the state after class k from state s, or -1 if the NFA should be simulated instead, at position
+        // {position} of all the characters matched in this mode
+        int transition(int s, int k, long position) {
+            BitSet set = new BitSet(nfa.states());
+            nfa.step(sets[s], k, set);
+            if (restart) set.or(startSet);
+            Integer t = ids.get(set);
+            if (t != null) return delta[s * classes + k] = t;
+            if (count < maxStates) return delta[s * classes + k] = add(set);
+
+            if (cleared && position - clearedAt < (long) MIN_CHARS_PER_STATE * maxStates) return -1;
+            cleared = true;
+            clearedAt = position;
+            ids.clear();
+            Arrays.fill(sets, null);
+            count = 0;
+            dead = -1;
+            start = add(startSet);
+            return add(set);
+        }
+    }
+
+    private Table anchored() {
+        if (anchored == null) anchored = new Table(false);
+        return anchored;
+    }
+
+    private Table unanchored() {
+        if (unanchored == null) unanchored = new Table(true);
+        return unanchored;
+    }
+
+    /**
+     * Does the whole of {text} match?
+     */
+    public boolean matches(CharSequence text) {
+        Table table = anchored();
+        int n = text.length();
+        int s = table.start;
+        for (int i = 0; i < n; i++) {
+            int c = text.charAt(i);
+            int k = c < 256 ? latin1[c] : nfa.classOf(c);
+            int t = table.delta[s * classes + k];
+            if (t < 0) {
+                t = table.transition(s, k, positions + i);
+                if (t < 0) {
+                    positions += n;
+                    return simulate(table.sets[s], false, text::charAt, i, n) >= 0;
+                }
+            }
+            if (t == table.dead) {
+                positions += i + 1;
+                return false;
+            }
+            s = t;
+        }
+        positions += n;
+        return table.accepting[s];
+    }
+
+    /**
+     * Returns the end of the first match to end in {text}[{from} .. {to} - 1], that is the smallest e such that
+     * a substring of {text} ending at e - 1 matches, or -1 if there is none.
+     */
+    public int find(CharSequence text, int from, int to) {
+        Table table = unanchored();
+        int s = table.start;
+        if (table.accepting[s]) return from;
+        for (int i = from; i < to; i++) {
+            int c = text.charAt(i);
+            int k = c < 256 ? latin1[c] : nfa.classOf(c);
+            int t = table.delta[s * classes + k];
+            if (t < 0) {
+                t = table.transition(s, k, positions + i - from);
+                if (t < 0) {
+                    positions += to - from;
+                    return simulate(table.sets[s], true, text::charAt, i, to);
+                }
+            }
+            s = t;
+            if (table.accepting[s]) {
+                positions += i + 1 - from;
+                return i + 1;
+            }
+        }
+        positions += to - from;
+        return -1;
+    }
+
+    /**
+     * Returns the end of the first match to end in bytes {from} .. {to} - 1 of {text}, read as ISO-8859-1
+     * characters, or -1 if there is none.
+     */
+    public int find(ByteBuffer text, int from, int to) {
+        Table table = unanchored();
+        int s = table.start;
+        if (table.accepting[s]) return from;
+        int[] delta = table.delta;
+        boolean[] accepting = table.accepting;
+        for (int i = from; i < to; i++) {
+            int k = latin1[text.get(i) & 0xFF];
+            int t = delta[s * classes + k];
+            if (t < 0) {
+                t = table.transition(s, k, positions + i - from);
+                if (t < 0) {
+                    positions += to - from;
+                    return simulate(table.sets[s], true, j -> text.get(j) & 0xFF, i, to);
+                }
+                delta = table.delta;
+                accepting = table.accepting;
+            }
+            s = t;
+            if (accepting[s]) {
+                positions += i + 1 - from;
+                return i + 1;
+            }
+        }
+        positions += to - from;
+        return -1;
+    }
+
+    // simulates the NFA from {states} on characters from .. to - 1 of {text}; returns, when searching, the end of
+    // the first match or -1, and otherwise {to} if the whole text matches or -1
+    private int simulate(BitSet states, boolean search, IntUnaryOperator text, int from, int to) {
+        BitSet current = (BitSet) states.clone();
+        BitSet next = new BitSet(nfa.states());
+        BitSet start = search ? nfa.start() : null;
+        for (int i = from; i < to; i++) {
+            next.clear();
+            nfa.step(current, nfa.classOf(text.applyAsInt(i)), next);
+            if (search) {
+                next.or(start);
+                if (nfa.accepts(next)) return i + 1;
+            } else if (next.isEmpty()) return -1;
+            BitSet swap = current;
+            current = next;
+            next = swap;
+        }
+        return !search && nfa.accepts(current) ? to : -1;
+    }
+
+    /**
+     * Returns the number of DFA states built in both modes since they were last cleared.
+     */
+    public int states() {
+        return (anchored == null ? 0 : anchored.count) + (unanchored == null ? 0 : unanchored.count);
+    }
+
+    /**
+     * Reads lines from standard input and prints how many contain a match of the regular expression given as the
+     * argument, and how many DFA states that took.
+     */
+    public static void main(String[] args) throws IOException {
+        LazyDFA dfa = new LazyDFA(new NFA(args[0]));
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        int lines = 0, matching = 0;
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            lines++;
+            if (dfa.find(line, 0, line.length()) >= 0) matching++;
+        }
+        System.out.println(matching + " of " + lines + " lines, " + dfa.states() + " DFA states");
+    }
+}
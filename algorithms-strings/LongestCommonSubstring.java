@@ -0,0 +1,71 @@
+/******************************************************************************
+ *  Execution:    java LongestCommonSubstring file1.txt file2.txt
+ *
+ *  Reads in two text files, replaces all consecutive blocks of
+ *  whitespace with a single space, and then computes the longest
+ *  common substring using a suffix array and its LCP array.
+ *
+ *  % java LongestCommonSubstring data/tale.txt data/medTale.txt
+ *  'it was the best of times it was the worst of times it was the age of ...'
+ *
+ ******************************************************************************/
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The LongestCommonSubstring class provides a static method for finding the longest common substring of two
+ * strings. It builds the {LCPArray} of s, a separator smaller than every character, and t. A common substring is
+ * a common prefix of a suffix of s and a suffix of t, and the longest one is the common prefix of two such
+ * suffixes that are adjacent in sorted order, so one scan of the LCP array finds it in linear time. The separator
+ * occurs once, so no common prefix runs over it.
+ */
+public class LongestCommonSubstring {
+
+    // Do not instantiate.
+    private LongestCommonSubstring() {
+    }
+
+    /**
+     * Returns the longest common substring of {s} and {t}, the empty string if they share no character.
+     */
+    public static String lcs(String s, String t) {
+        int[] match = match(s, t);
+        return s.substring(match[0], match[0] + match[2]);
+    }
+
+    /**
+     * Returns {i, j, length} such that s.substring(i, i + length) equals t.substring(j, j + length) and length is
+     * as large as possible.
+     */
+    public static int[] match(String s, String t) {
+        int n = s.length() + 1 + t.length();
+        int[] text = new int[n];
+        int alphabetSize = 1;
+        for (int i = 0; i < s.length(); i++)
+            alphabetSize = Math.max(alphabetSize, (text[i] = s.charAt(i) + 1) + 1);
+        for (int j = 0; j < t.length(); j++)
+            alphabetSize = Math.max(alphabetSize, (text[s.length() + 1 + j] = t.charAt(j) + 1) + 1);
+        LCPArray lcp = new LCPArray(text, alphabetSize);
+
+        int[] best = {0, 0, 0};
+        for (int r = 1; r < n; r++) {
+            int a = lcp.index(r - 1), b = lcp.index(r);
+            if ((a < s.length()) == (b < s.length()) || a == s.length() || b == s.length()) continue;
+            int length = lcp.lcp(r);
+            if (length > best[2]) {
+                best[0] = Math.min(a, b);
+                best[1] = Math.max(a, b) - s.length() - 1;
+                best[2] = length;
+            }
+        }
+        return best;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String s = new String(Files.readAllBytes(Paths.get(args[0]))).trim().replaceAll("\\s+", " ");
+        String t = new String(Files.readAllBytes(Paths.get(args[1]))).trim().replaceAll("\\s+", " ");
+        System.out.println("'" + lcs(s, t) + "'");
+    }
+}
@@ -0,0 +1,67 @@
+/******************************************************************************
+ *  Execution:    java LongestRepeatedSubstring < file.txt
+ *
+ *  Reads a text from standard input, replaces all consecutive blocks of
+ *  whitespace with a single space, and then computes the longest
+ *  repeated substring in that text using a suffix array and its LCP array.
+ *
+ *  % java LongestRepeatedSubstring < data/tale.txt
+ *  ' i am the resurrection and the life saith the lord he that believeth
+ *  in me though he were dead yet shall he live and whosoever liveth and
+ *  believeth in me shall never die '
+ *
+ ******************************************************************************/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.stream.Collectors;
+
+/**
+ * The LongestRepeatedSubstring class provides a static method for finding the longest repeated substring of a
+ * string and the repeats of a given length. A substring occurs twice exactly when it is a common prefix of two
+ * suffixes, so the longest repeated substring is the prefix of the largest entry of the {LCPArray}, and the
+ * substrings of length at least m that repeat are the prefixes of the runs of LCP entries of at least m.
+ * Both take linear time.
+ */
+public class LongestRepeatedSubstring {
+
+    // Do not instantiate.
+    private LongestRepeatedSubstring() {
+    }
+
+    /**
+     * Returns the longest repeated substring of {text}, the empty string if no character repeats.
+     */
+    public static String lrs(String text) {
+        LCPArray lcp = new LCPArray(text);
+        String lrs = "";
+        for (int i = 1; i < text.length(); i++) {
+            int length = lcp.lcp(i);
+            if (length > lrs.length()) lrs = text.substring(lcp.index(i), lcp.index(i) + length);
+        }
+        return lrs;
+    }
+
+    /**
+     * Returns the number of distinct substrings of length {m} that occur at least twice in {text}.
+     */
+    public static int repeats(String text, int m) {
+        if (m <= 0) throw new IllegalArgumentException("length " + m + " is not positive");
+        LCPArray lcp = new LCPArray(text);
+        int count = 0;
+        boolean inRun = false;
+        for (int i = 1; i < text.length(); i++) {
+            boolean shared = lcp.lcp(i) >= m;
+            if (shared && !inRun) count++;
+            inRun = shared;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String text = in.lines().collect(Collectors.joining(" ")).replaceAll("\\s+", " ");
+        System.out.println("'" + lrs(text) + "'");
+    }
+}
@@ -1,29 +1,53 @@
 /******************************************************************************
+ *  Execution:    java NFA regexp text
+ *
+ *  The following features are supported besides concatenation, closure,
+ *  binary or and parentheses:
+ *    - The wildcard ., which matches any character but a newline
+ *    - Character classes such as [a-z0-9_] and negated classes such as [^,],
+ *      which never match a newline either
+ *    - The escape \, which makes the next character a literal, as in \* or \]
+ *
  *  The following features are not supported:
  *    - The + operator
  *    - Multiway or
- *    - Metacharacters in the text
- *    - Character classes.
+ *
+ *  % java NFA "(A*B|AC)D" AAAABD
+ *  true
+ *
+ *  % java NFA "(a|(bc)*d)*" abcbcbcdaaaabcbcdaaaddd
+ *  true
+ *
+ *  % java NFA "[A-Z][a-z]*, [0-9]*" "Smith, 1984"
+ *  true
  *
  ******************************************************************************/
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Stack;
+import java.util.TreeSet;
 
 /**
  * The NFA class provides a data type for:
  * creating a nondeterministic finite state automaton (NFA) from a regular expression
- * and testing whether a given string is matched by that regular expression.
+ * and testing whether a given string, or some substring of it, is matched by that regular expression.
  * It supports the following operations:
  * concatenation,
  * closure,
- * binary or, and parentheses.
+ * binary or, and parentheses, over literals, the wildcard and character classes.
  * <p>
- * This implementation builds the NFA using a digraph and a stack and simulates the NFA using digraph search .
- * The constructor takes time proportional to m, where m is the number of characters in the regular expression.
- * The recognizes method takes time proportional to m n, where n is the number of characters in the text.
+ * This implementation builds the NFA using a digraph and a stack: state i is position i of the regular expression,
+ * and state m, one past the end, accepts. The constructor takes time proportional to m^2, as it also computes the
+ * states reachable from every state by epsilon transitions with a {DirectedDFS}.
+ * <p>
+ * The characters are partitioned into classes that no literal, wildcard or character class of the expression tells
+ * apart, so a step of the NFA is taken for a class rather than for a character. The text is matched by a
+ * {LazyDFA}, which builds the states of the equivalent DFA from those steps as the text needs them, so matching
+ * takes time linear in n, the length of the text, and an instance may be shared between threads.
  */
 public class NFA {
 
@@ -31,100 +55,196 @@ public class NFA {
     private final String regexp;     // regular expression
     private final int regexpNumberOfChars;       // number of characters in regular expression
 
+    private final int[] next;        // next[v] = state after the character matched in state v, or -1
+    private final BitSet[] matched;  // matched[v] = character classes matched in state v
+    private final BitSet[] closure;  // closure[v] = states reachable from v by epsilon transitions
+    private final int[] bounds;      // bounds[k] = smallest character of class k + 1, in increasing order
+    private final int[] latin1;      // latin1[c] = class of character c, for c < 256
+
+    private final ThreadLocal<LazyDFA> dfa = ThreadLocal.withInitial(() -> new LazyDFA(this));
+
 
     public NFA(String regexp) {
         this.regexp = regexp;
         regexpNumberOfChars = regexp.length();
-        Stack<Integer> operations = new Stack<>();
-        graph = new Digraph(regexpNumberOfChars + 1);
-        for (int i = 0; i < regexpNumberOfChars; i++) {
-            int lp = i;
-            if (regexp.charAt(i) == '(' || regexp.charAt(i) == '|')
-                operations.push(i);
-            else if (regexp.charAt(i) == ')') {
-                int or = operations.pop();
-
-                // 2-way or operator
-                if (regexp.charAt(or) == '|') {
-                    lp = operations.pop();
-                    graph.addEdge(lp, or + 1);
-                    graph.addEdge(or, i);
-                } else if (regexp.charAt(or) == '(')
-                    lp = or;
-                else assert false;
-            }
+        next = new int[regexpNumberOfChars + 1];
+        Arrays.fill(next, -1);
+        List<int[]> ranges = new ArrayList<>();   // ranges.get(v) = inclusive bounds of the characters matched in v
+        for (int v = 0; v <= regexpNumberOfChars; v++)
+            ranges.add(null);
+        graph = buildEpsilonTransitionDigraph(regexp.toCharArray(), ranges);
+
+        // the class boundaries are the ends of all ranges
+        TreeSet<Integer> ends = new TreeSet<>();
+        for (int[] range : ranges)
+            if (range != null)
+                for (int r = 0; r < range.length; r += 2) {
+                    ends.add(range[r]);
+                    ends.add(range[r + 1] + 1);
+                }
+        bounds = ends.stream().mapToInt(Integer::intValue).toArray();
+        int[] latin1 = new int[256];
+        for (int c = 0; c < 256; c++)
+            latin1[c] = classOf(c);
+        this.latin1 = latin1;
 
-            // closure operator (uses 1-character lookahead)
-            if (i < regexpNumberOfChars - 1 && regexp.charAt(i + 1) == '*') {
-                graph.addEdge(lp, i + 1);
-                graph.addEdge(i + 1, lp);
+        matched = new BitSet[regexpNumberOfChars + 1];
+        closure = new BitSet[regexpNumberOfChars + 1];
+        for (int v = 0; v <= regexpNumberOfChars; v++) {
+            int[] range = ranges.get(v);
+            if (range != null) {
+                matched[v] = new BitSet(bounds.length + 1);
+                for (int r = 0; r < range.length; r += 2)
+                    matched[v].set(classOf(range[r]), classOf(range[r + 1]) + 1);
             }
-            if (regexp.charAt(i) == '(' || regexp.charAt(i) == '*' || regexp.charAt(i) == ')')
-                graph.addEdge(i, i + 1);
+            DirectedDFS dfs = new DirectedDFS(graph, v);
+            closure[v] = new BitSet(regexpNumberOfChars + 1);
+            for (int w = 0; w <= regexpNumberOfChars; w++)
+                if (dfs.isVisited(w)) closure[v].set(w);
         }
-        if (operations.size() != 0)
-            throw new IllegalArgumentException("Invalid regular expression");
     }
 
+    /**
+     * Does the whole of {txt} match the regular expression?
+     */
+    public boolean matches(CharSequence txt) {
+        return dfa.get().matches(txt);
+    }
 
-    public boolean matches(String txt) {
-        DirectedDFS dfs = new DirectedDFS(graph, 0);//all the states you can reach from state 0
-        List<Integer> pc = new ArrayList<>();//set of all possible states that an NFA could be in (program counter)
-        for (int v = 0; v < graph.getNumberofVertices(); v++)
-            if (dfs.isVisited(v)) pc.add(v);
+    /**
+     * Does some substring of {txt} match the regular expression?
+     */
+    public boolean find(CharSequence txt) {
+        return dfa.get().find(txt, 0, txt.length()) >= 0;
+    }
 
-        // Compute possible NFA states for txt[i+1]
-        for (int i = 0; i < txt.length(); i++) {
-            if (txt.charAt(i) == '*' || txt.charAt(i) == '|' || txt.charAt(i) == '(' || txt.charAt(i) == ')')
-                throw new IllegalArgumentException("text contains the metacharacter '" + txt.charAt(i) + "'");
+    /**
+     * Returns the regular expression.
+     */
+    public String regexp() {
+        return regexp;
+    }
 
-            List<Integer> match = new ArrayList<>();
-            //o now, we build another DFS which gives us marks all the states that you could reach by starting with any of the states in match
-            for (int v : pc) {
-                if (v == regexpNumberOfChars) continue;//did we reach the accept state?
-                if ((regexp.charAt(v) == txt.charAt(i)) || regexp.charAt(v) == '.')//'.' is the dont care here
-                    match.add(v + 1);//if we have a match add the next state
-            }
-            dfs = new DirectedDFS(graph, match);
-            pc = new ArrayList<>();
-            for (int v = 0; v < graph.getNumberofVertices(); v++)
-                if (dfs.isVisited(v)) pc.add(v);
+    // number of states, the last of which accepts
+    int states() {
+        return regexpNumberOfChars + 1;
+    }
 
-            // optimization if no states reachable
-            if (pc.size() == 0) return false;
-        }
+    // number of character classes
+    int classes() {
+        return bounds.length + 1;
+    }
+
+    // class of character c
+    int classOf(int c) {
+        if (c < 256 && latin1 != null) return latin1[c];
+        int k = Arrays.binarySearch(bounds, c);
+        return k >= 0 ? k + 1 : -k - 1;
+    }
+
+    // classes of the characters 0 to 255
+    int[] latin1Classes() {
+        return latin1;
+    }
 
-        // check for accept state
-        for (int v : pc)
-            if (v == regexpNumberOfChars) return true;
-        return false;
+    // the states before the first character
+    BitSet start() {
+        return (BitSet) closure[0].clone();
     }
 
-    private Digraph buildEpsilonTransitionDigraph(char[] re) {
+    boolean accepts(BitSet states) {
+        return states.get(regexpNumberOfChars);
+    }
+
+    // adds to {to} the states after a character of class k from {from}
+    void step(BitSet from, int k, BitSet to) {
+        for (int v = from.nextSetBit(0); v >= 0; v = from.nextSetBit(v + 1))
+            if (next[v] >= 0 && matched[v].get(k)) to.or(closure[next[v]]);
+    }
+
+    // the epsilon transitions of re; ranges.get(v) is set to the characters matched in every state v that
+    // matches one
+    private Digraph buildEpsilonTransitionDigraph(char[] re, List<int[]> ranges) {
 
         Digraph G = new Digraph(regexpNumberOfChars + 1);
         Stack<Integer> ops = new Stack<Integer>();
         for (int i = 0; i < regexpNumberOfChars; i++) {
             int lp = i;
+            int end = i;   // last position of the token at i
             if (re[i] == '(' || re[i] == '|') ops.push(i);
             else if (re[i] == ')') {
+                if (ops.isEmpty()) throw new IllegalArgumentException("unmatched ) at " + i);
                 int or = ops.pop();
                 if (re[or] == '|') {
+                    if (ops.isEmpty()) throw new IllegalArgumentException("| outside parentheses at " + or);
                     lp = ops.pop();
                     G.addEdge(lp, or + 1);
                     G.addEdge(or, i);
                 } else lp = or;
+            } else if (re[i] == '[') {
+                end = classEnd(re, i);
+                ranges.set(i, characterClass(re, i + 1, end));
+            } else if (re[i] == '\\') {
+                if (i == regexpNumberOfChars - 1) throw new IllegalArgumentException("trailing \\");
+                end = i + 1;
+                ranges.set(i, new int[]{re[end], re[end]});
+            } else if (re[i] == '.') {
+                ranges.set(i, new int[]{0, '\n' - 1, '\n' + 1, Character.MAX_VALUE});
+            } else if (re[i] != '*') {
+                ranges.set(i, new int[]{re[i], re[i]});
             }
-            if (i < regexpNumberOfChars - 1 && re[i + 1] == '*') {
-                G.addEdge(lp, i + 1);
-                G.addEdge(i + 1, lp);
+            if (ranges.get(i) != null) next[i] = end + 1;
+            if (end < regexpNumberOfChars - 1 && re[end + 1] == '*') {
+                G.addEdge(lp, end + 1);
+                G.addEdge(end + 1, lp);
             }
             if (re[i] == '(' || re[i] == '*' || re[i] == ')')
                 G.addEdge(i, i + 1);
+            i = end;
         }
+        if (!ops.isEmpty())
+            throw new IllegalArgumentException("Invalid regular expression");
         return G;
     }
 
+    // position of the ] closing the class opened at position open
+    private static int classEnd(char[] re, int open) {
+        for (int i = open + 1; i < re.length; i++) {
+            if (re[i] == '\\') i++;
+            else if (re[i] == ']') return i;
+        }
+        throw new IllegalArgumentException("unterminated character class at " + open);
+    }
+
+    // inclusive bounds of the characters matched by the class re[from .. to - 1], sorted and disjoint
+    private static int[] characterClass(char[] re, int from, int to) {
+        boolean negated = from < to && re[from] == '^';
+        if (negated) from++;
+        boolean[] in = new boolean[Character.MAX_VALUE + 1];
+        for (int i = from; i < to; i++) {
+            if (re[i] == '\\') i++;
+            int lo = re[i], hi = lo;
+            if (i + 2 < to && re[i + 1] == '-') {
+                i += 2;
+                if (re[i] == '\\') i++;
+                hi = re[i];
+                if (hi < lo) throw new IllegalArgumentException("empty range " + (char) lo + "-" + (char) hi);
+            }
+            Arrays.fill(in, lo, hi + 1, true);
+        }
+        if (negated) {
+            for (int c = 0; c < in.length; c++)
+                in[c] = !in[c];
+        }
+        in['\n'] = false;   // like the wildcard, so a match never spans two lines
+        List<Integer> bounds = new ArrayList<>();
+        for (int c = 0; c < in.length; c++)
+            if (in[c] && (c == 0 || !in[c - 1])) bounds.add(c);
+            else if (!in[c] && c > 0 && in[c - 1]) bounds.add(c - 1);
+        if (in[in.length - 1]) bounds.add(in.length - 1);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
     public static void main(String[] args) {
         /*
         "(A*B|AC)D" AAAABD
@@ -138,4 +258,3 @@ public class NFA {
         System.out.println(nfa.matches(txt));
     }
 }
-
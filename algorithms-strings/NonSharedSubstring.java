@@ -3,9 +3,46 @@ import java.math.*;
 import java.util.*;
 
 public class NonSharedSubstring implements Runnable {
+	// The shortest substring of p that does not occur in q. In the suffix array of p#q, a substring
+	// of p starting at i occurs in q exactly when it is a prefix of the longest common prefix of the
+	// suffix at i with the nearest suffix of q above or below it, so the shortest substring starting
+	// at i that q lacks is one character longer than that prefix, if it still ends inside p.
 	String solve (String p, String q) {
-		String result = p;
-		return result;
+		int n = p.length () + 1 + q.length ();
+		int[] text = new int[n];
+		for (int i = 0; i < p.length (); i++)
+			text[i] = p.charAt (i) + 1;
+		for (int i = 0; i < q.length (); i++)
+			text[p.length () + 1 + i] = q.charAt (i) + 1;
+		int alphabetSize = 1;
+		for (int c : text)
+			alphabetSize = Math.max (alphabetSize, c + 1);
+		LCPArray lcp = new LCPArray (text, alphabetSize);
+
+		// the ranks of the nearest suffixes of q before and after every rank
+		int[] previous = new int[n], next = new int[n];
+		for (int r = 0, last = -1; r < n; r++) {
+			previous[r] = last;
+			if (lcp.index (r) > p.length ()) last = r;
+		}
+		for (int r = n - 1, last = -1; r >= 0; r--) {
+			next[r] = last;
+			if (lcp.index (r) > p.length ()) last = r;
+		}
+
+		int bestStart = 0, bestLength = Integer.MAX_VALUE;
+		for (int r = 0; r < n; r++) {
+			int start = lcp.index (r);
+			if (start >= p.length ()) continue;
+			int shared = 0;
+			if (previous[r] >= 0) shared = lcp.lcp (previous[r], r);
+			if (next[r] >= 0) shared = Math.max (shared, lcp.lcp (r, next[r]));
+			if (start + shared < p.length () && shared + 1 < bestLength) {
+				bestStart = start;
+				bestLength = shared + 1;
+			}
+		}
+		return bestLength == Integer.MAX_VALUE ? p : p.substring (bestStart, bestStart + bestLength);
 	}
 
 	public void run () {
@@ -35,14 +35,16 @@ public class RunLength {
      * and writes the results to standard output.
      */
     public static void expand() {
+        BitReader in = BitReader.standardInput();
+        BitWriter out = BitWriter.standardOutput();
         boolean b = false;
-        while (!BinaryStdIn.isEmpty()) {
-            int run = BinaryStdIn.readInt(LG_R);
-            for (int i = 0; i < run; i++)
-                BinaryStdOut.write(b);
+        while (!in.isEmpty()) {
+            int run = in.readInt(LG_R);
+            for (; run > 0; run -= 64)
+                out.writeBits(b ? -1L : 0L, Math.min(run, 64));
             b = !b;
         }
-        BinaryStdOut.close();
+        out.close();
     }
 
     /**
@@ -51,25 +53,27 @@ public class RunLength {
      * results to standard output.
      */
     public static void compress() {
-        char run = 0;
+        BitReader in = BitReader.standardInput();
+        BitWriter out = BitWriter.standardOutput();
+        int run = 0;
         boolean old = false;
-        while (!BinaryStdIn.isEmpty()) {
-            boolean b = BinaryStdIn.readBoolean();
+        while (!in.isEmpty()) {
+            boolean b = in.readBoolean();
             if (b != old) {
-                BinaryStdOut.write(run, LG_R);
+                out.write(run, LG_R);
                 run = 1;
                 old = !old;
             } else {
                 if (run == R - 1) {
-                    BinaryStdOut.write(run, LG_R);
+                    out.write(run, LG_R);
                     run = 0;
-                    BinaryStdOut.write(run, LG_R);
+                    out.write(run, LG_R);
                 }
                 run++;
             }
         }
-        BinaryStdOut.write(run, LG_R);
-        BinaryStdOut.close();
+        out.write(run, LG_R);
+        out.close();
     }
 
 
@@ -23,30 +23,13 @@ public class SuffixArray {
         }
     }
 
-    public class Suffix implements Comparable {
-        String suffix;
-        int start;
-
-        Suffix(String suffix, int start) {
-            this.suffix = suffix;
-            this.start = start;
-        }
-
-        @Override
-        public int compareTo(Object o) {
-            Suffix other = (Suffix) o;
-            return suffix.compareTo(other.suffix);
-        }
-    }
-
     // Build suffix array of the string text and
     // return an int[] result of the same length as the text
     // such that the value result[i] is the index (0-based)
     // in text where the i-th lexicographically smallest
     // suffix of text starts.
     public int[] computeSuffixArray(String text) {
-        // write your code here
-        return null;
+        return SuffixArraySAIS.build(text);
     }
 
 
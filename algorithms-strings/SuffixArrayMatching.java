@@ -27,21 +27,40 @@ public class SuffixArrayMatching {
 
 
     public int[] computeSuffixArray(String text) {
-        int[] suffixArray=null;
-
-        // write your code here
-
-        return suffixArray;
+        return SuffixArraySAIS.build(text);
     }
 
+    // the suffixes that start with pattern form one range of the suffix array; find both ends by binary search
     public List<Integer> findOccurrences(String pattern, String text, int[] suffixArray) {
-        List<Integer> result=null;
-
-        // write your code here
-
+        List<Integer> result = new ArrayList<>();
+        int min = 0, max = suffixArray.length;
+        while (min < max) {
+            int mid = (min + max) >>> 1;
+            if (comparePrefix(text, suffixArray[mid], pattern) < 0) min = mid + 1;
+            else max = mid;
+        }
+        int start = min;
+        max = suffixArray.length;
+        while (min < max) {
+            int mid = (min + max) >>> 1;
+            if (comparePrefix(text, suffixArray[mid], pattern) <= 0) min = mid + 1;
+            else max = mid;
+        }
+        for (int i = start; i < min; i++)
+            result.add(suffixArray[i]);
         return result;
     }
 
+    // compares the suffix of text starting at suffix, cut to the length of pattern, with pattern
+    private static int comparePrefix(String text, int suffix, String pattern) {
+        int length = Math.min(pattern.length(), text.length() - suffix);
+        for (int i = 0; i < length; i++) {
+            char a = text.charAt(suffix + i), b = pattern.charAt(i);
+            if (a != b) return a < b ? -1 : 1;
+        }
+        return length < pattern.length() ? -1 : 0;
+    }
+
     static public void main(String[] args) throws IOException {
         new SuffixArrayMatching().run();
     }
@@ -0,0 +1,324 @@
+/******************************************************************************
+ *  Execution:    java SuffixArraySAIS data/tale.txt             (benchmark)
+ *  Execution:    java SuffixArraySAIS genome.txt genome.sa      (memory-mapped)
+ *
+ *  Linear-time suffix array construction by induced sorting (SA-IS).
+ *
+ *  % java SuffixArraySAIS data/medTale.txt
+ *  n = 5745, SA-IS 3.1 ms, naive 25.4 ms, same result: true
+ *
+ ******************************************************************************/
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The SuffixArraySAIS class builds suffix arrays in linear time with the SA-IS algorithm of Nong, Zhang and Chan.
+ * The suffix array of a text of length n is the permutation of 0 .. n - 1 that lists the starting positions of the
+ * suffixes in sorted order; a suffix that is a prefix of another comes first.
+ * <p>
+ * SA-IS classifies every suffix as S (smaller than the next suffix) or L (larger), sorts the leftmost S suffixes
+ * of every S run (the LMS suffixes) by inducing from their first characters, names the LMS substrings and, if the
+ * names are not unique, sorts the string of names recursively. From the sorted LMS suffixes one left-to-right
+ * scan induces the order of the L suffixes and one right-to-left scan the order of the S suffixes. The text gets
+ * a virtual sentinel smaller than every character. Apart from the text and the suffix array it needs one bit per
+ * character for the types and a bucket array per level: the reduced string and its suffix array are stored in the
+ * suffix array being built. This replaces sorting Suffix objects that hold a copy of every suffix, which takes
+ * O(n^2 log n) time and O(n^2) memory.
+ * <p>
+ * The suffix array is built in an {IntBuffer}. For the in-memory methods that is a heap buffer; for texts in
+ * files, {#build(Path, Path)} maps the text read-only and uses the memory-mapped output file itself as the
+ * working area, so only the type bits and the bucket arrays are on the heap.
+ */
+public class SuffixArraySAIS {
+
+    // Do not instantiate.
+    private SuffixArraySAIS() {
+    }
+
+    // the characters of a (sub)problem; character n - 1 is the unique smallest sentinel 0
+    private abstract static class Symbols {
+        final int n;
+
+        Symbols(int n) {
+            this.n = n;
+        }
+
+        abstract int get(int i);
+    }
+
+    // bytes, shifted by one to make room for the virtual sentinel
+    private static final class ByteSymbols extends Symbols {
+        private final ByteBuffer text;
+
+        ByteSymbols(ByteBuffer text, int length) {
+            super(length + 1);
+            this.text = text;
+        }
+
+        int get(int i) {
+            return i == n - 1 ? 0 : (text.get(i) & 0xFF) + 1;
+        }
+    }
+
+    // ints; shifted by one with a virtual sentinel for user texts, as they are for the reduced strings
+    private static final class IntSymbols extends Symbols {
+        private final IntBuffer text;
+        private final int shift;
+
+        IntSymbols(IntBuffer text, int length, boolean sentinel) {
+            super(sentinel ? length + 1 : length);
+            this.text = text;
+            shift = sentinel ? 1 : 0;
+        }
+
+        int get(int i) {
+            return shift == 1 && i == n - 1 ? 0 : text.get(i) + shift;
+        }
+    }
+
+    /**
+     * Returns the suffix array of {text}, comparing bytes as unsigned values.
+     */
+    public static int[] build(byte[] text) {
+        int[] sa = new int[text.length + 1];
+        sais(new ByteSymbols(ByteBuffer.wrap(text), text.length), IntBuffer.wrap(sa), 257);
+        return Arrays.copyOfRange(sa, 1, sa.length);   // sa[0] is the sentinel
+    }
+
+    /**
+     * Returns the suffix array of {text}, whose characters must be between 0 and alphabetSize - 1.
+     */
+    public static int[] build(int[] text, int alphabetSize) {
+        for (int c : text)
+            if (c < 0 || c >= alphabetSize)
+                throw new IllegalArgumentException("character " + c + " is not between 0 and " + (alphabetSize - 1));
+        int[] sa = new int[text.length + 1];
+        sais(new IntSymbols(IntBuffer.wrap(text), text.length, true), IntBuffer.wrap(sa), alphabetSize + 1);
+        return Arrays.copyOfRange(sa, 1, sa.length);
+    }
+
+    public static int[] build(String text) {
+        int[] chars = new int[text.length()];
+        int alphabetSize = 1;
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = text.charAt(i);
+            alphabetSize = Math.max(alphabetSize, chars[i] + 1);
+        }
+        return build(chars, alphabetSize);
+    }
+
+    /**
+     * Writes the suffix array of the bytes of {textFile} to {suffixArrayFile} as little-endian ints. Both files
+     * are memory-mapped and the output file is the working area, so texts far larger than the heap can be
+     * indexed. The text must be shorter than 2^29 bytes, so that the suffix array fits one mapping.
+     */
+    public static void build(Path textFile, Path suffixArrayFile) {
+        try (FileChannel input = FileChannel.open(textFile, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(suffixArrayFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = input.size();
+            if (size >= (1 << 29)) throw new IllegalArgumentException(textFile + " is too large for one mapping");
+            int n = (int) size;
+            MappedByteBuffer text = input.map(FileChannel.MapMode.READ_ONLY, 0, n);
+            MappedByteBuffer work = output.map(FileChannel.MapMode.READ_WRITE, 0, 4L * (n + 1));
+            IntBuffer sa = work.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            sais(new ByteSymbols(text, n), sa, 257);
+            // drop the sentinel: shift the array one int to the front and cut the file
+            for (int i = 0; i < n; i++)
+                sa.put(i, sa.get(i + 1));
+            work.force();
+            output.truncate(4L * n);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not build the suffix array of " + textFile, e);
+        }
+    }
+
+    // SA-IS for s, whose characters are between 0 and K - 1 and whose last character is the unique 0
+    private static void sais(Symbols s, IntBuffer sa, int K) {
+        int n = s.n;
+        if (n == 1) {
+            sa.put(0, 0);
+            return;
+        }
+        long[] t = new long[(n + 63) >>> 6];   // bit i set: suffix i is of type S
+        setType(t, n - 1);
+        for (int i = n - 2; i >= 0; i--) {
+            int c = s.get(i), next = s.get(i + 1);
+            if (c < next || (c == next && isS(t, i + 1))) setType(t, i);
+        }
+
+        // stage 1: sort the LMS substrings by inducing from their first characters
+        int[] bucket = new int[K];
+        bucketEnds(s, bucket, K);
+        for (int i = 0; i < n; i++)
+            sa.put(i, -1);
+        for (int i = 1; i < n; i++)
+            if (isLMS(t, i)) sa.put(--bucket[s.get(i)], i);
+        induceL(s, sa, t, bucket, K);
+        induceS(s, sa, t, bucket, K);
+
+        // move the sorted LMS substrings to the front and name them
+        int n1 = 0;
+        for (int i = 0; i < n; i++)
+            if (isLMS(t, sa.get(i))) sa.put(n1++, sa.get(i));
+        for (int i = n1; i < n; i++)
+            sa.put(i, -1);
+        int name = 0, previous = -1;
+        for (int i = 0; i < n1; i++) {
+            int position = sa.get(i);
+            if (previous < 0 || !sameLMSSubstring(s, t, position, previous)) {
+                name++;
+                previous = position;
+            }
+            sa.put(n1 + position / 2, name - 1);   // LMS positions are at least 2 apart
+        }
+        for (int i = n - 1, j = n - 1; i >= n1; i--)
+            if (sa.get(i) >= 0) sa.put(j--, sa.get(i));
+
+        // stage 2: sort the LMS suffixes, recursively if two LMS substrings have the same name
+        sa.position(n - n1);
+        IntBuffer s1 = sa.slice();
+        sa.position(0);
+        if (name < n1) {
+            sais(new IntSymbols(s1, n1, false), sa, name);
+        } else {
+            for (int i = 0; i < n1; i++)
+                sa.put(s1.get(i), i);
+        }
+
+        // stage 3: induce the suffix array from the sorted LMS suffixes
+        bucketEnds(s, bucket, K);
+        for (int i = 1, j = 0; i < n; i++)
+            if (isLMS(t, i)) s1.put(j++, i);
+        for (int i = 0; i < n1; i++)
+            sa.put(i, s1.get(sa.get(i)));
+        for (int i = n1; i < n; i++)
+            sa.put(i, -1);
+        for (int i = n1 - 1; i >= 0; i--) {
+            int j = sa.get(i);
+            sa.put(i, -1);
+            sa.put(--bucket[s.get(j)], j);
+        }
+        induceL(s, sa, t, bucket, K);
+        induceS(s, sa, t, bucket, K);
+    }
+
+    // left to right: every L suffix goes to the front of its bucket after the suffix that follows it
+    private static void induceL(Symbols s, IntBuffer sa, long[] t, int[] bucket, int K) {
+        bucketStarts(s, bucket, K);
+        for (int i = 0; i < s.n; i++) {
+            int j = sa.get(i) - 1;
+            if (j >= 0 && !isS(t, j)) sa.put(bucket[s.get(j)]++, j);
+        }
+    }
+
+    // right to left: every S suffix goes to the end of its bucket before the suffix that follows it
+    private static void induceS(Symbols s, IntBuffer sa, long[] t, int[] bucket, int K) {
+        bucketEnds(s, bucket, K);
+        for (int i = s.n - 1; i >= 0; i--) {
+            int j = sa.get(i) - 1;
+            if (j >= 0 && isS(t, j)) sa.put(--bucket[s.get(j)], j);
+        }
+    }
+
+    private static void bucketStarts(Symbols s, int[] bucket, int K) {
+        countCharacters(s, bucket, K);
+        int sum = 0;
+        for (int c = 0; c < K; c++) {
+            int count = bucket[c];
+            bucket[c] = sum;
+            sum += count;
+        }
+    }
+
+    private static void bucketEnds(Symbols s, int[] bucket, int K) {
+        countCharacters(s, bucket, K);
+        int sum = 0;
+        for (int c = 0; c < K; c++) {
+            sum += bucket[c];
+            bucket[c] = sum;
+        }
+    }
+
+    private static void countCharacters(Symbols s, int[] bucket, int K) {
+        Arrays.fill(bucket, 0);
+        for (int i = 0; i < s.n; i++)
+            bucket[s.get(i)]++;
+    }
+
+    private static boolean sameLMSSubstring(Symbols s, long[] t, int a, int b) {
+        for (int d = 0; ; d++) {
+            if (s.get(a + d) != s.get(b + d) || isS(t, a + d) != isS(t, b + d)) return false;
+            if (d > 0 && isLMS(t, a + d)) return true;   // then b + d is an LMS position too
+        }
+    }
+
+    private static boolean isS(long[] t, int i) {
+        return (t[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void setType(long[] t, int i) {
+        t[i >>> 6] |= 1L << i;
+    }
+
+    private static boolean isLMS(long[] t, int i) {
+        return i > 0 && isS(t, i) && !isS(t, i - 1);
+    }
+
+    // comparison sort of suffix indices, comparing suffixes character by character
+    private static int[] naive(byte[] text) {
+        Integer[] suffixes = new Integer[text.length];
+        for (int i = 0; i < suffixes.length; i++)
+            suffixes[i] = i;
+        Arrays.sort(suffixes, (a, b) -> {
+            int length = text.length - Math.max(a, b);
+            for (int d = 0; d < length; d++) {
+                int x = text[a + d] & 0xFF, y = text[b + d] & 0xFF;
+                if (x != y) return x - y;
+            }
+            return b - a;   // the shorter suffix, starting later, comes first
+        });
+        int[] sa = new int[suffixes.length];
+        for (int i = 0; i < sa.length; i++)
+            sa[i] = suffixes[i];
+        return sa;
+    }
+
+    /**
+     * With one argument, builds the suffix array of the file with SA-IS and with a comparison sort and reports
+     * both times; with two, writes the suffix array of the first file to the second through memory mappings.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 1) {
+            long start = System.nanoTime();
+            build(Paths.get(args[0]), Paths.get(args[1]));
+            System.out.printf("%s: %.1f ms\n", args[1], (System.nanoTime() - start) / 1e6);
+            return;
+        }
+        byte[] text = Files.readAllBytes(Paths.get(args[0]));
+        int[] fast = null, slow = null;
+        double fastMs = Double.MAX_VALUE, slowMs = Double.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            fast = build(text);
+            fastMs = Math.min(fastMs, (System.nanoTime() - start) / 1e6);
+            start = System.nanoTime();
+            slow = naive(text);
+            slowMs = Math.min(slowMs, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf("n = %d, SA-IS %.1f ms, naive %.1f ms, same result: %b\n", text.length, fastMs, slowMs,
+                Arrays.equals(fast, slow));
+    }
+}
@@ -27,7 +27,10 @@ public class SuffixTree {
     // substrings of the text) in any order.
     public List<String> computeSuffixTreeEdges(String text) {
         List<String> result = new ArrayList<String>();
-        // Implement this function yourself
+        Map<Integer, List<SuffixTreeFromArray.Edge>> tree = new SuffixTreeFromArray().SuffixTreeFromText(text);
+        for (List<SuffixTreeFromArray.Edge> edges : tree.values())
+            for (SuffixTreeFromArray.Edge edge : edges)
+                result.add(text.substring(edge.start, edge.end));
         return result;
     }
 
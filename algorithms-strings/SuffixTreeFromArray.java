@@ -57,10 +57,49 @@ public class SuffixTreeFromArray {
             int[] lcpArray,
             final String text) {
         Map<Integer, List<Edge>> tree = new HashMap<Integer, List<Edge>>();
-        // Implement this function yourself
+        int n = text.length();
+        // a node has at least two children, so there are at most 2n nodes
+        int[] parent = new int[2 * n];
+        int[] depth = new int[2 * n];     // length of the string spelled from the root
+        tree.put(0, new ArrayList<Edge>());
+        int nodes = 1;
+        int current = 0;                  // leaf of the previous suffix
+        for (int i = 0; i < n; i++) {
+            int shared = i == 0 ? 0 : lcpArray[i - 1];
+            // climb from the previous leaf to the deepest node on the shared prefix
+            while (depth[current] > shared)
+                current = parent[current];
+            if (depth[current] < shared) {
+                // the shared prefix ends inside the edge to the previous suffix: split it
+                List<Edge> edges = tree.get(current);
+                Edge last = edges.get(edges.size() - 1);
+                int middle = nodes++;
+                int split = last.start + shared - depth[current];
+                parent[middle] = current;
+                depth[middle] = shared;
+                parent[last.node] = middle;
+                List<Edge> below = new ArrayList<Edge>();
+                below.add(new Edge(last.node, split, last.end));
+                tree.put(middle, below);
+                edges.set(edges.size() - 1, new Edge(middle, last.start, split));
+                current = middle;
+            }
+            int leaf = nodes++;
+            parent[leaf] = current;
+            depth[leaf] = n - suffixArray[i];
+            tree.get(current).add(new Edge(leaf, suffixArray[i] + shared, n));
+            current = leaf;
+        }
         return tree;
     }
 
+    // Build the suffix tree of text, computing its suffix array with SA-IS
+    // and its LCP array with Kasai's algorithm.
+    Map<Integer, List<Edge>> SuffixTreeFromText(final String text) {
+        LCPArray lcp = new LCPArray(text);
+        return SuffixTreeFromSuffixArray(lcp.suffixArray(), lcp.lcpArray(), text);
+    }
+
 
     static public void main(String[] args) throws IOException {
         new SuffixTreeFromArray().run();
@@ -1,95 +1,19 @@
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
-/*
-class Node
-{
-	public static final int Letters =  4;
-	public static final int NA      = -1;
-	public int next [];
-
-	Node ()
-	{
-		next = new int [Letters];
-		Arrays.fill (next, NA);
-	}
-}
-*/
-
 public class TrieMatching implements Runnable {
-    private static class Node {
-        private char c;                        // character
-        private String val;                     // value associated with string
-        private Node left, mid, right;  // left, middle, and right subtries
-    }
-
-    private int n;              // size
-    private Node root;   // root of TST
-
-    public boolean contains(String key) {
-        if (key == null) {
-            throw new IllegalArgumentException("argument to contains() is null");
-        }
-        return get(key) != null;
-    }
-
-    public String get(String key) {
-        if (key == null) {
-            throw new IllegalArgumentException("calls get() with null argument");
-        }
-        if (key.length() == 0) throw new IllegalArgumentException("key must have length >= 1");
-        Node x = get(root, key, 0);
-        if (x == null) return null;
-        return x.val;
-    }
-
-    // return subtrie corresponding to given key
-    private Node get(Node x, String key, int d) {
-        if (x == null) return null;
-        if (key.length() == 0) throw new IllegalArgumentException("key must have length >= 1");
-        char c = key.charAt(d);
-        if (c < x.c) return get(x.left, key, d);
-        else if (c > x.c) return get(x.right, key, d);
-        else if (d < key.length() - 1) return get(x.mid, key, d + 1);
-        else return x;
-    }
-
-    public void put(String key, String val) {
-        if (key == null) {
-            throw new IllegalArgumentException("calls put() with null key");
-        }
-        if (!contains(key)) n++;
-        else if (val == null) n--;       // delete existing key
-        root = put(root, key, val, 0);
-    }
-
-    private Node put(Node x, String key, String val, int d) {
-        char c = key.charAt(d);
-        if (x == null) {
-            x = new Node();
-            x.c = c;
-        }
-        if (c < x.c) x.left = put(x.left, key, val, d);
-        else if (c > x.c) x.right = put(x.right, key, val, d);
-        else if (d < key.length() - 1) x.mid = put(x.mid, key, val, d + 1);
-        else x.val = val;
-        return x;
-    }
-
-
-
+    // All positions in text where some pattern starts, in increasing order,
+    // found in one pass over the text with the Aho-Corasick automaton of the patterns.
     List<Integer> solve(String text, int n, List<String> patterns) {
-        TST tst = new TST();
-        tst.put(text,0);
-        for(String pattern:patterns){
-            tst.contains(pattern);
-        }
-
+        boolean[] starts = new boolean[text.length()];
+        AhoCorasick automaton = new AhoCorasick(patterns);
+        automaton.match(text.getBytes(StandardCharsets.UTF_8), (pattern, start) -> starts[(int) start] = true);
         List<Integer> result = new ArrayList<Integer>();
-
-
+        for (int i = 0; i < starts.length; i++)
+            if (starts[i]) result.add(i);
         return result;
     }
 
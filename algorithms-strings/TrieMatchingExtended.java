@@ -1,40 +1,20 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 
 
 public class TrieMatchingExtended implements Runnable {
-	static class Node
-	{
-		public static final int Letters =  4;
-		public static final int NA      = -1;
-		public int next [];
-		public boolean patternEnd;
-
-		Node ()
-		{
-			next = new int [Letters];
-			Arrays.fill (next, NA);
-			patternEnd = false;
-		}
-	}
-	int letterToIndex (char letter)
-	{
-		switch (letter)
-		{
-			case 'A': return 0;
-			case 'C': return 1;
-			case 'G': return 2;
-			case 'T': return 3;
-			default: assert (false); return Node.NA;
-		}
-	}
-
+	// All positions in text where some pattern starts, in increasing order; a pattern
+	// may be a prefix of another. The Aho-Corasick automaton of the patterns reports
+	// every occurrence in one pass over the text, without re-walking a trie from every position.
 	List <Integer> solve (String text, int n, List <String> patterns) {
+		boolean[] starts = new boolean[text.length ()];
+		AhoCorasick automaton = new AhoCorasick (patterns);
+		automaton.match (text.getBytes (StandardCharsets.UTF_8), (pattern, start) -> starts[(int) start] = true);
 		List <Integer> result = new ArrayList <Integer> ();
-
-		// write your code here
-
+		for (int i = 0; i < starts.length; i++)
+			if (starts[i]) result.add (i);
 		return result;
 	}
 
@@ -0,0 +1,201 @@
+/******************************************************************************
+ *  A pointerless wavelet tree: rank and access over a sequence of small
+ *  integers in O(log sigma) bit vector operations.
+ ******************************************************************************/
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The WaveletTree class stores a sequence of n symbols between 0 and sigma - 1 in about n ceil(lg sigma) bits and
+ * answers access(i) and rank(c, i), the number of occurrences of c before position i, with one {BitVector} rank
+ * per level.
+ * <p>
+ * The tree is kept level by level. On level l the sequence is stably sorted by the top l bits of the symbols, so
+ * every node of the tree is an interval of positions, the same on all deeper levels, which its two children split
+ * in two. Level l stores bit l (from the top) of every symbol of that order. The start of every node and the
+ * number of ones before it on its level are small tables indexed by heap node number, computed from the symbol
+ * counts when the tree is built or read, so a descent needs one rank per level and no rank for node boundaries.
+ */
+public class WaveletTree {
+    private final int n;
+    private final int sigma;
+    private final int levels;
+    private final int[] count;         // count[c] = occurrences of symbol c
+    private final BitVector[] bits;    // bits[l] = level l
+    private final int[] start;         // start[node] = first position of the node, heap numbered from 1
+    private final int[] onesBefore;    // onesBefore[node] = bits[level of node].rank1(start[node])
+
+    /**
+     * Builds the wavelet tree of {symbols}, which must be between 0 and sigma - 1.
+     */
+    public WaveletTree(int[] symbols, int sigma) {
+        if (sigma < 1) throw new IllegalArgumentException("alphabet size " + sigma + " is not positive");
+        this.n = symbols.length;
+        this.sigma = sigma;
+        this.levels = levels(sigma);
+        count = new int[1 << levels];
+        for (int c : symbols) {
+            if (c < 0 || c >= sigma)
+                throw new IllegalArgumentException("symbol " + c + " is not between 0 and " + (sigma - 1));
+            count[c]++;
+        }
+        bits = new BitVector[levels];
+        int[] current = symbols.clone(), next = new int[n];
+        for (int l = 0; l < levels; l++) {
+            int shift = levels - 1 - l;
+            long[] words = new long[(n + 63) >>> 6];
+            for (int i = 0; i < n; i++)
+                words[i >>> 6] |= (long) (current[i] >>> shift & 1) << i;
+            bits[l] = new BitVector(words, n);
+            if (l == levels - 1) break;
+            // stable sort by the top l + 1 bits: a stable partition of every node
+            int[] bucket = new int[(1 << (l + 1)) + 1];
+            for (int c : current)
+                bucket[(c >>> shift) + 1]++;
+            for (int b = 0; b + 1 < bucket.length; b++)
+                bucket[b + 1] += bucket[b];
+            for (int c : current)
+                next[bucket[c >>> shift]++] = c;
+            int[] swap = current;
+            current = next;
+            next = swap;
+        }
+        start = new int[2 << levels];
+        onesBefore = new int[2 << levels];
+        nodeTables();
+    }
+
+    private WaveletTree(int n, int sigma, BitVector[] bits, int[] count) {
+        this.n = n;
+        this.sigma = sigma;
+        this.levels = bits.length;
+        this.count = count;
+        this.bits = bits;
+        start = new int[2 << levels];
+        onesBefore = new int[2 << levels];
+        nodeTables();
+    }
+
+    private static int levels(int sigma) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(sigma - 1));
+    }
+
+    // the start of every node is the number of symbols with a smaller prefix
+    private void nodeTables() {
+        int leaves = 1 << levels;
+        for (int c = 0, position = 0; c < leaves; c++) {
+            start[leaves + c] = position;
+            position += count[c];
+        }
+        for (int node = leaves - 1; node >= 1; node--)
+            start[node] = start[2 * node];
+        for (int node = 1; node < leaves; node++) {
+            int level = 31 - Integer.numberOfLeadingZeros(node);
+            onesBefore[node] = bits[level].rank1(start[node]);
+        }
+    }
+
+    public int length() {
+        return n;
+    }
+
+    public int alphabetSize() {
+        return sigma;
+    }
+
+    /**
+     * Returns the number of occurrences of symbol c in the whole sequence.
+     */
+    public int count(int c) {
+        return count[c];
+    }
+
+    /**
+     * Returns the number of occurrences of symbol c in positions 0 .. i - 1, for 0 <= i <= n.
+     */
+    public int rank(int c, int i) {
+        int node = 1;
+        for (int l = 0; l < levels; l++) {
+            int s = start[node];
+            int ones = bits[l].rank1(s + i) - onesBefore[node];
+            if ((c >>> (levels - 1 - l) & 1) == 0) {
+                i -= ones;
+                node = 2 * node;
+            } else {
+                i = ones;
+                node = 2 * node + 1;
+            }
+        }
+        return i;
+    }
+
+    public int access(int i) {
+        return (int) (accessAndRank(i) >>> 32);
+    }
+
+    /**
+     * Returns the symbol c at position i in the high 32 bits and rank(c, i) in the low 32 bits, in one descent.
+     */
+    public long accessAndRank(int i) {
+        int node = 1;
+        for (int l = 0; l < levels; l++) {
+            int s = start[node];
+            int ones = bits[l].rank1(i) - onesBefore[node];
+            int offset;
+            if (bits[l].get(i)) {
+                offset = ones;
+                node = 2 * node + 1;
+            } else {
+                offset = i - s - ones;
+                node = 2 * node;
+            }
+            i = start[node] + offset;
+        }
+        int c = node - (1 << levels);
+        return (long) c << 32 | (i - start[node]);
+    }
+
+    /**
+     * Returns the number of bytes {#write(ByteBuffer)} takes.
+     */
+    public int byteSize() {
+        int size = 8 + 4 * ((sigma + 1) / 2 * 2);
+        for (BitVector level : bits)
+            size += level.byteSize();
+        return size;
+    }
+
+    /**
+     * Writes sigma, the number of levels, the symbol counts and the levels, little-endian and 8-byte aligned.
+     */
+    public void write(ByteBuffer out) {
+        ByteBuffer buffer = out.slice().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(sigma).putInt(levels);
+        for (int c = 0; c < (sigma + 1) / 2 * 2; c++)
+            buffer.putInt(c < sigma ? count[c] : 0);
+        for (BitVector level : bits)
+            level.write(buffer);
+        out.position(out.position() + byteSize());
+    }
+
+    /**
+     * Returns the wavelet tree written at the position of {in}, with its levels as views of {in}, which it skips.
+     */
+    public static WaveletTree read(ByteBuffer in) {
+        ByteBuffer buffer = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int sigma = buffer.getInt();
+        int levels = buffer.getInt();
+        int[] count = new int[1 << levels];
+        for (int c = 0; c < (sigma + 1) / 2 * 2; c++) {
+            int k = buffer.getInt();
+            if (c < sigma) count[c] = k;
+        }
+        BitVector[] bits = new BitVector[levels];
+        for (int l = 0; l < levels; l++)
+            bits[l] = BitVector.read(buffer);
+        int n = bits[0].length();
+        in.position(in.position() + buffer.position());
+        return new WaveletTree(n, sigma, bits, count);
+    }
+}
@@ -0,0 +1,333 @@
+/******************************************************************************
+ *  Shortest paths, longest paths and critical-path scheduling in a DAG
+ *  stored as a CSRDigraph. Vertices are grouped into topological levels and
+ *  every level is evaluated in parallel.
+ *
+ *  % java AcyclicPathEngine < data/jobsPC.txt
+ *   job   start  finish   slack
+ *  ----------------------------
+ *     0     0.0    41.0     0.0 *
+ *     1    41.0    92.0    31.0
+ *  ...
+ *     9    41.0    70.0     0.0 *
+ *  Finish time:   173.0
+ ******************************************************************************/
+
+import util.StdIn;
+import util.StdOut;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * The {AcyclicPathEngine} class solves path problems on an edge-weighted DAG given in CSR form.
+ * Like {AcyclicSP} it relies on a topological order, but instead of relaxing the edges of one vertex
+ * at a time it groups the vertices into levels: level[v] is the length of the longest chain of edges
+ * ending at v, so every edge goes from a lower level to a higher one. All vertices of a level only depend
+ * on earlier levels and are evaluated in parallel by pulling values from their predecessors (forward pass)
+ * or successors (backward pass). Each vertex writes only its own slot, so no synchronisation is needed.
+ * <p>
+ * Besides single-source shortest and longest paths, the engine computes a critical-path schedule
+ * (activity-on-node): vertex v is a task with duration[v], an edge v->w with weight lag means w may start
+ * lag time units after v finishes. For every task it keeps the earliest start, latest start and slack.
+ * {#updateDuration(int, double)} re-evaluates only the tasks whose times actually change.
+ * <p>
+ * Building the levels takes O(V + E) time; every pass takes O(V + E) work.
+ */
+public class AcyclicPathEngine {
+    // levels smaller than this are evaluated sequentially
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final double EPSILON = 1E-9;
+
+    private final CSRDigraph G;          // successors
+    private final CSRDigraph reverse;    // predecessors
+    private final int V;
+    private final int[] level;           // level[v] = longest chain of edges ending at v
+    private final int[] order;           // vertices sorted by level
+    private final int[] levelStart;      // order[levelStart[l] .. levelStart[l + 1] - 1] are the vertices of level l
+
+    private double[] duration;           // duration[v] = duration of task v
+    private double[] earliestStart;      // earliestStart[v] = earliest start time of task v
+    private double[] latestStart;        // latestStart[v] = latest start time of task v that keeps the makespan
+    private double makespan;             // finish time of the whole schedule
+
+    /**
+     * Computes the topological levels of {G}.
+     * @throws IllegalArgumentException if {G} has a directed cycle
+     */
+    public AcyclicPathEngine(CSRDigraph G) {
+        this.G = G;
+        this.reverse = G.reverse();
+        this.V = G.getNumberofVertices();
+        level = new int[V];
+        order = new int[V];
+
+        // Kahn's algorithm; order[] doubles as the queue
+        int[] indegree = G.indegrees();
+        int head = 0, tail = 0;
+        for (int v = 0; v < V; v++)
+            if (indegree[v] == 0) order[tail++] = v;
+        int levels = V == 0 ? 0 : 1;
+        while (head < tail) {
+            int v = order[head++];
+            for (int e = G.begin(v); e < G.end(v); e++) {
+                int w = G.target(e);
+                if (level[w] < level[v] + 1) {
+                    level[w] = level[v] + 1;
+                    if (level[w] + 1 > levels) levels = level[w] + 1;
+                }
+                if (--indegree[w] == 0) order[tail++] = w;
+            }
+        }
+        if (tail != V) throw new IllegalArgumentException("Digraph is not acyclic.");
+
+        // counting sort of the vertices by level
+        levelStart = new int[levels + 1];
+        for (int v = 0; v < V; v++)
+            levelStart[level[v] + 1]++;
+        for (int l = 0; l < levels; l++)
+            levelStart[l + 1] += levelStart[l];
+        int[] next = Arrays.copyOf(levelStart, levels);
+        for (int v = 0; v < V; v++)
+            order[next[level[v]]++] = v;
+    }
+
+    public int levels() {
+        return levelStart.length - 1;
+    }
+
+    public int level(int v) {
+        validateVertex(v);
+        return level[v];
+    }
+
+    /**
+     * Returns dist[v] = length of a shortest path from {s} to v, or positive infinity if there is none.
+     */
+    public double[] shortestFrom(int s) {
+        return pathsFrom(s, false);
+    }
+
+    /**
+     * Returns dist[v] = length of a longest path from {s} to v, or negative infinity if there is none.
+     */
+    public double[] longestFrom(int s) {
+        return pathsFrom(s, true);
+    }
+
+    private double[] pathsFrom(int s, boolean longest) {
+        validateVertex(s);
+        double unreachable = longest ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        double[] dist = new double[V];
+        Arrays.fill(dist, unreachable);
+        dist[s] = 0.0;
+        // nothing before the level of s can be reached from s
+        for (int l = level[s] + 1; l < levels(); l++) {
+            forEachInLevel(l, v -> {
+                double best = unreachable;
+                for (int e = reverse.begin(v); e < reverse.end(v); e++) {
+                    double d = dist[reverse.target(e)];
+                    if (d == unreachable) continue;
+                    d += reverse.weight(e);
+                    if (longest ? d > best : d < best) best = d;
+                }
+                dist[v] = best;
+            });
+        }
+        return dist;
+    }
+
+    /**
+     * Computes the critical-path schedule for the given task durations.
+     */
+    public void schedule(double[] duration) {
+        if (duration.length != V) throw new IllegalArgumentException("need one duration per vertex");
+        this.duration = duration.clone();
+        earliestStart = new double[V];
+        latestStart = new double[V];
+        for (int l = 0; l < levels(); l++)
+            forEachInLevel(l, this::computeEarliestStart);
+        makespan = computeMakespan();
+        for (int l = levels() - 1; l >= 0; l--)
+            forEachInLevel(l, this::computeLatestStart);
+    }
+
+    /**
+     * Changes the duration of task {v} and re-evaluates the schedule. Only tasks whose earliest start
+     * changes are visited by the forward pass; the backward pass is incremental as well unless the makespan moved.
+     */
+    public void updateDuration(int v, double newDuration) {
+        updateDurations(new int[]{v}, new double[]{newDuration});
+    }
+
+    /**
+     * Changes the durations of several tasks at once and re-evaluates the schedule.
+     */
+    public void updateDurations(int[] tasks, double[] newDurations) {
+        if (duration == null) throw new IllegalStateException("schedule() has not been called");
+        if (tasks.length != newDurations.length) throw new IllegalArgumentException("arrays must have the same length");
+        for (int v : tasks)
+            validateVertex(v);
+
+        // forward: the finish time of each changed task moved, so its successors may move
+        PriorityQueue<Integer> pending = new PriorityQueue<>((a, b) -> Integer.compare(level[a], level[b]));
+        boolean[] queued = new boolean[V];
+        for (int i = 0; i < tasks.length; i++) {
+            duration[tasks[i]] = newDurations[i];
+            enqueueSuccessors(tasks[i], pending, queued);
+        }
+        while (!pending.isEmpty()) {
+            int w = pending.poll();
+            queued[w] = false;
+            double old = earliestStart[w];
+            computeEarliestStart(w);
+            if (Math.abs(earliestStart[w] - old) > EPSILON) enqueueSuccessors(w, pending, queued);
+        }
+
+        double old = makespan;
+        makespan = computeMakespan();
+        if (Math.abs(makespan - old) > EPSILON) {
+            for (int l = levels() - 1; l >= 0; l--)
+                forEachInLevel(l, this::computeLatestStart);
+            return;
+        }
+
+        // backward: latestStart of each changed task moved, so its predecessors may move
+        PriorityQueue<Integer> backward = new PriorityQueue<>((a, b) -> Integer.compare(level[b], level[a]));
+        for (int v : tasks) {
+            if (!queued[v]) {
+                backward.add(v);
+                queued[v] = true;
+            }
+        }
+        while (!backward.isEmpty()) {
+            int v = backward.poll();
+            queued[v] = false;
+            double before = latestStart[v];
+            computeLatestStart(v);
+            if (Math.abs(latestStart[v] - before) <= EPSILON) continue;
+            for (int e = reverse.begin(v); e < reverse.end(v); e++) {
+                int u = reverse.target(e);
+                if (!queued[u]) {
+                    backward.add(u);
+                    queued[u] = true;
+                }
+            }
+        }
+    }
+
+    public double makespan() {
+        checkScheduled();
+        return makespan;
+    }
+
+    public double earliestStart(int v) {
+        checkScheduled();
+        validateVertex(v);
+        return earliestStart[v];
+    }
+
+    public double latestStart(int v) {
+        checkScheduled();
+        validateVertex(v);
+        return latestStart[v];
+    }
+
+    // how long task v can be delayed without delaying the whole schedule
+    public double slack(int v) {
+        checkScheduled();
+        validateVertex(v);
+        return latestStart[v] - earliestStart[v];
+    }
+
+    public boolean isCritical(int v) {
+        return slack(v) <= EPSILON;
+    }
+
+    private void computeEarliestStart(int w) {
+        double start = 0.0;
+        for (int e = reverse.begin(w); e < reverse.end(w); e++) {
+            int v = reverse.target(e);
+            double t = earliestStart[v] + duration[v] + reverse.weight(e);
+            if (t > start) start = t;
+        }
+        earliestStart[w] = start;
+    }
+
+    private void computeLatestStart(int v) {
+        double finish = makespan;
+        for (int e = G.begin(v); e < G.end(v); e++) {
+            double t = latestStart[G.target(e)] - G.weight(e);
+            if (t < finish) finish = t;
+        }
+        latestStart[v] = finish - duration[v];
+    }
+
+    private double computeMakespan() {
+        double max = 0.0;
+        for (int v = 0; v < V; v++)
+            max = Math.max(max, earliestStart[v] + duration[v]);
+        return max;
+    }
+
+    private void enqueueSuccessors(int v, PriorityQueue<Integer> pending, boolean[] queued) {
+        for (int e = G.begin(v); e < G.end(v); e++) {
+            int w = G.target(e);
+            if (!queued[w]) {
+                pending.add(w);
+                queued[w] = true;
+            }
+        }
+    }
+
+    private void forEachInLevel(int l, java.util.function.IntConsumer action) {
+        int lo = levelStart[l], hi = levelStart[l + 1];
+        if (hi - lo < PARALLEL_THRESHOLD) {
+            for (int i = lo; i < hi; i++)
+                action.accept(order[i]);
+        } else {
+            IntStream.range(lo, hi).parallel().forEach(i -> action.accept(order[i]));
+        }
+    }
+
+    private void checkScheduled() {
+        if (duration == null) throw new IllegalStateException("schedule() has not been called");
+    }
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * Reads a precedence-constrained scheduling problem in the data/jobsPC.txt format
+     * (number of jobs, then one line per job: duration, number of successors, successors)
+     * and prints the critical-path schedule.
+     */
+    public static void main(String[] args) {
+        int n = StdIn.readInt();
+        double[] duration = new double[n];
+        java.util.ArrayList<int[]> edges = new java.util.ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            duration[i] = StdIn.readDouble();
+            int m = StdIn.readInt();
+            for (int j = 0; j < m; j++)
+                edges.add(new int[]{i, StdIn.readInt()});
+        }
+        int[] from = new int[edges.size()];
+        int[] to = new int[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            from[i] = edges.get(i)[0];
+            to[i] = edges.get(i)[1];
+        }
+        AcyclicPathEngine engine = new AcyclicPathEngine(new CSRDigraph(n, from, to, new double[from.length]));
+        engine.schedule(duration);
+        StdOut.println(" job   start  finish   slack");
+        StdOut.println("----------------------------");
+        for (int i = 0; i < n; i++)
+            StdOut.printf("%4d %7.1f %7.1f %7.1f%s\n", i, engine.earliestStart(i), engine.earliestStart(i) + duration[i],
+                    engine.slack(i), engine.isCritical(i) ? " *" : "");
+        StdOut.printf("Finish time: %7.1f\n", engine.makespan());
+    }
+}
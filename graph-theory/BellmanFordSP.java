@@ -26,6 +26,7 @@ public class BellmanFordSP {
     private final boolean[] isonQueue; // onQueue[v] = is v currently on the queue?
     private final Queue<Integer> queue; // queue of vertices to relax
     private int cost; // number of calls to relax()
+    private long relaxed, enqueued, dequeued; // operation counts reported to SearchMetrics
     private Iterable<DirectedEdge> negativeCycle; // negative cycle (or null if no such cycle)
 
     /**
@@ -33,6 +34,15 @@ public class BellmanFordSP {
      * the edge-weighted digraph {G}.
      */
     public BellmanFordSP(EdgeWeightedDigraph G, int source) {
+        this(G, source, SearchMetrics.NONE);
+    }
+
+    /**
+     * Computes a shortest paths tree as above and reports the work done to {metrics}.
+     * Queue operations are reported as priority queue inserts and pops; there are no decrease-keys.
+     */
+    public BellmanFordSP(EdgeWeightedDigraph G, int source, SearchMetrics metrics) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
         distTo = new double[G.getNumberofVertices()];
         parentEdge = new DirectedEdge[G.getNumberofVertices()];
         isonQueue = new boolean[G.getNumberofVertices()];
@@ -43,23 +53,33 @@ public class BellmanFordSP {
         // Bellman-Ford algorithm
         queue = new Queue<>();
         queue.enqueue(source);
+        enqueued++;
         isonQueue[source] = true;
         while (!queue.isEmpty() && !hasNegativeCycle()) {
             int v = queue.dequeue();
+            dequeued++;
             isonQueue[v] = false;
             relax(G, v);
         }
+        if (metrics.isEnabled()) {
+            long reached = 0;
+            for (double d : distTo)
+                if (d < Double.POSITIVE_INFINITY) reached++;
+            metrics.record(relaxed, enqueued, 0, dequeued, reached, System.nanoTime() - start);
+        }
         assert check(G, source);
     }
 
     private void relax(EdgeWeightedDigraph G, int v) {
         for (DirectedEdge edge : G.getAdjacencyEdgesList(v)) {
             int to = edge.to();
+            relaxed++;
             if (distTo[to] > distTo[v] + edge.weight()) {
                 distTo[to] = distTo[v] + edge.weight();
                 parentEdge[to] = edge;
                 if (!isonQueue[to]) {
                     queue.enqueue(to);
+                    enqueued++;
                     isonQueue[to] = true;
                 }
             }
@@ -1,4 +1,23 @@
-public class BidirectionalDijkstra {
+import util.In;
+import util.IndexMinPQ;
+import util.StdIn;
+import util.StdOut;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {BidirectionalDijkstra} class answers point-to-point shortest-path queries in an edge-weighted digraph
+ * with non-negative weights. It runs Dijkstra's algorithm forward from s and backward (on the reverse digraph)
+ * from t, alternating one step of each, and stops as soon as some vertex has been processed by both searches;
+ * the answer is then the minimum of dist[u] + distR[u] over all vertices touched by either search.
+ * The arrays are allocated once and only the touched vertices are reset between queries, so a query costs
+ * time proportional to the part of the graph it explores, not to V.
+ * <p>
+ * Edges can be added between queries; registered change listeners (e.g. {ShortestPathCache#invalidateAll()})
+ * are told about every change. This class is not thread-safe.
+ */
+public class BidirectionalDijkstra implements DistanceOracle {
     /*
 GR ← ReverseGraph(G)
 Fill dist, distR with +∞ for each node
@@ -45,4 +64,145 @@ last ← prevR[last]
 path.Append(last)
 return (distance, path)
      */
+
+    private final EdgeWeightedDigraph[] graph;        // graph[0] = G, graph[1] = reverse of G
+    private final double[][] dist;                     // dist[side][v] = distance estimate of search side
+    private final boolean[][] processed;               // processed[side][v] = has search side processed v?
+    private final List<IndexMinPQ<Double>> queue;      // one priority queue per side
+    private final int[] workset;                       // vertices touched by the current query
+    private int worksetSize;
+    private final boolean[] inWorkset;
+    private final List<Runnable> changeListeners = new ArrayList<>();
+    private final SearchMetrics metrics;
+    private long relaxed, inserts, decreaseKeys, pops; // operation counts of the current query
+
+    public BidirectionalDijkstra(EdgeWeightedDigraph G) {
+        this(G, SearchMetrics.NONE);
+    }
+
+    /**
+     * Prepares for queries on {G}; every query reports its work to {metrics}.
+     */
+    public BidirectionalDijkstra(EdgeWeightedDigraph G, SearchMetrics metrics) {
+        int V = G.getNumberofVertices();
+        EdgeWeightedDigraph reverse = new EdgeWeightedDigraph(V);
+        for (DirectedEdge e : G.edges()) {
+            if (e.weight() < 0) throw new IllegalArgumentException("edge " + e + " has negative weight");
+            reverse.addEdge(new DirectedEdge(e.to(), e.from(), e.weight()));
+        }
+        graph = new EdgeWeightedDigraph[]{G, reverse};
+        dist = new double[2][V];
+        processed = new boolean[2][V];
+        for (int v = 0; v < V; v++)
+            dist[0][v] = dist[1][v] = Double.POSITIVE_INFINITY;
+        queue = new ArrayList<>();
+        queue.add(new IndexMinPQ<>(V));
+        queue.add(new IndexMinPQ<>(V));
+        workset = new int[V];
+        inWorkset = new boolean[V];
+        this.metrics = metrics;
+    }
+
+    /**
+     * Adds the edge {e} to the digraph and notifies the change listeners.
+     */
+    public void addEdge(DirectedEdge e) {
+        if (e.weight() < 0) throw new IllegalArgumentException("edge " + e + " has negative weight");
+        graph[0].addEdge(e);
+        graph[1].addEdge(new DirectedEdge(e.to(), e.from(), e.weight()));
+        for (Runnable listener : changeListeners)
+            listener.run();
+    }
+
+    /**
+     * Registers {listener} to be run after every change of the digraph.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public double distance(int s, int t) {
+        validateVertex(s);
+        validateVertex(t);
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        relaxed = inserts = decreaseKeys = pops = 0;
+        clear();
+        visit(0, s, 0.0);
+        visit(1, t, 0.0);
+        while (!queue.get(0).isEmpty() || !queue.get(1).isEmpty()) {
+            if (step(0) || step(1)) break;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < worksetSize; i++) {
+            int u = workset[i];
+            best = Math.min(best, dist[0][u] + dist[1][u]);
+        }
+        if (metrics.isEnabled())
+            metrics.record(relaxed, inserts, decreaseKeys, pops, pops, System.nanoTime() - start);
+        return best;
+    }
+
+    // process the closest unprocessed vertex of one side; true if it was already processed by the other side
+    private boolean step(int side) {
+        IndexMinPQ<Double> pq = queue.get(side);
+        if (pq.isEmpty()) return false;
+        int v = pq.delMin();
+        pops++;
+        for (DirectedEdge e : graph[side].getAdjacencyEdgesList(v)) {
+            relaxed++;
+            visit(side, e.to(), dist[side][v] + e.weight());
+        }
+        processed[side][v] = true;
+        return processed[1 - side][v];
+    }
+
+    // try to relax the distance of side to v using value d
+    private void visit(int side, int v, double d) {
+        if (d >= dist[side][v]) return;
+        dist[side][v] = d;
+        if (!inWorkset[v]) {
+            inWorkset[v] = true;
+            workset[worksetSize++] = v;
+        }
+        IndexMinPQ<Double> pq = queue.get(side);
+        if (pq.contains(v)) {
+            pq.decreasePriority(v, d);
+            decreaseKeys++;
+        } else {
+            pq.insert(v, d);
+            inserts++;
+        }
+    }
+
+    // reinitialize the data structures touched by the previous query
+    private void clear() {
+        for (int i = 0; i < worksetSize; i++) {
+            int v = workset[i];
+            dist[0][v] = dist[1][v] = Double.POSITIVE_INFINITY;
+            processed[0][v] = processed[1][v] = false;
+            inWorkset[v] = false;
+        }
+        worksetSize = 0;
+        for (IndexMinPQ<Double> pq : queue)
+            while (!pq.isEmpty()) pq.delMin();
+    }
+
+    private void validateVertex(int v) {
+        int V = dist[0].length;
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * Reads an edge-weighted digraph from a file and answers "s t" queries from standard input.
+     */
+    public static void main(String[] args) {
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(new In(args[0]));
+        BidirectionalDijkstra sp = new BidirectionalDijkstra(G);
+        while (!StdIn.isEmpty()) {
+            int s = StdIn.readInt();
+            int t = StdIn.readInt();
+            StdOut.printf("%d to %d (%.2f)\n", s, t, sp.distance(s, t));
+        }
+    }
 }
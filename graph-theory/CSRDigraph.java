@@ -0,0 +1,238 @@
+/******************************************************************************
+ *  An immutable edge-weighted digraph in compressed sparse row (CSR) form.
+ ******************************************************************************/
+
+import util.In;
+import util.StdOut;
+
+/**
+ * The {CSRDigraph} class represents a static edge-weighted digraph of vertices named 0 through V - 1.
+ * Instead of a vertex-indexed array of {Bag} objects it keeps three flat arrays:
+ * offsets[v] .. offsets[v + 1] - 1 are the edge ids leaving v, targets[e] is the head of edge e and
+ * weights[e] its weight. Edges leaving the same vertex are therefore adjacent in memory and no
+ * per-edge objects are allocated.
+ * Edge ids are stable, so callers can keep per-edge state in their own primitive arrays.
+ * Building takes O(V + E) time (a counting sort on the tail vertex) and uses O(V + E) space.
+ * Parallel edges and self-loops are permitted.
+ */
+public class CSRDigraph {
+    private static final String NEWLINE = System.getProperty("line.separator");
+
+    private final int V;             // number of vertices
+    private final int E;             // number of edges
+    private final int[] offsets;     // offsets[v] = id of the first edge leaving v, offsets[V] = E
+    private final int[] targets;     // targets[e] = head of edge e
+    private final double[] weights;  // weights[e] = weight of edge e, or null if every weight is 1.0
+
+    /**
+     * Builds a CSR digraph from parallel edge arrays; from[i] -> to[i] with weight weight[i].
+     * A null {weight} array gives every edge weight 1.0 without storing the weights.
+     */
+    public CSRDigraph(int V, int[] from, int[] to, double[] weight) {
+        if (V < 0) throw new IllegalArgumentException("Number of vertices must be nonnegative");
+        if (from.length != to.length || (weight != null && weight.length != from.length))
+            throw new IllegalArgumentException("edge arrays must have the same length");
+        this.V = V;
+        this.E = from.length;
+        offsets = new int[V + 1];
+        targets = new int[E];
+        weights = weight == null ? null : new double[E];
+        for (int i = 0; i < E; i++) {
+            validateVertex(from[i]);
+            validateVertex(to[i]);
+            offsets[from[i] + 1]++;
+        }
+        for (int v = 0; v < V; v++)
+            offsets[v + 1] += offsets[v];
+        int[] next = new int[V];
+        System.arraycopy(offsets, 0, next, 0, V);
+        for (int i = 0; i < E; i++) {
+            int e = next[from[i]]++;
+            targets[e] = to[i];
+            if (weight != null) weights[e] = weight[i];
+        }
+    }
+
+    public CSRDigraph(EdgeWeightedDigraph G) {
+        this(G.getNumberofVertices(), edgeTails(G), edgeHeads(G), edgeWeights(G));
+    }
+
+    /**
+     * Builds a CSR digraph from an unweighted digraph; every edge gets weight 1.0.
+     */
+    public CSRDigraph(Digraph G) {
+        this(G.getNumberofVertices(), tails(G), heads(G), null);
+    }
+
+    // wraps already built arrays
+    private CSRDigraph(int[] offsets, int[] targets, double[] weights) {
+        this.V = offsets.length - 1;
+        this.E = targets.length;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public int getNumberofVertices() {
+        return V;
+    }
+
+    public int getNumberOfEdges() {
+        return E;
+    }
+
+    // id of the first edge leaving v
+    public int begin(int v) {
+        validateVertex(v);
+        return offsets[v];
+    }
+
+    // one past the id of the last edge leaving v
+    public int end(int v) {
+        validateVertex(v);
+        return offsets[v + 1];
+    }
+
+    public int outdegree(int v) {
+        validateVertex(v);
+        return offsets[v + 1] - offsets[v];
+    }
+
+    public int target(int e) {
+        return targets[e];
+    }
+
+    public double weight(int e) {
+        return weights == null ? 1.0 : weights[e];
+    }
+
+    /**
+     * Returns false if the digraph was built without weights, so that every weight is 1.0.
+     */
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    /**
+     * Returns the reverse of this digraph. Edge e of the reverse is not edge e of this digraph;
+     * use {#reverseEdgeIds()} when the mapping is needed.
+     */
+    public CSRDigraph reverse() {
+        int[] roffsets = new int[V + 1];
+        int[] rtargets = new int[E];
+        double[] rweights = weights == null ? null : new double[E];
+        for (int e = 0; e < E; e++)
+            roffsets[targets[e] + 1]++;
+        for (int v = 0; v < V; v++)
+            roffsets[v + 1] += roffsets[v];
+        int[] next = new int[V];
+        System.arraycopy(roffsets, 0, next, 0, V);
+        for (int v = 0; v < V; v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int r = next[targets[e]]++;
+                rtargets[r] = v;
+                if (weights != null) rweights[r] = weights[e];
+            }
+        }
+        return new CSRDigraph(roffsets, rtargets, rweights);
+    }
+
+    /**
+     * Returns ids[r] = id in this digraph of edge r in {#reverse()}.
+     */
+    public int[] reverseEdgeIds() {
+        int[] next = new int[V];
+        for (int e = 0; e < E; e++)
+            if (targets[e] + 1 < V) next[targets[e] + 1]++;
+        for (int v = 1; v < V; v++)
+            next[v] += next[v - 1];
+        int[] ids = new int[E];
+        for (int v = 0; v < V; v++)
+            for (int e = offsets[v]; e < offsets[v + 1]; e++)
+                ids[next[targets[e]]++] = e;
+        return ids;
+    }
+
+    public int[] indegrees() {
+        int[] indegree = new int[V];
+        for (int e = 0; e < E; e++)
+            indegree[targets[e]]++;
+        return indegree;
+    }
+
+    public EdgeWeightedDigraph toEdgeWeightedDigraph() {
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(V);
+        for (int v = 0; v < V; v++)
+            for (int e = offsets[v]; e < offsets[v + 1]; e++)
+                G.addEdge(new DirectedEdge(v, targets[e], weight(e)));
+        return G;
+    }
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    private static int[] edgeTails(EdgeWeightedDigraph G) {
+        int[] from = new int[G.getNumberOfEdges()];
+        int i = 0;
+        for (int v = 0; v < G.getNumberofVertices(); v++)
+            for (DirectedEdge e : G.getAdjacencyEdgesList(v))
+                from[i++] = e.from();
+        return from;
+    }
+
+    private static int[] edgeHeads(EdgeWeightedDigraph G) {
+        int[] to = new int[G.getNumberOfEdges()];
+        int i = 0;
+        for (int v = 0; v < G.getNumberofVertices(); v++)
+            for (DirectedEdge e : G.getAdjacencyEdgesList(v))
+                to[i++] = e.to();
+        return to;
+    }
+
+    private static double[] edgeWeights(EdgeWeightedDigraph G) {
+        double[] weight = new double[G.getNumberOfEdges()];
+        int i = 0;
+        for (int v = 0; v < G.getNumberofVertices(); v++)
+            for (DirectedEdge e : G.getAdjacencyEdgesList(v))
+                weight[i++] = e.weight();
+        return weight;
+    }
+
+    private static int[] tails(Digraph G) {
+        int[] from = new int[G.getNumberOfEdges()];
+        int i = 0;
+        for (int v = 0; v < G.getNumberofVertices(); v++)
+            for (int w : G.getAdjacencyList(v))
+                from[i++] = v;
+        return from;
+    }
+
+    private static int[] heads(Digraph G) {
+        int[] to = new int[G.getNumberOfEdges()];
+        int i = 0;
+        for (int v = 0; v < G.getNumberofVertices(); v++)
+            for (int w : G.getAdjacencyList(v))
+                to[i++] = w;
+        return to;
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(V + " " + E + NEWLINE);
+        for (int v = 0; v < V; v++) {
+            s.append(v + ": ");
+            for (int e = offsets[v]; e < offsets[v + 1]; e++)
+                s.append(String.format("%d->%d %5.2f  ", v, targets[e], weight(e)));
+            s.append(NEWLINE);
+        }
+        return s.toString();
+    }
+
+    public static void main(String[] args) {
+        In in = new In(args[0]);
+        CSRDigraph G = new CSRDigraph(new EdgeWeightedDigraph(in));
+        StdOut.println(G);
+    }
+}
@@ -0,0 +1,108 @@
+/******************************************************************************
+ *  A symbol digraph built in a single pass over the input, with vertex names
+ *  kept in a NameDictionary and edges in a CSRDigraph.
+ *
+ *  %  java CompactSymbolDigraph routes.txt " "
+ *  JFK
+ *     ORD
+ *     ATL
+ *     MCO
+ ******************************************************************************/
+
+import util.StdIn;
+import util.StdOut;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * The {CompactSymbolDigraph} class represents a digraph whose vertex names are arbitrary strings,
+ * like {SymbolDigraph}, but sized for very large inputs:
+ * 1. the file is read once; a name gets the next free id the first time it is seen and the edges are
+ *    collected in two growable int arrays, so the file is not read a second time;
+ * 2. names live in a {NameDictionary} (one UTF-8 arena and an int hash table) instead of a {TreeMap} and a {String[]};
+ * 3. the digraph is a {CSRDigraph}, so there is no {Bag} node or boxed {Integer} per edge.
+ * Vertex ids follow the order of first appearance in the file, so they may differ from {SymbolDigraph}'s.
+ * <p>
+ * {#indexOf(String)} and {#nameOf(int)} take time proportional to the length of the name.
+ */
+public class CompactSymbolDigraph {
+    private final NameDictionary names;  // string <-> index
+    private final CSRDigraph graph;      // the underlying digraph
+
+    /**
+     * Initializes a digraph from a file using the specified delimiter.
+     * Each line in the file contains the name of a vertex, followed by a list of the names
+     * of the vertices adjacent to that vertex, separated by the delimiter.
+     */
+    public CompactSymbolDigraph(String filename, String delimiter) {
+        names = new NameDictionary();
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        int E = 0;
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String[] a = line.split(delimiter);
+                int vertex = names.add(a[0]);
+                for (int i = 1; i < a.length; i++) {
+                    if (E == from.length) {
+                        from = Arrays.copyOf(from, 2 * E);
+                        to = Arrays.copyOf(to, 2 * E);
+                    }
+                    from[E] = vertex;
+                    to[E] = names.add(a[i]);
+                    E++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read " + filename, e);
+        }
+        graph = new CSRDigraph(names.size(), Arrays.copyOf(from, E), Arrays.copyOf(to, E), null);
+    }
+
+    public boolean contains(String source) {
+        return names.contains(source);
+    }
+
+    /**
+     * Returns the integer associated with the vertex named {source}, or -1 if there is no such vertex.
+     */
+    public int indexOf(String source) {
+        return names.index(source);
+    }
+
+    public String nameOf(int vertex) {
+        return names.name(vertex);
+    }
+
+    /**
+     * Returns the name dictionary, e.g. to {NameDictionary#save(java.nio.file.Path)} it.
+     */
+    public NameDictionary names() {
+        return names;
+    }
+
+    public CSRDigraph digraph() {
+        return graph;
+    }
+
+    public static void main(String[] args) {
+        CompactSymbolDigraph sg = new CompactSymbolDigraph(args[0], args[1]);
+        CSRDigraph graph = sg.digraph();
+        while (!StdIn.isEmpty()) {
+            String t = StdIn.readLine();
+            int v = sg.indexOf(t);
+            if (v < 0) {
+                StdOut.println(t + " not found");
+                continue;
+            }
+            for (int e = graph.begin(v); e < graph.end(v); e++)
+                StdOut.println("   " + sg.nameOf(graph.target(e)));
+        }
+    }
+}
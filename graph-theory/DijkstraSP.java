@@ -21,11 +21,20 @@ public class DijkstraSP {
     private final double[] distanceFromSource; // distTo[v] = distance of shortest s->v path
     private final DirectedEdge[] parentEdge; // edgeTo[v] = last edge on shortest s->v path
     private final util.IndexMinPQ<Double> priorityQueue; // priority queue of vertices
+    private long relaxed, inserts, decreaseKeys, pops; // operation counts reported to SearchMetrics
 
     /**
      * Computes a shortest-paths tree from the source vertex  s to every other vertex in the edge-weighted digraph  G.
      */
     public DijkstraSP(EdgeWeightedDigraph G, int source) {
+        this(G, source, SearchMetrics.NONE);
+    }
+
+    /**
+     * Computes a shortest-paths tree as above and reports the work done to {metrics}.
+     */
+    public DijkstraSP(EdgeWeightedDigraph G, int source, SearchMetrics metrics) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
         validateEdges(G);
 
         distanceFromSource = new double[G.getNumberofVertices()];
@@ -40,11 +49,15 @@ public class DijkstraSP {
         // relax vertices in order of distance from s
         priorityQueue = new IndexMinPQ<>(G.getNumberofVertices());
         priorityQueue.insert(source, distanceFromSource[source]);
+        inserts++;
         while (!priorityQueue.isEmpty()) {
             int v = priorityQueue.delMin();
+            pops++;
             for (DirectedEdge e : G.getAdjacencyEdgesList(v))
                 relax(e);
         }
+        if (metrics.isEnabled())
+            metrics.record(relaxed, inserts, decreaseKeys, pops, pops, System.nanoTime() - start);
 // check optimality conditions
         assert check(G, source);
     }
@@ -82,6 +95,7 @@ public class DijkstraSP {
     private void relax(DirectedEdge e) {
         //v->w
         int v = e.from(), w = e.to();
+        relaxed++;
         //this means the old path from source to w is bigger than the new edge and new parent vertex that we are visiting
         // so we need to update the old path we the new shorter path
         if (distanceFromSource[w] > distanceFromSource[v] + e.weight()) {
@@ -89,8 +103,10 @@ public class DijkstraSP {
             parentEdge[w] = e;
             if (priorityQueue.contains(w)) {
                 priorityQueue.decreasePriority(w, distanceFromSource[w]);
+                decreaseKeys++;
             } else {
                 priorityQueue.insert(w, distanceFromSource[w]);
+                inserts++;
             }
         }
     }
@@ -0,0 +1,185 @@
+/******************************************************************************
+ *  Finds an Eulerian path (or cycle) in a directed multigraph with an
+ *  iterative version of Hierholzer's algorithm.
+ *
+ *  % java DirectedEulerianPath 1000 100000
+ ******************************************************************************/
+
+import util.StdOut;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The {DirectedEulerianPath} class finds an Eulerian path in a digraph: a path that uses every edge exactly
+ * once. If the path starts and ends at the same vertex it is an Eulerian cycle. Parallel edges and self-loops
+ * are allowed.
+ * <p>
+ * The digraph is read as a {CSRDigraph}, and Hierholzer's algorithm runs without recursion and without
+ * edge objects. Every vertex keeps a cursor to its next unused edge (an index into the CSR edge ids), so every
+ * edge is looked at once. The walk keeps the edges it is following on a stack; when it gets stuck at a vertex
+ * it moves the top edge to the front of the finished path. Since every used edge is either on the stack or
+ * in the finished part, both fit in one int[E] array: the stack grows from the front and the path fills in from
+ * the back. So the tour needs 4 bytes per edge plus the cursors, and a 100M-edge multigraph fits in a few
+ * hundred MB next to its CSR arrays.
+ * <p>
+ * The degree condition (at most one vertex with outdegree - indegree = 1, at most one with -1, and all others
+ * balanced) is checked first; if it holds but the edges are not all reachable from the start, there is no path
+ * either. Takes O(V + E) time.
+ */
+public class DirectedEulerianPath {
+    private final CSRDigraph G;
+    private final int start;       // first vertex of the path, or -1 if there is no Eulerian path
+    private final int[] tour;      // tour[i] = id of the i-th edge of the path, or null
+
+    public DirectedEulerianPath(Digraph G) {
+        this(new CSRDigraph(G));
+    }
+
+    public DirectedEulerianPath(CSRDigraph G) {
+        this.G = G;
+        int V = G.getNumberofVertices(), E = G.getNumberOfEdges();
+
+        // the path starts at the vertex with one more outgoing than incoming edge, if there is one
+        int[] indegree = G.indegrees();
+        int s = -1, surplus = 0;
+        for (int v = 0; v < V; v++) {
+            int balance = G.outdegree(v) - indegree[v];
+            if (balance > 0) {
+                surplus += balance;
+                s = v;
+            } else if (s < 0 && G.outdegree(v) > 0) s = v;
+        }
+        if (surplus > 1 || V == 0) {
+            start = -1;
+            tour = null;
+            return;
+        }
+        if (s < 0) s = 0;   // no edges: the path is the single vertex 0
+
+        int[] next = new int[V];    // next[v] = id of the next unused edge leaving v
+        for (int v = 0; v < V; v++)
+            next[v] = G.begin(v);
+        int[] edges = new int[E];   // edges[0 .. top - 1] is the stack, edges[position .. E - 1] the finished path
+        int top = 0, position = E;
+        int v = s;
+        while (true) {
+            if (next[v] < G.end(v)) {
+                int e = next[v]++;
+                edges[top++] = e;
+                v = G.target(e);
+            } else if (top > 0) {
+                edges[--position] = edges[--top];
+                v = top > 0 ? G.target(edges[top - 1]) : s;
+            } else break;
+        }
+
+        // edges not reachable from s were never used
+        if (position > 0) {
+            start = -1;
+            tour = null;
+        } else {
+            start = s;
+            tour = edges;
+        }
+        assert check();
+    }
+
+    public boolean hasEulerianPath() {
+        return tour != null;
+    }
+
+    /**
+     * Does the Eulerian path end where it starts?
+     */
+    public boolean isCycle() {
+        return hasEulerianPath() && vertex(length()) == start;
+    }
+
+    /**
+     * Returns the number of edges of the Eulerian path, which is the number of edges of the digraph.
+     */
+    public int length() {
+        checkPath();
+        return tour.length;
+    }
+
+    /**
+     * Returns the id (in the {CSRDigraph}) of the i-th edge of the path, 0 <= i < length().
+     */
+    public int edge(int i) {
+        checkPath();
+        return tour[i];
+    }
+
+    /**
+     * Returns the i-th vertex of the path, 0 <= i <= length().
+     */
+    public int vertex(int i) {
+        checkPath();
+        return i == 0 ? start : G.target(tour[i - 1]);
+    }
+
+    /**
+     * Returns the vertices of the Eulerian path, or null if there is none. The vertices are computed from the
+     * edge ids while iterating, not stored.
+     */
+    public Iterable<Integer> path() {
+        if (!hasEulerianPath()) return null;
+        return () -> new Iterator<Integer>() {
+            private int i = 0;
+
+            public boolean hasNext() {
+                return i <= tour.length;
+            }
+
+            public Integer next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return vertex(i++);
+            }
+        };
+    }
+
+    private void checkPath() {
+        if (tour == null) throw new IllegalStateException("the digraph has no Eulerian path");
+    }
+
+    // every edge is used exactly once and consecutive edges meet
+    private boolean check() {
+        if (tour == null) return true;
+        boolean[] used = new boolean[G.getNumberOfEdges()];
+        for (int i = 0; i < tour.length; i++) {
+            int e = tour[i];
+            if (used[e]) return false;
+            used[e] = true;
+            int from = vertex(i);
+            if (e < G.begin(from) || e >= G.end(from)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the tours of random Eulerian cycle and path digraphs made by {DigraphGenerator} and checks them.
+     */
+    public static void main(String[] args) {
+        int V = Integer.parseInt(args[0]);
+        int E = Integer.parseInt(args[1]);
+        report("Eulerian cycle", DigraphGenerator.eulerianCycle(V, E));
+        report("Eulerian path", DigraphGenerator.eulerianPath(V, E));
+        report("simple", DigraphGenerator.simple(V, (int) Math.min(E, (long) V * (V - 1))));
+    }
+
+    private static void report(String description, Digraph digraph) {
+        CSRDigraph G = new CSRDigraph(digraph);
+        long start = System.nanoTime();
+        DirectedEulerianPath euler = new DirectedEulerianPath(G);
+        double ms = (System.nanoTime() - start) / 1e6;
+        StdOut.printf("%-15s %d vertices, %d edges: ", description, G.getNumberofVertices(), G.getNumberOfEdges());
+        if (!euler.hasEulerianPath()) {
+            StdOut.printf("no Eulerian path (%.1f ms)\n", ms);
+            return;
+        }
+        StdOut.printf("%s from %d to %d, %s (%.1f ms)\n", euler.isCycle() ? "cycle" : "path", euler.vertex(0),
+                euler.vertex(euler.length()), euler.check() ? "valid" : "INVALID", ms);
+    }
+}
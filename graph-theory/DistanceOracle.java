@@ -0,0 +1,16 @@
+/******************************************************************************
+ *  A point-to-point shortest-path distance query.
+ ******************************************************************************/
+
+/**
+ * The {DistanceOracle} interface is implemented by the engines that answer single (s, t) distance queries,
+ * such as {BidirectionalDijkstra}, and by {ShortestPathCache}, which sits in front of one. Implementations need
+ * not be thread-safe.
+ */
+public interface DistanceOracle {
+
+    /**
+     * Returns the length of a shortest path from {s} to {t}, or positive infinity if there is none.
+     */
+    double distance(int s, int t);
+}
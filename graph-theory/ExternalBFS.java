@@ -0,0 +1,137 @@
+/******************************************************************************
+ *  Breadth-first search over an on-disk ExternalGraph with sorted frontiers
+ *  spilled to disk.
+ *
+ *  % java ExternalBFS tinyDG.txt 3
+ ******************************************************************************/
+
+import util.StdOut;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Stack;
+
+/**
+ * The {ExternalBFS} class computes shortest paths (number of edges) from a source vertex in an
+ * {ExternalGraph}, a digraph whose edges stay on disk. It is semi-external: distTo[] and edgeTo[] (O(V) words)
+ * are kept in memory, the edges are not.
+ * <p>
+ * The search runs level by level. Each frontier is an {ExternalPriorityQueue} keyed by vertex, so it spills to
+ * sorted run files in the work directory once it outgrows the memory budget, and comes back out in increasing
+ * vertex order. The adjacency lists of a frontier are therefore read in file order, in sequential blocks,
+ * instead of in the random order of a FIFO queue. Vertices are marked when they are discovered, so every vertex
+ * enters a frontier at most once.
+ * <p>
+ * The I/O done is reported by {#stats()}. Each edge is read once and each vertex written to and read from a
+ * spill file at most once per merge level.
+ */
+public class ExternalBFS {
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int DEFAULT_MEMORY = 1 << 20;   // pairs per frontier kept in memory
+
+    private final int[] distTo;      // distTo[v] = number of edges of a shortest source->v path
+    private final int[] edgeTo;      // edgeTo[v] = previous vertex on a shortest source->v path
+    private final ExternalIOStats stats = new ExternalIOStats();
+
+    public ExternalBFS(ExternalGraph G, int source) {
+        this(G, source, Paths.get(System.getProperty("java.io.tmpdir")), DEFAULT_MEMORY);
+    }
+
+    /**
+     * Runs the search, keeping at most {memory} frontier vertices in memory and spilling the rest to
+     * {directory}.
+     */
+    public ExternalBFS(ExternalGraph G, int source, Path directory, int memory) {
+        int V = G.getNumberofVertices();
+        distTo = new int[V];
+        edgeTo = new int[V];
+        validateVertex(source);
+        Arrays.fill(distTo, INFINITY);
+        distTo[source] = 0;
+
+        ExternalGraph.Cursor cursor = G.cursor(stats);
+        ExternalPriorityQueue frontier = new ExternalPriorityQueue(directory, memory, stats);
+        frontier.insert(source, 0);
+        for (int level = 0; !frontier.isEmpty(); level++) {
+            ExternalPriorityQueue next = new ExternalPriorityQueue(directory, memory, stats);
+            while (!frontier.isEmpty()) {
+                int v = (int) frontier.minKey();
+                frontier.delMin();
+                for (cursor.moveTo(v); cursor.hasNext(); ) {
+                    int w = cursor.next();
+                    if (distTo[w] == INFINITY) {
+                        distTo[w] = level + 1;
+                        edgeTo[w] = v;
+                        next.insert(w, 0);
+                    }
+                }
+            }
+            frontier.close();
+            frontier = next;
+        }
+        frontier.close();
+    }
+
+    public boolean hasPathTo(int vertex) {
+        validateVertex(vertex);
+        return distTo[vertex] != INFINITY;
+    }
+
+    public int distTo(int vertex) {
+        validateVertex(vertex);
+        return distTo[vertex];
+    }
+
+    public Iterable<Integer> pathTo(int vertex) {
+        validateVertex(vertex);
+        if (!hasPathTo(vertex)) return null;
+        Stack<Integer> path = new Stack<Integer>();
+        int x;
+        for (x = vertex; distTo[x] != 0; x = edgeTo[x])
+            path.push(x);
+        path.push(x);
+        return path;
+    }
+
+    /**
+     * Returns the I/O done by the search.
+     */
+    public ExternalIOStats stats() {
+        return stats;
+    }
+
+    private void validateVertex(int vertex) {
+        int V = distTo.length;
+        if (vertex < 0 || vertex >= V)
+            throw new IllegalArgumentException("vertex " + vertex + " is not between 0 and " + (V - 1));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("bfs", ".graph");
+        try {
+            ExternalGraph.build(Paths.get(args[0]), file);
+            ExternalGraph G = ExternalGraph.open(file);
+            int source = Integer.parseInt(args[1]);
+            ExternalBFS bfs = new ExternalBFS(G, source);
+            for (int vertex = 0; vertex < G.getNumberofVertices(); vertex++) {
+                if (bfs.hasPathTo(vertex)) {
+                    StdOut.printf("%d to %d (%d):  ", source, vertex, bfs.distTo(vertex));
+                    for (int x : bfs.pathTo(vertex)) {
+                        if (x == source) StdOut.print(x);
+                        else StdOut.print("->" + x);
+                    }
+                    StdOut.println();
+                } else {
+                    StdOut.printf("%d to %d (-):  not connected\n", source, vertex);
+                }
+            }
+            StdOut.println(bfs.stats());
+            G.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/******************************************************************************
+ *  Dijkstra's algorithm over an on-disk ExternalGraph with an external-memory
+ *  priority queue.
+ *  Assumes all weights are nonnegative.
+ *
+ *  % java ExternalDijkstraSP tinyEWD.txt 0
+ ******************************************************************************/
+
+import util.StdOut;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Stack;
+
+/**
+ * The {ExternalDijkstraSP} class solves the single-source shortest paths problem like {DijkstraSP}, but on an
+ * {ExternalGraph} whose edges stay on disk. It is semi-external: distTo[] and the shortest-path tree (O(V)
+ * words) are in memory; the edges are read from the memory-mapped graph file and the priority queue is an
+ * {ExternalPriorityQueue} that spills sorted runs to the work directory once it holds more than the memory
+ * budget.
+ * <p>
+ * The external queue has no decrease-key: a vertex is inserted again whenever its distance improves and
+ * outdated entries are skipped when they come out, so the queue holds at most E entries. Distances are
+ * non-negative, so their {Double.doubleToLongBits} sort like the distances themselves and serve as keys.
+ * The I/O done is reported by {#stats()}.
+ */
+public class ExternalDijkstraSP {
+    private static final int DEFAULT_MEMORY = 1 << 20;   // queue entries kept in memory
+
+    private final ExternalGraph G;
+    private final double[] distTo;    // distTo[v] = distance of shortest s->v path
+    private final int[] parent;       // parent[v] = previous vertex on shortest s->v path
+    private final long[] parentEdge;  // parentEdge[v] = id of the last edge on shortest s->v path
+    private final ExternalIOStats stats = new ExternalIOStats();
+
+    public ExternalDijkstraSP(ExternalGraph G, int source) {
+        this(G, source, Paths.get(System.getProperty("java.io.tmpdir")), DEFAULT_MEMORY);
+    }
+
+    /**
+     * Computes a shortest-paths tree from {source}, keeping at most {memory} queue entries in memory and
+     * spilling the rest to {directory}.
+     */
+    public ExternalDijkstraSP(ExternalGraph G, int source, Path directory, int memory) {
+        this.G = G;
+        int V = G.getNumberofVertices();
+        distTo = new double[V];
+        parent = new int[V];
+        parentEdge = new long[V];
+        validateVertex(source);
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        Arrays.fill(parentEdge, -1);
+        distTo[source] = 0.0;
+
+        ExternalGraph.Cursor cursor = G.cursor(stats);
+        try (ExternalPriorityQueue pq = new ExternalPriorityQueue(directory, memory, stats)) {
+            pq.insert(Double.doubleToLongBits(0.0), source);
+            while (!pq.isEmpty()) {
+                double d = Double.longBitsToDouble(pq.minKey());
+                int v = (int) pq.minValue();
+                pq.delMin();
+                if (d > distTo[v]) continue;   // outdated entry
+                for (cursor.moveTo(v); cursor.hasNext(); ) {
+                    int w = cursor.next();
+                    double weight = cursor.weight();
+                    if (weight < 0)
+                        throw new IllegalArgumentException("edge " + v + "->" + w + " has negative weight");
+                    if (distTo[w] > d + weight) {
+                        distTo[w] = d + weight;
+                        parent[w] = v;
+                        parentEdge[w] = cursor.edge();
+                        pq.insert(Double.doubleToLongBits(distTo[w]), w);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the length of a shortest path from the source vertex to vertex v.
+     */
+    public double distTo(int v) {
+        validateVertex(v);
+        return distTo[v];
+    }
+
+    public boolean hasPathTo(int v) {
+        validateVertex(v);
+        return distTo[v] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a shortest path from the source vertex to vertex v; the edge weights are read from the graph file.
+     */
+    public Iterable<DirectedEdge> pathTo(int v) {
+        validateVertex(v);
+        if (!hasPathTo(v)) return null;
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (int x = v; parentEdge[x] >= 0; x = parent[x])
+            path.push(new DirectedEdge(parent[x], x, G.weight(parentEdge[x])));
+        return path;
+    }
+
+    /**
+     * Returns the I/O done by the search.
+     */
+    public ExternalIOStats stats() {
+        return stats;
+    }
+
+    private void validateVertex(int v) {
+        int V = distTo.length;
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("dijkstra", ".graph");
+        try {
+            ExternalGraph.build(Paths.get(args[0]), file);
+            ExternalGraph G = ExternalGraph.open(file);
+            int s = Integer.parseInt(args[1]);
+            ExternalDijkstraSP sp = new ExternalDijkstraSP(G, s);
+            for (int t = 0; t < G.getNumberofVertices(); t++) {
+                if (sp.hasPathTo(t)) {
+                    StdOut.printf("%d to %d (%.2f) ", s, t, sp.distTo(t));
+                    for (DirectedEdge e : sp.pathTo(t)) {
+                        StdOut.print(e + " ");
+                    }
+                    StdOut.println();
+                } else {
+                    StdOut.printf("%d to %d no path\n", s, t);
+                }
+            }
+            StdOut.println(sp.stats());
+            G.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
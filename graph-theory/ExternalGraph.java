@@ -0,0 +1,378 @@
+/******************************************************************************
+ *  A read-only edge-weighted digraph in CSR form in a memory-mapped file.
+ *
+ *  % java ExternalGraph tinyEWD.txt tinyEWD.graph
+ ******************************************************************************/
+
+import util.StdOut;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {ExternalGraph} class is the on-disk counterpart of {CSRDigraph} for graphs whose edges do not fit in
+ * the heap. The file holds a 16-byte header (magic, V, E), offsets[V + 1] (8 bytes each), targets[E] (4 bytes
+ * each) and weights[E] (8 bytes each), little-endian and 8-byte aligned. It is memory-mapped in windows of
+ * 1 GB, so the operating system pages it in and out and the heap holds nothing per edge; edge ids are longs.
+ * <p>
+ * The edges leaving a vertex are contiguous, so visiting vertices in increasing order reads the file
+ * sequentially, block by block; the external algorithms ({ExternalBFS}, {ExternalDijkstraSP}) arrange
+ * their accesses that way where they can. Adjacency is read through a {Cursor}, which counts the bytes and
+ * blocks it reads in an {ExternalIOStats}.
+ * <p>
+ * {#build} converts an edge-list text file in two streaming passes using O(V) memory, and {#write} stores
+ * a {CSRDigraph}.
+ */
+public class ExternalGraph {
+    private static final int MAGIC = 0x45475246;   // "EGRF"
+    private static final int HEADER_BYTES = 16;
+    private static final int WINDOW_BITS = 30;
+    private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+    private static final int BLOCK_BITS = 16;             // 64 KB blocks for I/O accounting
+
+    private final int V;
+    private final long E;
+    private final long targetsPosition;
+    private final long weightsPosition;
+    private final MappedByteBuffer[] windows;
+    private FileChannel channel;
+
+    private ExternalGraph(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        windows = new MappedByteBuffer[(int) ((size + WINDOW_MASK) >>> WINDOW_BITS)];
+        for (int i = 0; i < windows.length; i++) {
+            long position = (long) i << WINDOW_BITS;
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(1L << WINDOW_BITS, size - position));
+            windows[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (size < HEADER_BYTES || getInt(0) != MAGIC) throw new IllegalArgumentException("not an external graph file");
+        V = getInt(4);
+        E = getLong(8);
+        targetsPosition = targetsPosition(V);
+        weightsPosition = weightsPosition(V, E);
+    }
+
+    /**
+     * Maps a graph file written by {#build} or {#write}. Call {#close()} to release the file.
+     */
+    public static ExternalGraph open(Path file) {
+        try {
+            return new ExternalGraph(FileChannel.open(file, StandardOpenOption.READ));
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not map graph " + file, e);
+        }
+    }
+
+    private static long targetsPosition(int V) {
+        return HEADER_BYTES + 8L * (V + 1);
+    }
+
+    private static long weightsPosition(int V, long E) {
+        return (targetsPosition(V) + 4L * E + 7) & ~7L;
+    }
+
+    private static long fileSize(int V, long E) {
+        return weightsPosition(V, E) + 8L * E;
+    }
+
+    // values never straddle two windows: every section is aligned to the size of its values
+    private int getInt(long position) {
+        return windows[(int) (position >>> WINDOW_BITS)].getInt((int) (position & WINDOW_MASK));
+    }
+
+    private long getLong(long position) {
+        return windows[(int) (position >>> WINDOW_BITS)].getLong((int) (position & WINDOW_MASK));
+    }
+
+    private double getDouble(long position) {
+        return windows[(int) (position >>> WINDOW_BITS)].getDouble((int) (position & WINDOW_MASK));
+    }
+
+    public int getNumberofVertices() {
+        return V;
+    }
+
+    public long getNumberOfEdges() {
+        return E;
+    }
+
+    public long begin(int v) {
+        validateVertex(v);
+        return getLong(HEADER_BYTES + 8L * v);
+    }
+
+    public long end(int v) {
+        validateVertex(v);
+        return getLong(HEADER_BYTES + 8L * (v + 1));
+    }
+
+    public int outdegree(int v) {
+        return (int) (end(v) - begin(v));
+    }
+
+    public int target(long e) {
+        return getInt(targetsPosition + 4L * e);
+    }
+
+    public double weight(long e) {
+        return getDouble(weightsPosition + 8L * e);
+    }
+
+    /**
+     * Returns a cursor over adjacency lists that records its reads in {stats}.
+     */
+    public Cursor cursor(ExternalIOStats stats) {
+        return new Cursor(stats);
+    }
+
+    /**
+     * Iterates over the edges leaving one vertex at a time: {moveTo(v)}, then {next()} while {hasNext()}.
+     * Reused for every vertex, so scanning allocates nothing.
+     */
+    public class Cursor {
+        private final ExternalIOStats stats;
+        private final long[] lastBlock = {-1, -1, -1};   // last block read of offsets, targets and weights
+        private long edge, end;
+
+        private Cursor(ExternalIOStats stats) {
+            this.stats = stats;
+        }
+
+        public void moveTo(int v) {
+            edge = begin(v);
+            end = end(v);
+            long offsetsPosition = HEADER_BYTES + 8L * v;
+            long blocks = blocks(0, offsetsPosition, offsetsPosition + 16);
+            if (end > edge) {
+                blocks += blocks(1, targetsPosition + 4 * edge, targetsPosition + 4 * end);
+                blocks += blocks(2, weightsPosition + 8 * edge, weightsPosition + 8 * end);
+            }
+            stats.graphRead(16 + 12 * (end - edge), blocks);
+        }
+
+        // the number of blocks of [from, to) not read by the previous access to the same section
+        private long blocks(int section, long from, long to) {
+            long first = from >>> BLOCK_BITS, last = (to - 1) >>> BLOCK_BITS;
+            long blocks = last - first + 1;
+            if (first == lastBlock[section]) blocks--;
+            lastBlock[section] = last;
+            return blocks;
+        }
+
+        public boolean hasNext() {
+            return edge < end;
+        }
+
+        // advances to the next edge and returns its head
+        public int next() {
+            return target(edge++);
+        }
+
+        // the id of the edge last returned by next()
+        public long edge() {
+            return edge - 1;
+        }
+
+        // the weight of the edge last returned by next()
+        public double weight() {
+            return ExternalGraph.this.weight(edge - 1);
+        }
+    }
+
+    /**
+     * Converts an edge-list text file (V, then E, then one "v w [weight]" per edge, as read by
+     * {EdgeWeightedDigraph} and {Digraph}; a missing weight is 1.0) into a graph file. The edge list is read
+     * twice, once to count outdegrees and once to place every edge, so only O(V) memory is used.
+     */
+    public static void build(Path edgeList, Path file) {
+        int V;
+        long E;
+        long[] next;
+        try (BufferedReader in = Files.newBufferedReader(edgeList, StandardCharsets.UTF_8)) {
+            EdgeReader edges = new EdgeReader(in);
+            V = edges.V;
+            E = edges.E;
+            next = new long[V + 1];
+            for (long i = 0; i < E; i++) {
+                edges.next();
+                validateVertex(edges.v, V);
+                validateVertex(edges.w, V);
+                next[edges.v + 1]++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read " + edgeList, e);
+        }
+        for (int v = 0; v < V; v++)
+            next[v + 1] += next[v];
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedReader in = Files.newBufferedReader(edgeList, StandardCharsets.UTF_8)) {
+            MappedByteBuffer[] windows = mapForWriting(out, fileSize(V, E));
+            putInt(windows, 0, MAGIC);
+            putInt(windows, 4, V);
+            putLong(windows, 8, E);
+            for (int v = 0; v <= V; v++)
+                putLong(windows, HEADER_BYTES + 8L * v, next[v]);
+            long targets = targetsPosition(V), weights = weightsPosition(V, E);
+            EdgeReader edges = new EdgeReader(in);
+            for (long i = 0; i < E; i++) {
+                edges.next();
+                long e = next[edges.v]++;
+                putInt(windows, targets + 4 * e, edges.w);
+                putDouble(windows, weights + 8 * e, edges.weight);
+            }
+            for (MappedByteBuffer window : windows)
+                window.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write " + file, e);
+        }
+    }
+
+    /**
+     * Writes {G} as a graph file.
+     */
+    public static void write(CSRDigraph G, Path file) {
+        int V = G.getNumberofVertices();
+        long E = G.getNumberOfEdges();
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            chunk.putInt(MAGIC).putInt(V).putLong(E);
+            for (int v = 0; v <= V; v++) {
+                if (chunk.remaining() < 8) writeFully(out, chunk.flip()).clear();
+                chunk.putLong(v == V ? E : G.begin(v));
+            }
+            for (int e = 0; e < E; e++) {
+                if (chunk.remaining() < 4) writeFully(out, chunk.flip()).clear();
+                chunk.putInt(G.target(e));
+            }
+            writeFully(out, chunk.flip()).clear();
+            out.position(weightsPosition(V, E));
+            for (int e = 0; e < E; e++) {
+                if (chunk.remaining() < 8) writeFully(out, chunk.flip()).clear();
+                chunk.putDouble(G.weight(e));
+            }
+            writeFully(out, chunk.flip());
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write " + file, e);
+        }
+    }
+
+    private static ByteBuffer writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        return buffer;
+    }
+
+    private static MappedByteBuffer[] mapForWriting(FileChannel channel, long size) throws IOException {
+        MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((size + WINDOW_MASK) >>> WINDOW_BITS)];
+        for (int i = 0; i < windows.length; i++) {
+            long position = (long) i << WINDOW_BITS;
+            windows[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(1L << WINDOW_BITS, size - position));
+            windows[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return windows;
+    }
+
+    private static void putInt(MappedByteBuffer[] windows, long position, int value) {
+        windows[(int) (position >>> WINDOW_BITS)].putInt((int) (position & WINDOW_MASK), value);
+    }
+
+    private static void putLong(MappedByteBuffer[] windows, long position, long value) {
+        windows[(int) (position >>> WINDOW_BITS)].putLong((int) (position & WINDOW_MASK), value);
+    }
+
+    private static void putDouble(MappedByteBuffer[] windows, long position, double value) {
+        windows[(int) (position >>> WINDOW_BITS)].putDouble((int) (position & WINDOW_MASK), value);
+    }
+
+    // reads the tokens of an edge-list file without holding more than one line
+    private static class EdgeReader {
+        final int V;
+        final long E;
+        int v, w;
+        double weight;
+        private final BufferedReader in;
+        private String[] tokens = new String[0];
+        private int position;
+
+        EdgeReader(BufferedReader in) throws IOException {
+            this.in = in;
+            V = Integer.parseInt(token());
+            E = Long.parseLong(token());
+            if (V < 0) throw new IllegalArgumentException("number of vertices must be nonnegative");
+            if (E < 0) throw new IllegalArgumentException("number of edges must be nonnegative");
+        }
+
+        void next() throws IOException {
+            v = Integer.parseInt(token());
+            w = Integer.parseInt(token());
+            // the weight is optional, but then the line holds only the two vertices
+            weight = position < tokens.length ? Double.parseDouble(token()) : 1.0;
+        }
+
+        private String token() throws IOException {
+            while (position == tokens.length) {
+                String line = in.readLine();
+                if (line == null) throw new IllegalArgumentException("edge list ends early");
+                line = line.trim();
+                tokens = line.isEmpty() ? new String[0] : line.split("\\s+");
+                position = 0;
+            }
+            return tokens[position++];
+        }
+    }
+
+    /**
+     * Releases the file.
+     */
+    public void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        channel = null;
+    }
+
+    private void validateVertex(int v) {
+        validateVertex(v, V);
+    }
+
+    private static void validateVertex(int v, int V) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    public static void main(String[] args) {
+        Path file = Paths.get(args[1]);
+        build(Paths.get(args[0]), file);
+        ExternalGraph G = open(file);
+        StdOut.println(G.getNumberofVertices() + " vertices, " + G.getNumberOfEdges() + " edges");
+        ExternalIOStats stats = new ExternalIOStats();
+        Cursor cursor = G.cursor(stats);
+        for (int v = 0; v < G.getNumberofVertices(); v++) {
+            StdOut.print(v + ":");
+            for (cursor.moveTo(v); cursor.hasNext(); ) {
+                int w = cursor.next();
+                StdOut.printf(" %d->%d %5.2f", v, w, cursor.weight());
+            }
+            StdOut.println();
+        }
+        StdOut.println(stats);
+        G.close();
+    }
+}
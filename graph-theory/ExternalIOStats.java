@@ -0,0 +1,77 @@
+/******************************************************************************
+ *  I/O counters shared by the external-memory graph algorithms.
+ ******************************************************************************/
+
+/**
+ * The {ExternalIOStats} class counts the I/O of an external-memory computation: bytes and blocks read
+ * from the memory-mapped {ExternalGraph}, bytes and blocks read and written by spill files, and the number
+ * of spill files created. A block is counted each time a scan moves to a different block of the graph file,
+ * so for a sequential scan blocks * blockSize is about the number of bytes read, and a much larger number
+ * means random access.
+ * Not thread-safe: one instance belongs to one traversal.
+ */
+public class ExternalIOStats {
+    private long graphBytesRead;
+    private long graphBlocksRead;
+    private long spillBytesWritten;
+    private long spillBlocksWritten;
+    private long spillBytesRead;
+    private long spillBlocksRead;
+    private long spillFiles;
+
+    void graphRead(long bytes, long blocks) {
+        graphBytesRead += bytes;
+        graphBlocksRead += blocks;
+    }
+
+    void spillWritten(long bytes) {
+        spillBytesWritten += bytes;
+        spillBlocksWritten++;
+    }
+
+    void spillRead(long bytes) {
+        spillBytesRead += bytes;
+        spillBlocksRead++;
+    }
+
+    void spillFileCreated() {
+        spillFiles++;
+    }
+
+    public long graphBytesRead() {
+        return graphBytesRead;
+    }
+
+    public long graphBlocksRead() {
+        return graphBlocksRead;
+    }
+
+    public long spillBytesWritten() {
+        return spillBytesWritten;
+    }
+
+    public long spillBytesRead() {
+        return spillBytesRead;
+    }
+
+    public long spillFiles() {
+        return spillFiles;
+    }
+
+    // total bytes moved between memory and disk
+    public long totalBytes() {
+        return graphBytesRead + spillBytesRead + spillBytesWritten;
+    }
+
+    public void reset() {
+        graphBytesRead = graphBlocksRead = 0;
+        spillBytesWritten = spillBlocksWritten = spillBytesRead = spillBlocksRead = spillFiles = 0;
+    }
+
+    public String toString() {
+        return String.format("graph read %,d bytes in %,d blocks; spill written %,d bytes in %,d blocks, "
+                        + "read %,d bytes in %,d blocks; %,d spill files",
+                graphBytesRead, graphBlocksRead, spillBytesWritten, spillBlocksWritten,
+                spillBytesRead, spillBlocksRead, spillFiles);
+    }
+}
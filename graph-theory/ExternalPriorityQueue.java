@@ -0,0 +1,289 @@
+/******************************************************************************
+ *  A buffered external-memory priority queue of (long key, long value) pairs
+ *  that spills sorted runs to disk.
+ ******************************************************************************/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The {ExternalPriorityQueue} class is a min priority queue of (key, value) pairs of longs that holds at most
+ * {capacity} pairs in memory. New pairs go into an in-memory binary heap; when the heap is full it is
+ * written out in sorted order as a run file. The minimum is the smaller of the heap minimum and the heads
+ * of the runs, and every run is read sequentially through a buffer of one block. To keep the number of runs
+ * (and buffers) bounded, runs have levels like the levels of a merge sort: spilled runs have level 0, and when
+ * {MAX_RUNS} runs of the same level exist they are merged into one run of the next level. A pair is therefore
+ * written and read O(log(N / capacity) / log MAX_RUNS) times.
+ * Duplicate keys are allowed; there is no decrease-key, callers insert again and skip outdated pairs.
+ * <p>
+ * Popping everything returns the pairs sorted by key, which {ExternalBFS} uses as an external sort.
+ * Keys compare as signed longs; non-negative doubles keep their order as {Double.doubleToLongBits}.
+ * Run files live in the given directory and are deleted as soon as they are consumed or the queue is closed.
+ * I/O is counted in an {ExternalIOStats}.
+ */
+public class ExternalPriorityQueue implements AutoCloseable {
+    private static final int RECORD_BYTES = 16;
+    private static final int MAX_RUNS = 16;
+    private static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final int capacity;
+    private final int blockSize;
+    private final ExternalIOStats stats;
+
+    private long[] keys;     // binary heap of the in-memory pairs, keys[1 .. n]
+    private long[] values;
+    private int n;
+    private final ArrayList<Run> runs = new ArrayList<>();
+    private long size;       // number of pairs, in memory and on disk
+
+    /**
+     * Creates an empty queue that keeps at most {capacity} pairs in memory and spills to {directory}.
+     */
+    public ExternalPriorityQueue(Path directory, int capacity, ExternalIOStats stats) {
+        this(directory, capacity, DEFAULT_BLOCK_SIZE, stats);
+    }
+
+    public ExternalPriorityQueue(Path directory, int capacity, int blockSize, ExternalIOStats stats) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        if (blockSize < RECORD_BYTES || blockSize % RECORD_BYTES != 0)
+            throw new IllegalArgumentException("block size must be a positive multiple of " + RECORD_BYTES);
+        this.directory = directory;
+        this.capacity = capacity;
+        this.blockSize = blockSize;
+        this.stats = stats;
+        keys = new long[Math.min(capacity, 1 << 10) + 1];
+        values = new long[keys.length];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void insert(long key, long value) {
+        if (n == capacity) spill();
+        if (n + 1 == keys.length) {
+            int length = (int) Math.min((long) capacity + 1, 2L * keys.length);
+            keys = Arrays.copyOf(keys, length);
+            values = Arrays.copyOf(values, length);
+        }
+        keys[++n] = key;
+        values[n] = value;
+        swim(n);
+        size++;
+    }
+
+    public long minKey() {
+        int source = minSource();
+        return source < 0 ? keys[1] : runs.get(source).key;
+    }
+
+    public long minValue() {
+        int source = minSource();
+        return source < 0 ? values[1] : runs.get(source).value;
+    }
+
+    /**
+     * Removes the pair with the smallest key.
+     */
+    public void delMin() {
+        int source = minSource();
+        if (source < 0) {
+            keys[1] = keys[n];
+            values[1] = values[n--];
+            sink(1);
+        } else {
+            Run run = runs.get(source);
+            if (!run.advance()) runs.remove(source);
+        }
+        size--;
+    }
+
+    // -1 for the heap, otherwise the index of the run holding the smallest key
+    private int minSource() {
+        if (size == 0) throw new NoSuchElementException("Priority queue underflow");
+        int source = -1;
+        long min = n > 0 ? keys[1] : Long.MAX_VALUE;
+        for (int i = 0; i < runs.size(); i++) {
+            if (runs.get(i).key < min || (n == 0 && source < 0)) {
+                min = runs.get(i).key;
+                source = i;
+            }
+        }
+        return source;
+    }
+
+    // writes the in-memory pairs out as one sorted run
+    private void spill() {
+        RunWriter out = new RunWriter();
+        while (n > 0) {
+            out.write(keys[1], values[1]);
+            keys[1] = keys[n];
+            values[1] = values[n--];
+            sink(1);
+        }
+        runs.add(out.finish(0));
+        int level = 0;
+        while (mergeLevel(level))
+            level++;
+    }
+
+    // merges the runs of the given level into one run of the next level if there are MAX_RUNS of them
+    private boolean mergeLevel(int level) {
+        ArrayList<Run> merging = new ArrayList<>();
+        for (Run run : runs)
+            if (run.level == level) merging.add(run);
+        if (merging.size() < MAX_RUNS) return false;
+        runs.removeAll(merging);
+        RunWriter out = new RunWriter();
+        while (!merging.isEmpty()) {
+            int min = 0;
+            for (int i = 1; i < merging.size(); i++)
+                if (merging.get(i).key < merging.get(min).key) min = i;
+            Run run = merging.get(min);
+            out.write(run.key, run.value);
+            if (!run.advance()) merging.remove(min);
+        }
+        runs.add(out.finish(level + 1));
+        return true;
+    }
+
+    private void swim(int k) {
+        while (k > 1 && keys[k / 2] > keys[k]) {
+            exchange(k, k / 2);
+            k = k / 2;
+        }
+    }
+
+    private void sink(int k) {
+        while (2 * k <= n) {
+            int j = 2 * k;
+            if (j < n && keys[j + 1] < keys[j]) j++;
+            if (keys[k] <= keys[j]) break;
+            exchange(k, j);
+            k = j;
+        }
+    }
+
+    private void exchange(int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    /**
+     * Deletes the run files of the pairs that were never removed.
+     */
+    public void close() {
+        for (Run run : runs)
+            run.close();
+        runs.clear();
+        n = 0;
+        size = 0;
+    }
+
+    // writes pairs to a new run file, one block at a time
+    private class RunWriter {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(blockSize).order(ByteOrder.LITTLE_ENDIAN);
+
+        RunWriter() {
+            try {
+                file = Files.createTempFile(directory, "pq", ".run");
+                channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not create a run file in " + directory, e);
+            }
+            stats.spillFileCreated();
+        }
+
+        void write(long key, long value) {
+            if (!buffer.hasRemaining()) flush();
+            buffer.putLong(key).putLong(value);
+        }
+
+        private void flush() {
+            buffer.flip();
+            stats.spillWritten(buffer.remaining());
+            try {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not write " + file, e);
+            }
+            buffer.clear();
+        }
+
+        Run finish(int level) {
+            flush();
+            return new Run(file, channel, level);
+        }
+    }
+
+    // a sorted run file read from the start, one block at a time; key and value are its current head
+    private class Run {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(blockSize).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+        final int level;
+        long key, value;
+
+        Run(Path file, FileChannel channel, int level) {
+            this.file = file;
+            this.channel = channel;
+            this.level = level;
+            buffer.limit(0);
+            if (!advance()) throw new IllegalStateException("empty run");
+        }
+
+        // moves to the next pair; false (and the file is deleted) at the end of the run
+        boolean advance() {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                try {
+                    int read;
+                    while (buffer.hasRemaining() && (read = channel.read(buffer, position)) > 0)
+                        position += read;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("could not read " + file, e);
+                }
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    close();
+                    return false;
+                }
+                stats.spillRead(buffer.remaining());
+            }
+            key = buffer.getLong();
+            value = buffer.getLong();
+            return true;
+        }
+
+        void close() {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not delete " + file, e);
+            }
+        }
+    }
+}
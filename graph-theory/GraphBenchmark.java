@@ -0,0 +1,461 @@
+/******************************************************************************
+ *  Micro-benchmark suite for the graph algorithms.
+ *
+ *  % java -Xms2g -Xmx2g GraphBenchmark
+ *  % java GraphBenchmark -warmup 3 -iterations 5 -scales 1000,10000,100000 DijkstraSP PrimMST
+ *  % java GraphBenchmark -csv > baseline.csv
+ ******************************************************************************/
+
+import util.StdOut;
+import util.StdRandom;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The {GraphBenchmark} class is a small, dependency-free benchmark harness for the algorithms in this directory,
+ * meant to give every optimisation a regression baseline instead of eyeballing the output of {main} methods.
+ * <p>
+ * Every benchmark is run on random graphs at several scales (V vertices and 8V edges, built by
+ * {EdgeWeightedDigraph(V, E)}, {EdgeWeightedGraph(V, E)} and {DigraphGenerator}, or a grid of about V vertices
+ * and 2V edges) with a fixed seed, so runs are comparable. V and E are reported as counted in the graph built.
+ * For each (benchmark, scale) pair the harness runs warmup iterations, then measured iterations, and reports:
+ * 1. throughput in operations per second (mean and standard deviation over the measured iterations);
+ * 2. bytes allocated per operation, read from the per-thread allocation counters of the JVM and summed over all
+ *    threads, so the ForkJoin workers of the parallel algorithms count too (threads that end during the measured
+ *    iterations are missed);
+ * 3. GC count and GC time during the measured iterations;
+ * 4. nanoseconds per (V + E), whose growth across scales is the scaling curve of the algorithm.
+ * <p>
+ * Benchmarks are registered in {#BENCHMARKS}; later algorithms add a line there. The same benchmarks run under JMH,
+ * with forked JVMs and its blackhole and GC profiler, from the Maven module in jmh/ through {#operation}.
+ */
+public class GraphBenchmark {
+    private static final int AVERAGE_DEGREE = 8;
+    private static final long SEED = 20231019L;
+    private static final int[] DEFAULT_SCALES = {1_000, 10_000, 100_000};
+
+    /**
+     * The graphs of one scale. Built lazily and shared by all benchmarks of that scale.
+     */
+    static final class Dataset {
+        final int V;
+        final int E;
+        private EdgeWeightedDigraph edgeWeightedDigraph;
+        private EdgeWeightedGraph edgeWeightedGraph;
+        private UndirectedGraph undirectedGraph;
+        private Digraph digraph;
+        private EdgeWeightedGraph grid;
+
+        Dataset(int V) {
+            this.V = V;
+            this.E = AVERAGE_DEGREE * V;
+        }
+
+        EdgeWeightedDigraph edgeWeightedDigraph() {
+            if (edgeWeightedDigraph == null) {
+                StdRandom.setSeed(SEED + V);
+                edgeWeightedDigraph = new EdgeWeightedDigraph(V, E);
+            }
+            return edgeWeightedDigraph;
+        }
+
+        EdgeWeightedGraph edgeWeightedGraph() {
+            if (edgeWeightedGraph == null) {
+                StdRandom.setSeed(SEED + V + 1);
+                edgeWeightedGraph = new EdgeWeightedGraph(V, E);
+            }
+            return edgeWeightedGraph;
+        }
+
+        // the edge-weighted graph without its weights
+        UndirectedGraph undirectedGraph() {
+            if (undirectedGraph == null) {
+                undirectedGraph = new UndirectedGraph(V);
+                for (Edge e : edgeWeightedGraph().edges()) {
+                    int v = e.either();
+                    undirectedGraph.addEdge(v, e.edgeOtherVertex(v));
+                }
+            }
+            return undirectedGraph;
+        }
+
+        Digraph digraph() {
+            if (digraph == null) {
+                StdRandom.setSeed(SEED + V + 2);
+                digraph = DigraphGenerator.simple(V, E);
+            }
+            return digraph;
+        }
+
+        // a sqrt(V) x sqrt(V) grid with randomly shuffled vertex ids, like a road network read in arbitrary order
+        EdgeWeightedGraph grid() {
+            if (grid == null) {
+                StdRandom.setSeed(SEED + V + 3);
+                int side = (int) Math.sqrt(V);
+                int[] id = new int[side * side];
+                for (int i = 0; i < id.length; i++)
+                    id[i] = i;
+                StdRandom.shuffle(id);
+                grid = new EdgeWeightedGraph(id.length);
+                for (int r = 0; r < side; r++) {
+                    for (int c = 0; c < side; c++) {
+                        int v = id[r * side + c];
+                        if (c + 1 < side) grid.addEdge(new Edge(v, id[r * side + c + 1], StdRandom.uniform()));
+                        if (r + 1 < side) grid.addEdge(new Edge(v, id[(r + 1) * side + c], StdRandom.uniform()));
+                    }
+                }
+            }
+            return grid;
+        }
+
+        EdgeWeightedDigraph gridDigraph() {
+            EdgeWeightedDigraph G = new EdgeWeightedDigraph(grid().getNumberOfVertices());
+            for (Edge e : grid().edges()) {
+                int v = e.either(), w = e.edgeOtherVertex(v);
+                G.addEdge(new DirectedEdge(v, w, e.weight()));
+                G.addEdge(new DirectedEdge(w, v, e.weight()));
+            }
+            return G;
+        }
+
+        UndirectedGraph gridUndirected() {
+            UndirectedGraph G = new UndirectedGraph(grid().getNumberOfVertices());
+            for (Edge e : grid().edges()) {
+                int v = e.either();
+                G.addEdge(v, e.edgeOtherVertex(v));
+            }
+            return G;
+        }
+
+        // the endpoints of the edge-weighted graph's edges, as a sequence of union operations
+        int[] unionPairs() {
+            int[] pairs = new int[2 * E];
+            int i = 0;
+            for (Edge e : edgeWeightedGraph().edges()) {
+                int v = e.either();
+                pairs[i++] = v;
+                pairs[i++] = e.edgeOtherVertex(v);
+            }
+            return Arrays.copyOf(pairs, i);
+        }
+    }
+
+    /**
+     * The operation to measure, which returns its result, with the size of the graph it actually runs on.
+     */
+    static final class Workload {
+        final int V;
+        final long E;
+        final Supplier<Object> op;
+
+        Workload(int V, long E, Supplier<Object> op) {
+            this.V = V;
+            this.E = E;
+            this.op = op;
+        }
+    }
+
+    /**
+     * A benchmark: prepares its input from a dataset (not measured) and returns the operation to measure.
+     */
+    static final class Benchmark {
+        final String name;
+        final int maxScale;  // larger scales are skipped, e.g. for quadratic algorithms
+        final Function<Dataset, Workload> setup;
+
+        Benchmark(String name, int maxScale, Function<Dataset, Workload> setup) {
+            this.name = name;
+            this.maxScale = maxScale;
+            this.setup = setup;
+        }
+    }
+
+    private static final Map<String, Benchmark> BENCHMARKS = new LinkedHashMap<>();
+
+    static Workload workload(EdgeWeightedDigraph G, Supplier<Object> op) {
+        return new Workload(G.getNumberofVertices(), G.getNumberOfEdges(), op);
+    }
+
+    static Workload workload(EdgeWeightedGraph G, Supplier<Object> op) {
+        return new Workload(G.getNumberOfVertices(), G.getNumberOfEdges(), op);
+    }
+
+    static Workload workload(UndirectedGraph G, Supplier<Object> op) {
+        return new Workload(G.getNumberOfVertices(), G.E(), op);
+    }
+
+    static Workload workload(Digraph G, Supplier<Object> op) {
+        return new Workload(G.getNumberofVertices(), G.getNumberOfEdges(), op);
+    }
+
+    static void register(String name, int maxScale, Function<Dataset, Workload> setup) {
+        BENCHMARKS.put(name, new Benchmark(name, maxScale, setup));
+    }
+
+    // sink for results, so the JIT cannot drop the measured work
+    private static volatile Object blackhole;
+
+    static {
+        register("DijkstraSP", Integer.MAX_VALUE, d -> {
+            EdgeWeightedDigraph G = d.edgeWeightedDigraph();
+            return workload(G, () -> new DijkstraSP(G, 0));
+        });
+        register("BellmanFordSP", Integer.MAX_VALUE, d -> {
+            EdgeWeightedDigraph G = d.edgeWeightedDigraph();
+            return workload(G, () -> new BellmanFordSP(G, 0));
+        });
+        register("KruskalMST", Integer.MAX_VALUE, d -> {
+            EdgeWeightedGraph G = d.edgeWeightedGraph();
+            return workload(G, () -> new KruskalMST(G));
+        });
+        register("PrimMST", Integer.MAX_VALUE, d -> {
+            EdgeWeightedGraph G = d.edgeWeightedGraph();
+            return workload(G, () -> new PrimMST(G));
+        });
+        register("ParallelPrimMST", Integer.MAX_VALUE, d -> {
+            EdgeWeightedGraph G = d.edgeWeightedGraph();
+            return workload(G, () -> new ParallelPrimMST(G));
+        });
+        register("LazyPrimMST", Integer.MAX_VALUE, d -> {
+            EdgeWeightedGraph G = d.edgeWeightedGraph();
+            return workload(G, () -> new LazyPrimMST(G));
+        });
+        register("BoruvkaMST", Integer.MAX_VALUE, d -> {
+            EdgeWeightedGraph G = d.edgeWeightedGraph();
+            return workload(G, () -> new BoruvkaMST(G));
+        });
+        register("BreadthFirstPaths", Integer.MAX_VALUE, d -> {
+            UndirectedGraph G = d.undirectedGraph();
+            return workload(G, () -> new BreadthFirstPaths(G, 0));
+        });
+        register("DepthFirstOrder", 100_000, d -> {  // recursive; deeper graphs overflow the default stack
+            Digraph G = d.digraph();
+            return workload(G, () -> new DepthFirstOrder(G));
+        });
+        // vertex reordering: the same shuffled grid with input ids and after Reverse Cuthill-McKee relabelling;
+        // run under "perf stat -e cache-misses" to see the cache-miss reduction directly
+        register("DijkstraSP/grid", Integer.MAX_VALUE, d -> {
+            EdgeWeightedDigraph G = d.gridDigraph();
+            return workload(G, () -> new DijkstraSP(G, 0));
+        });
+        register("DijkstraSP/grid+RCM", Integer.MAX_VALUE, d -> {
+            VertexOrdering rcm = VertexOrdering.reverseCuthillMcKee(VertexOrdering.neighbours(d.grid()));
+            EdgeWeightedDigraph G = rcm.relabel(d.gridDigraph());
+            int s = rcm.newId(0);
+            return workload(G, () -> new DijkstraSP(G, s));
+        });
+        register("BreadthFirstPaths/grid", Integer.MAX_VALUE, d -> {
+            UndirectedGraph G = d.gridUndirected();
+            return workload(G, () -> new BreadthFirstPaths(G, 0));
+        });
+        register("BreadthFirstPaths/grid+RCM", Integer.MAX_VALUE, d -> {
+            VertexOrdering rcm = VertexOrdering.reverseCuthillMcKee(VertexOrdering.neighbours(d.grid()));
+            UndirectedGraph G = rcm.relabel(d.gridUndirected());
+            int s = rcm.newId(0);
+            return workload(G, () -> new BreadthFirstPaths(G, s));
+        });
+        register("PrimMST/grid", Integer.MAX_VALUE, d -> {
+            EdgeWeightedGraph G = d.grid();
+            return workload(G, () -> new PrimMST(G));
+        });
+        register("PrimMST/grid+RCM", Integer.MAX_VALUE, d -> {
+            VertexOrdering rcm = VertexOrdering.reverseCuthillMcKee(VertexOrdering.neighbours(d.grid()));
+            EdgeWeightedGraph G = rcm.relabel(d.grid());
+            return workload(G, () -> new PrimMST(G));
+        });
+        register("CC", 1_000, d -> {  // recursive; the giant component of larger graphs overflows the default stack
+            UndirectedGraph G = d.undirectedGraph();
+            return workload(G, () -> new CC(G));
+        });
+        register("ParallelCC", Integer.MAX_VALUE, d -> {
+            UndirectedGraph U = d.undirectedGraph();
+            CSRDigraph G = VertexOrdering.neighbours(U);
+            return new Workload(U.getNumberOfVertices(), U.E(), () -> new ParallelCC(G));
+        });
+        register("UF", Integer.MAX_VALUE, d -> {
+            int[] pairs = d.unionPairs();
+            return new Workload(d.V, pairs.length / 2, () -> {
+                UF uf = new UF(d.V);
+                for (int i = 0; i < pairs.length; i += 2)
+                    uf.union(pairs[i], pairs[i + 1]);
+                return uf;
+            });
+        });
+        register("WeightedQuickUnionUF", Integer.MAX_VALUE, d -> {
+            int[] pairs = d.unionPairs();
+            return new Workload(d.V, pairs.length / 2, () -> {
+                WeightedQuickUnionUF uf = new WeightedQuickUnionUF(d.V);
+                for (int i = 0; i < pairs.length; i += 2)
+                    uf.union(pairs[i], pairs[i + 1]);
+                return uf;
+            });
+        });
+        register("QuickUnionUF", 10_000, d -> {
+            int[] pairs = d.unionPairs();
+            return new Workload(d.V, pairs.length / 2, () -> {
+                QuickUnionUF uf = new QuickUnionUF(d.V);
+                for (int i = 0; i < pairs.length; i += 2)
+                    uf.union(pairs[i], pairs[i + 1]);
+                return uf;
+            });
+        });
+        register("QuickFindUF", 10_000, d -> {  // quadratic
+            int[] pairs = d.unionPairs();
+            return new Workload(d.V, pairs.length / 2, () -> {
+                QuickFindUF uf = new QuickFindUF(d.V);
+                for (int i = 0; i < pairs.length; i += 2)
+                    uf.union(pairs[i], pairs[i + 1]);
+                return uf;
+            });
+        });
+    }
+
+    /**
+     * Returns the operation of benchmark {name} on the graphs of scale {V}, prepared for an external harness such as
+     * the JMH module in jmh/.
+     */
+    public static Supplier<Object> operation(String name, int V) {
+        Benchmark benchmark = BENCHMARKS.get(name);
+        if (benchmark == null)
+            throw new IllegalArgumentException("unknown benchmark " + name + "; known: " + BENCHMARKS.keySet());
+        if (V > benchmark.maxScale)
+            throw new IllegalArgumentException(name + " only runs up to V = " + benchmark.maxScale);
+        return benchmark.setup.apply(new Dataset(V)).op;
+    }
+
+    /**
+     * The measurements of one (benchmark, scale) pair.
+     */
+    static final class Result {
+        double opsPerSecond;
+        double opsPerSecondError;
+        double bytesPerOp;
+        long gcCount;
+        long gcMillis;
+        double nanosPerElement;
+    }
+
+    static Result measure(Supplier<Object> op, int warmup, int iterations, long elements) {
+        for (int i = 0; i < warmup; i++)
+            blackhole = op.get();
+        System.gc();
+
+        long gcCountBefore = gcCount(), gcMillisBefore = gcMillis();
+        Map<Long, Long> bytesBefore = allocatedBytes();
+        double[] seconds = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            blackhole = op.get();
+            seconds[i] = (System.nanoTime() - start) / 1e9;
+        }
+        long bytes = 0;
+        for (Map.Entry<Long, Long> thread : allocatedBytes().entrySet())
+            bytes += thread.getValue() - bytesBefore.getOrDefault(thread.getKey(), 0L);
+
+        Result result = new Result();
+        double sum = 0.0, sumOfSquares = 0.0;
+        for (double s : seconds) {
+            sum += 1.0 / s;
+            sumOfSquares += 1.0 / (s * s);
+        }
+        result.opsPerSecond = sum / iterations;
+        double variance = sumOfSquares / iterations - result.opsPerSecond * result.opsPerSecond;
+        result.opsPerSecondError = Math.sqrt(Math.max(0.0, variance));
+        result.bytesPerOp = (double) bytes / iterations;
+        result.gcCount = gcCount() - gcCountBefore;
+        result.gcMillis = gcMillis() - gcMillisBefore;
+        result.nanosPerElement = 1e9 / result.opsPerSecond / elements;
+        return result;
+    }
+
+    // bytes allocated so far by each live thread, by thread id
+    private static Map<Long, Long> allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>();
+        for (int i = 0; i < ids.length; i++)
+            if (bytes[i] >= 0) allocated.put(ids[i], bytes[i]);
+        return allocated;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(0, gc.getCollectionTime());
+        return millis;
+    }
+
+    private static int[] parseScales(String s) {
+        String[] parts = s.split(",");
+        int[] scales = new int[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            scales[i] = Integer.parseInt(parts[i].trim().replace("_", ""));
+        return scales;
+    }
+
+    /**
+     * Runs the selected benchmarks (all if none is named) at every scale.
+     * Options: -warmup n, -iterations n, -scales a,b,c, -csv.
+     */
+    public static void main(String[] args) {
+        int warmup = 3, iterations = 5;
+        int[] scales = DEFAULT_SCALES;
+        boolean csv = false;
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "-iterations": iterations = Integer.parseInt(args[++i]); break;
+                case "-scales": scales = parseScales(args[++i]); break;
+                case "-csv": csv = true; break;
+                default:
+                    if (!BENCHMARKS.containsKey(args[i]))
+                        throw new IllegalArgumentException("unknown benchmark " + args[i]
+                                + "; known: " + BENCHMARKS.keySet());
+                    selected.add(args[i]);
+            }
+        }
+        if (selected.isEmpty()) selected.addAll(BENCHMARKS.keySet());
+
+        if (csv) StdOut.println("benchmark,V,E,ops_per_s,ops_per_s_error,bytes_per_op,gc_count,gc_ms,ns_per_element");
+        else StdOut.printf("%-26s %9s %10s %14s %14s %6s %8s %12s\n",
+                "benchmark", "V", "E", "ops/s", "B/op", "gc", "gc ms", "ns/(V+E)");
+        for (int V : scales) {
+            Dataset dataset = new Dataset(V);
+            for (String name : selected) {
+                Benchmark benchmark = BENCHMARKS.get(name);
+                if (V > benchmark.maxScale) {
+                    if (!csv) StdOut.printf("%-26s %9d %10s\n", name, V, "skipped");
+                    continue;
+                }
+                Workload workload = benchmark.setup.apply(dataset);
+                Result r = measure(workload.op, warmup, iterations, workload.V + workload.E);
+                if (csv)
+                    StdOut.printf("%s,%d,%d,%.3f,%.3f,%.0f,%d,%d,%.3f\n", name, workload.V, workload.E,
+                            r.opsPerSecond, r.opsPerSecondError, r.bytesPerOp, r.gcCount, r.gcMillis,
+                            r.nanosPerElement);
+                else
+                    StdOut.printf("%-26s %9d %10d %8.2f ±%5.2f %14.0f %6d %8d %12.2f\n", name, workload.V, workload.E,
+                            r.opsPerSecond, r.opsPerSecondError, r.bytesPerOp, r.gcCount, r.gcMillis,
+                            r.nanosPerElement);
+            }
+        }
+    }
+}
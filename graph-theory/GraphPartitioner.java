@@ -0,0 +1,615 @@
+/******************************************************************************
+ *  Multilevel k-way graph partitioning: heavy-edge matching, greedy graph
+ *  growing and Fiduccia-Mattheyses boundary refinement.
+ *
+ *  % java GraphPartitioner mediumEWG.txt 4
+ *  % java GraphPartitioner mediumEWG.txt 4 shards
+ ******************************************************************************/
+
+import util.In;
+import util.IndexDaryMinPQ;
+import util.StdOut;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * The {GraphPartitioner} class splits the vertices of a graph into k parts of (nearly) equal size so that few
+ * edges run between parts, and writes every part as a {GraphShard} file for a separate worker.
+ * <p>
+ * It works like METIS. The graph, taken as undirected with parallel edges merged into one edge whose weight is
+ * their number, is coarsened level by level: a heavy-edge matching pairs every vertex with the unmatched
+ * neighbour it shares the heaviest edge with, and each pair becomes one vertex of the next level, its weight the
+ * sum of the two. The matching visits the vertices in random order, in parallel on large levels; two threads may
+ * claim the same neighbour, so only pairs that chose each other are kept. The coarse edges are built in parallel
+ * too, one coarse vertex at a time. Coarsening stops at about 20 vertices per part or when a level shrinks by
+ * less than 5%.
+ * <p>
+ * The coarsest graph is split by greedy graph growing: each part grows from a random seed by repeatedly adding
+ * the outside vertex with the most edges into the part, until it has its share of the weight. The best of a few
+ * tries is kept. Then the partition is projected back through the levels and improved on each with
+ * Fiduccia-Mattheyses passes: boundary vertices are moved to the neighbouring part they have the most edges to,
+ * best gain first and each vertex at most once per pass, allowing moves that make the cut worse for a while; at
+ * the end of the pass the moves after the best state are undone. A move may not make a part heavier than
+ * (1 + imbalance) times the average, except to take weight from a part that already is.
+ */
+public class GraphPartitioner {
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int COARSEST = 20;         // coarsen down to about COARSEST * k vertices
+    private static final double MIN_SHRINK = 0.95;  // stop coarsening when a level keeps more vertices than this
+    private static final int INITIAL_TRIES = 8;
+    private static final int FM_PASSES = 8;
+    private static final int FM_STALL = 400;        // moves without improvement before an FM pass stops
+    private static final double DEFAULT_IMBALANCE = 0.03;
+
+    private final CSRDigraph G;
+    private final boolean symmetric;   // every edge of the graph is stored in both directions in G
+    private final int k;
+    private final int[] part;          // part[v] = part of vertex v
+    private final int[] size;          // size[p] = number of vertices in part p
+
+    // one level of the multilevel hierarchy: an undirected graph with vertex and edge weights
+    private static final class Level {
+        final int n;
+        final int[] offsets, adjacent, edgeWeight, vertexWeight;
+        int[] coarse;                  // coarse[v] = vertex of the next level that v was merged into
+
+        Level(int n, int[] offsets, int[] adjacent, int[] edgeWeight, int[] vertexWeight) {
+            this.n = n;
+            this.offsets = offsets;
+            this.adjacent = adjacent;
+            this.edgeWeight = edgeWeight;
+            this.vertexWeight = vertexWeight;
+        }
+
+        long totalWeight() {
+            long total = 0;
+            for (int w : vertexWeight)
+                total += w;
+            return total;
+        }
+    }
+
+    public GraphPartitioner(EdgeWeightedGraph G, int k) {
+        this(bothDirections(G), true, k, DEFAULT_IMBALANCE);
+    }
+
+    public GraphPartitioner(UndirectedGraph G, int k) {
+        this(VertexOrdering.neighbours(G), true, k, DEFAULT_IMBALANCE);
+    }
+
+    public GraphPartitioner(EdgeWeightedDigraph G, int k) {
+        this(new CSRDigraph(G), false, k, DEFAULT_IMBALANCE);
+    }
+
+    public GraphPartitioner(Digraph G, int k) {
+        this(new CSRDigraph(G), false, k, DEFAULT_IMBALANCE);
+    }
+
+    /**
+     * Partitions the vertices of {G} (its edges taken as undirected) into {k} parts with at most
+     * (1 + imbalance) V / k vertices each.
+     */
+    public GraphPartitioner(CSRDigraph G, int k, double imbalance) {
+        this(G, false, k, imbalance);
+    }
+
+    private GraphPartitioner(CSRDigraph G, boolean symmetric, int k, double imbalance) {
+        if (k < 1) throw new IllegalArgumentException("number of parts must be positive");
+        if (imbalance < 0) throw new IllegalArgumentException("imbalance must be nonnegative");
+        this.G = G;
+        this.symmetric = symmetric;
+        this.k = k;
+        int V = G.getNumberofVertices();
+        SplittableRandom random = new SplittableRandom(1);
+
+        List<Level> levels = new ArrayList<>();
+        levels.add(finestLevel(G));
+        while (levels.get(levels.size() - 1).n > COARSEST * k) {
+            Level coarser = coarsen(levels.get(levels.size() - 1), COARSEST * k, random);
+            if (coarser == null) break;
+            levels.add(coarser);
+        }
+
+        long maxWeight = (long) Math.ceil((1 + imbalance) * V / k);
+        Level coarsest = levels.get(levels.size() - 1);
+        int[] assignment = initialPartition(coarsest, k, maxWeight, random);
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            Level level = levels.get(i);
+            if (i < levels.size() - 1) {
+                int[] coarse = assignment;
+                assignment = new int[level.n];
+                for (int v = 0; v < level.n; v++)
+                    assignment[v] = coarse[level.coarse[v]];
+            }
+            new Refinement(level, k, maxWeight, assignment).refine(FM_PASSES);
+        }
+        part = assignment;
+        size = new int[k];
+        for (int v = 0; v < V; v++)
+            size[part[v]]++;
+    }
+
+    // G's edges taken both ways, parallel edges merged (weight = multiplicity), self-loops dropped
+    private static Level finestLevel(CSRDigraph G) {
+        int n = G.getNumberofVertices();
+        int[] degree = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            for (int e = G.begin(v); e < G.end(v); e++) {
+                int w = G.target(e);
+                if (w == v) continue;
+                degree[v + 1]++;
+                degree[w + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++)
+            degree[v + 1] += degree[v];
+        int[] all = new int[degree[n]];
+        int[] next = Arrays.copyOf(degree, n);
+        for (int v = 0; v < n; v++) {
+            for (int e = G.begin(v); e < G.end(v); e++) {
+                int w = G.target(e);
+                if (w == v) continue;
+                all[next[v]++] = w;
+                all[next[w]++] = v;
+            }
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] adjacent = new int[all.length], edgeWeight = new int[all.length];
+        int[] where = new int[n];     // where[w] = position of w in the current row, or -1
+        Arrays.fill(where, -1);
+        int m = 0;
+        for (int v = 0; v < n; v++) {
+            int first = m;
+            for (int i = degree[v]; i < degree[v + 1]; i++) {
+                int w = all[i];
+                if (where[w] >= first) {
+                    edgeWeight[where[w]]++;
+                } else {
+                    where[w] = m;
+                    adjacent[m] = w;
+                    edgeWeight[m++] = 1;
+                }
+            }
+            offsets[v + 1] = m;
+        }
+        int[] vertexWeight = new int[n];
+        Arrays.fill(vertexWeight, 1);
+        return new Level(n, offsets, Arrays.copyOf(adjacent, m), Arrays.copyOf(edgeWeight, m), vertexWeight);
+    }
+
+    // heavy-edge matching and contraction; null if the level hardly shrinks
+    private static Level coarsen(Level L, int target, SplittableRandom random) {
+        int n = L.n;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        // no coarse vertex heavier than 1.5 times the average weight of the coarsest level
+        long maxVertexWeight = Math.max(1, (long) (1.5 * L.totalWeight() / target));
+
+        int[] match = new int[n];
+        Arrays.fill(match, -1);
+        range(n).forEach(i -> {
+            int v = order[i];
+            if (match[v] != -1) return;
+            int best = v, heaviest = 0;
+            for (int e = L.offsets[v]; e < L.offsets[v + 1]; e++) {
+                int u = L.adjacent[e];
+                if (match[u] == -1 && L.edgeWeight[e] > heaviest
+                        && L.vertexWeight[v] + L.vertexWeight[u] <= maxVertexWeight) {
+                    best = u;
+                    heaviest = L.edgeWeight[e];
+                }
+            }
+            match[v] = best;
+            match[best] = v;
+        });
+        // keep only pairs that chose each other; other threads may have overwritten a claim
+        int[] mate = new int[n];
+        range(n).forEach(v -> mate[v] = match[v] >= 0 && match[match[v]] == v ? match[v] : v);
+
+        int[] coarse = new int[n];
+        int cn = 0;
+        for (int v = 0; v < n; v++)
+            if (mate[v] >= v) coarse[v] = cn++;
+        if (cn > MIN_SHRINK * n) return null;
+        int[] first = new int[cn], second = new int[cn], vertexWeight = new int[cn];
+        for (int v = 0; v < n; v++) {
+            if (mate[v] < v) continue;
+            int c = coarse[v];
+            first[c] = v;
+            second[c] = mate[v] == v ? -1 : mate[v];
+            coarse[mate[v]] = c;
+            vertexWeight[c] = L.vertexWeight[v] + (mate[v] == v ? 0 : L.vertexWeight[mate[v]]);
+        }
+        L.coarse = coarse;
+
+        // the edges of coarse vertex c are the merged edges of its members; count them, then fill them in
+        final int coarseN = cn;
+        ThreadLocal<int[]> rows = ThreadLocal.withInitial(() -> {
+            int[] where = new int[coarseN];
+            Arrays.fill(where, -1);
+            return where;
+        });
+        int[] offsets = new int[cn + 1];
+        range(cn).forEach(c -> offsets[c + 1] = mergeRow(L, coarse, first[c], second[c], c, rows.get(), null, null, 0));
+        for (int c = 0; c < cn; c++)
+            offsets[c + 1] += offsets[c];
+        int[] adjacent = new int[offsets[cn]], edgeWeight = new int[offsets[cn]];
+        range(cn).forEach(c -> mergeRow(L, coarse, first[c], second[c], c, rows.get(), adjacent, edgeWeight, offsets[c]));
+        return new Level(cn, offsets, adjacent, edgeWeight, vertexWeight);
+    }
+
+    // writes the merged edges of coarse vertex c (members a and b, or b = -1) from position start, or only
+    // counts them if adjacent is null; returns the number of edges
+    private static int mergeRow(Level L, int[] coarse, int a, int b, int c, int[] where, int[] adjacent,
+                                int[] edgeWeight, int start) {
+        int count = 0;
+        for (int member = a, round = 0; round < 2 && member >= 0; member = b, round++) {
+            for (int e = L.offsets[member]; e < L.offsets[member + 1]; e++) {
+                int t = coarse[L.adjacent[e]];
+                if (t == c) continue;
+                if (where[t] >= 0) {
+                    if (adjacent != null) edgeWeight[where[t]] += L.edgeWeight[e];
+                } else {
+                    where[t] = start + count;
+                    if (adjacent != null) {
+                        adjacent[start + count] = t;
+                        edgeWeight[start + count] = L.edgeWeight[e];
+                    }
+                    count++;
+                }
+            }
+        }
+        // reset the marks
+        for (int member = a, round = 0; round < 2 && member >= 0; member = b, round++)
+            for (int e = L.offsets[member]; e < L.offsets[member + 1]; e++)
+                where[coarse[L.adjacent[e]]] = -1;
+        return count;
+    }
+
+    private static IntStream range(int n) {
+        IntStream range = IntStream.range(0, n);
+        return n < PARALLEL_THRESHOLD ? range : range.parallel();
+    }
+
+    // greedy graph growing, best of a few refined tries
+    private static int[] initialPartition(Level L, int k, long maxWeight, SplittableRandom random) {
+        int n = L.n;
+        long total = L.totalWeight();
+        IndexDaryMinPQ pq = new IndexDaryMinPQ(n);
+        int[] best = null;
+        long bestCut = Long.MAX_VALUE, bestExcess = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < INITIAL_TRIES; attempt++) {
+            int[] assignment = new int[n];
+            Arrays.fill(assignment, -1);
+            int unassigned = n;
+            long assignedWeight = 0;
+            for (int p = 0; p < k - 1 && unassigned > 0; p++) {
+                long share = total * (p + 1) / k - assignedWeight;   // cumulative targets absorb overshoot
+                long weight = 0;
+                pq.clear();
+                while (weight < share && unassigned > 0) {
+                    if (pq.isEmpty()) {
+                        // a new seed: the part is grown from here, or its component is used up
+                        int seed = random.nextInt(n);
+                        while (assignment[seed] != -1)
+                            seed = seed + 1 == n ? 0 : seed + 1;
+                        pq.insert(seed, 0.0, seed);
+                    }
+                    int v = pq.delMin();
+                    assignment[v] = p;
+                    unassigned--;
+                    weight += L.vertexWeight[v];
+                    for (int e = L.offsets[v]; e < L.offsets[v + 1]; e++) {
+                        int u = L.adjacent[e];
+                        if (assignment[u] != -1) continue;
+                        if (pq.contains(u)) pq.decreasePriority(u, pq.keyOf(u) - L.edgeWeight[e], u);
+                        else pq.insert(u, -L.edgeWeight[e], u);
+                    }
+                }
+                assignedWeight += weight;
+            }
+            for (int v = 0; v < n; v++)
+                if (assignment[v] == -1) assignment[v] = k - 1;
+
+            Refinement refinement = new Refinement(L, k, maxWeight, assignment);
+            refinement.refine(FM_PASSES);
+            long cut = refinement.cut(), excess = refinement.excess();
+            if (excess < bestExcess || (excess == bestExcess && cut < bestCut)) {
+                best = assignment;
+                bestCut = cut;
+                bestExcess = excess;
+            }
+        }
+        return best;
+    }
+
+    // k-way Fiduccia-Mattheyses refinement of an assignment of one level, in place
+    private static final class Refinement {
+        final Level L;
+        final int k;
+        final long maxWeight;
+        final int[] part;
+        final long[] partWeight;
+        final int[] connection;      // connection[p] = weight of the edges from the current vertex into part p
+        final int[] touchedParts;
+        final int[] moved, movedFrom;
+        final int[] locked;          // locked[v] == pass: v has moved in this pass
+        final IndexDaryMinPQ pq;     // boundary vertices by decreasing gain
+        int pass;
+        int gain;                    // gain of the last move found by bestMove()
+
+        Refinement(Level L, int k, long maxWeight, int[] part) {
+            this.L = L;
+            this.k = k;
+            this.maxWeight = maxWeight;
+            this.part = part;
+            partWeight = new long[k];
+            for (int v = 0; v < L.n; v++)
+                partWeight[part[v]] += L.vertexWeight[v];
+            connection = new int[k];
+            touchedParts = new int[k];
+            moved = new int[L.n];
+            movedFrom = new int[L.n];
+            locked = new int[L.n];
+            pq = new IndexDaryMinPQ(L.n);
+        }
+
+        void refine(int passes) {
+            for (int i = 0; i < passes; i++)
+                if (!pass()) break;
+        }
+
+        // one FM pass; true if it improved the partition
+        boolean pass() {
+            pass++;
+            pq.clear();
+            for (int v = 0; v < L.n; v++)
+                if (bestMove(v) >= 0) pq.insert(v, -gain, v);
+
+            int moves = 0, bestMoves = 0;
+            long cutChange = 0, bestCutChange = 0, bestExcess = excess();
+            while (!pq.isEmpty()) {
+                int v = pq.delMin();
+                int to = bestMove(v);
+                if (to < 0) continue;
+                int from = part[v];
+                part[v] = to;
+                partWeight[from] -= L.vertexWeight[v];
+                partWeight[to] += L.vertexWeight[v];
+                locked[v] = pass;
+                moved[moves] = v;
+                movedFrom[moves++] = from;
+                cutChange -= gain;
+
+                long excess = excess();
+                if (excess < bestExcess || (excess == bestExcess && cutChange < bestCutChange)) {
+                    bestMoves = moves;
+                    bestCutChange = cutChange;
+                    bestExcess = excess;
+                } else if (moves - bestMoves > FM_STALL) break;
+
+                for (int e = L.offsets[v]; e < L.offsets[v + 1]; e++) {
+                    int u = L.adjacent[e];
+                    if (locked[u] == pass) continue;
+                    if (bestMove(u) < 0) {
+                        if (pq.contains(u)) pq.delete(u);
+                    } else if (pq.contains(u)) {
+                        pq.changePriority(u, -gain, u);
+                    } else {
+                        pq.insert(u, -gain, u);
+                    }
+                }
+            }
+
+            // undo the moves after the best state
+            for (int i = moves - 1; i >= bestMoves; i--) {
+                int v = moved[i];
+                partWeight[part[v]] -= L.vertexWeight[v];
+                partWeight[movedFrom[i]] += L.vertexWeight[v];
+                part[v] = movedFrom[i];
+            }
+            return bestMoves > 0;
+        }
+
+        // the neighbouring part v gains most by moving to within the balance limit, or -1; sets gain
+        int bestMove(int v) {
+            int touched = 0;
+            for (int e = L.offsets[v]; e < L.offsets[v + 1]; e++) {
+                int p = part[L.adjacent[e]];
+                if (connection[p] == 0) touchedParts[touched++] = p;
+                connection[p] += L.edgeWeight[e];
+            }
+            int from = part[v], w = L.vertexWeight[v];
+            int internal = connection[from];
+            int best = -1;
+            for (int i = 0; i < touched; i++) {
+                int p = touchedParts[i];
+                if (p == from) continue;
+                boolean fits = partWeight[p] + w <= maxWeight
+                        || (partWeight[from] > maxWeight && partWeight[p] + w < partWeight[from]);
+                if (!fits) continue;
+                int g = connection[p] - internal;
+                if (best < 0 || g > gain || (g == gain && partWeight[p] < partWeight[best])) {
+                    best = p;
+                    gain = g;
+                }
+            }
+            for (int i = 0; i < touched; i++)
+                connection[touchedParts[i]] = 0;
+            return best;
+        }
+
+        // total weight above the balance limit
+        long excess() {
+            long excess = 0;
+            for (long weight : partWeight)
+                excess += Math.max(0, weight - maxWeight);
+            return excess;
+        }
+
+        long cut() {
+            long cut = 0;
+            for (int v = 0; v < L.n; v++)
+                for (int e = L.offsets[v]; e < L.offsets[v + 1]; e++)
+                    if (part[v] != part[L.adjacent[e]]) cut += L.edgeWeight[e];
+            return cut / 2;
+        }
+    }
+
+    private static CSRDigraph bothDirections(EdgeWeightedGraph G) {
+        int m = G.getNumberOfEdges();
+        int[] from = new int[2 * m], to = new int[2 * m];
+        double[] weight = new double[2 * m];
+        int i = 0;
+        for (Edge e : G.edges()) {
+            int v = e.either(), w = e.edgeOtherVertex(v);
+            from[i] = v;
+            to[i] = w;
+            weight[i++] = e.weight();
+            if (v == w) continue;
+            from[i] = w;
+            to[i] = v;
+            weight[i++] = e.weight();
+        }
+        return new CSRDigraph(G.getNumberOfVertices(), Arrays.copyOf(from, i), Arrays.copyOf(to, i),
+                Arrays.copyOf(weight, i));
+    }
+
+    /**
+     * Returns the part of vertex v, between 0 and k - 1.
+     */
+    public int part(int v) {
+        validateVertex(v);
+        return part[v];
+    }
+
+    public int parts() {
+        return k;
+    }
+
+    /**
+     * Returns the number of vertices in part p.
+     */
+    public int size(int p) {
+        if (p < 0 || p >= k) throw new IllegalArgumentException("part " + p + " is not between 0 and " + (k - 1));
+        return size[p];
+    }
+
+    /**
+     * Returns the number of edges whose endpoints are in different parts.
+     */
+    public long edgeCut() {
+        long cut = 0;
+        for (int v = 0; v < G.getNumberofVertices(); v++)
+            for (int e = G.begin(v); e < G.end(v); e++)
+                if (part[v] != part[G.target(e)]) cut++;
+        return symmetric ? cut / 2 : cut;
+    }
+
+    /**
+     * Returns the shard of part p: the edges leaving its vertices (both directions of every undirected edge),
+     * with the heads in other parts as ghost vertices.
+     */
+    public GraphShard shard(int p) {
+        int V = G.getNumberofVertices();
+        int owned = size(p);
+        int[] local = new int[V];     // local[v] = local id + 1 of v in this shard, 0 if none yet
+        int[] global = new int[owned];
+        int n = 0, E = 0;
+        for (int v = 0; v < V; v++) {
+            if (part[v] != p) continue;
+            global[n] = v;
+            local[v] = ++n;
+            E += G.end(v) - G.begin(v);
+        }
+        // the ghosts, in increasing order of global id
+        boolean[] ghost = new boolean[V];
+        int ghosts = 0;
+        for (int i = 0; i < owned; i++) {
+            for (int e = G.begin(global[i]); e < G.end(global[i]); e++) {
+                int w = G.target(e);
+                if (part[w] != p && !ghost[w]) {
+                    ghost[w] = true;
+                    ghosts++;
+                }
+            }
+        }
+        global = Arrays.copyOf(global, owned + ghosts);
+        int[] ghostOwner = new int[ghosts];
+        for (int w = 0, g = 0; w < V; w++) {
+            if (!ghost[w]) continue;
+            global[owned + g] = w;
+            ghostOwner[g] = part[w];
+            local[w] = owned + ++g;
+        }
+
+        int[] offsets = new int[owned + 1];
+        int[] targets = new int[E];
+        double[] weights = G.isWeighted() ? new double[E] : null;
+        int m = 0;
+        for (int i = 0; i < owned; i++) {
+            for (int e = G.begin(global[i]); e < G.end(global[i]); e++) {
+                targets[m] = local[G.target(e)] - 1;
+                if (weights != null) weights[m] = G.weight(e);
+                m++;
+            }
+            offsets[i + 1] = m;
+        }
+        return new GraphShard(p, k, V, owned, global, ghostOwner, offsets, targets, weights);
+    }
+
+    /**
+     * Writes the shard of every part to directory/part-p.shard and returns the files.
+     */
+    public Path[] writeShards(Path directory) {
+        Path[] files = new Path[k];
+        for (int p = 0; p < k; p++) {
+            files[p] = directory.resolve("part-" + p + ".shard");
+            shard(p).write(files[p]);
+        }
+        return files;
+    }
+
+    private void validateVertex(int v) {
+        int V = part.length;
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    /**
+     * Partitions an edge-weighted graph into k parts and prints the part sizes and the edge cut; with a third
+     * argument also writes the shards to that directory.
+     */
+    public static void main(String[] args) throws java.io.IOException {
+        EdgeWeightedGraph G = new EdgeWeightedGraph(new In(args[0]));
+        int k = Integer.parseInt(args[1]);
+        long start = System.nanoTime();
+        GraphPartitioner partitioner = new GraphPartitioner(G, k);
+        double ms = (System.nanoTime() - start) / 1e6;
+        StdOut.printf("%d vertices, %d edges, %d parts (%.1f ms)\n", G.getNumberOfVertices(),
+                G.getNumberOfEdges(), k, ms);
+        for (int p = 0; p < k; p++)
+            StdOut.printf("part %d: %d vertices\n", p, partitioner.size(p));
+        StdOut.printf("edge cut: %d\n", partitioner.edgeCut());
+        if (args.length > 2) {
+            Path directory = Files.createDirectories(Paths.get(args[2]));
+            for (Path file : partitioner.writeShards(directory))
+                StdOut.println(file + ": " + GraphShard.read(file));
+        }
+    }
+}
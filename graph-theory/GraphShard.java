@@ -0,0 +1,193 @@
+/******************************************************************************
+ *  One part of a partitioned digraph: the out-edges of the vertices the part
+ *  owns, with a map of the ghost vertices owned by other parts.
+ ******************************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The {GraphShard} class is the piece of a digraph that one worker holds after {GraphPartitioner} has split it:
+ * the edges leaving the vertices of one part, in CSR form over local vertex ids.
+ * Local ids 0 .. owned - 1 are the part's own vertices in increasing order of global id; local ids
+ * owned .. owned + ghosts - 1 are the ghost vertices, heads of edges that are owned by other parts, also in
+ * increasing order of global id. For every ghost the shard records the owning part, so a worker knows where to
+ * send a relaxation of an edge into a ghost. {#local(int)} maps global ids back with a binary search, so the
+ * shard needs no hash map.
+ * <p>
+ * The binary file is a header (magic, part, number of parts, global V, owned, ghosts, E, weighted flag) followed
+ * by the global ids, the ghost owners, the offsets, the targets and, for weighted digraphs only, the weights,
+ * all big-endian.
+ */
+public class GraphShard {
+    private static final int MAGIC = 0x53485244;   // "SHRD"
+
+    private final int part;          // the part this shard holds
+    private final int parts;         // number of parts
+    private final int V;             // number of vertices of the whole digraph
+    private final int owned;         // number of vertices of this part
+    private final int[] global;      // global[v] = global id of local vertex v (owned, then ghosts)
+    private final int[] ghostOwner;  // ghostOwner[g] = part that owns ghost owned + g
+    private final int[] offsets;     // offsets[v] .. offsets[v + 1] - 1 are the edges leaving owned vertex v
+    private final int[] targets;     // targets[e] = local id of the head of edge e
+    private final double[] weights;  // weights[e] = weight of edge e, or null if every weight is 1.0
+
+    GraphShard(int part, int parts, int V, int owned, int[] global, int[] ghostOwner, int[] offsets, int[] targets,
+               double[] weights) {
+        this.part = part;
+        this.parts = parts;
+        this.V = V;
+        this.owned = owned;
+        this.global = global;
+        this.ghostOwner = ghostOwner;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public int part() {
+        return part;
+    }
+
+    public int parts() {
+        return parts;
+    }
+
+    /**
+     * Returns the number of vertices of the whole digraph.
+     */
+    public int getNumberofVertices() {
+        return V;
+    }
+
+    public int getNumberOfEdges() {
+        return targets.length;
+    }
+
+    public int ownedVertices() {
+        return owned;
+    }
+
+    public int ghostVertices() {
+        return ghostOwner.length;
+    }
+
+    public boolean isGhost(int v) {
+        return v >= owned;
+    }
+
+    /**
+     * Returns the global id of local vertex v.
+     */
+    public int global(int v) {
+        return global[v];
+    }
+
+    /**
+     * Returns the local id of global vertex v, or -1 if v is neither owned by this part nor a ghost.
+     */
+    public int local(int v) {
+        int i = Arrays.binarySearch(global, 0, owned, v);
+        if (i >= 0) return i;
+        i = Arrays.binarySearch(global, owned, global.length, v);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * Returns the part that owns local vertex v.
+     */
+    public int owner(int v) {
+        return v < owned ? part : ghostOwner[v - owned];
+    }
+
+    public int begin(int v) {
+        return offsets[v];
+    }
+
+    public int end(int v) {
+        return offsets[v + 1];
+    }
+
+    public int target(int e) {
+        return targets[e];
+    }
+
+    public double weight(int e) {
+        return weights == null ? 1.0 : weights[e];
+    }
+
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    public void write(Path file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(part);
+            out.writeInt(parts);
+            out.writeInt(V);
+            out.writeInt(owned);
+            out.writeInt(ghostOwner.length);
+            out.writeInt(targets.length);
+            out.writeBoolean(weights != null);
+            for (int v : global)
+                out.writeInt(v);
+            for (int p : ghostOwner)
+                out.writeInt(p);
+            for (int offset : offsets)
+                out.writeInt(offset);
+            for (int w : targets)
+                out.writeInt(w);
+            if (weights != null)
+                for (double weight : weights)
+                    out.writeDouble(weight);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write " + file, e);
+        }
+    }
+
+    public static GraphShard read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IllegalArgumentException(file + " is not a graph shard");
+            int part = in.readInt();
+            int parts = in.readInt();
+            int V = in.readInt();
+            int owned = in.readInt();
+            int ghosts = in.readInt();
+            int E = in.readInt();
+            boolean weighted = in.readBoolean();
+            int[] global = readInts(in, owned + ghosts);
+            int[] ghostOwner = readInts(in, ghosts);
+            int[] offsets = readInts(in, owned + 1);
+            int[] targets = readInts(in, E);
+            double[] weights = null;
+            if (weighted) {
+                weights = new double[E];
+                for (int e = 0; e < E; e++)
+                    weights[e] = in.readDouble();
+            }
+            return new GraphShard(part, parts, V, owned, global, ghostOwner, offsets, targets, weights);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read " + file, e);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in, int n) throws IOException {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++)
+            values[i] = in.readInt();
+        return values;
+    }
+
+    public String toString() {
+        return String.format("part %d of %d: %d vertices, %d ghosts, %d edges", part, parts, owned,
+                ghostOwner.length, targets.length);
+    }
+}
@@ -0,0 +1,362 @@
+/******************************************************************************
+ *  A string <-> int dictionary that keeps every name as UTF-8 bytes in one
+ *  paged byte arena, indexed by an open-addressed int hash table.
+ *
+ *  % java NameDictionary routes.txt " " routes.dict
+ ******************************************************************************/
+
+import util.In;
+import util.StdIn;
+import util.StdOut;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The {NameDictionary} class assigns the ids 0 through n - 1 to n distinct names, in insertion order.
+ * It is the compact replacement for the {ST<String, Integer>} plus {String[] keys} pair of {SymbolDigraph}:
+ * no {String} object is kept per name. Each name is stored once as a varint length followed by its UTF-8 bytes in
+ * an arena of 16 MB pages; start[id] is the arena address of name id, and an open-addressed
+ * (linear probing) int table maps hash(name) to id + 1. That is 8 bytes per name plus 4-8 bytes of table
+ * plus the UTF-8 bytes themselves.
+ * <p>
+ * A dictionary can be saved to a file and later memory-mapped with {#map(Path)}; the mapped dictionary
+ * is read-only and is served straight from the page cache without being copied onto the heap.
+ * <p>
+ * {#index(String)}, {#add(String)} and {#name(int)} take time proportional to the length of the name
+ * (expected, assuming the hash function spreads the names).
+ */
+public class NameDictionary {
+    private static final int MAGIC = 0x4e414d31;            // "NAM1"
+    private static final int PAGE_BITS = 24;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;   // a name never crosses a page boundary
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int HEADER_BYTES = 16;
+
+    private ByteBuffer[] pages;   // the arena
+    private int pageCount;        // number of pages in use
+    private int pagePosition;     // first free byte of the last page
+    private LongBuffer start;     // start.get(id) = arena address (page << PAGE_BITS | offset) of name id
+    private IntBuffer table;      // table.get(slot) = id + 1, or 0 if the slot is empty
+    private int mask;             // table capacity - 1
+    private int n;                // number of names
+    private final boolean readOnly;
+    private FileChannel channel;  // backing file of a mapped dictionary
+
+    /**
+     * Initializes an empty dictionary.
+     */
+    public NameDictionary() {
+        pages = new ByteBuffer[4];
+        pages[0] = ByteBuffer.allocate(PAGE_SIZE);
+        pageCount = 1;
+        start = LongBuffer.allocate(16);
+        table = IntBuffer.allocate(32);
+        mask = 31;
+        readOnly = false;
+    }
+
+    private NameDictionary(ByteBuffer[] pages, LongBuffer start, IntBuffer table, int n, FileChannel channel) {
+        this.pages = pages;
+        this.pageCount = pages.length;
+        this.start = start;
+        this.table = table;
+        this.mask = table.capacity() - 1;
+        this.n = n;
+        this.readOnly = true;
+        this.channel = channel;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean contains(String name) {
+        return index(name) >= 0;
+    }
+
+    /**
+     * Returns the id of {name}, or -1 if it is not in the dictionary.
+     */
+    public int index(String name) {
+        if (name == null) throw new IllegalArgumentException("argument to index() is null");
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return index(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the id of the name whose UTF-8 encoding is bytes[from .. from + length - 1], or -1.
+     */
+    public int index(byte[] bytes, int from, int length) {
+        for (int slot = hash(bytes, from, length) & mask; ; slot = (slot + 1) & mask) {
+            int id = table.get(slot) - 1;
+            if (id < 0) return -1;
+            if (equalsName(id, bytes, from, length)) return id;
+        }
+    }
+
+    /**
+     * Returns the id of {name}, adding it with the next free id if it is not in the dictionary yet.
+     */
+    public int add(String name) {
+        if (name == null) throw new IllegalArgumentException("argument to add() is null");
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return add(bytes, 0, bytes.length);
+    }
+
+    public int add(byte[] bytes, int from, int length) {
+        if (readOnly) throw new UnsupportedOperationException("dictionary is read-only");
+        if (length + 5 > PAGE_SIZE) throw new IllegalArgumentException("name is too long");
+        int slot = hash(bytes, from, length) & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            int id = table.get(slot) - 1;
+            if (id < 0) break;
+            if (equalsName(id, bytes, from, length)) return id;
+        }
+        if (n == Integer.MAX_VALUE - 1) throw new IllegalStateException("too many names");
+
+        // append "varint length, bytes" to the arena
+        if (pagePosition + length + 5 > PAGE_SIZE) {
+            if (pageCount == pages.length) pages = Arrays.copyOf(pages, 2 * pageCount);
+            pages[pageCount++] = ByteBuffer.allocate(PAGE_SIZE);
+            pagePosition = 0;
+        }
+        int page = pageCount - 1;
+        if (n == start.capacity()) start = LongBuffer.wrap(Arrays.copyOf(start.array(), 2 * n));
+        start.put(n, ((long) page << PAGE_BITS) | pagePosition);
+        ByteBuffer buffer = pages[page];
+        int pos = pagePosition;
+        for (int len = length; ; len >>>= 7) {
+            if (len < 0x80) {
+                buffer.put(pos++, (byte) len);
+                break;
+            }
+            buffer.put(pos++, (byte) (len & 0x7f | 0x80));
+        }
+        System.arraycopy(bytes, from, buffer.array(), pos, length);
+        pagePosition = pos + length;
+
+        table.put(slot, n + 1);
+        n++;
+        if (2 * n > mask + 1) resize(2 * (mask + 1));
+        return n - 1;
+    }
+
+    /**
+     * Returns the name with the given id. A new {String} is decoded on every call.
+     */
+    public String name(int id) {
+        validateId(id);
+        long address = start.get(id);
+        ByteBuffer buffer = pages[(int) (address >>> PAGE_BITS)];
+        int pos = (int) (address & PAGE_MASK);
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(pos++);
+            length |= (b & 0x7f) << shift;
+            if (b >= 0) break;
+        }
+        byte[] bytes = new byte[length];
+        buffer.duplicate().position(pos).get(bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // does name id have the UTF-8 encoding bytes[from .. from + length - 1]?
+    private boolean equalsName(int id, byte[] bytes, int from, int length) {
+        long address = start.get(id);
+        ByteBuffer buffer = pages[(int) (address >>> PAGE_BITS)];
+        int pos = (int) (address & PAGE_MASK);
+        int stored = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(pos++);
+            stored |= (b & 0x7f) << shift;
+            if (b >= 0) break;
+        }
+        if (stored != length) return false;
+        for (int i = 0; i < length; i++)
+            if (buffer.get(pos + i) != bytes[from + i]) return false;
+        return true;
+    }
+
+    private void resize(int capacity) {
+        IntBuffer old = table;
+        table = IntBuffer.allocate(capacity);
+        mask = capacity - 1;
+        for (int i = 0; i < old.capacity(); i++) {
+            int id = old.get(i) - 1;
+            if (id < 0) continue;
+            int slot = hashOf(id) & mask;
+            while (table.get(slot) != 0)
+                slot = (slot + 1) & mask;
+            table.put(slot, id + 1);
+        }
+    }
+
+    private int hashOf(int id) {
+        long address = start.get(id);
+        ByteBuffer buffer = pages[(int) (address >>> PAGE_BITS)];
+        int pos = (int) (address & PAGE_MASK);
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(pos++);
+            length |= (b & 0x7f) << shift;
+            if (b >= 0) break;
+        }
+        return hash(buffer.array(), pos, length);
+    }
+
+    // FNV-1a followed by a murmur3 finalizer
+    private static int hash(byte[] bytes, int from, int length) {
+        int h = 0x811c9dc5;
+        for (int i = from; i < from + length; i++) {
+            h ^= bytes[i];
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Writes the dictionary to {file}. The layout is a 16-byte header (magic, n, table capacity, page count),
+     * then start[] (8 bytes per name), the hash table (4 bytes per slot) and the arena pages; every page but
+     * the last is written in full so that arena addresses stay valid in the file.
+     */
+    public void save(Path file) {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(n).putInt(mask + 1).putInt(pageCount).flip();
+            writeFully(out, header);
+
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            for (int id = 0; id < n; id++) {
+                if (chunk.remaining() < 8) writeFully(out, chunk.flip()).clear();
+                chunk.putLong(start.get(id));
+            }
+            for (int slot = 0; slot <= mask; slot++) {
+                if (chunk.remaining() < 4) writeFully(out, chunk.flip()).clear();
+                chunk.putInt(table.get(slot));
+            }
+            writeFully(out, chunk.flip());
+            for (int p = 0; p < pageCount; p++) {
+                int used = p == pageCount - 1 ? lastPageLength() : PAGE_SIZE;
+                writeFully(out, pages[p].duplicate().position(0).limit(used));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not save dictionary to " + file, e);
+        }
+    }
+
+    private int lastPageLength() {
+        return readOnly ? pages[pageCount - 1].capacity() : pagePosition;
+    }
+
+    private static ByteBuffer writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        return buffer;
+    }
+
+    /**
+     * Memory-maps a dictionary written by {#save(Path)}. The returned dictionary is read-only;
+     * call {#close()} to release the file.
+     */
+    public static NameDictionary map(Path file) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            ByteBuffer header = mapSection(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) throw new IllegalArgumentException(file + " is not a name dictionary");
+            int n = header.getInt();
+            int capacity = header.getInt();
+            int pageCount = header.getInt();
+
+            long position = HEADER_BYTES;
+            LongBuffer start = mapSection(channel, position, 8L * n).asLongBuffer();
+            position += 8L * n;
+            IntBuffer table = mapSection(channel, position, 4L * capacity).asIntBuffer();
+            position += 4L * capacity;
+            ByteBuffer[] pages = new ByteBuffer[pageCount];
+            for (int p = 0; p < pageCount; p++) {
+                long length = Math.min(PAGE_SIZE, channel.size() - position);
+                pages[p] = mapSection(channel, position, length);
+                position += length;
+            }
+            NameDictionary dictionary = new NameDictionary(pages, start, table, n, channel);
+            channel = null;   // the dictionary owns it now
+            return dictionary;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not map dictionary " + file, e);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // already failing; keep the original exception
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer mapSection(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Releases the file of a mapped dictionary; a no-op for an in-memory one.
+     */
+    public void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        channel = null;
+    }
+
+    private void validateId(int id) {
+        if (id < 0 || id >= n)
+            throw new IllegalArgumentException("id " + id + " is not between 0 and " + (n - 1));
+    }
+
+    /**
+     * Builds a dictionary of the names in a symbol-graph file, saves it, maps it back and answers
+     * name lookups from standard input.
+     */
+    public static void main(String[] args) {
+        In in = new In(args[0]);
+        String delimiter = args[1];
+        NameDictionary dictionary = new NameDictionary();
+        while (in.hasNextLine()) {
+            for (String name : in.readLine().split(delimiter))
+                dictionary.add(name);
+        }
+        Path file = Paths.get(args[2]);
+        dictionary.save(file);
+        NameDictionary mapped = NameDictionary.map(file);
+        StdOut.println(mapped.size() + " names");
+        while (!StdIn.isEmpty()) {
+            String name = StdIn.readLine();
+            int id = mapped.index(name);
+            StdOut.println(id < 0 ? name + " not found" : name + " -> " + id + " -> " + mapped.name(id));
+        }
+        mapped.close();
+    }
+}
@@ -0,0 +1,171 @@
+/******************************************************************************
+ *  Parallel connected components (Afforest: concurrent hooking, pointer
+ *  jumping and neighbour sampling) over an int[] parent array.
+ *
+ *  % java ParallelCC tinyG.txt
+ ******************************************************************************/
+
+import util.In;
+import util.StdOut;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * The {ParallelCC} class computes the connected components of an undirected graph on all cores, without
+ * recursion, so it neither needs a deep stack nor runs on one thread like {CC}.
+ * <p>
+ * Every vertex starts as its own tree in a parent array. Edges are processed in parallel by
+ * {#link}, which hooks the root with the larger id under the smaller one with a compare-and-set, retrying
+ * when another thread got there first (Shiloach-Vishkin style hooking); {#compress} then makes every
+ * vertex point directly at its root (pointer jumping). Afforest reduces the number of edges that have to be
+ * processed: it first links only the first two neighbours of every vertex, which already joins most of the
+ * giant component, then finds the most frequent root by sampling and skips every vertex in it when linking
+ * the remaining edges. Because every edge is stored at both endpoints, an edge with one endpoint in the
+ * giant component is still seen from its other endpoint.
+ * <p>
+ * The results are numbered like {CC}: component ids are 0 through count() - 1, in order of the smallest
+ * vertex of each component. The work is O(V + E) (up to the cost of retries); the extra space is O(V).
+ */
+public class ParallelCC {
+    private static final int NEIGHBOR_ROUNDS = 2;
+    private static final int SAMPLES = 1024;
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final VarHandle PARENT = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int[] id;      // id[v] = id of connected component containing v
+    private final int[] size;    // size[id] = number of vertices in given component
+    private final int count;     // number of connected components
+
+    public ParallelCC(UndirectedGraph G) {
+        this(VertexOrdering.neighbours(G));
+    }
+
+    /**
+     * Computes the connected components of a symmetric CSR graph (every edge v-w is stored as v->w and w->v).
+     */
+    public ParallelCC(CSRDigraph G) {
+        int V = G.getNumberofVertices();
+        int[] parent = new int[V];
+        vertices(V).forEach(v -> parent[v] = v);
+
+        // link the first neighbours of every vertex
+        for (int r = 0; r < NEIGHBOR_ROUNDS; r++) {
+            final int round = r;
+            vertices(V).forEach(v -> {
+                if (G.begin(v) + round < G.end(v)) link(parent, v, G.target(G.begin(v) + round));
+            });
+            compress(parent);
+        }
+
+        // link the remaining edges, skipping the (sampled) largest component
+        int giant = sampleFrequentRoot(parent);
+        vertices(V).forEach(v -> {
+            if (parent[v] == giant) return;
+            for (int e = G.begin(v) + NEIGHBOR_ROUNDS; e < G.end(v); e++)
+                link(parent, v, G.target(e));
+        });
+        compress(parent);
+
+        // number the roots by their smallest vertex, like CC
+        id = new int[V];
+        size = new int[V];
+        int[] number = new int[V];
+        Arrays.fill(number, -1);
+        int n = 0;
+        for (int v = 0; v < V; v++) {
+            int root = parent[v];
+            if (number[root] < 0) number[root] = n++;
+            id[v] = number[root];
+            size[id[v]]++;
+        }
+        count = n;
+    }
+
+    // merge the trees of u and v: hook the larger root under the smaller one
+    private static void link(int[] parent, int u, int v) {
+        int p1 = (int) PARENT.getVolatile(parent, u);
+        int p2 = (int) PARENT.getVolatile(parent, v);
+        while (p1 != p2) {
+            int high = Math.max(p1, p2), low = Math.min(p1, p2);
+            int pHigh = (int) PARENT.getVolatile(parent, high);
+            // high is already hooked under low, or we hook it now
+            if (pHigh == low || (pHigh == high && PARENT.compareAndSet(parent, high, high, low))) break;
+            p1 = (int) PARENT.getVolatile(parent, (int) PARENT.getVolatile(parent, high));
+            p2 = (int) PARENT.getVolatile(parent, low);
+        }
+    }
+
+    // pointer jumping: afterwards every vertex points at its root
+    private static void compress(int[] parent) {
+        vertices(parent.length).forEach(v -> {
+            while (parent[v] != parent[parent[v]])
+                parent[v] = parent[parent[v]];
+        });
+    }
+
+    // the vertices 0 .. V - 1, in parallel unless there are too few to pay for the fork
+    private static IntStream vertices(int V) {
+        IntStream range = IntStream.range(0, V);
+        return V < PARALLEL_THRESHOLD ? range : range.parallel();
+    }
+
+    // the most frequent parent among a random sample of vertices
+    private static int sampleFrequentRoot(int[] parent) {
+        if (parent.length == 0) return -1;
+        SplittableRandom random = new SplittableRandom(1);
+        HashMap<Integer, Integer> frequency = new HashMap<>();
+        int best = parent[0], bestCount = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            int root = parent[random.nextInt(parent.length)];
+            int c = frequency.merge(root, 1, Integer::sum);
+            if (c > bestCount) {
+                best = root;
+                bestCount = c;
+            }
+        }
+        return best;
+    }
+
+    public int id(int vertex) {
+        validateVertex(vertex);
+        return id[vertex];
+    }
+
+    public int size(int vertex) {
+        validateVertex(vertex);
+        return size[id[vertex]];
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean connected(int vertex, int current) {
+        validateVertex(vertex);
+        validateVertex(current);
+        return id(vertex) == id(current);
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= vertex < V}
+    private void validateVertex(int vertex) {
+        int V = id.length;
+        if (vertex < 0 || vertex >= V)
+            throw new IllegalArgumentException("vertex " + vertex + " is not between 0 and " + (V - 1));
+    }
+
+    public static void main(String[] args) {
+        UndirectedGraph G = new UndirectedGraph(new In(args[0]));
+        ParallelCC cc = new ParallelCC(G);
+        StdOut.println(cc.count() + " components");
+        for (int i = 0; i < cc.count(); i++) {
+            for (int v = 0; v < G.getNumberOfVertices(); v++)
+                if (cc.id(v) == i) StdOut.print(v + " ");
+            StdOut.println();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/******************************************************************************
+ *  Parallel Prim/Jarnik minimum spanning forest: Prim trees grown
+ *  concurrently with primitive d-ary heaps and merged like Boruvka, plus an
+ *  O(V^2) array-scan Prim for complete Euclidean graphs.
+ *
+ *  % java ParallelPrimMST tinyEWG.txt
+ ******************************************************************************/
+
+import util.In;
+import util.IndexDaryMinPQ;
+import util.Queue;
+import util.StdOut;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * The {ParallelPrimMST} class computes a minimum spanning forest like {PrimMST}, using every core and no
+ * per-edge objects.
+ * <p>
+ * Sparse graphs: the graph is copied into flat CSR arrays. In each round every thread picks an unclaimed vertex
+ * and grows a Prim tree from it with its own {IndexDaryMinPQ}, claiming vertices with a compare-and-set. When
+ * the lightest edge leaving a tree leads to a vertex claimed by another tree, that edge is recorded (it is the
+ * lightest edge across the cut around the tree) and the tree stops. Edges are ordered by (weight, edge id), so
+ * all recorded edges belong to the same minimum spanning forest and never form a cycle, even with equal
+ * weights. Then, as in Boruvka's algorithm, every tree is contracted to one vertex, keeping only the lightest
+ * edge between two trees, and the next round runs on the smaller graph. Every tree merges with at least one
+ * other, so there are at most log V rounds; on one thread the first tree covers its whole component and the
+ * algorithm is plain Prim with a primitive heap.
+ * <p>
+ * Complete Euclidean graphs given as coordinates (as in {ConnectingPoints}) use the O(V^2) array-scan
+ * variant instead: no edges are stored, and each of the V - 1 steps updates the distances to the newest tree
+ * vertex and finds the nearest non-tree vertex in one pass, split into blocks that run in parallel.
+ */
+public class ParallelPrimMST {
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final VarHandle OWNER = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Queue<Edge> mst = new Queue<Edge>();
+    private double weight;
+
+    /**
+     * Computes a minimum spanning forest of {G}.
+     */
+    public ParallelPrimMST(EdgeWeightedGraph G) {
+        Edge[] edges = new Edge[G.getNumberOfEdges()];
+        int m = 0;
+        for (Edge e : G.edges())
+            edges[m++] = e;
+        edges = Arrays.copyOf(edges, m);
+
+        // the edges in both directions, in CSR form; ids[i] is the index of entry i's edge in edges[]
+        int n = G.getNumberOfVertices();
+        int[] offsets = new int[n + 1];
+        for (Edge e : edges) {
+            int v = e.either();
+            offsets[v + 1]++;
+            offsets[e.edgeOtherVertex(v) + 1]++;
+        }
+        for (int v = 0; v < n; v++)
+            offsets[v + 1] += offsets[v];
+        int[] targets = new int[2 * m], ids = new int[2 * m];
+        double[] weights = new double[2 * m];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int id = 0; id < m; id++) {
+            int v = edges[id].either(), w = edges[id].edgeOtherVertex(v);
+            int i = next[v]++;
+            targets[i] = w;
+            ids[i] = id;
+            weights[i] = edges[id].weight();
+            i = next[w]++;
+            targets[i] = v;
+            ids[i] = id;
+            weights[i] = edges[id].weight();
+        }
+
+        Round round = new Round(n, offsets, targets, weights, ids);
+        while (round != null) {
+            round.growTrees();
+            round = round.contract(edges);
+        }
+    }
+
+    /**
+     * Computes a minimum spanning tree of the complete graph on the points (x[i], y[i]), where the weight of an
+     * edge is the Euclidean distance between its endpoints.
+     */
+    public ParallelPrimMST(double[] x, double[] y) {
+        if (x.length != y.length) throw new IllegalArgumentException("coordinate arrays must have the same length");
+        int n = x.length;
+        if (n == 0) return;
+        double[] distance = new double[n];   // distance[v] = distance from v to the tree, NaN once v is on the tree
+        int[] nearest = new int[n];          // nearest[v] = tree vertex at that distance
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        distance[0] = Double.NaN;
+
+        int blockSize = n < PARALLEL_THRESHOLD ? n : PARALLEL_THRESHOLD / 4;
+        int blocks = (n + blockSize - 1) / blockSize;
+        double[] blockMin = new double[blocks];
+        int[] blockArg = new int[blocks];
+        int newest = 0;
+        for (int step = 1; step < n; step++) {
+            final int u = newest;
+            IntStream range = IntStream.range(0, blocks);
+            (blocks > 1 ? range.parallel() : range).forEach(b -> {
+                double min = Double.POSITIVE_INFINITY;
+                int arg = -1;
+                for (int v = b * blockSize, end = Math.min(n, v + blockSize); v < end; v++) {
+                    if (Double.isNaN(distance[v])) continue;
+                    double dx = x[u] - x[v], dy = y[u] - y[v];
+                    double d = Math.sqrt(dx * dx + dy * dy);
+                    if (d < distance[v]) {
+                        distance[v] = d;
+                        nearest[v] = u;
+                    }
+                    if (arg < 0 || distance[v] < min) {
+                        min = distance[v];
+                        arg = v;
+                    }
+                }
+                blockMin[b] = min;
+                blockArg[b] = arg;
+            });
+            int v = -1;
+            for (int b = 0; b < blocks; b++)
+                if (blockArg[b] >= 0 && (v < 0 || blockMin[b] < distance[v])) v = blockArg[b];
+            mst.enqueue(new Edge(nearest[v], v, distance[v]));
+            weight += distance[v];
+            distance[v] = Double.NaN;
+            newest = v;
+        }
+    }
+
+    // one round of concurrent Prim trees on a (contracted) graph with vertices 0 .. n - 1
+    private final class Round {
+        final int n;
+        final int[] offsets, targets, ids;
+        final double[] weights;
+        final int[] owner;        // owner[v] = seed of the tree that claimed v, or -1
+        final ConcurrentLinkedQueue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+
+        Round(int n, int[] offsets, int[] targets, double[] weights, int[] ids) {
+            this.n = n;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+            this.ids = ids;
+            owner = new int[n];
+            Arrays.fill(owner, -1);
+        }
+
+        void growTrees() {
+            ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(() -> {
+                Workspace w = new Workspace(n);
+                workspaces.add(w);
+                return w;
+            });
+            IntStream seeds = IntStream.range(0, n);
+            (n < PARALLEL_THRESHOLD ? seeds : seeds.parallel()).forEach(s -> {
+                if ((int) OWNER.getVolatile(owner, s) == -1) grow(s, workspace.get());
+            });
+        }
+
+        // Prim's algorithm from s until the tree covers its component or reaches another tree
+        private void grow(int s, Workspace w) {
+            if (!OWNER.compareAndSet(owner, s, -1, s)) return;
+            IndexDaryMinPQ pq = w.pq;
+            pq.clear();
+            scan(s, s, w);
+            while (!pq.isEmpty()) {
+                int x = pq.minIndex();
+                pq.delMin();
+                int entry = w.entry[x];
+                w.record(w.from[x], x, ids[entry]);
+                if (!OWNER.compareAndSet(owner, x, -1, s)) break;   // the lightest edge leads into another tree
+                scan(x, s, w);
+            }
+        }
+
+        private void scan(int v, int tree, Workspace w) {
+            IndexDaryMinPQ pq = w.pq;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int x = targets[i];
+                if ((int) OWNER.getVolatile(owner, x) == tree) continue;
+                if (!pq.contains(x)) {
+                    pq.insert(x, weights[i], ids[i]);
+                } else if (weights[i] < pq.keyOf(x) || (weights[i] == pq.keyOf(x) && ids[i] < pq.tieOf(x))) {
+                    pq.decreasePriority(x, weights[i], ids[i]);
+                } else continue;
+                w.entry[x] = i;
+                w.from[x] = v;
+            }
+        }
+
+        // adds the recorded edges to the forest and returns the round on the contracted graph, or null if done
+        Round contract(Edge[] edges) {
+            UF uf = new UF(n);
+            for (Workspace w : workspaces) {
+                for (int k = 0; k < w.recorded; k++) {
+                    int v = w.recordedFrom[k], x = w.recordedTo[k];
+                    if (uf.find(v) == uf.find(x)) continue;   // recorded by both trees it joins
+                    uf.union(v, x);
+                    Edge e = edges[w.recordedId[k]];
+                    mst.enqueue(e);
+                    weight += e.weight();
+                }
+            }
+
+            int[] label = new int[n];
+            int[] root = new int[n];
+            Arrays.fill(root, -1);
+            int k = 0;
+            for (int v = 0; v < n; v++) {
+                int r = uf.find(v);
+                if (root[r] < 0) root[r] = k++;
+                label[v] = root[r];
+            }
+
+            // the lightest edge from every tree to every neighbouring tree
+            int[] count = new int[k + 1];
+            for (int v = 0; v < n; v++)
+                for (int i = offsets[v]; i < offsets[v + 1]; i++)
+                    if (label[v] != label[targets[i]]) count[label[v] + 1]++;
+            int[] bySource = new int[k + 1];
+            for (int c = 0; c < k; c++)
+                bySource[c + 1] = bySource[c] + count[c + 1];
+            if (bySource[k] == 0) return null;   // every tree spans its component
+            int[] entries = new int[bySource[k]];
+            int[] fill = Arrays.copyOf(bySource, k);
+            for (int v = 0; v < n; v++)
+                for (int i = offsets[v]; i < offsets[v + 1]; i++)
+                    if (label[v] != label[targets[i]]) entries[fill[label[v]]++] = i;
+
+            int[] newOffsets = new int[k + 1];
+            int[] newTargets = new int[entries.length], newIds = new int[entries.length];
+            double[] newWeights = new double[entries.length];
+            int[] slot = new int[k];    // slot[c] = position of the edge to tree c from the current tree, or -1
+            Arrays.fill(slot, -1);
+            int size = 0;
+            for (int c = 0; c < k; c++) {
+                int first = size;
+                for (int j = bySource[c]; j < bySource[c + 1]; j++) {
+                    int i = entries[j], t = label[targets[i]];
+                    if (slot[t] < 0) {
+                        slot[t] = size;
+                        newTargets[size] = t;
+                        newWeights[size] = weights[i];
+                        newIds[size++] = ids[i];
+                    } else if (weights[i] < newWeights[slot[t]]
+                            || (weights[i] == newWeights[slot[t]] && ids[i] < newIds[slot[t]])) {
+                        newWeights[slot[t]] = weights[i];
+                        newIds[slot[t]] = ids[i];
+                    }
+                }
+                for (int j = first; j < size; j++)
+                    slot[newTargets[j]] = -1;
+                newOffsets[c + 1] = size;
+            }
+            return new Round(k, newOffsets, Arrays.copyOf(newTargets, size), Arrays.copyOf(newWeights, size),
+                    Arrays.copyOf(newIds, size));
+        }
+    }
+
+    // the heap and the recorded edges of one thread in one round
+    private static final class Workspace {
+        final IndexDaryMinPQ pq;
+        final int[] entry;   // entry[x] = CSR entry of the lightest known edge from the tree to x
+        final int[] from;    // from[x] = tree endpoint of that edge
+        int[] recordedFrom = new int[16], recordedTo = new int[16], recordedId = new int[16];
+        int recorded;
+
+        Workspace(int n) {
+            pq = new IndexDaryMinPQ(n);
+            entry = new int[n];
+            from = new int[n];
+        }
+
+        void record(int v, int x, int id) {
+            if (recorded == recordedId.length) {
+                recordedFrom = Arrays.copyOf(recordedFrom, 2 * recorded);
+                recordedTo = Arrays.copyOf(recordedTo, 2 * recorded);
+                recordedId = Arrays.copyOf(recordedId, 2 * recorded);
+            }
+            recordedFrom[recorded] = v;
+            recordedTo[recorded] = x;
+            recordedId[recorded++] = id;
+        }
+    }
+
+    public Iterable<Edge> getMSTEdges() {
+        return mst;
+    }
+
+    public double getMSTWeight() {
+        return weight;
+    }
+
+    public static void main(String[] args) {
+        In in = new In(args[0]);
+        EdgeWeightedGraph G = new EdgeWeightedGraph(in);
+        ParallelPrimMST mst = new ParallelPrimMST(G);
+        for (Edge e : mst.getMSTEdges()) {
+            StdOut.println(e);
+        }
+        StdOut.printf("%.5f\n", mst.getMSTWeight());
+    }
+}
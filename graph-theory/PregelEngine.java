@@ -0,0 +1,281 @@
+/******************************************************************************
+ *  A bulk-synchronous, vertex-centric compute engine with built-in PageRank,
+ *  personalised PageRank and weakly connected components.
+ *
+ *  % java PregelEngine tinyDG.txt
+ ******************************************************************************/
+
+import util.In;
+import util.StdOut;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The {PregelEngine} class runs {VertexProgram}s over a {Digraph} or {EdgeWeightedDigraph} in supersteps.
+ * <p>
+ * The graph is converted once to a {CSRDigraph} of incoming edges, so a vertex gathers its messages by
+ * scanning one contiguous slice of the arrays (pull model): every vertex writes only its own slot and no
+ * locks or atomic updates are needed. Vertex values are double-buffered in two primitive arrays that are
+ * swapped after each superstep. The vertices are split into partitions that hold about the same number of
+ * incoming edges (not the same number of vertices), and the partitions of a superstep are processed in parallel;
+ * per-partition counts of changed vertices and aggregates are summed at the barrier.
+ * <p>
+ * Each superstep takes O(V + E) work. Built-in programs: {#pageRank}, {#personalizedPageRank} and
+ * {#weaklyConnectedComponents} (label propagation of the minimum vertex id).
+ */
+public class PregelEngine {
+    private static final int EDGES_PER_PARTITION = 1 << 14;
+
+    private final int V;
+    private final CSRDigraph in;          // in.begin(v) .. in.end(v) - 1 are the edges into v
+    private final int[] outdegree;
+    private final int[] partitionStart;   // vertices partitionStart[p] .. partitionStart[p + 1] - 1 form partition p
+
+    private int supersteps;               // supersteps run by the last run()
+    private boolean converged;            // did the last run() converge?
+
+    public PregelEngine(Digraph G) {
+        this(new CSRDigraph(G));
+    }
+
+    public PregelEngine(EdgeWeightedDigraph G) {
+        this(new CSRDigraph(G));
+    }
+
+    public PregelEngine(CSRDigraph G) {
+        V = G.getNumberofVertices();
+        in = G.reverse();
+        outdegree = new int[V];
+        for (int v = 0; v < V; v++)
+            outdegree[v] = G.outdegree(v);
+
+        // cut partitions at vertex boundaries every EDGES_PER_PARTITION incoming edges (counting each vertex as an edge)
+        int[] starts = new int[V + 2];
+        int parts = 0;
+        long load = 0;
+        starts[parts++] = 0;
+        for (int v = 0; v < V; v++) {
+            load += 1 + in.outdegree(v);
+            if (load >= EDGES_PER_PARTITION && v + 1 < V) {
+                starts[parts++] = v + 1;
+                load = 0;
+            }
+        }
+        starts[parts] = V;
+        partitionStart = Arrays.copyOf(starts, parts + 1);
+    }
+
+    /**
+     * Runs {program} until no vertex changes or {maxSupersteps} supersteps have been run,
+     * and returns the final vertex values.
+     */
+    public double[] run(VertexProgram program, int maxSupersteps) {
+        double[] current = new double[V];
+        double[] next = new double[V];
+        for (int v = 0; v < V; v++)
+            current[v] = program.initialValue(v, V);
+
+        int partitions = partitionStart.length - 1;
+        long[] changed = new long[partitions];
+        double[] aggregates = new double[partitions];
+        converged = false;
+        supersteps = 0;
+        double aggregate = aggregate(program, current, aggregates);
+        while (supersteps < maxSupersteps) {
+            final double[] values = current, result = next;
+            final double globalAggregate = aggregate;
+            IntStream.range(0, partitions).parallel().forEach(p -> {
+                long count = 0;
+                for (int v = partitionStart[p]; v < partitionStart[p + 1]; v++) {
+                    double combined = program.identity();
+                    for (int e = in.begin(v); e < in.end(v); e++) {
+                        int u = in.target(e);
+                        combined = program.combine(combined, program.message(u, values[u], outdegree[u], in.weight(e)));
+                    }
+                    result[v] = program.apply(v, values[v], combined, globalAggregate, V);
+                    if (program.changed(values[v], result[v])) count++;
+                }
+                changed[p] = count;
+            });
+            supersteps++;
+            double[] swap = current;
+            current = next;
+            next = swap;
+            long total = 0;
+            for (long c : changed)
+                total += c;
+            if (total == 0) {
+                converged = true;
+                break;
+            }
+            aggregate = aggregate(program, current, aggregates);
+        }
+        return current;
+    }
+
+    private double aggregate(VertexProgram program, double[] values, double[] aggregates) {
+        IntStream.range(0, aggregates.length).parallel().forEach(p -> {
+            double sum = 0.0;
+            for (int v = partitionStart[p]; v < partitionStart[p + 1]; v++)
+                sum += program.aggregate(v, values[v], outdegree[v]);
+            aggregates[p] = sum;
+        });
+        double sum = 0.0;
+        for (double a : aggregates)
+            sum += a;
+        return sum;
+    }
+
+    public int supersteps() {
+        return supersteps;
+    }
+
+    public boolean converged() {
+        return converged;
+    }
+
+    /**
+     * PageRank with the given damping factor; the rank of dangling vertices is spread over all vertices.
+     * Converges when no rank moves by more than {tolerance}.
+     */
+    public static VertexProgram pageRank(double damping, double tolerance) {
+        return personalizedPageRank(damping, tolerance, null);
+    }
+
+    /**
+     * PageRank whose random jumps (and dangling mass) land only on the given source vertices.
+     */
+    public static VertexProgram personalizedPageRank(double damping, double tolerance, int[] sources) {
+        return new VertexProgram() {
+            private final boolean[] isSource = sourceSet(sources);
+
+            private double teleport(int v, int V) {
+                if (isSource == null) return 1.0 / V;
+                return v < isSource.length && isSource[v] ? 1.0 / sources.length : 0.0;
+            }
+
+            public double initialValue(int v, int V) {
+                return teleport(v, V);
+            }
+
+            public double identity() {
+                return 0.0;
+            }
+
+            public double combine(double a, double b) {
+                return a + b;
+            }
+
+            public double message(int from, double value, int outdegree, double weight) {
+                return value / outdegree;
+            }
+
+            public double aggregate(int v, double value, int outdegree) {
+                return outdegree == 0 ? value : 0.0;
+            }
+
+            public double apply(int v, double value, double combined, double dangling, int V) {
+                return (1.0 - damping) * teleport(v, V) + damping * (combined + dangling * teleport(v, V));
+            }
+
+            public boolean changed(double oldValue, double newValue) {
+                return Math.abs(oldValue - newValue) > tolerance;
+            }
+        };
+    }
+
+    private static boolean[] sourceSet(int[] sources) {
+        if (sources == null) return null;
+        if (sources.length == 0) throw new IllegalArgumentException("no source vertices");
+        int max = 0;
+        for (int s : sources) {
+            if (s < 0) throw new IllegalArgumentException("vertex " + s + " is negative");
+            max = Math.max(max, s);
+        }
+        boolean[] isSource = new boolean[max + 1];
+        for (int s : sources)
+            isSource[s] = true;
+        return isSource;
+    }
+
+    /**
+     * Label propagation of the minimum vertex id. Run on {#symmetric} graphs, the final value of every vertex is the
+     * smallest vertex id of its weakly connected component.
+     */
+    public static VertexProgram minimumLabel() {
+        return new VertexProgram() {
+            public double initialValue(int v, int V) {
+                return v;
+            }
+
+            public double identity() {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            public double combine(double a, double b) {
+                return Math.min(a, b);
+            }
+
+            public double message(int from, double value, int outdegree, double weight) {
+                return value;
+            }
+
+            public double apply(int v, double value, double combined, double aggregate, int V) {
+                return Math.min(value, combined);
+            }
+
+            public boolean changed(double oldValue, double newValue) {
+                return oldValue != newValue;
+            }
+        };
+    }
+
+    /**
+     * Returns id[v] = smallest vertex id in the weakly connected component of v.
+     */
+    public static int[] weaklyConnectedComponents(Digraph G) {
+        PregelEngine engine = new PregelEngine(symmetric(new CSRDigraph(G)));
+        double[] label = engine.run(minimumLabel(), Integer.MAX_VALUE);
+        int[] id = new int[label.length];
+        for (int v = 0; v < id.length; v++)
+            id[v] = (int) label[v];
+        return id;
+    }
+
+    /**
+     * Returns the digraph with every edge v->w also present as w->v.
+     */
+    public static CSRDigraph symmetric(CSRDigraph G) {
+        int V = G.getNumberofVertices(), E = G.getNumberOfEdges();
+        int[] from = new int[2 * E];
+        int[] to = new int[2 * E];
+        double[] weight = new double[2 * E];
+        int i = 0;
+        for (int v = 0; v < V; v++) {
+            for (int e = G.begin(v); e < G.end(v); e++) {
+                from[i] = v;
+                to[i] = G.target(e);
+                weight[i++] = G.weight(e);
+                from[i] = G.target(e);
+                to[i] = v;
+                weight[i++] = G.weight(e);
+            }
+        }
+        return new CSRDigraph(V, from, to, weight);
+    }
+
+    public static void main(String[] args) {
+        Digraph G = new Digraph(new In(args[0]));
+        PregelEngine engine = new PregelEngine(G);
+        double[] rank = engine.run(pageRank(0.85, 1E-10), 100);
+        StdOut.printf("PageRank (%d supersteps, converged: %b)\n", engine.supersteps(), engine.converged());
+        for (int v = 0; v < rank.length; v++)
+            StdOut.printf("%4d %.5f\n", v, rank[v]);
+
+        int[] id = weaklyConnectedComponents(G);
+        StdOut.println("Weakly connected components");
+        for (int v = 0; v < id.length; v++)
+            StdOut.printf("%4d %4d\n", v, id[v]);
+    }
+}
@@ -75,6 +75,7 @@ public class PrimMST {
     private double[] lightestEdgeWeight;      // distTo[v] = weight of shortest such edge
     private boolean[] isOnTree;     // marked[v] = true if v on tree, false otherwise
     private IndexMinPQ<Double> pq;
+    private long relaxed, inserts, decreaseKeys, pops; // operation counts reported to SearchMetrics
 
     /**
      * Compute a minimum spanning tree (or forest) of an edge-weighted graph.
@@ -82,6 +83,17 @@ public class PrimMST {
      * @param G the edge-weighted graph
      */
     public PrimMST(EdgeWeightedGraph G) {
+        this(G, SearchMetrics.NONE);
+    }
+
+    /**
+     * Compute a minimum spanning tree (or forest) as above and report the work done to {@code metrics}.
+     *
+     * @param G       the edge-weighted graph
+     * @param metrics the sink for operation counts
+     */
+    public PrimMST(EdgeWeightedGraph G, SearchMetrics metrics) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
         LightestEdge = new Edge[G.getNumberOfVertices()];
         lightestEdgeWeight = new double[G.getNumberOfVertices()];
         isOnTree = new boolean[G.getNumberOfVertices()];
@@ -91,6 +103,8 @@ public class PrimMST {
 
         for (int v = 0; v < G.getNumberOfVertices(); v++)      // run from each vertex to find
             if (!isOnTree[v]) prim(G, v);      // minimum spanning forest
+        if (metrics.isEnabled())
+            metrics.record(relaxed, inserts, decreaseKeys, pops, pops, System.nanoTime() - start);
 
         // check optimality conditions
         assert check(G);
@@ -100,8 +114,10 @@ public class PrimMST {
     private void prim(EdgeWeightedGraph G, int s) {
         lightestEdgeWeight[s] = 0.0;
         pq.insert(s, lightestEdgeWeight[s]);
+        inserts++;
         while (!pq.isEmpty()) {
             int v = pq.delMin();
+            pops++;
             scan(G, v);
         }
     }
@@ -113,14 +129,17 @@ public class PrimMST {
         for (Edge current : G.getAdjacenyEdges(v)) {
             int w = current.edgeOtherVertex(v);
             if (isOnTree[w]) continue;         // v-w is obsolete edge
+            relaxed++;
 
             if (current.weight() < lightestEdgeWeight[w]) {
                 lightestEdgeWeight[w] = current.weight();
                 LightestEdge[w] = current;
                 if (pq.contains(w)) {
                     pq.decreasePriority(w, lightestEdgeWeight[w]);
+                    decreaseKeys++;
                 } else {
                     pq.insert(w, lightestEdgeWeight[w]);
+                    inserts++;
                 }
             }
         }
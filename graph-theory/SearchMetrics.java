@@ -0,0 +1,46 @@
+/******************************************************************************
+ *  Counters reported by the search algorithms (edges relaxed, priority queue
+ *  operations, vertices settled, query time).
+ ******************************************************************************/
+
+/**
+ * The {SearchMetrics} interface is the sink that {DijkstraSP}, {BellmanFordSP}, {PrimMST} and the
+ * point-to-point query engines report their work into.
+ * An algorithm counts its operations in plain fields of its own while it runs and reports the totals once,
+ * when it finishes, so the hot loops never touch a shared counter.
+ * {#NONE} is the default sink: {isEnabled()} is false, so the algorithm does not even read the clock,
+ * and every method is empty, so the JIT removes the calls.
+ * {StripedSearchMetrics} is the collecting implementation.
+ */
+public interface SearchMetrics {
+
+    /**
+     * The sink that ignores everything.
+     */
+    SearchMetrics NONE = new SearchMetrics() {
+        public boolean isEnabled() {
+            return false;
+        }
+
+        public void record(long edgesRelaxed, long pqInserts, long pqDecreaseKeys, long pqPops,
+                           long verticesSettled, long nanos) {
+        }
+    };
+
+    /**
+     * Returns false if the reported values are thrown away, so callers can skip measuring them.
+     */
+    boolean isEnabled();
+
+    /**
+     * Reports the work of one run (one query, one shortest-paths tree, one spanning tree).
+     *
+     * @param edgesRelaxed    number of edges examined by relax() (or scanned, for searches without relaxation)
+     * @param pqInserts       number of priority queue (or queue) insertions
+     * @param pqDecreaseKeys  number of decrease-key operations
+     * @param pqPops          number of delete-min (or dequeue) operations
+     * @param verticesSettled number of vertices whose final value was fixed
+     * @param nanos           wall-clock time of the run in nanoseconds
+     */
+    void record(long edgesRelaxed, long pqInserts, long pqDecreaseKeys, long pqPops, long verticesSettled, long nanos);
+}
@@ -0,0 +1,367 @@
+/******************************************************************************
+ *  Coordinator of a distributed shortest-path search over the shards of a
+ *  partitioned digraph, with one ShardWorker process per shard on localhost.
+ *
+ *  % java ShardCoordinator tinyEWD.txt 0 3
+ ******************************************************************************/
+
+import util.In;
+import util.StdOut;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {ShardCoordinator} class runs single-source shortest-path searches on a digraph that has been split into
+ * {GraphShard} files by {GraphPartitioner}. Every shard is served by a {ShardWorker}, a separate JVM (or, for
+ * tests, a thread) connected to the coordinator over a localhost socket.
+ * <p>
+ * A search runs in bulk-synchronous rounds. In each round the coordinator hands every worker the batches other
+ * workers addressed to it in the previous round, each worker runs Dijkstra's algorithm inside its shard and
+ * answers with its outgoing batches, one per destination part, which the coordinator forwards unopened in the next
+ * round. Every worker finishes its local search within the round, so the search is over exactly when a round
+ * produces no messages: then no worker has work left and nothing is in transit. Finally the coordinator collects
+ * the distances and parents of every reached vertex; the results agree with {DijkstraSP} and, for {#bfs(int)},
+ * with {BreadthFirstPaths}.
+ * <p>
+ * Each result carries {Stats}: rounds, ghost relaxations, messages left after combining, batches, and the bytes a
+ * fixed-width encoding would have taken against the bytes actually sent.
+ */
+public class ShardCoordinator implements AutoCloseable {
+    private static final int ACCEPT_TIMEOUT = 60_000;   // ms to wait for the workers to connect
+
+    private final ServerSocket server;
+    private final int parts;
+    private final int V;
+    private final DataInputStream[] in;
+    private final DataOutputStream[] out;
+    private final Socket[] sockets;
+    private final List<Process> processes = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    /**
+     * Starts one worker process per shard file.
+     */
+    public ShardCoordinator(Path[] shards) {
+        this(shards, true);
+    }
+
+    /**
+     * Starts one worker per shard file, as a separate JVM if {separateProcesses}, else as a thread of this one.
+     */
+    public ShardCoordinator(Path[] shards, boolean separateProcesses) {
+        parts = shards.length;
+        in = new DataInputStream[parts];
+        out = new DataOutputStream[parts];
+        sockets = new Socket[parts];
+        try {
+            server = new ServerSocket(0, parts, InetAddress.getLoopbackAddress());
+            server.setSoTimeout(ACCEPT_TIMEOUT);
+            String host = server.getInetAddress().getHostAddress();
+            int port = server.getLocalPort();
+            for (Path shard : shards) {
+                if (separateProcesses) {
+                    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+                    processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                            "ShardWorker", host, Integer.toString(port), shard.toAbsolutePath().toString())
+                            .inheritIO().start());
+                } else {
+                    Thread thread = new Thread(() -> ShardWorker.run(host, port, shard), "worker " + shard);
+                    thread.setDaemon(true);
+                    thread.start();
+                    threads.add(thread);
+                }
+            }
+
+            // workers connect in any order and say which part they hold
+            int vertices = -1;
+            for (int i = 0; i < parts; i++) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+                int part = input.readInt();
+                int workerParts = input.readInt();
+                int workerV = input.readInt();
+                if (workerParts != parts || part < 0 || part >= parts || sockets[part] != null)
+                    throw new IllegalArgumentException("shard of part " + part + " of " + workerParts
+                            + " does not fit " + parts + " shards");
+                if (vertices >= 0 && workerV != vertices)
+                    throw new IllegalArgumentException("shards of different digraphs");
+                vertices = workerV;
+                sockets[part] = socket;
+                in[part] = input;
+                out[part] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            }
+            V = Math.max(vertices, 0);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("could not start the workers", e);
+        }
+    }
+
+    /**
+     * Message statistics of one search.
+     */
+    public static final class Stats {
+        private final int fixedWidth;    // bytes of one message in a fixed-width encoding
+        private int rounds;
+        private long relaxations, messages, batches, encodedBytes;
+
+        private Stats(int fixedWidth) {
+            this.fixedWidth = fixedWidth;
+        }
+
+        public int rounds() {
+            return rounds;
+        }
+
+        /**
+         * Returns the number of times an edge into a ghost vertex improved its distance: the number of messages
+         * without combining.
+         */
+        public long relaxations() {
+            return relaxations;
+        }
+
+        /**
+         * Returns the number of messages sent: at most one per ghost vertex and round.
+         */
+        public long messages() {
+            return messages;
+        }
+
+        public long batches() {
+            return batches;
+        }
+
+        /**
+         * Returns the bytes the messages would take as fixed-width ints and doubles.
+         */
+        public long rawBytes() {
+            return messages * fixedWidth;
+        }
+
+        public long encodedBytes() {
+            return encodedBytes;
+        }
+
+        public double compressionRatio() {
+            return encodedBytes == 0 ? 1.0 : (double) rawBytes() / encodedBytes;
+        }
+
+        public String toString() {
+            return String.format("%d rounds, %d relaxations, %d messages in %d batches, %d bytes (%d fixed-width, %.2fx)",
+                    rounds, relaxations, messages, batches, encodedBytes, rawBytes(), compressionRatio());
+        }
+    }
+
+    /**
+     * The shortest paths from one source found by a distributed search.
+     */
+    public static final class Result {
+        private final double[] distTo;
+        private final int[] parent;
+        private final double[] parentWeight;
+        private final Stats stats;
+
+        private Result(double[] distTo, int[] parent, double[] parentWeight, Stats stats) {
+            this.distTo = distTo;
+            this.parent = parent;
+            this.parentWeight = parentWeight;
+            this.stats = stats;
+        }
+
+        /**
+         * Returns the length of a shortest path to v (its number of edges for a BFS), or infinity.
+         */
+        public double distTo(int v) {
+            validateVertex(v);
+            return distTo[v];
+        }
+
+        public boolean hasPathTo(int v) {
+            validateVertex(v);
+            return distTo[v] < Double.POSITIVE_INFINITY;
+        }
+
+        public Iterable<DirectedEdge> pathTo(int v) {
+            validateVertex(v);
+            if (!hasPathTo(v)) return null;
+            Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+            for (int x = v; parent[x] >= 0; x = parent[x])
+                path.push(new DirectedEdge(parent[x], x, parentWeight[x]));
+            return path;
+        }
+
+        public Stats stats() {
+            return stats;
+        }
+
+        private void validateVertex(int v) {
+            int V = distTo.length;
+            if (v < 0 || v >= V)
+                throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+        }
+    }
+
+    public Result dijkstra(int source) {
+        return search(false, source);
+    }
+
+    /**
+     * Runs a breadth-first search: every edge counts 1.
+     */
+    public Result bfs(int source) {
+        return search(true, source);
+    }
+
+    private Result search(boolean bfs, int source) {
+        if (source < 0 || source >= V)
+            throw new IllegalArgumentException("vertex " + source + " is not between 0 and " + (V - 1));
+        Stats stats = new Stats(bfs ? 12 : 24);
+        try {
+            for (int p = 0; p < parts; p++) {
+                out[p].writeInt(ShardWorker.QUERY);
+                out[p].writeBoolean(bfs);
+                out[p].writeInt(source);
+            }
+
+            List<List<byte[]>> inbox = new ArrayList<>();
+            for (int p = 0; p < parts; p++)
+                inbox.add(new ArrayList<>());
+            long sent;
+            do {
+                stats.rounds++;
+                for (int p = 0; p < parts; p++) {
+                    out[p].writeInt(ShardWorker.ROUND);
+                    out[p].writeInt(inbox.get(p).size());
+                    for (byte[] batch : inbox.get(p)) {
+                        out[p].writeInt(batch.length);
+                        out[p].write(batch);
+                    }
+                    out[p].flush();
+                    inbox.get(p).clear();
+                }
+                sent = 0;
+                for (int p = 0; p < parts; p++) {
+                    stats.relaxations += in[p].readLong();
+                    int batches = in[p].readInt();
+                    for (int b = 0; b < batches; b++) {
+                        int to = in[p].readInt();
+                        int messages = in[p].readInt();
+                        byte[] batch = new byte[in[p].readInt()];
+                        in[p].readFully(batch);
+                        inbox.get(to).add(batch);
+                        sent += messages;
+                        stats.batches++;
+                        stats.encodedBytes += batch.length;
+                    }
+                }
+                stats.messages += sent;
+            } while (sent > 0);
+
+            double[] distTo = new double[V];
+            int[] parent = new int[V];
+            double[] parentWeight = new double[V];
+            Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+            Arrays.fill(parent, -1);
+            for (int p = 0; p < parts; p++) {
+                out[p].writeInt(ShardWorker.COLLECT);
+                out[p].flush();
+            }
+            for (int p = 0; p < parts; p++) {
+                int reached = in[p].readInt();
+                for (int i = 0; i < reached; i++) {
+                    int v = in[p].readInt();
+                    distTo[v] = in[p].readDouble();
+                    parent[v] = in[p].readInt();
+                    parentWeight[v] = in[p].readDouble();
+                }
+            }
+            return new Result(distTo, parent, parentWeight, stats);
+        } catch (IOException e) {
+            throw new UncheckedIOException("lost connection to a worker", e);
+        }
+    }
+
+    /**
+     * Shuts the workers down.
+     */
+    public void close() {
+        for (int p = 0; p < parts; p++) {
+            if (out[p] == null) continue;
+            try {
+                out[p].writeInt(ShardWorker.SHUTDOWN);
+                out[p].flush();
+            } catch (IOException ignored) {
+                // the worker is gone already
+            }
+        }
+        try {
+            for (Process process : processes) {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+            }
+            for (Thread thread : threads)
+                thread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            for (Socket socket : sockets)
+                if (socket != null) socket.close();
+            if (server != null) server.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    /**
+     * Partitions an edge-weighted digraph into k shards, runs Dijkstra from s with one worker process per
+     * shard, checks the distances against {DijkstraSP} and prints the paths and the message statistics.
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(new In(args[0]));
+        int s = Integer.parseInt(args[1]);
+        int k = Integer.parseInt(args[2]);
+        Path directory = Files.createTempDirectory("shards");
+        Path[] shards = new GraphPartitioner(G, k).writeShards(directory);
+        try (ShardCoordinator coordinator = new ShardCoordinator(shards)) {
+            Result sp = coordinator.dijkstra(s);
+            DijkstraSP reference = new DijkstraSP(G, s);
+            for (int t = 0; t < G.getNumberofVertices(); t++) {
+                if (sp.hasPathTo(t)) {
+                    StdOut.printf("%d to %d (%.2f) ", s, t, sp.distTo(t));
+                    for (DirectedEdge e : sp.pathTo(t)) {
+                        StdOut.print(e + " ");
+                    }
+                    StdOut.println();
+                } else {
+                    StdOut.printf("%d to %d no path\n", s, t);
+                }
+                if (sp.hasPathTo(t) != reference.hasPathTo(t) || (sp.hasPathTo(t)
+                        && Math.abs(sp.distTo(t) - reference.getShortestDistanceFromSource(t)) > 1e-9))
+                    StdOut.println("  differs from DijkstraSP");
+            }
+            StdOut.println(sp.stats());
+        } finally {
+            for (Path shard : shards)
+                Files.deleteIfExists(shard);
+            Files.deleteIfExists(directory);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/******************************************************************************
+ *  Worker of a distributed shortest-path search: owns one GraphShard and
+ *  exchanges boundary relaxations with the ShardCoordinator over a socket.
+ *
+ *  % java ShardWorker localhost 40000 part-0.shard
+ ******************************************************************************/
+
+import util.IndexDaryMinPQ;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * The {ShardWorker} class runs one part of a distributed single-source shortest-path search (Dijkstra, or BFS
+ * when every edge counts 1) on a {GraphShard}. It connects to a {ShardCoordinator} and then follows its
+ * commands. In every bulk-synchronous round it
+ * <ul>
+ * <li>applies the relaxations other parts sent to its vertices in the previous round,</li>
+ * <li>runs Dijkstra's algorithm inside the shard from every vertex that improved, until nothing changes, and</li>
+ * <li>sends the distances of the ghost vertices that improved back, one batch per owning part.</li>
+ * </ul>
+ * The worker keeps the best distance it has sent for every ghost, so only real improvements are sent, and only
+ * the last one per ghost per round (a Pregel-style combiner). A batch is sorted by vertex and encoded with
+ * variable-length integers: vertex ids as gaps, the parent as an offset from the vertex and, for BFS, the distance
+ * as an integer; Dijkstra distances and edge weights are written as raw doubles.
+ */
+public class ShardWorker {
+    static final int QUERY = 1, ROUND = 2, COLLECT = 3, SHUTDOWN = 4;
+
+    private final GraphShard shard;
+    private final double[] distTo;       // distTo[v] = best known distance to local vertex v
+    private final int[] parent;          // parent[v] = global id of the previous vertex on that path, or -1
+    private final double[] parentWeight; // parentWeight[v] = weight of the edge from parent[v]
+    private final IndexDaryMinPQ pq;
+    private final int[] dirty;           // ghosts improved in this round
+    private final boolean[] isDirty;
+    private int dirtyCount;
+    private boolean unit;                // BFS: every edge has length 1
+
+    public ShardWorker(GraphShard shard) {
+        this.shard = shard;
+        int n = shard.ownedVertices() + shard.ghostVertices();
+        distTo = new double[n];
+        parent = new int[n];
+        parentWeight = new double[n];
+        pq = new IndexDaryMinPQ(n);
+        dirty = new int[shard.ghostVertices()];
+        isDirty = new boolean[n];
+    }
+
+    /**
+     * Connects to the coordinator at host:port and serves the shard in {file} until told to shut down.
+     */
+    public static void run(String host, int port, Path file) {
+        GraphShard shard = GraphShard.read(file);
+        ShardWorker worker = new ShardWorker(shard);
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            out.writeInt(shard.part());
+            out.writeInt(shard.parts());
+            out.writeInt(shard.getNumberofVertices());
+            out.flush();
+            while (true) {
+                int command = in.readInt();
+                if (command == QUERY) {
+                    boolean bfs = in.readBoolean();
+                    worker.start(bfs, in.readInt());
+                } else if (command == ROUND) {
+                    worker.round(in, out);
+                } else if (command == COLLECT) {
+                    worker.collect(out);
+                } else if (command == SHUTDOWN) {
+                    return;
+                } else {
+                    throw new IllegalStateException("unknown command " + command);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("worker of part " + shard.part() + " failed", e);
+        }
+    }
+
+    // resets the search; the owner of the source starts from it in the first round
+    void start(boolean bfs, int source) {
+        unit = bfs;
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+        pq.clear();
+        for (int i = 0; i < dirtyCount; i++)
+            isDirty[dirty[i]] = false;
+        dirtyCount = 0;
+        int s = shard.local(source);
+        if (s >= 0 && !shard.isGhost(s)) {
+            distTo[s] = 0.0;
+            pq.insert(s, 0.0);
+        }
+    }
+
+    void round(DataInputStream in, DataOutputStream out) throws IOException {
+        int batches = in.readInt();
+        for (int b = 0; b < batches; b++) {
+            byte[] batch = new byte[in.readInt()];
+            in.readFully(batch);
+            receive(batch);
+        }
+        long relaxations = search();
+
+        // the improved ghosts in increasing order of global id, grouped by owner
+        Arrays.sort(dirty, 0, dirtyCount);
+        int parts = shard.parts();
+        int[] count = new int[parts + 1];
+        for (int i = 0; i < dirtyCount; i++)
+            count[shard.owner(dirty[i]) + 1]++;
+        for (int p = 0; p < parts; p++)
+            count[p + 1] += count[p];
+        int[] byOwner = new int[dirtyCount];
+        int[] next = Arrays.copyOf(count, parts);
+        for (int i = 0; i < dirtyCount; i++)
+            byOwner[next[shard.owner(dirty[i])]++] = dirty[i];
+
+        out.writeLong(relaxations);
+        int nonEmpty = 0;
+        for (int p = 0; p < parts; p++)
+            if (count[p + 1] > count[p]) nonEmpty++;
+        out.writeInt(nonEmpty);
+        for (int p = 0; p < parts; p++) {
+            if (count[p + 1] == count[p]) continue;
+            byte[] batch = encode(byOwner, count[p], count[p + 1]);
+            out.writeInt(p);
+            out.writeInt(count[p + 1] - count[p]);
+            out.writeInt(batch.length);
+            out.write(batch);
+        }
+        out.flush();
+        for (int i = 0; i < dirtyCount; i++)
+            isDirty[dirty[i]] = false;
+        dirtyCount = 0;
+    }
+
+    // Dijkstra's algorithm inside the shard; returns the number of ghost improvements
+    private long search() {
+        long relaxations = 0;
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            for (int e = shard.begin(v); e < shard.end(v); e++) {
+                int w = shard.target(e);
+                double weight = unit ? 1.0 : shard.weight(e);
+                double d = distTo[v] + weight;
+                if (d >= distTo[w]) continue;
+                distTo[w] = d;
+                parent[w] = shard.global(v);
+                parentWeight[w] = weight;
+                if (shard.isGhost(w)) {
+                    relaxations++;
+                    if (!isDirty[w]) {
+                        isDirty[w] = true;
+                        dirty[dirtyCount++] = w;
+                    }
+                } else if (pq.contains(w)) {
+                    pq.decreasePriority(w, d);
+                } else {
+                    pq.insert(w, d);
+                }
+            }
+        }
+        return relaxations;
+    }
+
+    private void receive(byte[] batch) {
+        int[] position = {0};
+        int n = readVarint(batch, position);
+        int vertex = 0;
+        for (int i = 0; i < n; i++) {
+            vertex += readVarint(batch, position);
+            int from = vertex + unzigzag(readVarint(batch, position));
+            double d, weight;
+            if (unit) {
+                d = readVarint(batch, position);
+                weight = 1.0;
+            } else {
+                d = Double.longBitsToDouble(readLong(batch, position));
+                weight = Double.longBitsToDouble(readLong(batch, position));
+            }
+            int v = shard.local(vertex);
+            if (v < 0 || shard.isGhost(v))
+                throw new IllegalStateException("part " + shard.part() + " does not own vertex " + vertex);
+            if (d >= distTo[v]) continue;
+            distTo[v] = d;
+            parent[v] = from;
+            parentWeight[v] = weight;
+            if (pq.contains(v)) pq.decreasePriority(v, d);
+            else pq.insert(v, d);
+        }
+    }
+
+    // the ghosts ghosts[lo .. hi - 1] with their distances, parents and parent edge weights
+    private byte[] encode(int[] ghosts, int lo, int hi) {
+        byte[] batch = new byte[5 + (hi - lo) * (unit ? 15 : 26)];
+        int[] position = {0};
+        writeVarint(batch, position, hi - lo);
+        int previous = 0;
+        for (int i = lo; i < hi; i++) {
+            int g = ghosts[i], vertex = shard.global(g);
+            writeVarint(batch, position, vertex - previous);
+            writeVarint(batch, position, zigzag(parent[g] - vertex));
+            if (unit) {
+                writeVarint(batch, position, (int) distTo[g]);
+            } else {
+                writeLong(batch, position, Double.doubleToLongBits(distTo[g]));
+                writeLong(batch, position, Double.doubleToLongBits(parentWeight[g]));
+            }
+            previous = vertex;
+        }
+        return Arrays.copyOf(batch, position[0]);
+    }
+
+    void collect(DataOutputStream out) throws IOException {
+        int reached = 0;
+        for (int v = 0; v < shard.ownedVertices(); v++)
+            if (distTo[v] < Double.POSITIVE_INFINITY) reached++;
+        out.writeInt(reached);
+        for (int v = 0; v < shard.ownedVertices(); v++) {
+            if (distTo[v] == Double.POSITIVE_INFINITY) continue;
+            out.writeInt(shard.global(v));
+            out.writeDouble(distTo[v]);
+            out.writeInt(parent[v]);
+            out.writeDouble(parentWeight[v]);
+        }
+        out.flush();
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(byte[] buffer, int[] position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position[0]++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position[0]++] = (byte) value;
+    }
+
+    private static int readVarint(byte[] buffer, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    private static void writeLong(byte[] buffer, int[] position, long value) {
+        for (int i = 0; i < 8; i++)
+            buffer[position[0]++] = (byte) (value >>> (8 * i));
+    }
+
+    private static long readLong(byte[] buffer, int[] position) {
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+            value |= (buffer[position[0]++] & 0xFFL) << (8 * i);
+        return value;
+    }
+
+    public static void main(String[] args) {
+        run(args[0], Integer.parseInt(args[1]), Paths.get(args[2]));
+    }
+}
@@ -0,0 +1,411 @@
+/******************************************************************************
+ *  An off-heap, memory-bounded cache of point-to-point distances with
+ *  TinyLFU admission and segmented-LRU eviction.
+ *
+ *  % java ShortestPathCache 10000 80000 1000000
+ ******************************************************************************/
+
+import util.StdOut;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+/**
+ * The {ShortestPathCache} class memoizes the answers of a {DistanceOracle} for skewed query mixes.
+ * <p>
+ * Keys are the primitive long (s << 32 | t); a distance is stored as the raw bits of its double.
+ * Entries are 32-byte records in a direct (off-heap) {ByteBuffer}: key, value, the two links of the
+ * LRU list the entry is on, and its segment. A second direct buffer is an open-addressed (linear probing)
+ * index from key to entry, with backward-shift deletion instead of tombstones. Both are sized once from the
+ * memory budget, up to Integer.MAX_VALUE / 32 entries (about 2.7 GB in all), so the cache never allocates on
+ * the Java heap after construction and does not add to GC work.
+ * <p>
+ * Eviction is segmented LRU: new entries go to the probation segment, a hit on a probation entry promotes it
+ * to the protected segment (at most 80% of the entries), and the protected tail is demoted back to probation.
+ * Admission is TinyLFU: the query frequencies are estimated by a count-min sketch of 4-bit counters that
+ * is halved every 10 * capacity queries, and when the cache is full a new entry only replaces the probation
+ * victim if it has been asked for more often. One-off queries therefore cannot flush the hot set.
+ * <p>
+ * All operations take expected constant time and are serialized by the cache's monitor. The oracle, which need
+ * not be thread-safe (a {BidirectionalDijkstra} is not), is called one miss at a time under a separate lock, so
+ * hits are not held up by a search; its answer is not cached if an invalidation ran meanwhile, as it may predate
+ * the change.
+ * Hits, misses, admissions, rejections, evictions and invalidations are counted.
+ * When the graph changes, call {#invalidateAll()} (e.g. as a {BidirectionalDijkstra} change listener)
+ * or {#invalidateIf(LongPredicate)} for a finer-grained invalidation.
+ */
+public class ShortestPathCache implements DistanceOracle {
+    private static final int ENTRY_BYTES = 32;
+    private static final int KEY = 0, VALUE = 8, PREV = 16, NEXT = 20, SEGMENT = 24;
+    private static final int FREE = 0, PROBATION = 1, PROTECTED = 2;
+    private static final int NIL = -1;
+
+    private final DistanceOracle oracle;
+    private final Object oracleLock = new Object();   // serializes the oracle calls, which need not be thread-safe
+    private final int capacity;            // maximum number of entries
+    private final int protectedCapacity;   // maximum number of entries in the protected segment
+    private final ByteBuffer entries;      // capacity entries of ENTRY_BYTES bytes
+    private final ByteBuffer index;        // index slot -> entry + 1, 0 if empty
+    private final int indexMask;
+    private final FrequencySketch sketch;
+
+    private int size, protectedSize;
+    private int freeList = NIL;                         // unused entries, linked through NEXT
+    private long generation;                            // number of invalidations so far
+    private final int[] head = {NIL, NIL, NIL};         // head[segment] = most recently used entry
+    private final int[] tail = {NIL, NIL, NIL};         // tail[segment] = least recently used entry
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Creates a cache in front of {oracle} that uses at most about {memoryBytes} bytes of off-heap memory.
+     */
+    public ShortestPathCache(DistanceOracle oracle, long memoryBytes) {
+        if (oracle == null) throw new IllegalArgumentException("oracle is null");
+        // an entry costs ENTRY_BYTES plus two 4-byte index slots (the index is kept at most half full)
+        long n = memoryBytes / (ENTRY_BYTES + 8);
+        if (n < 4) throw new IllegalArgumentException("memory budget too small");
+        // every entry offset, and the 4-byte offsets of the at most 2 * capacity index slots, fit in an int
+        capacity = (int) Math.min(n, Integer.MAX_VALUE / ENTRY_BYTES);
+        protectedCapacity = (int) (0.8 * capacity);
+        entries = ByteBuffer.allocateDirect(capacity * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+        int slots = Integer.highestOneBit(2 * capacity - 1) << 1;
+        index = ByteBuffer.allocateDirect(slots * 4).order(ByteOrder.nativeOrder());
+        indexMask = slots - 1;
+        sketch = new FrequencySketch(capacity);
+        for (int e = capacity - 1; e >= 0; e--) {
+            entries.putInt(e * ENTRY_BYTES + NEXT, freeList);
+            freeList = e;
+        }
+        this.oracle = oracle;
+    }
+
+    private static long key(int s, int t) {
+        return ((long) s << 32) | (t & 0xffffffffL);
+    }
+
+    /**
+     * Returns the distance from {s} to {t}, asking the oracle on a miss.
+     */
+    public double distance(int s, int t) {
+        long key = key(s, t);
+        long seen;
+        synchronized (this) {
+            seen = generation;
+            sketch.increment(key);
+            int e = find(key);
+            if (e != NIL) {
+                hits.increment();
+                onHit(e);
+                return Double.longBitsToDouble(entries.getLong(e * ENTRY_BYTES + VALUE));
+            }
+        }
+        misses.increment();
+        double d;
+        synchronized (oracleLock) {
+            d = oracle.distance(s, t);
+        }
+        synchronized (this) {
+            // an invalidation while the oracle ran may have made d stale
+            if (generation == seen) put(key, Double.doubleToRawLongBits(d));
+        }
+        return d;
+    }
+
+    /**
+     * Removes the cached distance from {s} to {t}, if any.
+     */
+    public synchronized void invalidate(int s, int t) {
+        generation++;
+        int e = find(key(s, t));
+        if (e != NIL) {
+            remove(e);
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Removes every cached distance whose key (s << 32 | t) satisfies {predicate}; takes time proportional to the capacity.
+     */
+    public synchronized void invalidateIf(LongPredicate predicate) {
+        generation++;
+        for (int e = 0; e < capacity; e++) {
+            if (segment(e) != FREE && predicate.test(entries.getLong(e * ENTRY_BYTES + KEY))) {
+                remove(e);
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes every cached distance, e.g. after an edge update.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations.add(size);
+        for (int slot = 0; slot <= indexMask; slot++)
+            index.putInt(slot * 4, 0);
+        freeList = NIL;
+        for (int e = capacity - 1; e >= 0; e--) {
+            entries.putInt(e * ENTRY_BYTES + SEGMENT, FREE);
+            entries.putInt(e * ENTRY_BYTES + NEXT, freeList);
+            freeList = e;
+        }
+        for (int segment = 0; segment < 3; segment++)
+            head[segment] = tail[segment] = NIL;
+        size = protectedSize = 0;
+    }
+
+    private void onHit(int e) {
+        unlink(e);
+        if (segment(e) == PROBATION) {
+            setSegment(e, PROTECTED);
+            protectedSize++;
+            if (protectedSize > protectedCapacity) {
+                int demoted = tail[PROTECTED];
+                unlink(demoted);
+                setSegment(demoted, PROBATION);
+                protectedSize--;
+                linkFirst(demoted);
+            }
+        }
+        linkFirst(e);
+    }
+
+    private void put(long key, long value) {
+        int e = find(key);
+        if (e != NIL) {  // another thread got here first
+            entries.putLong(e * ENTRY_BYTES + VALUE, value);
+            return;
+        }
+        if (size == capacity) {
+            int victim = tail[PROBATION] != NIL ? tail[PROBATION] : tail[PROTECTED];
+            long victimKey = entries.getLong(victim * ENTRY_BYTES + KEY);
+            if (sketch.frequency(key) <= sketch.frequency(victimKey)) {
+                rejections.increment();
+                return;
+            }
+            remove(victim);
+            evictions.increment();
+        }
+        e = freeList;
+        freeList = entries.getInt(e * ENTRY_BYTES + NEXT);
+        entries.putLong(e * ENTRY_BYTES + KEY, key);
+        entries.putLong(e * ENTRY_BYTES + VALUE, value);
+        setSegment(e, PROBATION);
+        linkFirst(e);
+        size++;
+        int slot = slotOf(key);
+        while (index.getInt(slot * 4) != 0)
+            slot = (slot + 1) & indexMask;
+        index.putInt(slot * 4, e + 1);
+        admissions.increment();
+    }
+
+    private int find(long key) {
+        for (int slot = slotOf(key); ; slot = (slot + 1) & indexMask) {
+            int e = index.getInt(slot * 4) - 1;
+            if (e == NIL) return NIL;
+            if (entries.getLong(e * ENTRY_BYTES + KEY) == key) return e;
+        }
+    }
+
+    private void remove(int e) {
+        long key = entries.getLong(e * ENTRY_BYTES + KEY);
+        int slot = slotOf(key);
+        while (index.getInt(slot * 4) != e + 1)
+            slot = (slot + 1) & indexMask;
+        // backward-shift deletion: move later entries of the probe run into the hole
+        int hole = slot;
+        for (int next = (hole + 1) & indexMask; ; next = (next + 1) & indexMask) {
+            int f = index.getInt(next * 4) - 1;
+            if (f == NIL) break;
+            int home = slotOf(entries.getLong(f * ENTRY_BYTES + KEY));
+            if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+                index.putInt(hole * 4, f + 1);
+                hole = next;
+            }
+        }
+        index.putInt(hole * 4, 0);
+
+        unlink(e);
+        if (segment(e) == PROTECTED) protectedSize--;
+        setSegment(e, FREE);
+        entries.putInt(e * ENTRY_BYTES + NEXT, freeList);
+        freeList = e;
+        size--;
+    }
+
+    private int slotOf(long key) {
+        return (int) FrequencySketch.spread(key) & indexMask;
+    }
+
+    private int segment(int e) {
+        return entries.getInt(e * ENTRY_BYTES + SEGMENT);
+    }
+
+    private void setSegment(int e, int segment) {
+        entries.putInt(e * ENTRY_BYTES + SEGMENT, segment);
+    }
+
+    // put e at the head of the list of its segment
+    private void linkFirst(int e) {
+        int segment = segment(e);
+        int first = head[segment];
+        entries.putInt(e * ENTRY_BYTES + PREV, NIL);
+        entries.putInt(e * ENTRY_BYTES + NEXT, first);
+        if (first != NIL) entries.putInt(first * ENTRY_BYTES + PREV, e);
+        else tail[segment] = e;
+        head[segment] = e;
+    }
+
+    // take e out of the list of its segment
+    private void unlink(int e) {
+        int segment = segment(e);
+        int prev = entries.getInt(e * ENTRY_BYTES + PREV);
+        int next = entries.getInt(e * ENTRY_BYTES + NEXT);
+        if (prev != NIL) entries.putInt(prev * ENTRY_BYTES + NEXT, next);
+        else head[segment] = next;
+        if (next != NIL) entries.putInt(next * ENTRY_BYTES + PREV, prev);
+        else tail[segment] = prev;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public double hitRate() {
+        long h = hits(), m = misses();
+        return h + m == 0 ? 0.0 : (double) h / (h + m);
+    }
+
+    public long admissions() {
+        return admissions.sum();
+    }
+
+    public long rejections() {
+        return rejections.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public long invalidations() {
+        return invalidations.sum();
+    }
+
+    public String toString() {
+        return String.format("size=%d/%d hits=%d misses=%d hitRate=%.3f admitted=%d rejected=%d evicted=%d invalidated=%d",
+                size(), capacity, hits(), misses(), hitRate(), admissions(), rejections(), evictions(), invalidations());
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters (4 rows, 16 counters per long), halved periodically so that
+     * the estimates follow recent popularity.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private final long[] table;
+        private final int counterMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int longs = Math.max(1, Integer.highestOneBit(Math.max(1, capacity) - 1) << 1);
+            table = new long[longs];
+            counterMask = 16 * longs - 1;
+            sampleSize = 10 * Math.max(1, capacity);
+        }
+
+        static long spread(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            key *= 0xc4ceb9fe1a85ec53L;
+            key ^= key >>> 33;
+            return key;
+        }
+
+        private int counterIndex(long hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & counterMask;
+        }
+
+        int frequency(long key) {
+            long hash = spread(key);
+            int min = 15;
+            for (int row = 0; row < 4; row++) {
+                int i = counterIndex(hash, row);
+                int count = (int) ((table[i >>> 4] >>> ((i & 15) << 2)) & 0xf);
+                min = Math.min(min, count);
+            }
+            return min;
+        }
+
+        void increment(long key) {
+            long hash = spread(key);
+            for (int row = 0; row < 4; row++) {
+                int i = counterIndex(hash, row);
+                int shift = (i & 15) << 2;
+                if (((table[i >>> 4] >>> shift) & 0xf) < 15) table[i >>> 4] += 1L << shift;
+            }
+            if (++additions == sampleSize) {
+                for (int j = 0; j < table.length; j++)
+                    table[j] = (table[j] >>> 1) & 0x7777777777777777L;
+                additions /= 2;
+            }
+        }
+    }
+
+    /**
+     * Answers Zipf-distributed queries on a random digraph through a small cache and prints the statistics.
+     */
+    public static void main(String[] args) {
+        int V = Integer.parseInt(args[0]);
+        int E = Integer.parseInt(args[1]);
+        int queries = Integer.parseInt(args[2]);
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(V, E);
+        StripedSearchMetrics metrics = new StripedSearchMetrics("BidirectionalDijkstra");
+        BidirectionalDijkstra engine = new BidirectionalDijkstra(G, metrics);
+        ShortestPathCache cache = new ShortestPathCache(engine, 1 << 20);
+        engine.addChangeListener(cache::invalidateAll);
+
+        // a skewed mix: pair i is asked with probability proportional to 1 / (i + 1)
+        int pairs = 100 * cache.capacity();
+        double[] cumulative = new double[pairs];
+        double sum = 0.0;
+        for (int i = 0; i < pairs; i++)
+            cumulative[i] = sum += 1.0 / (i + 1);
+        Random random = new Random(42);
+        for (int q = 0; q < queries; q++) {
+            int i = java.util.Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            if (i < 0) i = -i - 1;
+            long pair = FrequencySketch.spread(i);
+            cache.distance((int) Math.floorMod(pair, (long) V), (int) Math.floorMod(pair >>> 32, (long) V));
+        }
+        StdOut.println(cache);
+        StdOut.println(metrics);
+    }
+}
@@ -0,0 +1,116 @@
+/******************************************************************************
+ *  A thread-safe SearchMetrics that sums the reports of many runs.
+ ******************************************************************************/
+
+import util.StdOut;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {StripedSearchMetrics} class collects {SearchMetrics} reports from any number of threads.
+ * Every counter is a {LongAdder}, which stripes its value over per-thread cells, so concurrent queries
+ * do not contend on a single cache line; the maximum query time is kept in a {LongAccumulator}.
+ * Reading a counter sums the cells and is only weakly consistent while queries are running.
+ */
+public class StripedSearchMetrics implements SearchMetrics {
+    private final String name;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder edgesRelaxed = new LongAdder();
+    private final LongAdder pqInserts = new LongAdder();
+    private final LongAdder pqDecreaseKeys = new LongAdder();
+    private final LongAdder pqPops = new LongAdder();
+    private final LongAdder verticesSettled = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public StripedSearchMetrics(String name) {
+        this.name = name;
+    }
+
+    public boolean isEnabled() {
+        return true;
+    }
+
+    public void record(long edgesRelaxed, long pqInserts, long pqDecreaseKeys, long pqPops,
+                       long verticesSettled, long nanos) {
+        runs.increment();
+        this.edgesRelaxed.add(edgesRelaxed);
+        this.pqInserts.add(pqInserts);
+        this.pqDecreaseKeys.add(pqDecreaseKeys);
+        this.pqPops.add(pqPops);
+        this.verticesSettled.add(verticesSettled);
+        this.nanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long runs() {
+        return runs.sum();
+    }
+
+    public long edgesRelaxed() {
+        return edgesRelaxed.sum();
+    }
+
+    public long pqInserts() {
+        return pqInserts.sum();
+    }
+
+    public long pqDecreaseKeys() {
+        return pqDecreaseKeys.sum();
+    }
+
+    public long pqPops() {
+        return pqPops.sum();
+    }
+
+    public long verticesSettled() {
+        return verticesSettled.sum();
+    }
+
+    public long totalNanos() {
+        return nanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    public double meanNanos() {
+        long n = runs();
+        return n == 0 ? 0.0 : (double) totalNanos() / n;
+    }
+
+    public void reset() {
+        runs.reset();
+        edgesRelaxed.reset();
+        pqInserts.reset();
+        pqDecreaseKeys.reset();
+        pqPops.reset();
+        verticesSettled.reset();
+        nanos.reset();
+        maxNanos.reset();
+    }
+
+    public String toString() {
+        return String.format("%s: runs=%d relaxed=%d inserts=%d decreaseKeys=%d pops=%d settled=%d mean=%.1fus max=%.1fus",
+                name, runs(), edgesRelaxed(), pqInserts(), pqDecreaseKeys(), pqPops(), verticesSettled(),
+                meanNanos() / 1e3, maxNanos() / 1e3);
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from every vertex of a random digraph on several threads and prints the totals.
+     */
+    public static void main(String[] args) {
+        int V = Integer.parseInt(args[0]);
+        int E = Integer.parseInt(args[1]);
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(V, E);
+        StripedSearchMetrics metrics = new StripedSearchMetrics("DijkstraSP");
+        java.util.stream.IntStream.range(0, V).parallel().forEach(s -> new DijkstraSP(G, s, metrics));
+        StdOut.println(metrics);
+    }
+}
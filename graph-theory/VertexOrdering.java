@@ -0,0 +1,383 @@
+/******************************************************************************
+ *  Locality-improving vertex relabelling: BFS order, Reverse Cuthill-McKee,
+ *  degree-sorted and a Gorder-like greedy window order.
+ *
+ *  % java VertexOrdering mediumEWG.txt
+ ******************************************************************************/
+
+import util.In;
+import util.StdOut;
+
+import java.util.PriorityQueue;
+
+/**
+ * The {VertexOrdering} class is a permutation of the vertices 0 through V - 1 that places vertices which are
+ * adjacent close to each other, together with methods that rebuild a graph under the new ids and translate
+ * results back to the original ids.
+ * <p>
+ * Vertex ids that follow the input order make {distTo[]}, {marked[]} and friends be accessed at random
+ * positions while scanning neighbours; after relabelling, the neighbours of a vertex tend to share cache lines.
+ * The rebuilt graphs also list the neighbours of every vertex in increasing id order.
+ * <p>
+ * The orderings are computed on the undirected neighbour structure of the graph, given as a symmetric
+ * {CSRDigraph} (see the {neighbours} methods):
+ * 1. {#bfs}: breadth-first order, component by component, starting at a minimum-degree vertex;
+ * 2. {#reverseCuthillMcKee}: BFS from a pseudo-peripheral vertex, visiting neighbours by increasing degree,
+ *    then reversed; it minimises the bandwidth of the adjacency matrix;
+ * 3. {#degreeSorted}: vertices by decreasing degree, which packs the hubs together;
+ * 4. {#gorder}: a light version of Gorder that greedily appends the vertex with most edges into the last
+ *    {window} placed vertices (direct edges only, no shared-neighbour term).
+ * BFS, RCM and degree orderings take O(V + E) time (plus sorting neighbours by degree for RCM);
+ * the Gorder-like ordering takes O(E log E) time.
+ */
+public class VertexOrdering {
+    private final int[] newId;   // newId[v] = id of original vertex v in the relabelled graph
+    private final int[] oldId;   // oldId[i] = original id of vertex i of the relabelled graph
+
+    /**
+     * Creates the ordering that places original vertex order[i] at position i.
+     */
+    public VertexOrdering(int[] order) {
+        int V = order.length;
+        oldId = order.clone();
+        newId = new int[V];
+        java.util.Arrays.fill(newId, -1);
+        for (int i = 0; i < V; i++) {
+            if (order[i] < 0 || order[i] >= V || newId[order[i]] != -1)
+                throw new IllegalArgumentException("not a permutation");
+            newId[order[i]] = i;
+        }
+    }
+
+    public int newId(int v) {
+        return newId[v];
+    }
+
+    public int oldId(int v) {
+        return oldId[v];
+    }
+
+    /**
+     * Translates per-vertex results computed on the relabelled graph back to the original ids.
+     */
+    public double[] toOriginal(double[] values) {
+        double[] result = new double[values.length];
+        for (int v = 0; v < values.length; v++)
+            result[v] = values[newId[v]];
+        return result;
+    }
+
+    /**
+     * Translates per-vertex results computed on the relabelled graph back to the original ids.
+     * Values that are vertex ids themselves (e.g. parent pointers) are not translated.
+     */
+    public int[] toOriginal(int[] values) {
+        int[] result = new int[values.length];
+        for (int v = 0; v < values.length; v++)
+            result[v] = values[newId[v]];
+        return result;
+    }
+
+    public EdgeWeightedDigraph relabel(EdgeWeightedDigraph G) {
+        int V = G.getNumberofVertices(), E = G.getNumberOfEdges();
+        int[] from = new int[E], to = new int[E];
+        double[] weight = new double[E];
+        int i = 0;
+        for (DirectedEdge e : G.edges()) {
+            from[i] = newId[e.from()];
+            to[i] = newId[e.to()];
+            weight[i++] = e.weight();
+        }
+        // Bag prepends, so add the edges by decreasing head to list each vertex's edges by increasing head
+        EdgeWeightedDigraph H = new EdgeWeightedDigraph(V);
+        for (int k : sortDescending(to, V))
+            H.addEdge(new DirectedEdge(from[k], to[k], weight[k]));
+        return H;
+    }
+
+    public EdgeWeightedGraph relabel(EdgeWeightedGraph G) {
+        int V = G.getNumberOfVertices(), E = G.getNumberOfEdges();
+        int[] low = new int[E], high = new int[E];
+        double[] weight = new double[E];
+        int i = 0;
+        for (Edge e : G.edges()) {
+            int v = newId[e.either()], w = newId[e.edgeOtherVertex(e.either())];
+            low[i] = Math.min(v, w);
+            high[i] = Math.max(v, w);
+            weight[i++] = e.weight();
+        }
+        EdgeWeightedGraph H = new EdgeWeightedGraph(V);
+        for (int k : sortDescending(high, low, V))
+            H.addEdge(new Edge(low[k], high[k], weight[k]));
+        return H;
+    }
+
+    public UndirectedGraph relabel(UndirectedGraph G) {
+        int V = G.getNumberOfVertices(), E = G.E();
+        int[] low = new int[E], high = new int[E];
+        int i = 0;
+        for (int v = 0; v < V; v++) {
+            int selfLoops = 0;
+            for (int w : G.getAdjacencyList(v)) {
+                // each edge is listed at both endpoints and each self loop twice at its vertex
+                if (w < v || (w == v && selfLoops++ % 2 == 1)) continue;
+                low[i] = Math.min(newId[v], newId[w]);
+                high[i++] = Math.max(newId[v], newId[w]);
+            }
+        }
+        UndirectedGraph H = new UndirectedGraph(V);
+        for (int k : sortDescending(high, low, V))
+            H.addEdge(low[k], high[k]);
+        return H;
+    }
+
+    // edge indices by decreasing key; stable
+    private static int[] sortDescending(int[] key, int V) {
+        int n = key.length;
+        int[] count = new int[V + 1];
+        for (int k : key)
+            count[V - 1 - k + 1]++;
+        for (int r = 0; r < V; r++)
+            count[r + 1] += count[r];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[count[V - 1 - key[i]]++] = i;
+        return order;
+    }
+
+    // edge indices by decreasing (primary, secondary)
+    private static int[] sortDescending(int[] primary, int[] secondary, int V) {
+        int[] bySecondary = sortDescending(secondary, V);
+        int[] permuted = new int[primary.length];
+        for (int i = 0; i < permuted.length; i++)
+            permuted[i] = primary[bySecondary[i]];
+        int[] order = sortDescending(permuted, V);
+        for (int i = 0; i < order.length; i++)
+            order[i] = bySecondary[order[i]];
+        return order;
+    }
+
+    /**
+     * Returns the undirected neighbour structure of {G}: v->w and w->v for every edge v->w.
+     */
+    public static CSRDigraph neighbours(EdgeWeightedDigraph G) {
+        return PregelEngine.symmetric(new CSRDigraph(G));
+    }
+
+    public static CSRDigraph neighbours(UndirectedGraph G) {
+        int V = G.getNumberOfVertices();
+        int[] from = new int[2 * G.E()], to = new int[2 * G.E()];
+        int i = 0;
+        for (int v = 0; v < V; v++) {
+            for (int w : G.getAdjacencyList(v)) {
+                from[i] = v;
+                to[i++] = w;
+            }
+        }
+        return new CSRDigraph(V, java.util.Arrays.copyOf(from, i), java.util.Arrays.copyOf(to, i), null);
+    }
+
+    public static CSRDigraph neighbours(EdgeWeightedGraph G) {
+        int V = G.getNumberOfVertices();
+        int[] from = new int[2 * G.getNumberOfEdges()], to = new int[2 * G.getNumberOfEdges()];
+        int i = 0;
+        for (int v = 0; v < V; v++) {
+            for (Edge e : G.getAdjacenyEdges(v)) {
+                from[i] = v;
+                to[i++] = e.edgeOtherVertex(v);
+            }
+        }
+        return new CSRDigraph(V, java.util.Arrays.copyOf(from, i), java.util.Arrays.copyOf(to, i), null);
+    }
+
+    /**
+     * Breadth-first order; every component starts at its first minimum-degree vertex.
+     */
+    public static VertexOrdering bfs(CSRDigraph N) {
+        return new VertexOrdering(search(N, false));
+    }
+
+    /**
+     * Reverse Cuthill-McKee order.
+     */
+    public static VertexOrdering reverseCuthillMcKee(CSRDigraph N) {
+        int[] order = search(N, true);
+        for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return new VertexOrdering(order);
+    }
+
+    // BFS over all components; with cuthillMcKee, start at a pseudo-peripheral vertex and visit neighbours by degree
+    private static int[] search(CSRDigraph N, boolean cuthillMcKee) {
+        int V = N.getNumberofVertices();
+        int[] order = new int[V];
+        boolean[] marked = new boolean[V];
+        int[] byDegree = degreeOrder(N, false);
+        int tail = 0;
+        for (int root : byDegree) {
+            if (marked[root]) continue;
+            int start = cuthillMcKee ? pseudoPeripheral(N, root) : root;
+            int head = tail;
+            order[tail++] = start;
+            marked[start] = true;
+            while (head < tail) {
+                int v = order[head++];
+                int first = tail;
+                for (int e = N.begin(v); e < N.end(v); e++) {
+                    int w = N.target(e);
+                    if (!marked[w]) {
+                        marked[w] = true;
+                        order[tail++] = w;
+                    }
+                }
+                if (cuthillMcKee) sortByDegree(N, order, first, tail);
+            }
+        }
+        return order;
+    }
+
+    // insertion sort of a[lo .. hi - 1] by degree; neighbour lists are short
+    private static void sortByDegree(CSRDigraph N, int[] a, int lo, int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            int v = a[i], d = N.outdegree(v), j = i;
+            for (; j > lo && N.outdegree(a[j - 1]) > d; j--)
+                a[j] = a[j - 1];
+            a[j] = v;
+        }
+    }
+
+    // George-Liu: repeat BFS from the farthest minimum-degree vertex while the eccentricity grows
+    private static int pseudoPeripheral(CSRDigraph N, int root) {
+        int V = N.getNumberofVertices();
+        int[] distance = new int[V];
+        int[] queue = new int[V];
+        int eccentricity = -1;
+        for (int round = 0; round < 8; round++) {
+            java.util.Arrays.fill(distance, -1);
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            distance[root] = 0;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int e = N.begin(v); e < N.end(v); e++) {
+                    int w = N.target(e);
+                    if (distance[w] < 0) {
+                        distance[w] = distance[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            int farthest = queue[tail - 1];
+            for (int i = tail - 1; i >= 0 && distance[queue[i]] == distance[farthest]; i--)
+                if (N.outdegree(queue[i]) < N.outdegree(farthest)) farthest = queue[i];
+            if (distance[farthest] <= eccentricity) break;
+            eccentricity = distance[farthest];
+            root = farthest;
+        }
+        return root;
+    }
+
+    /**
+     * Vertices by decreasing degree (ties by id).
+     */
+    public static VertexOrdering degreeSorted(CSRDigraph N) {
+        return new VertexOrdering(degreeOrder(N, true));
+    }
+
+    // counting sort of the vertices by degree
+    private static int[] degreeOrder(CSRDigraph N, boolean decreasing) {
+        int V = N.getNumberofVertices();
+        int max = 0;
+        for (int v = 0; v < V; v++)
+            max = Math.max(max, N.outdegree(v));
+        int[] count = new int[max + 2];
+        for (int v = 0; v < V; v++)
+            count[(decreasing ? max - N.outdegree(v) : N.outdegree(v)) + 1]++;
+        for (int d = 0; d <= max; d++)
+            count[d + 1] += count[d];
+        int[] order = new int[V];
+        for (int v = 0; v < V; v++)
+            order[count[decreasing ? max - N.outdegree(v) : N.outdegree(v)]++] = v;
+        return order;
+    }
+
+    /**
+     * Gorder-like greedy order: the next vertex is the unplaced one with most edges into the
+     * last {window} placed vertices; if there is none, the unplaced vertex of highest degree.
+     */
+    public static VertexOrdering gorder(CSRDigraph N, int window) {
+        if (window < 1) throw new IllegalArgumentException("window must be positive");
+        int V = N.getNumberofVertices();
+        int[] order = new int[V];
+        int[] score = new int[V];
+        boolean[] placed = new boolean[V];
+        int[] byDegree = degreeOrder(N, true);
+        int nextByDegree = 0;
+        // (score << 32 | vertex), largest first; stale entries are skipped when popped
+        PriorityQueue<Long> heap = new PriorityQueue<>(java.util.Collections.reverseOrder());
+        for (int i = 0; i < V; i++) {
+            int v = -1;
+            while (!heap.isEmpty()) {
+                long top = heap.poll();
+                int u = (int) top;
+                if (!placed[u] && score[u] == (int) (top >>> 32)) {
+                    v = u;
+                    break;
+                }
+            }
+            if (v < 0) {
+                while (placed[byDegree[nextByDegree]]) nextByDegree++;
+                v = byDegree[nextByDegree];
+            }
+            order[i] = v;
+            placed[v] = true;
+            // v enters the window, order[i - window] leaves it
+            for (int e = N.begin(v); e < N.end(v); e++) {
+                int w = N.target(e);
+                if (placed[w]) continue;
+                score[w]++;
+                heap.add(((long) score[w] << 32) | w);
+            }
+            if (i >= window) {
+                int old = order[i - window];
+                for (int e = N.begin(old); e < N.end(old); e++) {
+                    int w = N.target(e);
+                    if (placed[w]) continue;
+                    score[w]--;
+                    if (score[w] > 0) heap.add(((long) score[w] << 32) | w);
+                }
+            }
+        }
+        return new VertexOrdering(order);
+    }
+
+    /**
+     * Returns the average of |newId(v) - newId(w)| over the edges v-w of {N}: a locality measure, smaller is better.
+     */
+    public double averageEdgeSpan(CSRDigraph N) {
+        long sum = 0;
+        for (int v = 0; v < N.getNumberofVertices(); v++)
+            for (int e = N.begin(v); e < N.end(v); e++)
+                sum += Math.abs(newId[v] - newId[N.target(e)]);
+        return N.getNumberOfEdges() == 0 ? 0.0 : (double) sum / N.getNumberOfEdges();
+    }
+
+    /**
+     * Reads an edge-weighted graph and prints the average edge span of every ordering.
+     */
+    public static void main(String[] args) {
+        EdgeWeightedGraph G = new EdgeWeightedGraph(new In(args[0]));
+        CSRDigraph N = neighbours(G);
+        int[] identity = new int[N.getNumberofVertices()];
+        for (int v = 0; v < identity.length; v++)
+            identity[v] = v;
+        StdOut.printf("%-10s %10.2f\n", "input", new VertexOrdering(identity).averageEdgeSpan(N));
+        StdOut.printf("%-10s %10.2f\n", "bfs", bfs(N).averageEdgeSpan(N));
+        StdOut.printf("%-10s %10.2f\n", "rcm", reverseCuthillMcKee(N).averageEdgeSpan(N));
+        StdOut.printf("%-10s %10.2f\n", "degree", degreeSorted(N).averageEdgeSpan(N));
+        StdOut.printf("%-10s %10.2f\n", "gorder", gorder(N, 5).averageEdgeSpan(N));
+    }
+}
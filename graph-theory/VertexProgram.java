@@ -0,0 +1,39 @@
+/******************************************************************************
+ *  A vertex-centric program run by the PregelEngine.
+ ******************************************************************************/
+
+/**
+ * The {VertexProgram} interface describes one iterative computation for {PregelEngine}.
+ * Every vertex holds one double value. In each superstep every vertex receives one message along each of its
+ * incoming edges, computed from the sender's value by {#message}; the messages are folded with {#combine}
+ * (starting from {#identity()}) and the vertex computes its new value with {#apply}.
+ * A global {#aggregate} over all vertices of the previous superstep is passed to {#apply}, e.g. the rank mass of
+ * dangling vertices in PageRank. The computation halts when no vertex {#changed} or after the maximum number of supersteps.
+ * <p>
+ * Implementations must be stateless (or at least thread-safe): the engine calls them from several threads at once.
+ */
+public interface VertexProgram {
+
+    // value of vertex v before the first superstep
+    double initialValue(int v, int V);
+
+    // the neutral element of combine()
+    double identity();
+
+    // folds two messages into one; must be associative and commutative
+    double combine(double a, double b);
+
+    // the message sent from vertex from (with the given value and outdegree) along an edge of the given weight
+    double message(int from, double value, int outdegree, double weight);
+
+    // the new value of vertex v given its old value, the combined incoming messages and the aggregate
+    double apply(int v, double value, double combined, double aggregate, int V);
+
+    // the contribution of vertex v to the aggregate; the default contributes nothing
+    default double aggregate(int v, double value, int outdegree) {
+        return 0.0;
+    }
+
+    // did the value of a vertex change enough to keep the computation going?
+    boolean changed(double oldValue, double newValue);
+}
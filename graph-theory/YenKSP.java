@@ -0,0 +1,336 @@
+/******************************************************************************
+ *  Yen's algorithm for the k shortest loopless paths between two vertices,
+ *  with Lawler's optimisation and parallel spur searches.
+ *  Assumes all weights are nonnegative.
+ *
+ *  % java YenKSP tinyEWD.txt 0 6 5
+ ******************************************************************************/
+
+import util.In;
+import util.IndexDaryMinPQ;
+import util.StdOut;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * The {YenKSP} class finds the k shortest loopless (simple) paths from s to t in an edge-weighted digraph with
+ * non-negative weights, in increasing order of weight; {#path(0)} is a shortest path like
+ * {DijkstraSP#pathTo(int)}. Paths are computed on demand, so asking for path(k) does the work for paths 0 .. k
+ * only once.
+ * <p>
+ * Every new path is a "spur": it follows an accepted path P up to some vertex and then takes a shortest path to
+ * t that avoids the vertices already used and the next edges of all accepted paths sharing that prefix
+ * (Yen's algorithm). With Lawler's optimisation only spurs at or after the point where P itself left its parent
+ * are searched, since the earlier ones were searched for the parent already.
+ * <p>
+ * The spur searches of one path are independent and run in parallel on large digraphs. Each thread reuses its
+ * own arrays: the distances are reset only where they were touched, and removed vertices and edges are marked
+ * with a search number rather than cleared, so a spur search allocates nothing but its result. The searches
+ * are A* searches guided by the exact distances to t in the whole digraph (one reverse Dijkstra up front);
+ * removing vertices and edges can only make distances longer, so these are valid lower bounds.
+ * <p>
+ * Paths are kept as arrays of edge ids of a {CSRDigraph} copy and turned into {DirectedEdge} objects only while
+ * they are iterated. This class is not thread-safe.
+ */
+public class YenKSP {
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private final CSRDigraph G;
+    private final DirectedEdge[] edgeOf;        // edgeOf[e] = the edge of the original digraph with CSR id e
+    private final int s, t;
+    private final double[] toTarget;            // toTarget[v] = distance of a shortest v->t path
+    private final int[] nextEdge;               // nextEdge[v] = first edge of a shortest v->t path, or -1
+    private final List<Path> accepted = new ArrayList<>();
+    private final PriorityQueue<Path> candidates = new PriorityQueue<>();
+    private final Set<Path> seen = new HashSet<>();
+    private final ThreadLocal<SpurSearch> searches;
+
+    /**
+     * Prepares to enumerate the loopless paths from {s} to {t} in {digraph} in increasing order of weight.
+     */
+    public YenKSP(EdgeWeightedDigraph digraph, int s, int t) {
+        G = new CSRDigraph(digraph);
+        int V = G.getNumberofVertices();
+        edgeOf = new DirectedEdge[G.getNumberOfEdges()];
+        int id = 0;
+        for (int v = 0; v < V; v++) {
+            for (DirectedEdge e : digraph.getAdjacencyEdgesList(v)) {
+                if (e.weight() < 0) throw new IllegalArgumentException("edge " + e + " has negative weight");
+                edgeOf[id++] = e;
+            }
+        }
+        this.s = s;
+        this.t = t;
+        validateVertex(s);
+        validateVertex(t);
+
+        // Dijkstra from t on the reverse digraph
+        toTarget = new double[V];
+        nextEdge = new int[V];
+        Arrays.fill(toTarget, Double.POSITIVE_INFINITY);
+        Arrays.fill(nextEdge, -1);
+        CSRDigraph reverse = G.reverse();
+        int[] original = G.reverseEdgeIds();
+        IndexDaryMinPQ pq = new IndexDaryMinPQ(V);
+        toTarget[t] = 0.0;
+        pq.insert(t, 0.0);
+        while (!pq.isEmpty()) {
+            int w = pq.delMin();
+            for (int e = reverse.begin(w); e < reverse.end(w); e++) {
+                int v = reverse.target(e);
+                double d = toTarget[w] + reverse.weight(e);
+                if (d >= toTarget[v]) continue;
+                toTarget[v] = d;
+                nextEdge[v] = original[e];
+                if (pq.contains(v)) pq.decreasePriority(v, d);
+                else pq.insert(v, d);
+            }
+        }
+        searches = ThreadLocal.withInitial(() -> new SpurSearch(V, G.getNumberOfEdges()));
+    }
+
+    // a loopless s->t path as CSR edge ids; deviation is the index of its first edge that differs from its parent
+    private static final class Path implements Comparable<Path> {
+        final int[] edges;
+        final double weight;
+        final int deviation;
+
+        Path(int[] edges, double weight, int deviation) {
+            this.edges = edges;
+            this.weight = weight;
+            this.deviation = deviation;
+        }
+
+        public int compareTo(Path that) {
+            if (weight != that.weight) return Double.compare(weight, that.weight);
+            if (edges.length != that.edges.length) return Integer.compare(edges.length, that.edges.length);
+            return Arrays.compare(edges, that.edges);
+        }
+
+        public boolean equals(Object other) {
+            return other instanceof Path && Arrays.equals(edges, ((Path) other).edges);
+        }
+
+        public int hashCode() {
+            return Arrays.hashCode(edges);
+        }
+    }
+
+    // the arrays of one thread's spur searches, reused from search to search
+    private final class SpurSearch {
+        final double[] dist;
+        final int[] edgeTo;
+        final int[] parent;
+        final int[] removedVertex;   // removedVertex[v] == search: v is on the root path of the current search
+        final int[] removedEdge;     // removedEdge[e] == search: e is removed for the current search
+        final int[] touched;
+        final IndexDaryMinPQ pq;
+        int touchedSize;
+        int search;
+
+        SpurSearch(int V, int E) {
+            dist = new double[V];
+            edgeTo = new int[V];
+            parent = new int[V];
+            removedVertex = new int[V];
+            removedEdge = new int[E];
+            touched = new int[V];
+            pq = new IndexDaryMinPQ(V);
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        }
+
+        // a shortest path from vertices[i] to t avoiding vertices[0 .. i - 1] and the i-th edges of the accepted
+        // paths whose first i edges are those of the last one (common[j] >= i), or null
+        int[] run(int i, int[] vertices, int[] common) {
+            search++;
+            for (int j = 0; j < i; j++)
+                removedVertex[vertices[j]] = search;
+            for (int j = 0; j < common.length; j++) {
+                int[] other = accepted.get(j).edges;
+                if (common[j] >= i && other.length > i) removedEdge[other[i]] = search;
+            }
+            int spur = vertices[i];
+
+            int[] path = null;
+            visit(spur, -1, 0.0, -1);
+            while (!pq.isEmpty()) {
+                int v = pq.delMin();
+                if (v == t) {
+                    int length = 0;
+                    for (int x = t; x != spur; x = parent[x])
+                        length++;
+                    path = new int[length];
+                    for (int x = t; x != spur; x = parent[x])
+                        path[--length] = edgeTo[x];
+                    break;
+                }
+                for (int e = G.begin(v); e < G.end(v); e++) {
+                    int w = G.target(e);
+                    if (removedEdge[e] == search || removedVertex[w] == search) continue;
+                    visit(w, v, dist[v] + G.weight(e), e);
+                }
+            }
+
+            for (int j = 0; j < touchedSize; j++)
+                dist[touched[j]] = Double.POSITIVE_INFINITY;
+            touchedSize = 0;
+            pq.clear();
+            return path;
+        }
+
+        private void visit(int w, int v, double d, int e) {
+            if (d >= dist[w] || toTarget[w] == Double.POSITIVE_INFINITY) return;
+            if (dist[w] == Double.POSITIVE_INFINITY) touched[touchedSize++] = w;
+            dist[w] = d;
+            edgeTo[w] = e;
+            parent[w] = v;
+            double key = d + toTarget[w];
+            if (!pq.contains(w)) pq.insert(w, key);
+            else if (key < pq.keyOf(w)) pq.decreasePriority(w, key);
+        }
+    }
+
+    /**
+     * Is there a k-th shortest loopless path (counting from 0)?
+     */
+    public boolean hasPath(int k) {
+        if (k < 0) throw new IllegalArgumentException("k must be nonnegative");
+        while (accepted.size() <= k && advance()) ;
+        return k < accepted.size();
+    }
+
+    /**
+     * Returns the weight of the k-th shortest loopless path, or infinity if there are at most k paths.
+     */
+    public double weight(int k) {
+        return hasPath(k) ? accepted.get(k).weight : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the k-th shortest loopless path, or null if there are at most k paths. The edges are looked up
+     * while the path is iterated.
+     */
+    public Iterable<DirectedEdge> path(int k) {
+        if (!hasPath(k)) return null;
+        int[] edges = accepted.get(k).edges;
+        return () -> new Iterator<DirectedEdge>() {
+            private int i = 0;
+
+            public boolean hasNext() {
+                return i < edges.length;
+            }
+
+            public DirectedEdge next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return edgeOf[edges[i++]];
+            }
+        };
+    }
+
+    /**
+     * Returns all loopless s->t paths in increasing order of weight. Each path is computed when the iteration
+     * gets to it, so stopping after k paths costs the same as {#path(k - 1)}.
+     */
+    public Iterable<Iterable<DirectedEdge>> paths() {
+        return () -> new Iterator<Iterable<DirectedEdge>>() {
+            private int k = 0;
+
+            public boolean hasNext() {
+                return hasPath(k);
+            }
+
+            public Iterable<DirectedEdge> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return path(k++);
+            }
+        };
+    }
+
+    // accepts the next path; false if there are no more
+    private boolean advance() {
+        if (accepted.isEmpty()) {
+            if (toTarget[s] == Double.POSITIVE_INFINITY) return false;
+            int length = 0;
+            for (int v = s; v != t; v = G.target(nextEdge[v]))
+                length++;
+            int[] edges = new int[length];
+            length = 0;
+            for (int v = s; v != t; v = G.target(nextEdge[v]))
+                edges[length++] = nextEdge[v];
+            Path first = new Path(edges, toTarget[s], 0);
+            accepted.add(first);
+            seen.add(first);
+            return true;
+        }
+
+        Path last = accepted.get(accepted.size() - 1);
+        int[] edges = last.edges;
+        if (edges.length == 0) return false;   // s == t: the empty path is the only loopless one
+        int[] vertices = new int[edges.length];     // vertices[i] = tail of edges[i]
+        double[] rootWeight = new double[edges.length];
+        vertices[0] = s;
+        for (int i = 1; i < edges.length; i++) {
+            vertices[i] = G.target(edges[i - 1]);
+            rootWeight[i] = rootWeight[i - 1] + G.weight(edges[i - 1]);
+        }
+        // common[j] = number of leading edges accepted path j shares with the last one
+        int[] common = new int[accepted.size()];
+        for (int j = 0; j < accepted.size(); j++) {
+            int[] other = accepted.get(j).edges;
+            int c = 0;
+            while (c < other.length && c < edges.length && other[c] == edges[c]) c++;
+            common[j] = c;
+        }
+
+        // Lawler: spurs before the deviation were already searched from the parent of the last path
+        int first = last.deviation;
+        Path[] spurs = new Path[edges.length - first];
+        IntStream range = IntStream.range(first, edges.length);
+        (G.getNumberofVertices() < PARALLEL_THRESHOLD ? range : range.parallel()).forEach(i -> {
+            int[] spur = searches.get().run(i, vertices, common);
+            if (spur == null) return;
+            int[] candidate = Arrays.copyOf(edges, i + spur.length);
+            System.arraycopy(spur, 0, candidate, i, spur.length);
+            double weight = rootWeight[i];
+            for (int e : spur)
+                weight += G.weight(e);
+            spurs[i - first] = new Path(candidate, weight, i);
+        });
+        for (Path candidate : spurs)
+            if (candidate != null && seen.add(candidate)) candidates.add(candidate);
+
+        if (candidates.isEmpty()) return false;
+        accepted.add(candidates.poll());
+        return true;
+    }
+
+    private void validateVertex(int v) {
+        int V = G.getNumberofVertices();
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    public static void main(String[] args) {
+        In in = new In(args[0]);
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(in);
+        int s = Integer.parseInt(args[1]);
+        int t = Integer.parseInt(args[2]);
+        int k = Integer.parseInt(args[3]);
+        YenKSP ksp = new YenKSP(G, s, t);
+        for (int i = 0; i < k && ksp.hasPath(i); i++) {
+            StdOut.printf("%d to %d (%.2f) ", s, t, ksp.weight(i));
+            for (DirectedEdge e : ksp.path(i)) {
+                StdOut.print(e + " ");
+            }
+            StdOut.println();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 import java.util.Scanner;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.PriorityQueue;
+import java.util.stream.IntStream;
 
 public class DistPreprocessSmall {
     private static class Impl {
@@ -14,11 +16,24 @@ public class DistPreprocessSmall {
         boolean[] visited;
         ArrayList<Integer> workset;
         final Long INFINITY = Long.MAX_VALUE / 4;
- 
+        // A witness search gives up after settling this many nodes; the shortcut is then added anyway
+        final int WITNESS_SETTLED_LIMIT = 500;
+
         // Position of the node in the node ordering
         Integer[] rank;
         // Level of the node for level heuristic in the node ordering
         Long[] level;
+        // contracted[v] == true iff v has already been removed from the remaining graph
+        boolean[] contracted;
+        // The shortcuts needed to contract the node passed to the last call of shortcut()
+        ArrayList<Shortcut> shortcuts;
+
+        // After preprocessing: the upward edges (towards higher rank) of the graph with shortcuts, in primitive
+        // arrays. Side 0 holds the forward edges, side 1 the reversed edges, as in adj; the edges of node v
+        // are upTarget[side][upStart[side][v]] .. upTarget[side][upStart[side][v + 1] - 1].
+        int[][] upStart;
+        int[][] upTarget;
+        long[][] upCost;
 
         Impl(int n) {
             this.n = n;
@@ -27,6 +42,8 @@ public class DistPreprocessSmall {
             workset = new ArrayList<Integer>();
             rank = new Integer[n];
             level = new Long[n];
+            contracted = new boolean[n];
+            shortcuts = new ArrayList<Shortcut>();
             distance = new Long[][] {new Long[n], new Long[n]};
             for (int i = 0; i < n; ++i) {
                 distance[0][i] = distance[1][i] = INFINITY;
@@ -42,14 +59,29 @@ public class DistPreprocessSmall {
         void preprocess() {
             // This priority queue will contain pairs (importance, node) with the least important node in the head
             PriorityQueue<Entry> q = new PriorityQueue<Entry>(n);
-            // Implement this method yourself
+            for (int v = 0; v < n; ++v) {
+                q.add(new Entry(shortcut(v), v));
+            }
+            int order = 0;
+            while (!q.isEmpty()) {
+                int v = q.poll().node;
+                // Lazy update: the importance may have grown since v was queued
+                Long importance = shortcut(v);
+                if (!q.isEmpty() && importance > q.peek().cost) {
+                    q.add(new Entry(importance, v));
+                    continue;
+                }
+                contract(v);
+                rank[v] = order++;
+            }
+            buildUpwardGraphs();
         }
 
         void add_edge(int side, int u, int v, Long c) {
             for (int i = 0; i < adj[side][u].size(); ++i) {
                 int w = adj[side][u].get(i);
                 if (w == v) {
-                    Long cc = min(cost[side][u].get(i), c);
+                    Long cc = Math.min(cost[side][u].get(i), c);
                     cost[side][u].set(i, cc);
                     return;
                 }
@@ -80,47 +112,350 @@ public class DistPreprocessSmall {
 
         // See the description of this method in the starter for friend_suggestion
         boolean visit(int side, int v, Long dist) {
-            // Implement this method yourself
-            return false;
-        }                
+            if (dist >= distance[side][v]) {
+                return false;
+            }
+            if (!visited[v]) {
+                mark_visited(v);
+            }
+            distance[side][v] = dist;
+            queue.get(side).add(new Entry(dist, v));
+            return true;
+        }
+
+        // Dijkstra from u in the remaining graph without v, up to distance limit
+        void witnessSearch(int u, int v, Long limit) {
+            clear();
+            visit(0, u, 0L);
+            PriorityQueue<Entry> q = queue.get(0);
+            int settled = 0;
+            while (!q.isEmpty() && settled < WITNESS_SETTLED_LIMIT) {
+                Entry e = q.poll();
+                if (e.cost > distance[0][e.node]) {
+                    continue;
+                }
+                if (e.cost > limit) {
+                    break;
+                }
+                ++settled;
+                for (int i = 0; i < adj[0][e.node].size(); ++i) {
+                    int w = adj[0][e.node].get(i);
+                    if (w != v && !contracted[w]) {
+                        visit(0, w, e.cost + cost[0][e.node].get(i));
+                    }
+                }
+            }
+        }
 
         // Add the shortcuts corresponding to contracting node v. Return v's importance.
+        // The shortcuts are collected in the shortcuts list and only added to the graph by contract(v).
         Long shortcut(int v) {
-            // Implement this method yourself
+            shortcuts.clear();
+            HashSet<Integer> covered = new HashSet<Integer>();
+            for (int i = 0; i < adj[1][v].size(); ++i) {
+                int u = adj[1][v].get(i);
+                if (u == v || contracted[u]) {
+                    continue;
+                }
+                Long maxOut = -1L;
+                for (int j = 0; j < adj[0][v].size(); ++j) {
+                    int w = adj[0][v].get(j);
+                    if (w != u && w != v && !contracted[w]) {
+                        maxOut = Math.max(maxOut, cost[0][v].get(j));
+                    }
+                }
+                if (maxOut < 0) {
+                    continue;
+                }
+                Long in = cost[1][v].get(i);
+                witnessSearch(u, v, in + maxOut);
+                for (int j = 0; j < adj[0][v].size(); ++j) {
+                    int w = adj[0][v].get(j);
+                    if (w == u || w == v || contracted[w]) {
+                        continue;
+                    }
+                    Long through = in + cost[0][v].get(j);
+                    if (distance[0][w] > through) {
+                        shortcuts.add(new Shortcut(u, w, through));
+                        covered.add(u);
+                        covered.add(w);
+                    }
+                }
+            }
+            clear();
 
             // Compute the node importance in the end
-            Long shortcuts = 0;
-            Long vlevel = 0L;
+            Long shortcuts = (long) this.shortcuts.size();
+            Long vlevel = level[v];
             Long neighbors = 0L;
-            Long shortcutCover = 0L;
-            // Compute the correct values for the above heuristics before computing the node importance
+            Long shortcutCover = (long) covered.size();
+            for (int side = 0; side < 2; ++side) {
+                for (int w : adj[side][v]) {
+                    if (contracted[w]) {
+                        ++neighbors;
+                    }
+                }
+            }
             Long importance = (shortcuts - adj[0][v].size() - adj[1][v].size()) + neighbors + shortcutCover + vlevel;
             return importance;
         }
 
+        // Remove v from the remaining graph, adding the shortcuts found by the last call of shortcut(v)
+        void contract(int v) {
+            for (Shortcut sc : shortcuts) {
+                apply_shortcut(sc);
+            }
+            contracted[v] = true;
+            for (int side = 0; side < 2; ++side) {
+                for (int w : adj[side][v]) {
+                    level[w] = Math.max(level[w], level[v] + 1);
+                }
+            }
+        }
+
+        void buildUpwardGraphs() {
+            upStart = new int[2][n + 1];
+            upTarget = new int[2][];
+            upCost = new long[2][];
+            for (int side = 0; side < 2; ++side) {
+                for (int v = 0; v < n; ++v) {
+                    int up = 0;
+                    for (int w : adj[side][v]) {
+                        if (rank[w] > rank[v]) {
+                            ++up;
+                        }
+                    }
+                    upStart[side][v + 1] = upStart[side][v] + up;
+                }
+                upTarget[side] = new int[upStart[side][n]];
+                upCost[side] = new long[upStart[side][n]];
+                for (int v = 0; v < n; ++v) {
+                    int k = upStart[side][v];
+                    for (int i = 0; i < adj[side][v].size(); ++i) {
+                        int w = adj[side][v].get(i);
+                        if (rank[w] > rank[v]) {
+                            upTarget[side][k] = w;
+                            upCost[side][k++] = cost[side][v].get(i);
+                        }
+                    }
+                }
+            }
+        }
+
         // Returns the distance from s to t in the graph
         Long query(int s, int t) {
+            clear();
             if (s == t) {
                 return 0L;
             }
             visit(0, s, 0L);
             visit(1, t, 0L);
             Long estimate = INFINITY;
-            // Implement the rest of the algorithm yourself
-            return estimate == INFINITY ? -1 : estimate;            
+            // Both searches only go up the hierarchy; they meet at the highest node of a shortest path
+            while (!queue.get(0).isEmpty() || !queue.get(1).isEmpty()) {
+                for (int side = 0; side < 2; ++side) {
+                    PriorityQueue<Entry> q = queue.get(side);
+                    if (q.isEmpty()) {
+                        continue;
+                    }
+                    Entry e = q.poll();
+                    int v = e.node;
+                    if (e.cost > distance[side][v]) {
+                        continue;
+                    }
+                    if (e.cost >= estimate) {
+                        q.clear();
+                        continue;
+                    }
+                    if (distance[1 - side][v] < INFINITY) {
+                        estimate = Math.min(estimate, e.cost + distance[1 - side][v]);
+                    }
+                    for (int i = upStart[side][v]; i < upStart[side][v + 1]; ++i) {
+                        visit(side, upTarget[side][i], e.cost + upCost[side][i]);
+                    }
+                }
+            }
+            return estimate.equals(INFINITY) ? -1 : estimate;
+        }
+
+        // Returns the |sources| x |targets| matrix of distances in row-major order: the distance from
+        // sources[i] to targets[j] is at index i * targets.length + j, or -1 if there is no path.
+        // One backward upward search per target leaves bucket entries (target, distance) at every node it
+        // reaches; one forward upward search per source then only scans the buckets of the nodes it reaches.
+        // Both phases run in parallel, each search in its own workspace.
+        long[] distanceTable(int[] sources, int[] targets) {
+            int S = sources.length, T = targets.length;
+            ThreadLocal<UpwardSearch> workspace = ThreadLocal.withInitial(UpwardSearch::new);
+
+            // Backward searches, then sort the entries by node into buckets
+            int[][] reachedBy = new int[T][];
+            long[][] distanceTo = new long[T][];
+            IntStream.range(0, T).parallel().forEach(j -> {
+                UpwardSearch search = workspace.get();
+                search.run(1, targets[j]);
+                reachedBy[j] = Arrays.copyOf(search.reached, search.reachedCount);
+                distanceTo[j] = new long[search.reachedCount];
+                for (int k = 0; k < search.reachedCount; ++k) {
+                    distanceTo[j][k] = search.dist[search.reached[k]];
+                }
+            });
+            int[] bucketStart = new int[n + 1];
+            for (int j = 0; j < T; ++j) {
+                for (int v : reachedBy[j]) {
+                    ++bucketStart[v + 1];
+                }
+            }
+            for (int v = 0; v < n; ++v) {
+                bucketStart[v + 1] += bucketStart[v];
+            }
+            int[] bucketTarget = new int[bucketStart[n]];
+            long[] bucketDistance = new long[bucketStart[n]];
+            int[] next = Arrays.copyOf(bucketStart, n);
+            for (int j = 0; j < T; ++j) {
+                for (int k = 0; k < reachedBy[j].length; ++k) {
+                    int v = reachedBy[j][k];
+                    bucketTarget[next[v]] = j;
+                    bucketDistance[next[v]++] = distanceTo[j][k];
+                }
+            }
+
+            // Forward searches; every source writes only its own row
+            long[] table = new long[S * T];
+            Arrays.fill(table, INFINITY);
+            IntStream.range(0, S).parallel().forEach(i -> {
+                UpwardSearch search = workspace.get();
+                search.run(0, sources[i]);
+                int row = i * T;
+                for (int k = 0; k < search.reachedCount; ++k) {
+                    int v = search.reached[k];
+                    long d = search.dist[v];
+                    for (int b = bucketStart[v]; b < bucketStart[v + 1]; ++b) {
+                        table[row + bucketTarget[b]] = Math.min(table[row + bucketTarget[b]], d + bucketDistance[b]);
+                    }
+                }
+            });
+            for (int i = 0; i < table.length; ++i) {
+                if (table[i] >= INFINITY) {
+                    table[i] = -1;
+                }
+            }
+            return table;
+        }
+
+        // The state of one complete upward search in primitive arrays, reused between searches
+        class UpwardSearch {
+            final long[] dist = new long[n];
+            // The nodes settled with their shortest distance (not stalled)
+            final int[] reached = new int[n];
+            int reachedCount;
+            // Every node whose distance was set, to reset dist for the next search
+            final int[] touched = new int[n];
+            int touchedCount;
+            // Binary min-heap of (key, node) with lazy deletion of outdated entries
+            long[] heapKey = new long[16];
+            int[] heapNode = new int[16];
+            int heapSize;
+
+            UpwardSearch() {
+                Arrays.fill(dist, INFINITY);
+            }
+
+            // Settles every node reachable from s over the upward edges of the given side
+            void run(int side, int s) {
+                for (int i = 0; i < touchedCount; ++i) {
+                    dist[touched[i]] = INFINITY;
+                }
+                touchedCount = 0;
+                reachedCount = 0;
+                heapSize = 0;
+                dist[s] = 0;
+                touched[touchedCount++] = s;
+                push(0, s);
+                while (heapSize > 0) {
+                    long d = heapKey[0];
+                    int v = heapNode[0];
+                    pop();
+                    if (d > dist[v]) {
+                        continue;
+                    }
+                    if (stalled(side, v)) {
+                        continue;
+                    }
+                    reached[reachedCount++] = v;
+                    for (int i = upStart[side][v]; i < upStart[side][v + 1]; ++i) {
+                        int w = upTarget[side][i];
+                        long nd = d + upCost[side][i];
+                        if (nd < dist[w]) {
+                            if (dist[w] >= INFINITY) {
+                                touched[touchedCount++] = w;
+                            }
+                            dist[w] = nd;
+                            push(nd, w);
+                        }
+                    }
+                }
+            }
+
+            // Stall-on-demand: v is reached more cheaply through a higher node, so its distance is not a
+            // shortest one and it cannot be the top of a shortest path
+            boolean stalled(int side, int v) {
+                int other = 1 - side;
+                for (int i = upStart[other][v]; i < upStart[other][v + 1]; ++i) {
+                    int u = upTarget[other][i];
+                    if (dist[u] < INFINITY && dist[u] + upCost[other][i] < dist[v]) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            void push(long key, int node) {
+                if (heapSize == heapKey.length) {
+                    heapKey = Arrays.copyOf(heapKey, 2 * heapSize);
+                    heapNode = Arrays.copyOf(heapNode, 2 * heapSize);
+                }
+                int i = heapSize++;
+                while (i > 0 && heapKey[(i - 1) / 2] > key) {
+                    heapKey[i] = heapKey[(i - 1) / 2];
+                    heapNode[i] = heapNode[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heapKey[i] = key;
+                heapNode[i] = node;
+            }
+
+            void pop() {
+                long key = heapKey[--heapSize];
+                int node = heapNode[heapSize];
+                int i = 0;
+                while (2 * i + 1 < heapSize) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) {
+                        ++child;
+                    }
+                    if (heapKey[child] >= key) {
+                        break;
+                    }
+                    heapKey[i] = heapKey[child];
+                    heapNode[i] = heapNode[child];
+                    i = child;
+                }
+                heapKey[i] = key;
+                heapNode[i] = node;
+            }
         }
 
         class Entry implements Comparable<Entry>
         {
             Long cost;
             int node;
-          
+
             public Entry(Long cost, int node)
             {
                 this.cost = cost;
                 this.node = node;
             }
-         
+
             public int compareTo(Entry other)
             {
                 if (cost == other.cost) {
@@ -145,6 +480,8 @@ public class DistPreprocessSmall {
         }
     }
 
+    // java DistPreprocessSmall         answers the t queries "u v" that follow "Ready"
+    // java DistPreprocessSmall -table  instead reads "k s_1 .. s_k l t_1 .. t_l" and prints the k x l distance matrix
     public static void main(String args[]) {
         Scanner in = new Scanner(System.in);
         int n = in.nextInt();
@@ -184,6 +521,27 @@ public class DistPreprocessSmall {
         ch.preprocess();
         System.out.println("Ready");
 
+        if (args.length > 0 && args[0].equals("-table")) {
+            int[] sources = new int[in.nextInt()];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = in.nextInt() - 1;
+            }
+            int[] targets = new int[in.nextInt()];
+            for (int j = 0; j < targets.length; j++) {
+                targets[j] = in.nextInt() - 1;
+            }
+            long[] table = ch.distanceTable(sources, targets);
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < sources.length; i++) {
+                for (int j = 0; j < targets.length; j++) {
+                    out.append(j == 0 ? "" : " ").append(table[i * targets.length + j]);
+                }
+                out.append('\n');
+            }
+            System.out.print(out);
+            return;
+        }
+
         int t = in.nextInt();
 
         for (int i = 0; i < t; i++) {
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The GraphBenchmarks class runs the benchmarks of {GraphBenchmark} that scale to large graphs under JMH, on the
+ * same seeded random graphs, at V = 1000, 10000 and 100000 vertices and 8V edges (grids: about 2V edges).
+ * <p>
+ * Every (benchmark, V) pair runs in two forked JVMs with a fixed heap, after warmup iterations; the result of every
+ * operation goes to JMH's blackhole. Run with {-prof gc} for the allocation rate and GC counts, and compare the
+ * scores across V for the scaling curve.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GraphBenchmarks {
+    @Param({"DijkstraSP", "BellmanFordSP", "KruskalMST", "PrimMST", "ParallelPrimMST", "LazyPrimMST", "BoruvkaMST",
+            "BreadthFirstPaths", "DepthFirstOrder", "ParallelCC", "UF", "WeightedQuickUnionUF",
+            "DijkstraSP/grid", "DijkstraSP/grid+RCM", "BreadthFirstPaths/grid", "BreadthFirstPaths/grid+RCM",
+            "PrimMST/grid", "PrimMST/grid+RCM"})
+    public String benchmark;
+
+    @Param({"1000", "10000", "100000"})
+    public int V;
+
+    private Supplier<Object> operation;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        operation = Operations.of(benchmark, V);
+    }
+
+    @Benchmark
+    public Object run() {
+        return operation.get();
+    }
+}
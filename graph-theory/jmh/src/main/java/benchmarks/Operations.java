@@ -0,0 +1,31 @@
+package benchmarks;
+
+import java.util.function.Supplier;
+
+/**
+ * The Operations class looks up the operations of {GraphBenchmark}. The algorithms are in the default package,
+ * which a named package such as this one cannot import, so the lookup is reflective; it is done once per trial,
+ * outside of the measured code.
+ */
+final class Operations {
+
+    // Do not instantiate.
+    private Operations() { }
+
+    /**
+     * Returns the operation of benchmark {name} on the graphs of scale {V}.
+     */
+    @SuppressWarnings("unchecked")
+    static Supplier<Object> of(String name, int V) {
+        try {
+            return (Supplier<Object>) Class.forName("GraphBenchmark")
+                    .getMethod("operation", String.class, int.class)
+                    .invoke(null, name, V);
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("GraphBenchmark is not on the class path", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The SmallGraphBenchmarks class runs the benchmarks of {GraphBenchmark} that do not scale to large graphs under
+ * JMH: the quadratic union-finds and the recursive {CC}, at V = 1000 (the union-finds also run at {-p V=10000}).
+ * It is set up like {GraphBenchmarks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SmallGraphBenchmarks {
+    @Param({"CC", "QuickUnionUF", "QuickFindUF"})
+    public String benchmark;
+
+    @Param({"1000"})
+    public int V;
+
+    private Supplier<Object> operation;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        operation = Operations.of(benchmark, V);
+    }
+
+    @Benchmark
+    public Object run() {
+        return operation.get();
+    }
+}
@@ -0,0 +1,191 @@
+package util; /******************************************************************************
+ *  Minimum-oriented indexed PQ of primitive double keys using a d-ary heap.
+ ******************************************************************************/
+
+import java.util.NoSuchElementException;
+
+/**
+ * an indexed priority queue of double keys, like {IndexMinPQ<Double>} but without boxing: the heap, the
+ * positions and the keys are primitive arrays, so no objects are allocated after construction.
+ * Every key has a secondary int key (for example an edge id) that breaks ties, so the order is total and
+ * deterministic; use 0 when ties do not matter.
+ * The heap is d-ary (4-ary by default): it is shallower than a binary heap, so insert and decrease-priority
+ * move fewer entries, and the d children of a node are adjacent in memory when delete-the-minimum looks for
+ * the smallest one.
+ * The insert and decrease-priority operations take O(log_d n) time, delete-the-minimum O(d log_d n).
+ * {#clear()} takes time proportional to the number of elements, not to the capacity, so one queue can be
+ * reused for many small searches.
+ */
+public class IndexDaryMinPQ {
+    private final int d;            // number of children of a node
+    private final int[] heap;       // heap[k] = index at heap position k, 0-based
+    private final int[] position;   // position[i] = heap position of index i, or -1 if i is not on the PQ
+    private final double[] keys;    // keys[i] = priority of index i
+    private final int[] ties;       // ties[i] = secondary priority of index i
+    private int size;
+
+    public IndexDaryMinPQ(int maxN) {
+        this(maxN, 4);
+    }
+
+    public IndexDaryMinPQ(int maxN, int d) {
+        if (maxN < 0) throw new IllegalArgumentException();
+        if (d < 2) throw new IllegalArgumentException("a heap node needs at least 2 children");
+        this.d = d;
+        heap = new int[maxN];
+        position = new int[maxN];
+        keys = new double[maxN];
+        ties = new int[maxN];
+        java.util.Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int i) {
+        validateIndex(i);
+        return position[i] >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void insert(int i, double priority) {
+        insert(i, priority, 0);
+    }
+
+    public void insert(int i, double priority, int tie) {
+        validateIndex(i);
+        if (contains(i)) throw new IllegalArgumentException("index is already in the priority queue");
+        keys[i] = priority;
+        ties[i] = tie;
+        heap[size] = i;
+        position[i] = size;
+        swim(size++);
+    }
+
+    public int minIndex() {
+        if (size == 0) throw new NoSuchElementException("Priority queue underflow");
+        return heap[0];
+    }
+
+    public double minKey() {
+        return keys[minIndex()];
+    }
+
+    public int delMin() {
+        int min = minIndex();
+        int last = heap[--size];
+        position[min] = -1;
+        if (size > 0) {
+            heap[0] = last;
+            position[last] = 0;
+            sink(0);
+        }
+        return min;
+    }
+
+    public double keyOf(int i) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        return keys[i];
+    }
+
+    public int tieOf(int i) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        return ties[i];
+    }
+
+    public void decreasePriority(int i, double priority) {
+        decreasePriority(i, priority, ties[i]);
+    }
+
+    public void decreasePriority(int i, double priority, int tie) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        if (!less(priority, tie, keys[i], ties[i]))
+            throw new IllegalArgumentException("Calling decreasePriority() with a priority not smaller than the key in the priority queue");
+        keys[i] = priority;
+        ties[i] = tie;
+        swim(position[i]);
+    }
+
+    public void changePriority(int i, double priority, int tie) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        keys[i] = priority;
+        ties[i] = tie;
+        swim(position[i]);
+        sink(position[i]);
+    }
+
+    public void delete(int i) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        int k = position[i];
+        int last = heap[--size];
+        position[i] = -1;
+        if (k < size) {
+            heap[k] = last;
+            position[last] = k;
+            swim(k);
+            sink(position[last]);
+        }
+    }
+
+    /**
+     * Removes all elements.
+     */
+    public void clear() {
+        for (int k = 0; k < size; k++)
+            position[heap[k]] = -1;
+        size = 0;
+    }
+
+    private static boolean less(double key, int tie, double otherKey, int otherTie) {
+        return key < otherKey || (key == otherKey && tie < otherTie);
+    }
+
+    private boolean greater(int k, int j) {
+        int i = heap[k], m = heap[j];
+        return less(keys[m], ties[m], keys[i], ties[i]);
+    }
+
+    private void swim(int k) {
+        int i = heap[k];
+        while (k > 0) {
+            int parent = (k - 1) / d;
+            int p = heap[parent];
+            if (!less(keys[i], ties[i], keys[p], ties[p])) break;
+            heap[k] = p;
+            position[p] = k;
+            k = parent;
+        }
+        heap[k] = i;
+        position[i] = k;
+    }
+
+    private void sink(int k) {
+        while (true) {
+            int first = d * k + 1;
+            if (first >= size) break;
+            int smallest = first;
+            for (int j = first + 1; j < Math.min(first + d, size); j++)
+                if (greater(smallest, j)) smallest = j;
+            if (!greater(k, smallest)) break;
+            exchange(k, smallest);
+            k = smallest;
+        }
+    }
+
+    private void exchange(int k, int j) {
+        int swap = heap[k];
+        heap[k] = heap[j];
+        heap[j] = swap;
+        position[heap[k]] = k;
+        position[heap[j]] = j;
+    }
+
+    private void validateIndex(int i) {
+        if (i < 0) throw new IllegalArgumentException("index is negative: " + i);
+        if (i >= heap.length) throw new IllegalArgumentException("index >= capacity: " + i);
+    }
+}